@@ -9,6 +9,7 @@ import com.github.javaparser.resolution.declarations.ResolvedValueDeclaration;
 import com.github.javaparser.resolution.types.ResolvedReferenceType;
 import com.github.javaparser.resolution.types.ResolvedType;
 import com.raditha.dedup.model.*;
+import com.raditha.dedup.util.SymbolResolution;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +24,32 @@ public class ASTVariationAnalyzer {
 
     private static final Logger logger = LoggerFactory.getLogger(ASTVariationAnalyzer.class);
 
+    private final TypeResolutionCache typeCache;
+
+    /**
+     * Creates an analyzer with its own unbounded type resolution cache.
+     */
+    public ASTVariationAnalyzer() {
+        this(new TypeResolutionCache());
+    }
+
+    /**
+     * Creates an analyzer that shares the given type resolution cache.
+     *
+     * @param typeCache cache for expression types and field types
+     */
+    public ASTVariationAnalyzer(TypeResolutionCache typeCache) {
+        this.typeCache = typeCache;
+    }
+
+    /**
+     * Forget cached expression and field types, for example after the ASTs were
+     * edited or re-parsed.
+     */
+    public void clearCaches() {
+        typeCache.clear();
+    }
+
     /**
      * Analyze variations between two statement sequences.
      * 
@@ -248,10 +275,10 @@ public class ASTVariationAnalyzer {
 
             try {
                 // Try to resolve using JavaParser's built-in resolution
-                ResolvedValueDeclaration resolved = nameExpr.resolve();
+                ResolvedValueDeclaration resolved = SymbolResolution.guarded(nameExpr::resolve);
 
                 Scope scope = determineScope(resolved);
-                ResolvedType type = resolved.getType();
+                ResolvedType type = SymbolResolution.guarded(resolved::getType);
 
                 varRefs.add(new VariableReference(
                         name,
@@ -302,32 +329,20 @@ public class ASTVariationAnalyzer {
      * Resolve the type of an expression.
      */
     private ResolvedType resolveExpressionType(Expression expr) {
-        try {
-            return expr.calculateResolvedType();
-        } catch (Exception e) {
-            // Fallback: manual AST lookup for fields
-            if (expr.isNameExpr()) {
-                String name = expr.asNameExpr().getNameAsString();
-                ResolvedType fallback = manualFieldLookup(expr, name);
-                if (fallback != null) {
-                    return fallback;
-                }
-            }
-            return null;
+        ResolvedType type = typeCache.resolve(expr);
+        if (type != null) {
+            return type;
         }
+        // Fallback: manual AST lookup for fields
+        if (expr.isNameExpr()) {
+            return manualFieldLookup(expr, expr.asNameExpr().getNameAsString());
+        }
+        return null;
     }
 
     private ResolvedType manualFieldLookup(com.github.javaparser.ast.Node node, String name) {
-        Optional<com.github.javaparser.ast.body.ClassOrInterfaceDeclaration> classDecl = node
-                .findAncestor(com.github.javaparser.ast.body.ClassOrInterfaceDeclaration.class);
-        if (classDecl.isPresent()) {
-            Optional<com.github.javaparser.ast.body.FieldDeclaration> field = classDecl.get().getFieldByName(name);
-            if (field.isPresent()) {
-                String typeName = field.get().getCommonType().asString();
-                return new SimpleResolvedType(typeName);
-            }
-        }
-        return null;
+        String typeName = typeCache.fieldType(node, name);
+        return typeName != null ? new SimpleResolvedType(typeName) : null;
     }
 
     /**
@@ -11,8 +11,10 @@ import com.raditha.dedup.model.SimilarityResult;
 import com.raditha.dedup.normalization.ASTNormalizer;
 import com.raditha.dedup.normalization.NormalizedNode;
 import com.raditha.dedup.config.SimilarityWeights;
+import com.raditha.dedup.util.ParallelTasks;
 
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * Refines duplicate boundaries by trimming usage-only trailing statements.
@@ -42,6 +44,7 @@ public class BoundaryRefiner {
     private final ASTSimilarityCalculator similarityCalculator;
     private final int minStatements;
     private final double threshold;
+    private final int parallelism;
 
     /**
      * Create boundary refiner with dependencies.
@@ -51,11 +54,24 @@ public class BoundaryRefiner {
      * @param threshold        Minimum similarity for trimmed sequences
      */
     public BoundaryRefiner(DataFlowAnalyzer dataFlowAnalyzer, int minStatements, double threshold) {
+        this(dataFlowAnalyzer, minStatements, threshold, 1);
+    }
+
+    /**
+     * Create boundary refiner that refines pairs on several threads.
+     *
+     * @param dataFlowAnalyzer Analyzer for variable usage
+     * @param minStatements    Minimum sequence length after trimming
+     * @param threshold        Minimum similarity for trimmed sequences
+     * @param parallelism      Number of worker threads; 1 refines on the calling thread
+     */
+    public BoundaryRefiner(DataFlowAnalyzer dataFlowAnalyzer, int minStatements, double threshold, int parallelism) {
         this.dataFlowAnalyzer = dataFlowAnalyzer;
         this.normalizer = new ASTNormalizer();
         this.similarityCalculator = new ASTSimilarityCalculator();
         this.minStatements = minStatements;
         this.threshold = threshold;
+        this.parallelism = parallelism;
     }
 
     /**
@@ -68,58 +84,86 @@ public class BoundaryRefiner {
      * - Does NOT trim statements that define new variables
      * - Does NOT trim statements that modify variables (assignments, ++, etc.)
      * 
+     * Pairs are refined independently, in parallel when configured; the result
+     * keeps the order of the input.
+     * 
      * @param pairs List of similarity pairs to refine
      * @return Refined pairs with trimmed sequences
      */
     public List<SimilarityPair> refineBoundaries(List<SimilarityPair> pairs) {
-        List<SimilarityPair> refined = new ArrayList<>();
-
-        for (SimilarityPair pair : pairs) {
-            // 1. TRIM END: Remove usage-only statements
-            StatementSequence processed1 = trimUsageStatements(pair.seq1());
-            StatementSequence processed2 = trimUsageStatements(pair.seq2());
-
-            boolean wasTrimmed = processed1.statements().size() < pair.seq1().statements().size() ||
-                    processed2.statements().size() < pair.seq2().statements().size();
-
-            // 2. EXTEND START: Include missing variable declarations
-            // This fixes "cannot find symbol" errors when duplicates use but don't include
-            // the definition
-            StatementSequence extended1 = extendStartBoundary(processed1);
-            StatementSequence extended2 = extendStartBoundary(processed2);
-
-            boolean wasExtended = extended1.statements().size() > processed1.statements().size() ||
-                    extended2.statements().size() > processed2.statements().size();
-
-            // Skip if trimmed below minimum (check ONLY if we trimmed, extension is always
-            // safe)
-            if (wasTrimmed && (extended1.statements().size() < minStatements ||
-                    extended2.statements().size() < minStatements)) {
-                // Even with extension, it's too small after trimming? Original might be better.
-                refined.add(pair);
-                continue;
-            }
-
-            // If changed, recalculate similarity
-            if (wasTrimmed || wasExtended) {
-                SimilarityResult newSimilarity = recalculateSimilarity(extended1, extended2);
+        return refineBoundaries(pairs, sequence -> null);
+    }
 
-                // Keep processed version if still above threshold
-                if (newSimilarity.overallScore() >= threshold) {
-                    refined.add(new SimilarityPair(extended1, extended2, newSimilarity));
-                } else {
-                    // Similarity too low - keep original
-                    refined.add(pair);
+    /**
+     * Refine boundaries of duplicate pairs, reusing the normalization of their windows.
+     *
+     * A refined window is a prefix of its parent window, possibly with declarations
+     * prepended, so it is scored on a slice of the parent's normalized statements.
+     * Parents without a known normalization are normalized once and shared between pairs.
+     *
+     * @param pairs      List of similarity pairs to refine
+     * @param normalized normalized statements of a window, or null if it has not been normalized
+     * @return Refined pairs with trimmed sequences
+     */
+    public List<SimilarityPair> refineBoundaries(List<SimilarityPair> pairs,
+            Function<StatementSequence, List<NormalizedNode>> normalized) {
+        Map<StatementSequence, List<NormalizedNode>> parents = Collections.synchronizedMap(new IdentityHashMap<>());
+        return ParallelTasks.map(pairs, parallelism, pair -> refine(pair, sequence -> {
+            List<NormalizedNode> nodes = parents.get(sequence);
+            if (nodes == null) {
+                nodes = normalized.apply(sequence);
+                if (nodes == null) {
+                    nodes = normalizer.normalize(sequence.statements());
+                }
+                List<NormalizedNode> existing = parents.putIfAbsent(sequence, nodes);
+                if (existing != null) {
+                    nodes = existing;
                 }
-            } else {
-                // No change - keep original
-                refined.add(pair);
             }
+            return nodes;
+        }));
+    }
+
+    private SimilarityPair refine(SimilarityPair pair, Function<StatementSequence, List<NormalizedNode>> parents) {
+        // 1. TRIM END: Remove usage-only statements
+        StatementSequence processed1 = trimUsageStatements(pair.seq1());
+        StatementSequence processed2 = trimUsageStatements(pair.seq2());
+
+        boolean wasTrimmed = processed1.statements().size() < pair.seq1().statements().size() ||
+                processed2.statements().size() < pair.seq2().statements().size();
+
+        // 2. EXTEND START: Include missing variable declarations
+        // This fixes "cannot find symbol" errors when duplicates use but don't include
+        // the definition
+        StatementSequence extended1 = extendStartBoundary(processed1);
+        StatementSequence extended2 = extendStartBoundary(processed2);
+
+        boolean wasExtended = extended1.statements().size() > processed1.statements().size() ||
+                extended2.statements().size() > processed2.statements().size();
+
+        // Skip if trimmed below minimum (check ONLY if we trimmed, extension is always
+        // safe)
+        if (wasTrimmed && (extended1.statements().size() < minStatements ||
+                extended2.statements().size() < minStatements)) {
+            // Even with extension, it's too small after trimming? Original might be better.
+            return pair;
         }
 
-        return refined;
-    }
+        // If changed, recalculate similarity
+        if (wasTrimmed || wasExtended) {
+            SimilarityResult newSimilarity = recalculateSimilarity(
+                    normalizeRefined(pair.seq1(), processed1, extended1, parents),
+                    normalizeRefined(pair.seq2(), processed2, extended2, parents));
 
+            // Keep processed version if still above threshold
+            if (newSimilarity.overallScore() >= threshold) {
+                return new SimilarityPair(extended1, extended2, newSimilarity);
+            }
+            // Similarity too low - keep original
+        }
+        // No change - keep original
+        return pair;
+    }
 
     /**
      * Extend start boundary to include variable declarations.
@@ -240,7 +284,7 @@ public class BoundaryRefiner {
             Statement stmt = stmts.get(lastNonUsage);
 
             // Check if this statement is usage-only
-            if (!isUsageOnlyStatement(stmt, definedVars)) {
+            if (!isUsageOnlyStatement(sequence, stmt, definedVars)) {
                 break; // Found first non-usage statement from end
             }
 
@@ -270,11 +314,12 @@ public class BoundaryRefiner {
      * - Assignments or modifications
      * - Empty statements or blocks
      * 
+     * @param sequence    Sequence containing the statement
      * @param stmt        Statement to check
      * @param definedVars Variables defined earlier in sequence
      * @return true if statement only reads from definedVars
      */
-    private boolean isUsageOnlyStatement(Statement stmt, Set<String> definedVars) {
+    private boolean isUsageOnlyStatement(StatementSequence sequence, Statement stmt, Set<String> definedVars) {
         // Control flow statements - do NOT trim (they affect program logic)
         if (stmt.isIfStmt() || stmt.isWhileStmt() || stmt.isForStmt() ||
                 stmt.isForEachStmt() || stmt.isDoStmt() || stmt.isReturnStmt() ||
@@ -308,7 +353,7 @@ public class BoundaryRefiner {
         }
 
         // Find all variables USED in this statement
-        Set<String> usedVars = findUsedVariables(stmt);
+        Set<String> usedVars = dataFlowAnalyzer.findVariablesUsedIn(sequence, stmt);
 
         // Only allow trimming if:
         // 1. Statement uses at least one defined variable
@@ -322,18 +367,6 @@ public class BoundaryRefiner {
         return definedVars.containsAll(usedVars);
     }
 
-    /**
-     * Find all variable names used (read) in a statement.
-     */
-    private Set<String> findUsedVariables(Statement stmt) {
-        Set<String> used = new HashSet<>();
-
-        // Find all name expressions (variable references)
-        stmt.findAll(NameExpr.class).forEach(nameExpr -> used.add(nameExpr.getNameAsString()));
-
-        return used;
-    }
-
     /**
      * Check if a unary operator modifies its operand.
      */
@@ -391,15 +424,29 @@ public class BoundaryRefiner {
     /**
      * Recalculate similarity for trimmed sequences.
      */
-    private SimilarityResult recalculateSimilarity(StatementSequence seq1, StatementSequence seq2) {
-        // Normalize both sequences using AST normalization
-        List<NormalizedNode> n1 = normalizer.normalize(seq1.statements());
-        List<NormalizedNode> n2 = normalizer.normalize(seq2.statements());
-
+    private SimilarityResult recalculateSimilarity(List<NormalizedNode> n1, List<NormalizedNode> n2) {
         // Calculate similarity using AST-based calculator
         // Note: ASTSimilarityCalculator calculates variations internally if needed,
         // or returns a result without detailed variations if they aren't required for
         // the score.
         return similarityCalculator.calculate(n1, n2, SimilarityWeights.balanced());
     }
+
+    /**
+     * Normalize a refined window: the prepended declarations are normalized, the rest
+     * is sliced from the normalization of the parent window.
+     *
+     * @param parent   window before refinement
+     * @param trimmed  prefix of the parent left after trimming
+     * @param extended trimmed window with any declarations prepended
+     * @param parents  normalization of parent windows
+     */
+    private List<NormalizedNode> normalizeRefined(StatementSequence parent, StatementSequence trimmed,
+            StatementSequence extended, Function<StatementSequence, List<NormalizedNode>> parents) {
+        int prepended = extended.statements().size() - trimmed.statements().size();
+        List<NormalizedNode> nodes = new ArrayList<>(extended.statements().size());
+        nodes.addAll(normalizer.normalize(extended.statements().subList(0, prepended)));
+        nodes.addAll(parents.apply(parent).subList(0, trimmed.statements().size()));
+        return nodes;
+    }
 }
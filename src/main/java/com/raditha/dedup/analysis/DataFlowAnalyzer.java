@@ -9,20 +9,44 @@ import com.github.javaparser.ast.stmt.ExpressionStmt;
 import com.github.javaparser.ast.stmt.Statement;
 import com.github.javaparser.ast.type.Type;
 import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.util.SymbolResolution;
 import sa.com.cloudsolutions.antikythera.generator.TypeWrapper;
 import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Performs data flow analysis to determine which variables are live
  * after a sequence of statements.
+ *
+ * <p>Definition and use queries are answered from a {@link DefUseIndex} that is
+ * built once per callable body and reused by every query against that body. An
+ * index is rebuilt when the body's top-level statements have changed; edits inside
+ * a statement are not noticed. Variable facts of the sequence itself come from a
+ * {@link SequenceFacts.Cache}. An analyzer that outlives edits to an AST must be
+ * cleared with {@link #clearCaches()} before it is used on that AST again.</p>
  */
 public class DataFlowAnalyzer {
 
+    // Identity based: Node.equals() compares structure
+    private final Map<BlockStmt, DefUseIndex> indexes = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final SequenceFacts.Cache factsCache = new SequenceFacts.Cache();
+
+    /**
+     * Forget the def-use indexes and sequence facts gathered so far. Call at the start
+     * of a pass over ASTs that may have been edited or re-parsed since the previous pass.
+     */
+    public void clearCaches() {
+        indexes.clear();
+        factsCache.clear();
+    }
+
     private static String findBestCandidate(List<String> candidates, StatementSequence sequence) {
         for (String varName : candidates) {
             for (Statement stmt : sequence.statements()) {
@@ -83,19 +107,34 @@ public class DataFlowAnalyzer {
     ) {}
 
     public SequenceAnalysis analyzeSequenceVariables(StatementSequence sequence) {
-        Set<String> defined = new HashSet<>();
+        SequenceFacts sequenceFacts = facts(sequence);
+        Set<String> defined = new HashSet<>(sequenceFacts.assigned());
         Set<String> literals = new HashSet<>();
         Set<String> internal = new HashSet<>();
-        Set<String> used = new HashSet<>();
-        Set<String> returned = new HashSet<>();
         java.util.Map<String, com.github.javaparser.ast.type.Type> typeMap = new java.util.HashMap<>();
-        Set<Statement> topLevelStmts = new HashSet<>(sequence.statements());
 
-        SequenceAnalysisVisitor visitor = new SequenceAnalysisVisitor(topLevelStmts);
-        for (Statement stmt : sequence.statements()) {
-            stmt.accept(visitor, new AnalysisContext(defined, literals, internal, used, returned, typeMap));
+        for (SequenceFacts.Declaration declaration : sequenceFacts.declarations()) {
+            String name = declaration.name();
+            defined.add(name);
+            if (declaration.literalInitializer()) {
+                literals.add(name);
+            }
+            if (!declaration.topLevel()) {
+                internal.add(name);
+            }
+            if (declaration.kind() != SequenceFacts.Kind.LAMBDA_PARAMETER) {
+                typeMap.put(name, declaration.type());
+            }
         }
-        return new SequenceAnalysis(defined, literals, internal, used, returned, typeMap);
+        return new SequenceAnalysis(defined, literals, internal, new HashSet<>(sequenceFacts.used()),
+                new HashSet<>(sequenceFacts.returned()), typeMap);
+    }
+
+    /**
+     * Get the facts of a sequence, memoized per top-level statement.
+     */
+    public SequenceFacts facts(StatementSequence sequence) {
+        return factsCache.of(sequence);
     }
 
     /**
@@ -109,6 +148,11 @@ public class DataFlowAnalyzer {
      * Finds variables defined (assigned or declared) in the sequence.
      */
     public Set<String> findDefinedVariables(StatementSequence sequence) {
+        DefUseIndex index = indexFor(sequence, sequence.statements());
+        if (index != null) {
+            return index.definedWithin(beginKey(sequence.statements().getFirst()),
+                    endKey(sequence.statements().getLast()));
+        }
         return analyzeSequenceVariables(sequence).definedVars();
     }
 
@@ -116,88 +160,67 @@ public class DataFlowAnalyzer {
      * Find all variables used (referenced) within the sequence.
      */
     public Set<String> findVariablesUsedInSequence(StatementSequence sequence) {
-        Set<String> used = new HashSet<>();
-        for (Statement stmt : sequence.statements()) {
-            stmt.findAll(NameExpr.class).forEach(nameExpr -> used.add(nameExpr.getNameAsString()));
+        DefUseIndex index = indexFor(sequence, sequence.statements());
+        if (index != null) {
+            return index.usedWithin(beginKey(sequence.statements().getFirst()),
+                    endKey(sequence.statements().getLast()));
         }
-        return used;
+        return new HashSet<>(facts(sequence).used());
     }
 
-    private record AnalysisContext(
-            Set<String> defined,
-            Set<String> literals,
-            Set<String> internal,
-            Set<String> used,
-            Set<String> returned,
-            java.util.Map<String, com.github.javaparser.ast.type.Type> typeMap
-    ) {}
-
-    private static class SequenceAnalysisVisitor extends com.github.javaparser.ast.visitor.VoidVisitorAdapter<AnalysisContext> {
-        private final Set<Statement> topLevelStmts;
-
-        public SequenceAnalysisVisitor(Set<Statement> topLevelStmts) {
-            this.topLevelStmts = topLevelStmts;
+    /**
+     * Find all variables used (referenced) within one statement of the sequence.
+     */
+    public Set<String> findVariablesUsedIn(StatementSequence sequence, Statement stmt) {
+        DefUseIndex index = indexFor(sequence, List.of(stmt));
+        if (index != null) {
+            return index.usedWithin(beginKey(stmt), endKey(stmt));
         }
+        Set<String> used = new HashSet<>();
+        stmt.findAll(NameExpr.class).forEach(nameExpr -> used.add(nameExpr.getNameAsString()));
+        return used;
+    }
 
-        @Override
-        public void visit(com.github.javaparser.ast.stmt.ReturnStmt n, AnalysisContext ctx) {
-            super.visit(n, ctx);
-            if (n.getExpression().isPresent()) {
-                n.getExpression().get().findAll(NameExpr.class).forEach(ne -> ctx.returned().add(ne.getNameAsString()));
-            }
+    /**
+     * Get the def-use index of the sequence's callable body, building it on first use.
+     *
+     * @param statements statements the query covers; all of them must have a range
+     * @return the index, or null when the query has to fall back to a traversal
+     */
+    private DefUseIndex indexFor(StatementSequence sequence, List<Statement> statements) {
+        if (sequence.containingCallable() == null || statements.isEmpty()) {
+            return null;
         }
-
-        @Override
-        public void visit(VariableDeclarator n, AnalysisContext ctx) {
-            super.visit(n, ctx);
-            String name = n.getNameAsString();
-            ctx.defined().add(name);
-            ctx.typeMap().put(name, n.getType());
-
-            if (n.getInitializer().isPresent() && n.getInitializer().get().isLiteralExpr()) {
-                ctx.literals().add(name);
-            }
-
-            Statement stmt = n.findAncestor(Statement.class).orElse(null);
-            if (stmt == null || !topLevelStmts.contains(stmt) || !stmt.isExpressionStmt()) {
-                ctx.internal().add(name);
-            }
+        BlockStmt body = sequence.getCallableBody().orElse(null);
+        if (body == null) {
+            return null;
         }
-
-        @Override
-        public void visit(com.github.javaparser.ast.expr.AssignExpr n, AnalysisContext ctx) {
-            super.visit(n, ctx);
-            if (n.getTarget().isNameExpr()) {
-                ctx.defined().add(n.getTarget().asNameExpr().getNameAsString());
+        for (Statement stmt : statements) {
+            if (stmt.getRange().isEmpty()) {
+                return null;
             }
         }
-
-        @Override
-        public void visit(com.github.javaparser.ast.expr.LambdaExpr n, AnalysisContext ctx) {
-            super.visit(n, ctx);
-            n.getParameters().forEach(p -> {
-                String name = p.getNameAsString();
-                ctx.defined().add(name);
-                ctx.internal().add(name);
-            });
+        DefUseIndex index = indexes.get(body);
+        if (index == null || !index.isCurrent(body) || !index.covers(statements.getFirst())) {
+            index = DefUseIndex.build(body);
+            indexes.put(body, index);
         }
+        return index.covers(statements.getFirst()) ? index : null;
+    }
 
-        @Override
-        public void visit(NameExpr n, AnalysisContext ctx) {
-            super.visit(n, ctx);
-            ctx.used().add(n.getNameAsString());
-        }
+    private static long beginKey(Statement stmt) {
+        return DefUseIndex.key(stmt.getRange().orElseThrow().begin);
+    }
 
-        @Override
-        public void visit(com.github.javaparser.ast.stmt.CatchClause n, AnalysisContext ctx) {
-            super.visit(n, ctx);
-            String name = n.getParameter().getNameAsString();
-            ctx.defined().add(name);
-            ctx.internal().add(name);
-            ctx.typeMap().put(name, n.getParameter().getType());
-        }
+    private static long endKey(Statement stmt) {
+        return DefUseIndex.key(stmt.getRange().orElseThrow().end);
     }
 
+    /**
+     * Find variables referenced after the end of the sequence anywhere in its callable
+     * body. References to a lambda or catch parameter declared after the sequence are
+     * not counted.
+     */
     public Set<String> findVariablesUsedAfter(StatementSequence sequence) {
         Set<String> usedAfter = new HashSet<>();
         CallableDeclaration<?> method = sequence.containingCallable();
@@ -209,6 +232,11 @@ public class DataFlowAnalyzer {
         int endLine = lastStmt.getRange().map(r -> r.end.line).orElse(sequence.range().endLine());
         int endColumn = lastStmt.getRange().map(r -> r.end.column).orElse(sequence.range().endColumn());
 
+        DefUseIndex index = indexFor(sequence, List.of(lastStmt));
+        if (index != null) {
+            return index.usedAfter(DefUseIndex.key(new com.github.javaparser.Position(endLine, endColumn)));
+        }
+
         BlockStmt methodBody = sequence.getCallableBody().get();
         methodBody.findAll(NameExpr.class).forEach(nameExpr -> {
             if (nameExpr.getRange().isPresent()) {
@@ -312,6 +340,10 @@ public class DataFlowAnalyzer {
         VariableDeclarator targetVar = getVariableDeclarator(sequence, varName);
         if (targetVar == null) return false;
 
+        return SymbolResolution.guarded(() -> isTypeCompatible(sequence, targetVar, expectedType));
+    }
+
+    private static boolean isTypeCompatible(StatementSequence sequence, VariableDeclarator targetVar, Type expectedType) {
         List<TypeWrapper> varTypes = AbstractCompiler.findTypesInVariable(targetVar);
         if (varTypes.isEmpty()) return false;
         TypeWrapper varWrapper = varTypes.getLast();
@@ -0,0 +1,251 @@
+package com.raditha.dedup.analysis;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.Statement;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Def-use index of one callable body.
+ *
+ * <p>The body is walked once. For every variable name the index keeps the sorted
+ * source positions of its definitions (declarations, assignments, lambda and catch
+ * parameters) and of its uses (every {@link NameExpr}). A use that lies inside a
+ * lambda or catch clause whose parameter has the same name is bound to that
+ * parameter, and the position of the binding parameter is kept with the use.</p>
+ *
+ * <p>Positions are packed into a {@code long} with {@link #key(Position)}, so
+ * "used after position p" and "defined within [from, to]" are binary searches over
+ * the per-name arrays instead of fresh traversals of the body. Nodes without a
+ * range are not indexed.</p>
+ */
+public final class DefUseIndex {
+
+    /** Binder of a free use; compares below every position. */
+    private static final long FREE = Long.MIN_VALUE;
+
+    private final List<Statement> topLevel;
+    private final Set<Statement> statements;
+    private final Map<String, long[]> uses;
+    private final Map<String, long[]> useBinders;
+    private final Map<String, long[]> definitions;
+
+    private DefUseIndex(List<Statement> topLevel, Set<Statement> statements, Map<String, long[]> uses,
+            Map<String, long[]> useBinders, Map<String, long[]> definitions) {
+        this.topLevel = topLevel;
+        this.statements = statements;
+        this.uses = uses;
+        this.useBinders = useBinders;
+        this.definitions = definitions;
+    }
+
+    /**
+     * Build the index of a callable body.
+     *
+     * @param body the method or constructor body
+     * @return the index
+     */
+    public static DefUseIndex build(BlockStmt body) {
+        Builder builder = new Builder();
+        builder.walk(body);
+        return builder.finish(body);
+    }
+
+    /**
+     * Pack a source position into a sortable key.
+     */
+    public static long key(Position position) {
+        return ((long) position.line << 32) | (position.column & 0xffffffffL);
+    }
+
+    /**
+     * @return whether the body still has the top-level statements it was indexed with
+     */
+    public boolean isCurrent(BlockStmt body) {
+        List<Statement> current = body.getStatements();
+        if (current.size() != topLevel.size()) {
+            return false;
+        }
+        for (int i = 0; i < current.size(); i++) {
+            if (current.get(i) != topLevel.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether {@code statement} was part of the indexed body
+     */
+    public boolean covers(Statement statement) {
+        return statements.contains(statement);
+    }
+
+    /**
+     * Names with a use strictly after {@code position}. Uses bound to a lambda or
+     * catch parameter declared after {@code position} refer to a different variable
+     * and are not counted.
+     */
+    public Set<String> usedAfter(long position) {
+        Set<String> result = new HashSet<>();
+        uses.forEach((name, keys) -> {
+            long[] binders = useBinders.get(name);
+            for (int i = upperBound(keys, position); i < keys.length; i++) {
+                if (binders[i] <= position) {
+                    result.add(name);
+                    break;
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Names with a use whose position lies in {@code [from, to]}.
+     */
+    public Set<String> usedWithin(long from, long to) {
+        return namesWithin(uses, from, to);
+    }
+
+    /**
+     * Names with a definition whose position lies in {@code [from, to]}.
+     */
+    public Set<String> definedWithin(long from, long to) {
+        return namesWithin(definitions, from, to);
+    }
+
+    private static Set<String> namesWithin(Map<String, long[]> positions, long from, long to) {
+        Set<String> result = new HashSet<>();
+        positions.forEach((name, keys) -> {
+            int i = upperBound(keys, from - 1);
+            if (i < keys.length && keys[i] <= to) {
+                result.add(name);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return index of the first key greater than {@code position}
+     */
+    private static int upperBound(long[] keys, long position) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Single pre-order walk that tracks lambda and catch parameter scopes.
+     */
+    private static final class Builder {
+        private final Set<Statement> statements = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Map<String, List<long[]>> uses = new HashMap<>();
+        private final Map<String, List<Long>> definitions = new HashMap<>();
+        private final Deque<Map<String, Long>> scopes = new ArrayDeque<>();
+
+        void walk(Node node) {
+            if (node instanceof Statement statement) {
+                statements.add(statement);
+            }
+            Map<String, Long> scope = null;
+            if (node instanceof NameExpr name) {
+                name.getBegin().ifPresent(begin -> uses.computeIfAbsent(name.getNameAsString(), n -> new ArrayList<>())
+                        .add(new long[] { key(begin), binderOf(name.getNameAsString()) }));
+            } else if (node instanceof VariableDeclarator declarator) {
+                define(declarator.getNameAsString(), declarator);
+            } else if (node instanceof AssignExpr assign && assign.getTarget().isNameExpr()) {
+                define(assign.getTarget().asNameExpr().getNameAsString(), assign.getTarget());
+            } else if (node instanceof LambdaExpr lambda) {
+                scope = new HashMap<>();
+                for (Parameter parameter : lambda.getParameters()) {
+                    bind(scope, parameter);
+                }
+            } else if (node instanceof CatchClause catchClause) {
+                scope = new HashMap<>();
+                bind(scope, catchClause.getParameter());
+            }
+
+            if (scope != null) {
+                scopes.push(scope);
+            }
+            for (Node child : node.getChildNodes()) {
+                walk(child);
+            }
+            if (scope != null) {
+                scopes.pop();
+            }
+        }
+
+        private void bind(Map<String, Long> scope, Parameter parameter) {
+            String name = parameter.getNameAsString();
+            define(name, parameter);
+            parameter.getBegin().ifPresent(begin -> scope.put(name, key(begin)));
+        }
+
+        private void define(String name, Node node) {
+            node.getBegin().ifPresent(begin -> definitions.computeIfAbsent(name, n -> new ArrayList<>()).add(key(begin)));
+        }
+
+        private long binderOf(String name) {
+            for (Map<String, Long> scope : scopes) {
+                Long binder = scope.get(name);
+                if (binder != null) {
+                    return binder;
+                }
+            }
+            return FREE;
+        }
+
+        DefUseIndex finish(BlockStmt body) {
+            Map<String, long[]> useKeys = new HashMap<>();
+            Map<String, long[]> binderKeys = new HashMap<>();
+            uses.forEach((name, entries) -> {
+                entries.sort((a, b) -> Long.compare(a[0], b[0]));
+                long[] keys = new long[entries.size()];
+                long[] binders = new long[entries.size()];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = entries.get(i)[0];
+                    binders[i] = entries.get(i)[1];
+                }
+                useKeys.put(name, keys);
+                binderKeys.put(name, binders);
+            });
+
+            Map<String, long[]> definitionKeys = new HashMap<>();
+            definitions.forEach((name, positions) -> {
+                long[] keys = positions.stream().mapToLong(Long::longValue).toArray();
+                Arrays.sort(keys);
+                definitionKeys.put(name, keys);
+            });
+
+            return new DefUseIndex(new ArrayList<>(body.getStatements()), statements, useKeys, binderKeys,
+                    definitionKeys);
+        }
+    }
+}
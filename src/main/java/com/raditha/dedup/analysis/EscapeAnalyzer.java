@@ -1,11 +1,5 @@
 package com.raditha.dedup.analysis;
 
-import com.github.javaparser.ast.Node;
-import com.github.javaparser.ast.expr.AssignExpr;
-import com.github.javaparser.ast.expr.Expression;
-import com.github.javaparser.ast.expr.UnaryExpr;
-import com.github.javaparser.ast.expr.VariableDeclarationExpr;
-import com.github.javaparser.ast.stmt.Statement;
 import com.raditha.dedup.model.StatementSequence;
 
 import java.util.*;
@@ -32,39 +26,43 @@ import java.util.*;
  */
 public class EscapeAnalyzer {
 
+    private final SequenceFacts.Cache facts;
+
+    /**
+     * Creates an analyzer with its own facts cache.
+     */
+    public EscapeAnalyzer() {
+        this(new SequenceFacts.Cache());
+    }
+
+    /**
+     * Creates an analyzer that reads sequence facts from the given cache.
+     *
+     * @param facts cache of sequence facts
+     */
+    public EscapeAnalyzer(SequenceFacts.Cache facts) {
+        this.facts = facts;
+    }
+
     /**
      * Analyze escape and capture for a sequence.
      *
      * @return Set of variable names that are modified but not defined locally (escaping variables)
      */
     public Set<String> analyze(StatementSequence sequence) {
+        SequenceFacts sequenceFacts = facts.of(sequence);
         Set<String> definedLocally = new HashSet<>();
-        Set<String> modifiedVariables = new HashSet<>();
-
-        for (Statement stmt : sequence.statements()) {
-            stmt.walk(node ->
-                analyzeVariables(node, definedLocally, modifiedVariables)
-            );
+        for (SequenceFacts.Declaration declaration : sequenceFacts.declarations()) {
+            if (declaration.kind() == SequenceFacts.Kind.LOCAL) {
+                definedLocally.add(declaration.name());
+            }
         }
 
+        Set<String> modifiedVariables = new HashSet<>(sequenceFacts.assigned());
+        modifiedVariables.addAll(sequenceFacts.unaryTargets());
+
         // Escaping writes: variables modified that come from outer scope
         modifiedVariables.removeAll(definedLocally);
         return modifiedVariables;
     }
-
-    private static void analyzeVariables(Node node, Set<String> definedLocally, Set<String> modifiedVariables) {
-        if (node instanceof VariableDeclarationExpr vde) {
-            vde.getVariables().forEach(v -> definedLocally.add(v.getNameAsString()));
-        } else if (node instanceof AssignExpr ae) {
-            analyzeAssignment(ae.getTarget(), modifiedVariables);
-        } else if (node instanceof UnaryExpr ue) {
-            analyzeAssignment(ue.getExpression(), modifiedVariables);
-        }
-    }
-
-    private static void analyzeAssignment(Expression ae, Set<String> modifiedVariables) {
-        if (ae.isNameExpr()) {
-            modifiedVariables.add(ae.asNameExpr().getNameAsString());
-        }
-    }
 }
@@ -0,0 +1,317 @@
+package com.raditha.dedup.analysis;
+
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.UnaryExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.ReturnStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import com.raditha.dedup.model.StatementSequence;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Variable facts of a statement sequence, gathered in a single visitor pass.
+ *
+ * <p>The facts cover declarations, assignment and increment targets, name uses,
+ * names in return expressions, nested returns and the variables each lambda
+ * captures. {@link DataFlowAnalyzer}, {@link EscapeAnalyzer},
+ * {@link LambdaClosureAnalyzer} and the sequence truncator read them instead of
+ * walking the statements themselves.</p>
+ *
+ * <p>Facts are gathered per top-level statement, so a {@link Cache} also serves
+ * prefixes and overlapping windows of sequences it has already seen.</p>
+ */
+public final class SequenceFacts {
+
+    /**
+     * What introduces a declared name.
+     */
+    public enum Kind {
+        /** A local variable, including for and for-each variables. */
+        LOCAL,
+        /** A field of an anonymous or local class. */
+        FIELD,
+        /** A lambda parameter. */
+        LAMBDA_PARAMETER,
+        /** A catch clause parameter. */
+        CATCH_PARAMETER
+    }
+
+    /**
+     * A declared name.
+     *
+     * @param name               variable name
+     * @param type               declared type
+     * @param kind               what introduces the name
+     * @param literalInitializer whether the variable is initialized with a literal
+     * @param topLevel           whether the declaration is a top-level expression statement
+     *                           of the sequence
+     */
+    public record Declaration(String name, Type type, Kind kind, boolean literalInitializer, boolean topLevel) {
+    }
+
+    private final List<StatementFacts> statements;
+    private final List<Declaration> declarations = new ArrayList<>();
+    private final Set<String> assigned = new HashSet<>();
+    private final Set<String> unaryTargets = new HashSet<>();
+    private final Set<String> used = new HashSet<>();
+    private final Set<String> returned = new HashSet<>();
+    private final Set<String> captured = new HashSet<>();
+
+    private SequenceFacts(List<StatementFacts> statements) {
+        this.statements = statements;
+        for (StatementFacts facts : statements) {
+            declarations.addAll(facts.declarations);
+            assigned.addAll(facts.assigned);
+            unaryTargets.addAll(facts.unaryTargets);
+            used.addAll(facts.used);
+            returned.addAll(facts.returned);
+            captured.addAll(facts.captured);
+        }
+    }
+
+    /**
+     * Gather the facts of a sequence without caching.
+     */
+    public static SequenceFacts of(StatementSequence sequence) {
+        List<StatementFacts> facts = new ArrayList<>(sequence.statements().size());
+        for (Statement stmt : sequence.statements()) {
+            facts.add(StatementFacts.of(stmt));
+        }
+        return new SequenceFacts(facts);
+    }
+
+    /**
+     * @return declarations in visiting order: a declaration is recorded after its
+     *         initializer, a parameter after its lambda or catch body
+     */
+    public List<Declaration> declarations() {
+        return Collections.unmodifiableList(declarations);
+    }
+
+    /**
+     * @return names that are the target of an assignment
+     */
+    public Set<String> assigned() {
+        return Collections.unmodifiableSet(assigned);
+    }
+
+    /**
+     * @return names that are the operand of a unary expression
+     */
+    public Set<String> unaryTargets() {
+        return Collections.unmodifiableSet(unaryTargets);
+    }
+
+    /**
+     * @return every name referenced in the sequence
+     */
+    public Set<String> used() {
+        return Collections.unmodifiableSet(used);
+    }
+
+    /**
+     * @return names referenced in return expressions, nested returns included
+     */
+    public Set<String> returned() {
+        return Collections.unmodifiableSet(returned);
+    }
+
+    /**
+     * @return names used in a lambda but declared outside of it
+     */
+    public Set<String> captured() {
+        return Collections.unmodifiableSet(captured);
+    }
+
+    /**
+     * @return index of the first statement that is not itself a return but contains
+     *         one, or -1
+     */
+    public int firstNestedReturnIndex() {
+        for (int i = 0; i < statements.size(); i++) {
+            if (statements.get(i).nestedReturn) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Memoizes facts per top-level statement. Safe for concurrent use; must be
+     * cleared before it is reused across edits to the AST.
+     */
+    public static final class Cache {
+        // Identity based: Node.equals() compares structure
+        private final Map<Statement, StatementFacts> byStatement = Collections.synchronizedMap(new IdentityHashMap<>());
+
+        /**
+         * Gather the facts of a sequence, reusing those of statements seen before.
+         */
+        public SequenceFacts of(StatementSequence sequence) {
+            List<StatementFacts> facts = new ArrayList<>(sequence.statements().size());
+            for (Statement stmt : sequence.statements()) {
+                StatementFacts known = byStatement.get(stmt);
+                if (known == null) {
+                    known = StatementFacts.of(stmt);
+                    byStatement.put(stmt, known);
+                }
+                facts.add(known);
+            }
+            return new SequenceFacts(facts);
+        }
+
+        /**
+         * Forget the facts gathered so far.
+         */
+        public void clear() {
+            byStatement.clear();
+        }
+    }
+
+    /**
+     * Facts of one top-level statement.
+     */
+    private static final class StatementFacts {
+        private final List<Declaration> declarations = new ArrayList<>();
+        private final Set<String> assigned = new HashSet<>();
+        private final Set<String> unaryTargets = new HashSet<>();
+        private final Set<String> used = new HashSet<>();
+        private final Set<String> returned = new HashSet<>();
+        private final Set<String> captured = new HashSet<>();
+        private boolean nestedReturn;
+
+        static StatementFacts of(Statement stmt) {
+            StatementFacts facts = new StatementFacts();
+            stmt.accept(new Collector(stmt), facts);
+            return facts;
+        }
+    }
+
+    /**
+     * The single pass. Lambdas in scope are tracked on a stack so that each name
+     * use is attributed to every enclosing lambda.
+     */
+    private static final class Collector extends VoidVisitorAdapter<StatementFacts> {
+        private final Statement root;
+        private final Deque<LambdaScope> lambdas = new ArrayDeque<>();
+        private int returnDepth;
+
+        Collector(Statement root) {
+            this.root = root;
+        }
+
+        @Override
+        public void visit(ReturnStmt n, StatementFacts facts) {
+            returnDepth++;
+            super.visit(n, facts);
+            returnDepth--;
+            // A top-level return is not a nested one, whatever it contains
+            if (!root.isReturnStmt()) {
+                facts.nestedReturn = true;
+            }
+        }
+
+        @Override
+        public void visit(VariableDeclarator n, StatementFacts facts) {
+            super.visit(n, facts);
+            boolean local = n.getParentNode().orElse(null) instanceof VariableDeclarationExpr;
+            if (local) {
+                for (LambdaScope scope : lambdas) {
+                    if (scope.blockBody) {
+                        scope.declared.add(n.getNameAsString());
+                    }
+                }
+            }
+            Statement stmt = n.findAncestor(Statement.class).orElse(null);
+            boolean topLevel = stmt == root && stmt.isExpressionStmt();
+            boolean literal = n.getInitializer().filter(Expression::isLiteralExpr).isPresent();
+            facts.declarations.add(new Declaration(n.getNameAsString(), n.getType(),
+                    local ? Kind.LOCAL : Kind.FIELD, literal, topLevel));
+        }
+
+        @Override
+        public void visit(AssignExpr n, StatementFacts facts) {
+            super.visit(n, facts);
+            if (n.getTarget().isNameExpr()) {
+                facts.assigned.add(n.getTarget().asNameExpr().getNameAsString());
+            }
+        }
+
+        @Override
+        public void visit(UnaryExpr n, StatementFacts facts) {
+            super.visit(n, facts);
+            if (n.getExpression().isNameExpr()) {
+                facts.unaryTargets.add(n.getExpression().asNameExpr().getNameAsString());
+            }
+        }
+
+        @Override
+        public void visit(LambdaExpr n, StatementFacts facts) {
+            LambdaScope scope = new LambdaScope(n.getBody().isBlockStmt());
+            lambdas.push(scope);
+            super.visit(n, facts);
+            lambdas.pop();
+
+            Set<String> parameters = new HashSet<>();
+            for (Parameter p : n.getParameters()) {
+                parameters.add(p.getNameAsString());
+            }
+            for (String name : scope.names) {
+                if (!parameters.contains(name) && !scope.declared.contains(name)) {
+                    facts.captured.add(name);
+                }
+            }
+            for (Parameter p : n.getParameters()) {
+                facts.declarations.add(new Declaration(p.getNameAsString(), p.getType(),
+                        Kind.LAMBDA_PARAMETER, false, false));
+            }
+        }
+
+        @Override
+        public void visit(NameExpr n, StatementFacts facts) {
+            super.visit(n, facts);
+            facts.used.add(n.getNameAsString());
+            if (returnDepth > 0) {
+                facts.returned.add(n.getNameAsString());
+            }
+            for (LambdaScope scope : lambdas) {
+                scope.names.add(n.getNameAsString());
+            }
+        }
+
+        @Override
+        public void visit(CatchClause n, StatementFacts facts) {
+            super.visit(n, facts);
+            Parameter p = n.getParameter();
+            facts.declarations.add(new Declaration(p.getNameAsString(), p.getType(),
+                    Kind.CATCH_PARAMETER, false, false));
+        }
+    }
+
+    private static final class LambdaScope {
+        private final boolean blockBody;
+        private final Set<String> names = new HashSet<>();
+        private final Set<String> declared = new HashSet<>();
+
+        LambdaScope(boolean blockBody) {
+            this.blockBody = blockBody;
+        }
+    }
+}
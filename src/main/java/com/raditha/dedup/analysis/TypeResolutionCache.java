@@ -0,0 +1,183 @@
+package com.raditha.dedup.analysis;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.resolution.types.ResolvedType;
+import com.raditha.dedup.util.SymbolResolution;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memoizes expression type resolution for variation analysis.
+ *
+ * <p>Results are keyed by node identity (JavaParser's {@code Node.equals} compares
+ * structure, so two identical expressions in different methods must not share an
+ * entry). Failed resolutions are cached as negative entries so the symbol solver is
+ * not asked again. Field types for the manual fallback come from a table built once
+ * per class.</p>
+ *
+ * <p>An optional time budget bounds the total time spent in the symbol solver. Once
+ * it is used up, uncached expressions are no longer resolved and callers fall back
+ * to the field table. Safe for concurrent use.</p>
+ *
+ * <p>Entries are only valid while the ASTs they were computed from are unchanged.
+ * Owners call {@link #clear()} at the start of every analysis or generation pass,
+ * so that no entry outlives an edit or a re-parse and old ASTs are not retained.</p>
+ */
+public final class TypeResolutionCache {
+
+    private final long budgetNanos;
+    private final Map<Node, Optional<ResolvedType>> resolved = new IdentityHashMap<>();
+    private final Map<ClassOrInterfaceDeclaration, Map<String, String>> fieldTypes = new IdentityHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong resolveNanos = new AtomicLong();
+
+    /**
+     * Creates a cache without a time budget.
+     */
+    public TypeResolutionCache() {
+        this(0);
+    }
+
+    /**
+     * Creates a cache with a time budget for the symbol solver.
+     *
+     * @param budgetMillis total time the symbol solver may take; 0 or less means unbounded
+     */
+    public TypeResolutionCache(long budgetMillis) {
+        this.budgetNanos = budgetMillis > 0 ? budgetMillis * 1_000_000L : 0;
+    }
+
+    /**
+     * Resolve the type of an expression with the symbol solver.
+     *
+     * @param expr the expression
+     * @return its type, or null if resolution failed now or before, or the budget is spent
+     */
+    public ResolvedType resolve(Expression expr) {
+        Optional<ResolvedType> cached;
+        synchronized (resolved) {
+            cached = resolved.get(expr);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            if (cached.isEmpty()) {
+                negativeHits.incrementAndGet();
+            }
+            return cached.orElse(null);
+        }
+
+        if (budgetNanos > 0 && resolveNanos.get() >= budgetNanos) {
+            skipped.incrementAndGet();
+            return null;
+        }
+
+        misses.incrementAndGet();
+        ResolvedType type;
+        try {
+            type = SymbolResolution.guarded(() -> {
+                // Timed inside the lock, so waiting for other threads does not count
+                // against the budget
+                long start = System.nanoTime();
+                try {
+                    return expr.calculateResolvedType();
+                } finally {
+                    resolveNanos.addAndGet(System.nanoTime() - start);
+                }
+            });
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            type = null;
+        }
+
+        synchronized (resolved) {
+            resolved.put(expr, Optional.ofNullable(type));
+        }
+        return type;
+    }
+
+    /**
+     * Forget every resolved type and field table. Statistics and the time already
+     * spent against the budget are kept.
+     */
+    public void clear() {
+        synchronized (resolved) {
+            resolved.clear();
+        }
+        synchronized (fieldTypes) {
+            fieldTypes.clear();
+        }
+    }
+
+    /**
+     * Look up the declared type of a field in the class enclosing {@code node}.
+     *
+     * @param node a node inside the class
+     * @param name the field name
+     * @return the field's declared type as written, or null if the class has no such field
+     */
+    public String fieldType(Node node, String name) {
+        Optional<ClassOrInterfaceDeclaration> classDecl = node.findAncestor(ClassOrInterfaceDeclaration.class);
+        if (classDecl.isEmpty()) {
+            return null;
+        }
+        Map<String, String> table;
+        synchronized (fieldTypes) {
+            table = fieldTypes.computeIfAbsent(classDecl.get(), TypeResolutionCache::buildFieldTable);
+        }
+        return table.get(name);
+    }
+
+    /**
+     * Field name to declared type, first declaration winning as in
+     * {@code getFieldByName}.
+     */
+    private static Map<String, String> buildFieldTable(ClassOrInterfaceDeclaration classDecl) {
+        Map<String, String> table = new HashMap<>();
+        for (FieldDeclaration field : classDecl.getFields()) {
+            String type = field.getCommonType().asString();
+            field.getVariables().forEach(v -> table.putIfAbsent(v.getNameAsString(), type));
+        }
+        return table;
+    }
+
+    /**
+     * @return a snapshot of the cache statistics
+     */
+    public Stats stats() {
+        return new Stats(hits.get(), negativeHits.get(), misses.get(), failures.get(), skipped.get(),
+                resolveNanos.get() / 1_000_000L);
+    }
+
+    /**
+     * Cache statistics.
+     *
+     * @param hits         lookups answered from the cache
+     * @param negativeHits cache hits on a failed resolution
+     * @param misses       lookups that ran the symbol solver
+     * @param failures     symbol solver runs that failed
+     * @param skipped      lookups not resolved because the time budget was spent
+     * @param resolveMillis total time spent in the symbol solver
+     */
+    public record Stats(long hits, long negativeHits, long misses, long failures, long skipped, long resolveMillis) {
+
+        /**
+         * @return fraction of lookups answered from the cache
+         */
+        public double hitRate() {
+            long lookups = hits + misses + skipped;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+}
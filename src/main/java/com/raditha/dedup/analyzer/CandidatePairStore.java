@@ -0,0 +1,216 @@
+package com.raditha.dedup.analyzer;
+
+import com.raditha.dedup.model.SimilarityPair;
+import com.raditha.dedup.model.SimilarityResult;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.model.StatementSequenceComparator;
+import com.raditha.dedup.model.VariationAnalysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact store for scored candidate pairs.
+ *
+ * <p>Every verified candidate is kept as a packed pair of sequence ids (see
+ * {@link #packPair(int, int)}) and its overall score in parallel primitive arrays.
+ * The full {@link SimilarityResult} is retained, keyed by candidate index, only for
+ * candidates that reach the threshold, and {@link SimilarityPair} objects are created
+ * only for those survivors in {@link #survivors()}. Candidates below the threshold
+ * therefore cost 16 bytes each (the packed pair and the score) instead of a pair, a
+ * result and a variation analysis. Engines that score in parallel should apply the
+ * threshold in the worker as well and hand only survivors' results to
+ * {@link #add(long, double, SimilarityResult)}.</p>
+ *
+ * <p>Sequence ids are indices into the list of sequences the store was created for.
+ * Engines that derive new sequences (for example by extending seeds) may append to
+ * that list while adding candidates.</p>
+ */
+final class CandidatePairStore {
+
+    private final List<StatementSequence> sequences;
+    private final double threshold;
+    private long[] pairs;
+    private double[] scores;
+    private final Map<Integer, SimilarityResult> retained = new HashMap<>();
+    private int size;
+
+    CandidatePairStore(List<StatementSequence> sequences, double threshold, int initialCapacity) {
+        this.sequences = sequences;
+        this.threshold = threshold;
+        int capacity = Math.max(16, initialCapacity);
+        this.pairs = new long[capacity];
+        this.scores = new double[capacity];
+    }
+
+    /**
+     * Record a scored candidate. The result is kept only if it reaches the threshold.
+     *
+     * @param firstId  id of the first sequence (becomes seq1)
+     * @param secondId id of the second sequence (becomes seq2)
+     * @param result   similarity result; null means the pair could not be aligned and scores 0
+     */
+    void add(int firstId, int secondId, SimilarityResult result) {
+        add(packPair(firstId, secondId), result);
+    }
+
+    /**
+     * Record a scored candidate given its packed pair id.
+     */
+    void add(long pair, SimilarityResult result) {
+        add(pair, scoreOf(result), result);
+    }
+
+    /**
+     * Record a candidate that has already been scored.
+     *
+     * @param pair   packed pair id
+     * @param score  overall score of the pair
+     * @param result similarity result; may be null when the score is below the threshold
+     *               or the pair could not be aligned
+     */
+    void add(long pair, double score, SimilarityResult result) {
+        if (size == pairs.length) {
+            int capacity = size * 2;
+            pairs = Arrays.copyOf(pairs, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+        }
+        pairs[size] = pair;
+        scores[size] = score;
+        if (result != null && score >= threshold) {
+            retained.put(size, result);
+        }
+        size++;
+    }
+
+    /**
+     * @return the overall score of a result, 0 for a pair that could not be aligned
+     */
+    static double scoreOf(SimilarityResult result) {
+        return result == null ? 0.0 : result.overallScore();
+    }
+
+    /**
+     * @return number of scored candidates (before threshold filtering)
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Filter by threshold and materialize the survivors, ordered by score (highest
+     * first) and then by the positions of seq1 and seq2.
+     *
+     * @return surviving pairs in report order
+     */
+    List<SimilarityPair> survivors() {
+        int[] kept = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (scores[i] >= threshold) {
+                kept[count++] = i;
+            }
+        }
+
+        sortIndexes(kept, count, (a, b) -> {
+            int scoreCompare = Double.compare(scores[b], scores[a]);
+            if (scoreCompare != 0) {
+                return scoreCompare;
+            }
+            int seq1Compare = compareIds(firstId(pairs[a]), firstId(pairs[b]));
+            if (seq1Compare != 0) {
+                return seq1Compare;
+            }
+            return compareIds(secondId(pairs[a]), secondId(pairs[b]));
+        });
+
+        List<SimilarityPair> result = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            int index = kept[k];
+            StatementSequence seq1 = sequences.get(firstId(pairs[index]));
+            StatementSequence seq2 = sequences.get(secondId(pairs[index]));
+            SimilarityResult similarity = retained.get(index);
+            if (similarity == null) {
+                similarity = misalignedResult(seq1, seq2);
+            }
+            result.add(new SimilarityPair(seq1, seq2, similarity));
+        }
+        return result;
+    }
+
+    /**
+     * @return the sequences the pair ids refer to
+     */
+    List<StatementSequence> sequences() {
+        return sequences;
+    }
+
+    /**
+     * Order of two candidates given by their indexes.
+     */
+    @FunctionalInterface
+    private interface IndexOrder {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Stable bottom-up merge sort of the first {@code count} indexes, so that
+     * sorting the survivors does not box every index.
+     */
+    private static void sortIndexes(int[] indexes, int count, IndexOrder order) {
+        int[] from = indexes;
+        int[] to = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count; low += 2 * width) {
+                int mid = Math.min(low + width, count);
+                int high = Math.min(low + 2 * width, count);
+                int left = low;
+                int right = mid;
+                for (int k = low; k < high; k++) {
+                    if (left < mid && (right >= high || order.compare(from[left], from[right]) <= 0)) {
+                        to[k] = from[left++];
+                    } else {
+                        to[k] = from[right++];
+                    }
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != indexes) {
+            System.arraycopy(from, 0, indexes, 0, count);
+        }
+    }
+
+    private int compareIds(int a, int b) {
+        if (a == b) {
+            return 0;
+        }
+        return StatementSequenceComparator.INSTANCE.compare(sequences.get(a), sequences.get(b));
+    }
+
+    /**
+     * Result for a pair whose sequences have different statement counts and were not scored.
+     */
+    static SimilarityResult misalignedResult(StatementSequence seq1, StatementSequence seq2) {
+        return new SimilarityResult(0.0, 0.0, 0.0, 0.0,
+                seq1.statements().size(), seq2.statements().size(),
+                VariationAnalysis.empty(), null, false);
+    }
+
+    static long packPair(int firstId, int secondId) {
+        return ((long) firstId << 32) | (secondId & 0xFFFFFFFFL);
+    }
+
+    static int firstId(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    static int secondId(long packed) {
+        return (int) packed;
+    }
+}
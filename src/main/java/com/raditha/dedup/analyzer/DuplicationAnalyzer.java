@@ -1,14 +1,20 @@
 package com.raditha.dedup.analyzer;
 
 import com.github.javaparser.ast.CompilationUnit;
+import com.raditha.dedup.analysis.ASTVariationAnalyzer;
 import com.raditha.dedup.analysis.BoundaryRefiner;
 import com.raditha.dedup.analysis.DataFlowAnalyzer;
+import com.raditha.dedup.analysis.TypeResolutionCache;
+import com.raditha.dedup.config.DetectionEngine;
 import com.raditha.dedup.config.DuplicationDetectorSettings;
+import com.raditha.dedup.config.RecommendationMode;
 import com.raditha.dedup.extraction.StatementExtractor;
 import com.raditha.dedup.filter.PreFilterChain;
 import com.raditha.dedup.clustering.DuplicateClusterer;
 import com.raditha.dedup.clustering.RefactoringRecommendationGenerator;
 import com.raditha.dedup.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
 
 import java.nio.file.Path;
@@ -26,12 +32,25 @@ import java.util.Set;
  * aggregation.
  */
 public class DuplicationAnalyzer {
+    private static final Logger logger = LoggerFactory.getLogger(DuplicationAnalyzer.class);
+
+    /**
+     * Report order of duplicate pairs: highest score first, then by position.
+     */
+    private static final java.util.Comparator<SimilarityPair> REPORT_ORDER = java.util.Comparator
+            .comparingDouble(SimilarityPair::getScore).reversed()
+            .thenComparing(SimilarityPair::seq1, StatementSequenceComparator.INSTANCE)
+            .thenComparing(SimilarityPair::seq2, StatementSequenceComparator.INSTANCE);
+
     private final StatementExtractor extractor;
     private final PreFilterChain preFilter;
     private final com.raditha.dedup.normalization.ASTNormalizer astNormalizer; // NEW: AST-based
     private final com.raditha.dedup.similarity.ASTSimilarityCalculator astSimilarityCalculator; // NEW: AST-based
     private final DuplicateClusterer clusterer;
     private final RefactoringRecommendationGenerator recommendationGenerator;
+    private final RecommendationMode recommendationMode;
+    private final TypeResolutionCache typeResolutionCache;
+    private final DataFlowAnalyzer refinementDataFlow;
     private final BoundaryRefiner boundaryRefiner;
     private final Map<String, CompilationUnit> allCUs;
 
@@ -42,21 +61,45 @@ public class DuplicationAnalyzer {
         this(AntikytheraRunTime.getResolvedCompilationUnits());
     }
 
+    /**
+     * Create analyzer with default configuration and the given recommendation mode.
+     *
+     * @param recommendationMode when to generate refactoring recommendations
+     */
+    public DuplicationAnalyzer(RecommendationMode recommendationMode) {
+        this(AntikytheraRunTime.getResolvedCompilationUnits(), recommendationMode);
+    }
+
     public DuplicationAnalyzer(Map<String, CompilationUnit> allCUs) {
+        this(allCUs, RecommendationMode.EAGER);
+    }
+
+    public DuplicationAnalyzer(Map<String, CompilationUnit> allCUs, RecommendationMode recommendationMode) {
         this.allCUs = allCUs;
+        this.recommendationMode = recommendationMode;
+        // Only LSH and brute force compare the extracted windows directly; the other engines
+        // need fixed-size windows at most and find longer runs themselves
+        DetectionEngine engine = DuplicationDetectorSettings.getDetectionEngine();
+        boolean seedOnly = engine != DetectionEngine.LSH && engine != DetectionEngine.BRUTE_FORCE;
         this.extractor = new StatementExtractor(
                 DuplicationDetectorSettings.getMinLines(),
-                DuplicationDetectorSettings.getMaxWindowGrowth(),
+                seedOnly ? 0 : DuplicationDetectorSettings.getMaxWindowGrowth(),
                 DuplicationDetectorSettings.getMaximalOnly());
         this.preFilter = new PreFilterChain();
         this.astNormalizer = new com.raditha.dedup.normalization.ASTNormalizer();
         this.astSimilarityCalculator = new com.raditha.dedup.similarity.ASTSimilarityCalculator();
-        this.clusterer = new DuplicateClusterer(DuplicationDetectorSettings.getThreshold());
-        this.recommendationGenerator = new RefactoringRecommendationGenerator();
+        this.clusterer = new DuplicateClusterer(DuplicationDetectorSettings.getThreshold(),
+                DuplicationDetectorSettings.getMaxClusterSize());
+        this.typeResolutionCache = new TypeResolutionCache(DuplicationDetectorSettings.getTypeResolutionBudgetMs());
+        this.recommendationGenerator = new RefactoringRecommendationGenerator(
+                new ASTVariationAnalyzer(typeResolutionCache));
+        this.refinementDataFlow = new DataFlowAnalyzer();
         this.boundaryRefiner = new BoundaryRefiner(
-                new DataFlowAnalyzer(),
+                refinementDataFlow,
                 DuplicationDetectorSettings.getMinLines(),
-                DuplicationDetectorSettings.getThreshold());
+                DuplicationDetectorSettings.getThreshold(),
+                com.raditha.dedup.util.ParallelTasks.effectiveParallelism(
+                        DuplicationDetectorSettings.getVerificationThreads()));
     }
 
     public Map<String, CompilationUnit> getAllCUs() {
@@ -177,15 +220,40 @@ public class DuplicationAnalyzer {
      * @return ProcessedDuplicates containing filtered duplicates, clusters with recommendations, and candidate count
      */
     private ProcessedDuplicates processDuplicatePipeline(List<StatementSequence> sequences) {
-        // Step 1: Compare all pairs (with pre-filtering)
-        List<SimilarityPair> candidates = findCandidates(sequences);
+        // Step 0: Optional coarse method-level pass prunes windows of methods without a match
+        MethodPrefilter.Result coarse = null;
+        if (DuplicationDetectorSettings.getCoarsePrefilter()) {
+            coarse = runCoarsePrefilter(sequences);
+            sequences = coarse.retained();
+        }
 
-        // Step 2: Filter by similarity threshold
-        List<SimilarityPair> duplicates = filterByThreshold(candidates);
+        // Caches from a previous run may describe ASTs that were edited or re-parsed since
+        recommendationGenerator.clearCaches();
+        refinementDataFlow.clearCaches();
+
+        // Step 1: Compare all pairs (with pre-filtering)
+        Map<StatementSequence, NormalizedSequence> normalizationCache = new java.util.concurrent.ConcurrentHashMap<>();
+        CandidatePairStore candidates = findCandidates(sequences, normalizationCache);
+
+        // Step 2: Filter by similarity threshold (materializes only the survivors)
+        List<SimilarityPair> duplicates = candidates.survivors();
+        int candidatesCount = candidates.size();
+        if (coarse != null && !coarse.directPairs().isEmpty()) {
+            duplicates = new ArrayList<>(duplicates);
+            duplicates.addAll(coarse.directPairs());
+            duplicates.sort(REPORT_ORDER);
+        }
+        if (coarse != null) {
+            candidatesCount += coarse.scoredPairs();
+        }
 
         // Step 3: Refine boundaries (trim usage-only statements) - optional
         if (DuplicationDetectorSettings.getEnableBoundaryRefinement()) {
-            duplicates = boundaryRefiner.refineBoundaries(duplicates);
+            // Refined windows are sliced from the windows normalized during verification
+            duplicates = boundaryRefiner.refineBoundaries(duplicates, sequence -> {
+                NormalizedSequence normalized = normalizationCache.get(sequence);
+                return normalized != null && normalized.sequence() == sequence ? normalized.normalizedNodes() : null;
+            });
         }
 
         // Step 4: Remove overlapping duplicates (keep only largest)
@@ -195,11 +263,37 @@ public class DuplicationAnalyzer {
         List<DuplicateCluster> clusters = clusterer.cluster(duplicates);
 
         // Step 6: Add refactoring recommendations to clusters
-        List<DuplicateCluster> clustersWithRecommendations = clusters.stream()
-                .map(this::addRecommendation)
-                .toList();
+        List<DuplicateCluster> clustersWithRecommendations = switch (recommendationMode) {
+            case EAGER -> {
+                List<DuplicateCluster> withRecommendations = addRecommendations(clusters);
+                logTypeResolutionStats();
+                yield withRecommendations;
+            }
+            case LAZY -> clusters.stream().map(this::withLazyRecommendation).toList();
+            case NONE -> clusters;
+        };
 
-        return new ProcessedDuplicates(duplicates, clustersWithRecommendations, candidates.size());
+        return new ProcessedDuplicates(duplicates, clustersWithRecommendations, candidatesCount);
+    }
+
+    /**
+     * Run the coarse method-level pre-pass and log how much window-level work it saved.
+     */
+    private MethodPrefilter.Result runCoarsePrefilter(List<StatementSequence> sequences) {
+        MethodPrefilter.Result coarse = new MethodPrefilter(
+                DuplicationDetectorSettings.getNumBands(),
+                DuplicationDetectorSettings.getRowsPerBand(),
+                DuplicationDetectorSettings.getMinLines(),
+                DuplicationDetectorSettings.getThreshold(),
+                DuplicationDetectorSettings.getWeights(),
+                astNormalizer,
+                astSimilarityCalculator).apply(sequences);
+        logger.info("Coarse pre-pass: {} of {} methods active, {} of {} windows kept ({} pruned), {} whole-method copies reported",
+                coarse.activeMethods(), coarse.totalMethods(),
+                coarse.retained().size(), coarse.totalWindows(),
+                String.format("%.1f%%", coarse.pruningRatio() * 100),
+                coarse.directPairs().size());
+        return coarse;
     }
 
     private List<DuplicationReport> distributeReports(
@@ -257,20 +351,64 @@ public class DuplicationAnalyzer {
         return reports;
     }
 
-    private DuplicateCluster addRecommendation(DuplicateCluster cluster) {
-        // Get a representative similarity result from the first pair
-        if (!cluster.duplicates().isEmpty()) {
-            RefactoringRecommendation recommendation = recommendationGenerator
-                    .generateRecommendation(cluster);
+    /**
+     * Statistics of the type resolution cache used by variation analysis. With lazy
+     * recommendations these keep growing as clusters are displayed.
+     *
+     * @return a snapshot of the cache statistics
+     */
+    public TypeResolutionCache.Stats getTypeResolutionStats() {
+        return typeResolutionCache.stats();
+    }
+
+    private void logTypeResolutionStats() {
+        TypeResolutionCache.Stats stats = typeResolutionCache.stats();
+        logger.info("Type resolution: {} hits ({} negative), {} solver calls ({} failed), {} skipped over budget, "
+                        + "{} hit rate, {} ms resolving",
+                stats.hits(), stats.negativeHits(), stats.misses(), stats.failures(), stats.skipped(),
+                String.format("%.1f%%", stats.hitRate() * 100), stats.resolveMillis());
+    }
 
+    /**
+     * Defer the recommendation of a cluster until it is first asked for.
+     */
+    private DuplicateCluster withLazyRecommendation(DuplicateCluster cluster) {
+        if (cluster.duplicates().isEmpty()) {
+            return cluster;
+        }
+        return DuplicateCluster.lazy(
+                cluster.primary(),
+                cluster.duplicates(),
+                cluster.estimatedLOCReduction(),
+                recommendationGenerator::generateRecommendation);
+    }
+
+    /**
+     * Generate recommendations for all clusters with at least one pair, on the
+     * recommendation pool. Clusters keep their order.
+     */
+    private List<DuplicateCluster> addRecommendations(List<DuplicateCluster> clusters) {
+        List<DuplicateCluster> eligible = clusters.stream()
+                .filter(cluster -> !cluster.duplicates().isEmpty())
+                .toList();
+        List<RefactoringRecommendation> recommendations = recommendationGenerator.generateRecommendations(eligible,
+                com.raditha.dedup.util.ParallelTasks.effectiveParallelism(DuplicationDetectorSettings.getRecommendationThreads()));
+
+        List<DuplicateCluster> result = new ArrayList<>(clusters.size());
+        int next = 0;
+        for (DuplicateCluster cluster : clusters) {
+            if (cluster.duplicates().isEmpty()) {
+                result.add(cluster);
+                continue;
+            }
             // Create new cluster with recommendation
-            return new DuplicateCluster(
+            result.add(new DuplicateCluster(
                     cluster.primary(),
                     cluster.duplicates(),
-                    recommendation,
-                    cluster.estimatedLOCReduction());
+                    recommendations.get(next++),
+                    cluster.estimatedLOCReduction()));
         }
-        return cluster;
+        return result;
     }
 
     /**
@@ -284,76 +422,226 @@ public class DuplicationAnalyzer {
     }
 
     /**
-     * Find candidate duplicate pairs using either LSH or brute force.
+     * Find candidate duplicate pairs using the configured detection engine.
      * Delegates to the appropriate method based on configuration.
      * 
-     * @param sequences List of statement sequences to analyze
-     * @return List of candidate similarity pairs
+     * @param sequences          List of statement sequences to analyze
+     * @param normalizationCache receives the sequences normalized while scoring, for reuse
+     *                           by boundary refinement
+     * @return scored candidates, keyed by index into the store's sequence list
      */
-    private List<SimilarityPair> findCandidates(List<StatementSequence> sequences) {
-        if (DuplicationDetectorSettings.getEnableLSH()) {
-            return findCandidatesLSH(sequences);
-        }
-        // Brute force fallback - requires full normalization
-        List<NormalizedSequence> normalizedSequences = sequences.stream()
-            .map(seq -> new NormalizedSequence(
-                    seq,
-                    astNormalizer.normalize(seq.statements())))
-            .toList();
-        return findCandidatesBruteForce(normalizedSequences);
+    private CandidatePairStore findCandidates(List<StatementSequence> sequences,
+            Map<StatementSequence, NormalizedSequence> normalizationCache) {
+        return switch (DuplicationDetectorSettings.getDetectionEngine()) {
+            case LSH -> findCandidatesLSH(sequences, normalizationCache);
+            case SEED_EXTEND -> findCandidatesSeedExtend(sequences);
+            case SUFFIX_ARRAY -> findCandidatesSuffixArray(sequences);
+            case SUBTREE_HASH -> findCandidatesSubtreeHash(sequences);
+            case BRUTE_FORCE -> {
+                // Brute force fallback - requires full normalization
+                List<NormalizedSequence> normalizedSequences = sequences.stream()
+                    .map(seq -> new NormalizedSequence(
+                            seq,
+                            astNormalizer.normalize(seq.statements())))
+                    .toList();
+                normalizedSequences.forEach(norm -> normalizationCache.putIfAbsent(norm.sequence(), norm));
+                yield findCandidatesBruteForce(normalizedSequences);
+            }
+        };
+    }
+
+    /**
+     * Find maximal duplicate pairs by seed-and-extend.
+     * Seed windows of exactly min_lines statements are matched through the LSH index,
+     * and each hit is then grown in both directions by {@link SeedExtendEngine}.
+     * The returned store refers to the seeds plus the extended windows.
+     */
+    private CandidatePairStore findCandidatesSeedExtend(List<StatementSequence> sequences) {
+        int seedSize = DuplicationDetectorSettings.getMinLines();
+        List<StatementSequence> seeds = sequences.stream()
+                .filter(seq -> seq.statements().size() == seedSize)
+                .toList();
+        long[] seedPairs = collectCandidatePairsLSH(seeds);
+        return new SeedExtendEngine(
+                seedSize,
+                DuplicationDetectorSettings.getThreshold(),
+                DuplicationDetectorSettings.getWeights(),
+                astNormalizer,
+                astSimilarityCalculator,
+                preFilter).extend(seeds, seedPairs);
+    }
+
+    /**
+     * Find maximal exact and renamed repeats with a suffix array over statement symbols.
+     * Only the repeat occurrences are scored; the returned store refers to those windows.
+     */
+    private CandidatePairStore findCandidatesSuffixArray(List<StatementSequence> sequences) {
+        return new SuffixArrayEngine(
+                DuplicationDetectorSettings.getMinLines(),
+                DuplicationDetectorSettings.getThreshold(),
+                DuplicationDetectorSettings.getWeights(),
+                astNormalizer,
+                astSimilarityCalculator,
+                com.raditha.dedup.util.ParallelTasks.effectiveParallelism(
+                        DuplicationDetectorSettings.getVerificationThreads())).findRepeats(sequences);
+    }
+
+    /**
+     * Find clone classes of whole statements and blocks by bottom-up subtree hashing.
+     * The sequences are only used to locate the compilation units; the returned store
+     * refers to the clone class members.
+     */
+    private CandidatePairStore findCandidatesSubtreeHash(List<StatementSequence> sequences) {
+        return new SubtreeHashEngine(
+                DuplicationDetectorSettings.getMinLines(),
+                DuplicationDetectorSettings.getThreshold(),
+                DuplicationDetectorSettings.getWeights(),
+                astNormalizer,
+                astSimilarityCalculator,
+                com.raditha.dedup.util.ParallelTasks.effectiveParallelism(
+                        DuplicationDetectorSettings.getVerificationThreads())).findClones(sequences);
     }
 
     /**
      * Find candidate duplicate pairs using LSH and pre-filtering.
      * Uses FuzzyTokenizer for fast indexing and Lazy Normalization for verification.
+     *
+     * Runs in two phases:
+     * 1. Candidate collection (single-threaded): the LSH index is queried and
+     *    updated in sequence order, and each surviving pair is recorded as a pair
+     *    of integer ids (the sequence's index in the input list).
+     * 2. Verification (parallel): pre-filtering, lazy normalization and
+     *    analyzePair run on a bounded fork/join pool. Scores are collected in
+     *    pair order into a CandidatePairStore, which sorts the survivors with the
+     *    usual comparators, so the output is identical to a single-threaded run.
      */
-    private List<SimilarityPair> findCandidatesLSH(List<StatementSequence> sequences) {
-        List<SimilarityPair> candidates = new ArrayList<>();
-        com.raditha.dedup.normalization.FuzzyTokenizer tokenizer = new com.raditha.dedup.normalization.FuzzyTokenizer();
+    private CandidatePairStore findCandidatesLSH(List<StatementSequence> sequences,
+            Map<StatementSequence, NormalizedSequence> normalizationCache) {
+        long[] candidatePairs = collectCandidatePairsLSH(sequences);
+        return verifyCandidatePairs(sequences, candidatePairs, normalizationCache);
+    }
 
-        // Cache for strict normalization (computed only on demand for candidates)
-        Map<StatementSequence, NormalizedSequence> normalizationCache = new java.util.HashMap<>();
+    /**
+     * Phase 1: query the LSH index and collect candidate pairs as packed ids.
+     *
+     * @return sorted, de-duplicated pair ids; each entry packs (earlierId, laterId)
+     */
+    private long[] collectCandidatePairsLSH(List<StatementSequence> sequences) {
+        com.raditha.dedup.normalization.FuzzyTokenizer tokenizer = new com.raditha.dedup.normalization.FuzzyTokenizer();
 
         // 1. Initialize LSH Index
         int numBands = DuplicationDetectorSettings.getNumBands();
         int rowsPerBand = DuplicationDetectorSettings.getRowsPerBand();
         int numHashes = numBands * rowsPerBand;
-        
+
         com.raditha.dedup.lsh.MinHash minHash = new com.raditha.dedup.lsh.MinHash(numHashes, 3);
         com.raditha.dedup.lsh.LSHIndex lshIndex = new com.raditha.dedup.lsh.LSHIndex(minHash, numBands, rowsPerBand);
 
+        // Identity-based ids: StatementSequence.equals() is location based and ignores the statements
+        Map<StatementSequence, Integer> ids = new IdentityHashMap<>();
+        for (int i = 0; i < sequences.size(); i++) {
+            ids.putIfAbsent(sequences.get(i), i);
+        }
+        OverlapIndex.Locations locations = new OverlapIndex().locate(sequences);
+
+        long[] pairs = new long[1024];
+        int count = 0;
+
         // 2. Fused Loop: Query and Add
-        for (StatementSequence currentSeq : sequences) {
+        for (int currentId = 0; currentId < sequences.size(); currentId++) {
+            StatementSequence currentSeq = sequences.get(currentId);
             // Fast Tokenization (no cloning)
             List<String> tokens = tokenizer.tokenize(currentSeq.statements());
 
             // Query and Add
             Set<StatementSequence> potentialMatches = lshIndex.queryAndAdd(tokens, currentSeq);
-            List<StatementSequence> orderedMatches = new ArrayList<>(potentialMatches);
-            orderedMatches.sort(StatementSequenceComparator.INSTANCE);
-
-            for (StatementSequence candidateSeq : orderedMatches) {
-                // Combined check to reduce continue statements
-                if (currentSeq == candidateSeq ||
-                    isPhysicallyOverlapping(currentSeq, candidateSeq) ||
-                    !preFilter.shouldCompare(currentSeq, candidateSeq)) {
+
+            for (StatementSequence candidateSeq : potentialMatches) {
+                int candidateId = ids.get(candidateSeq);
+                // Cheap structural checks only; the pre-filter runs during verification
+                if (candidateId == currentId || locations.overlapping(currentId, candidateId)) {
                     continue;
                 }
+                if (count == pairs.length) {
+                    pairs = java.util.Arrays.copyOf(pairs, count * 2);
+                }
+                // Candidate was indexed earlier, so it becomes seq1 (Earlier, Later)
+                pairs[count++] = CandidatePairStore.packPair(Math.min(candidateId, currentId), Math.max(candidateId, currentId));
+            }
+        }
+
+        return dedupPairs(pairs, count);
+    }
+
+    /**
+     * Sort packed pair ids and drop duplicates.
+     */
+    private static long[] dedupPairs(long[] pairs, int count) {
+        java.util.Arrays.sort(pairs, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || pairs[i] != pairs[unique - 1]) {
+                pairs[unique++] = pairs[i];
+            }
+        }
+        return java.util.Arrays.copyOf(pairs, unique);
+    }
 
-                // Lazy Normalization: Only normalize if we have a candidate pair
-                NormalizedSequence currentNorm = normalizationCache.computeIfAbsent(currentSeq,
-                    s -> new NormalizedSequence(s, astNormalizer.normalize(s.statements())));
-                NormalizedSequence candidateNorm = normalizationCache.computeIfAbsent(candidateSeq,
-                    s -> new NormalizedSequence(s, astNormalizer.normalize(s.statements())));
+    /**
+     * Phase 2: pre-filter, normalize and score candidate pairs on a bounded pool.
+     * The normalization cache is shared between workers; a sequence may occasionally
+     * be normalized twice under contention, but only one result is ever published.
+     * Workers write each score into a primitive slot and keep the full result only
+     * when it reaches the threshold, so rejected candidates never outlive their worker.
+     */
+    private CandidatePairStore verifyCandidatePairs(List<StatementSequence> sequences, long[] candidatePairs,
+            Map<StatementSequence, NormalizedSequence> normalizationCache) {
+        int parallelism = com.raditha.dedup.util.ParallelTasks.effectiveParallelism(
+                DuplicationDetectorSettings.getVerificationThreads());
+        double threshold = DuplicationDetectorSettings.getThreshold();
+
+        // NaN marks candidates rejected by the pre-filter
+        double[] scores = new double[candidatePairs.length];
+        Map<Integer, SimilarityResult> survivors = new java.util.concurrent.ConcurrentHashMap<>();
+        com.raditha.dedup.util.ParallelTasks.forEachIndexed(candidatePairs.length, parallelism, i -> {
+            StatementSequence earlier = sequences.get(CandidatePairStore.firstId(candidatePairs[i]));
+            StatementSequence later = sequences.get(CandidatePairStore.secondId(candidatePairs[i]));
+            if (!preFilter.shouldCompare(later, earlier)) {
+                scores[i] = Double.NaN;
+                return;
+            }
+            // Lazy Normalization: Only normalize if we have a candidate pair
+            NormalizedSequence earlierNorm = getNormalized(normalizationCache, earlier);
+            NormalizedSequence laterNorm = getNormalized(normalizationCache, later);
+            SimilarityResult result = analyzePair(earlierNorm, laterNorm);
+            scores[i] = CandidatePairStore.scoreOf(result);
+            if (result != null && scores[i] >= threshold) {
+                survivors.put(i, result);
+            }
+        });
 
-                // analyzePair expects (Earlier, Later) conceptually, but implementation is symmetric
-                // Passing candidate (earlier) first, then current (later) to match typical discovery order
-                SimilarityPair pair = analyzePair(candidateNorm, currentNorm);
-                candidates.add(pair);
+        CandidatePairStore store = new CandidatePairStore(sequences, threshold, candidatePairs.length);
+        for (int i = 0; i < candidatePairs.length; i++) {
+            if (!Double.isNaN(scores[i])) {
+                store.add(candidatePairs[i], scores[i], survivors.get(i));
             }
         }
+        return store;
+    }
 
-        return candidates;
+    private NormalizedSequence getNormalized(Map<StatementSequence, NormalizedSequence> cache, StatementSequence seq) {
+        NormalizedSequence cached = cache.get(seq);
+        if (cached != null && cached.sequence() == seq) {
+            return cached;
+        }
+        NormalizedSequence computed = new NormalizedSequence(seq, astNormalizer.normalize(seq.statements()));
+        if (cached == null) {
+            NormalizedSequence existing = cache.putIfAbsent(seq, computed);
+            if (existing != null && existing.sequence() == seq) {
+                return existing;
+            }
+        }
+        return computed;
     }
 
     /**
@@ -384,8 +672,11 @@ public class DuplicationAnalyzer {
      * Find candidate duplicate pairs using O(N^2) brute force comparison.
      * Fallback when LSH is disabled.
      */
-    private List<SimilarityPair> findCandidatesBruteForce(List<NormalizedSequence> normalizedSequences) {
-        List<SimilarityPair> candidates = new ArrayList<>();
+    private CandidatePairStore findCandidatesBruteForce(List<NormalizedSequence> normalizedSequences) {
+        List<StatementSequence> sequences = normalizedSequences.stream().map(NormalizedSequence::sequence).toList();
+        CandidatePairStore candidates = new CandidatePairStore(
+                sequences, DuplicationDetectorSettings.getThreshold(), normalizedSequences.size());
+        OverlapIndex.Locations locations = new OverlapIndex().locate(sequences);
 
         // Compare all pairs
         for (int i = 0; i < normalizedSequences.size(); i++) {
@@ -397,11 +688,10 @@ public class DuplicationAnalyzer {
                 StatementSequence seq2 = norm2.sequence();
 
                 // Skip sequences that physically overlap
-                if (isPhysicallyOverlapping(seq1, seq2) || !preFilter.shouldCompare(seq1, seq2)) {
+                if (locations.overlapping(i, j) || !preFilter.shouldCompare(seq1, seq2)) {
                     continue;
                 }
-                SimilarityPair pair = analyzePair(norm1, norm2);
-                candidates.add(pair);
+                candidates.add(i, j, analyzePair(norm1, norm2));
             }
         }
         return candidates;
@@ -409,47 +699,24 @@ public class DuplicationAnalyzer {
 
     /**
      * Analyze a pair of sequences for similarity using pre-computed normalized AST.
+     *
+     * @return the similarity result, or null when the sequences have different
+     *         statement counts (scored as 0 by the candidate store)
      */
-    private SimilarityPair analyzePair(NormalizedSequence norm1, NormalizedSequence norm2) {
+    private SimilarityResult analyzePair(NormalizedSequence norm1, NormalizedSequence norm2) {
         int size1 = norm1.sequence().statements().size();
         int size2 = norm2.sequence().statements().size();
         if (size1 != size2) {
-            return new SimilarityPair(norm1.sequence(), norm2.sequence(),
-                    new SimilarityResult(0.0, 0.0, 0.0, 0.0, size1, size2,
-                            com.raditha.dedup.model.VariationAnalysis.builder().build(), null, false));
+            return null;
         }
 
         var nodes1 = norm1.normalizedNodes();
         var nodes2 = norm2.normalizedNodes();
 
-        SimilarityResult similarity = astSimilarityCalculator.calculate(
+        return astSimilarityCalculator.calculate(
                 nodes1,
                 nodes2,
                 DuplicationDetectorSettings.getWeights());
-
-        return new SimilarityPair(norm1.sequence(), norm2.sequence(), similarity);
-    }
-
-    /**
-     * Filter pairs by similarity threshold.
-     */
-    private List<SimilarityPair> filterByThreshold(List<SimilarityPair> candidates) {
-        return candidates.stream()
-                .filter(pair -> pair.similarity().overallScore() >= DuplicationDetectorSettings.getThreshold())
-                .sorted((a, b) -> {
-                    int scoreCompare = Double.compare(
-                            b.similarity().overallScore(),
-                            a.similarity().overallScore());
-                    if (scoreCompare != 0) {
-                        return scoreCompare;
-                    }
-                    int seq1Compare = StatementSequenceComparator.INSTANCE.compare(a.seq1(), b.seq1());
-                    if (seq1Compare != 0) {
-                        return seq1Compare;
-                    }
-                    return StatementSequenceComparator.INSTANCE.compare(a.seq2(), b.seq2());
-                })
-                .toList();
     }
 
     /**
@@ -460,9 +727,9 @@ public class DuplicationAnalyzer {
      * When duplicates overlap, we keep the one with the BROADEST SCOPE (largest line range),
      * which ensures we prefer full method bodies over nested block contents.
      * 
-     * OPTIMIZATION: Groups pairs by method-pair to reduce O(N²) to O(G×k²).
-     * Since pairsOverlap requires sameMethodPair==true, we can partition by method-pair.
-     * Typical case: G=hundreds of method-pairs, k=2-5 pairs/group → G×k² << N²
+     * OPTIMIZATION: Groups pairs by method-pair, and within each group checks
+     * overlaps against an interval index of the pairs kept so far, so the cost is
+     * O(k log k) per group (dominated by the priority sort) instead of O(k²).
      */
     private List<SimilarityPair> removeOverlappingDuplicates(List<SimilarityPair> pairs) {
         if (pairs.isEmpty()) {
@@ -477,10 +744,11 @@ public class DuplicationAnalyzer {
             groups.computeIfAbsent(key, k -> new ArrayList<>()).add(pair);
         }
 
-        // Process each group independently with O(k²) algorithm
+        // Process each group independently; file and callable ids are shared across groups
+        OverlapIndex overlapIndex = new OverlapIndex();
         List<SimilarityPair> result = new ArrayList<>();
         for (List<SimilarityPair> group : groups.values()) {
-            result.addAll(removeOverlapsInGroup(group));
+            result.addAll(removeOverlapsInGroup(group, overlapIndex));
         }
 
         return result;
@@ -516,31 +784,27 @@ public class DuplicationAnalyzer {
     ) {}
 
     /**
-     * Remove overlaps within a single method-pair group using O(k²) algorithm.
+     * Remove overlaps within a single method-pair group.
      * Since all pairs in the group have sameMethodPair==true, we only check physical overlap.
+     * A pair is kept if neither its seq1 overlaps a kept seq1 nor its seq2 a kept seq2;
+     * both sides are tracked in interval sets, giving O(log k) per check.
      */
-    private List<SimilarityPair> removeOverlapsInGroup(List<SimilarityPair> group) {
+    private List<SimilarityPair> removeOverlapsInGroup(List<SimilarityPair> group, OverlapIndex overlapIndex) {
         group.sort(new RefactoringPriorityComparator());
 
+        OverlapIndex.IntervalSet keptFirst = overlapIndex.newIntervalSet();
+        OverlapIndex.IntervalSet keptSecond = overlapIndex.newIntervalSet();
         List<SimilarityPair> filtered = new ArrayList<>();
         for (SimilarityPair current : group) {
-            if (noneOverlap(current, filtered)) {
+            if (!keptFirst.overlaps(current.seq1()) && !keptSecond.overlaps(current.seq2())) {
                 filtered.add(current);
+                keptFirst.add(current.seq1());
+                keptSecond.add(current.seq2());
             }
         }
         return filtered;
     }
 
-    private boolean noneOverlap(SimilarityPair current, List<SimilarityPair> filtered) {
-        for (SimilarityPair kept : filtered) {
-            if (isPhysicallyOverlapping(current.seq1(), kept.seq1()) ||
-                isPhysicallyOverlapping(current.seq2(), kept.seq2())) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     /**
      * Check if two line ranges overlap.
      */
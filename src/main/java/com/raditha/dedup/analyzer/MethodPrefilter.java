@@ -0,0 +1,257 @@
+package com.raditha.dedup.analyzer;
+
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.raditha.dedup.config.SimilarityWeights;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.lsh.LSHIndex;
+import com.raditha.dedup.lsh.MinHash;
+import com.raditha.dedup.model.SimilarityPair;
+import com.raditha.dedup.model.SimilarityResult;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.model.StatementSequenceComparator;
+import com.raditha.dedup.normalization.ASTNormalizer;
+import com.raditha.dedup.normalization.FuzzyTokenizer;
+import com.raditha.dedup.normalization.NormalizedNode;
+import com.raditha.dedup.similarity.ASTSimilarityCalculator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Coarse method-level pre-pass for window-level detection.
+ *
+ * <p>Each method and constructor body is sketched with MinHash over its fuzzy tokens
+ * and indexed with LSH. Window-level extraction results are kept only for callables
+ * that have a method-level match, or that repeat statements internally (so clones
+ * within a single method are still found). Bodies with identical fuzzy token streams
+ * are scored as whole-method pairs right away; when such a pair reaches the threshold
+ * it is reported directly and does not by itself keep the two methods active.</p>
+ */
+final class MethodPrefilter {
+
+    private final int numBands;
+    private final int rowsPerBand;
+    private final int minLines;
+    private final double threshold;
+    private final SimilarityWeights weights;
+    private final ASTNormalizer normalizer;
+    private final ASTSimilarityCalculator calculator;
+
+    MethodPrefilter(int numBands, int rowsPerBand, int minLines, double threshold, SimilarityWeights weights,
+            ASTNormalizer normalizer, ASTSimilarityCalculator calculator) {
+        this.numBands = numBands;
+        this.rowsPerBand = rowsPerBand;
+        this.minLines = minLines;
+        this.threshold = threshold;
+        this.weights = weights;
+        this.normalizer = normalizer;
+        this.calculator = calculator;
+    }
+
+    /**
+     * Outcome of the pre-pass.
+     *
+     * @param retained      windows that still need window-level detection
+     * @param directPairs   whole-method pairs that reached the threshold
+     * @param scoredPairs   number of whole-method pairs scored
+     * @param totalMethods  number of callables seen
+     * @param activeMethods number of callables whose windows were retained
+     * @param totalWindows  number of windows before pruning
+     */
+    record Result(
+            List<StatementSequence> retained,
+            List<SimilarityPair> directPairs,
+            int scoredPairs,
+            int totalMethods,
+            int activeMethods,
+            int totalWindows) {
+
+        /**
+         * @return fraction of windows removed from window-level detection
+         */
+        double pruningRatio() {
+            return totalWindows == 0 ? 0.0 : 1.0 - (double) retained.size() / totalWindows;
+        }
+    }
+
+    /**
+     * Run the pre-pass over the extracted windows.
+     *
+     * @param sequences windows in report order
+     * @return retained windows and whole-method matches
+     */
+    Result apply(List<StatementSequence> sequences) {
+        // Identity based: CallableDeclaration.equals() compares structure
+        Map<CallableDeclaration<?>, Method> byCallable = new IdentityHashMap<>();
+        List<Method> methods = new ArrayList<>();
+        for (StatementSequence seq : sequences) {
+            CallableDeclaration<?> callable = seq.containingCallable();
+            if (callable != null && !byCallable.containsKey(callable)) {
+                BlockStmt body = bodyOf(callable);
+                if (body != null) {
+                    Method method = new Method(methods.size(), body, seq);
+                    byCallable.put(callable, method);
+                    methods.add(method);
+                }
+            }
+            Method method = callable == null ? null : byCallable.get(callable);
+            if (method != null) {
+                method.windows.add(seq);
+            }
+        }
+
+        FuzzyTokenizer tokenizer = new FuzzyTokenizer();
+        List<List<String>> tokens = new ArrayList<>(methods.size());
+        for (Method method : methods) {
+            tokens.add(tokenizer.tokenize(method.body.getStatements()));
+        }
+
+        boolean[] active = new boolean[methods.size()];
+        int[] copyGroup = new int[methods.size()];
+        java.util.Arrays.fill(copyGroup, -1);
+        List<SimilarityPair> directPairs = new ArrayList<>();
+        int scoredPairs = scoreExactCopies(methods, tokens, copyGroup, directPairs);
+
+        LSHIndex index = new LSHIndex(new MinHash(numBands * rowsPerBand, 3), numBands, rowsPerBand);
+        Map<StatementSequence, Integer> ids = new IdentityHashMap<>();
+        for (Method method : methods) {
+            StatementSequence whole = method.wholeBody();
+            ids.put(whole, method.id);
+            for (StatementSequence match : index.queryAndAdd(tokens.get(method.id), whole)) {
+                int other = ids.get(match);
+                boolean reportedCopies = copyGroup[other] >= 0 && copyGroup[other] == copyGroup[method.id];
+                if (other != method.id && !reportedCopies) {
+                    active[other] = true;
+                    active[method.id] = true;
+                }
+            }
+            if (!active[method.id] && repeatsInternally(method, tokenizer)) {
+                active[method.id] = true;
+            }
+        }
+
+        List<StatementSequence> retained = new ArrayList<>();
+        for (StatementSequence seq : sequences) {
+            Method method = seq.containingCallable() == null ? null : byCallable.get(seq.containingCallable());
+            if (method == null || active[method.id]) {
+                retained.add(seq);
+            }
+        }
+        int activeMethods = 0;
+        for (boolean a : active) {
+            activeMethods += a ? 1 : 0;
+        }
+        return new Result(retained, directPairs, scoredPairs, methods.size(), activeMethods, sequences.size());
+    }
+
+    /**
+     * Score whole-method pairs for bodies with identical fuzzy token streams. Each copy
+     * is paired with the first body of its group; copies whose pair reaches the
+     * threshold are marked with the group number in {@code copyGroup}.
+     *
+     * @return number of pairs scored
+     */
+    private int scoreExactCopies(List<Method> methods, List<List<String>> tokens, int[] copyGroup,
+            List<SimilarityPair> directPairs) {
+        Map<List<String>, List<Method>> groups = new LinkedHashMap<>();
+        for (Method method : methods) {
+            if (method.body.getStatements().size() >= minLines) {
+                groups.computeIfAbsent(tokens.get(method.id), t -> new ArrayList<>()).add(method);
+            }
+        }
+
+        int scored = 0;
+        int groupNumber = 0;
+        for (List<Method> group : groups.values()) {
+            groupNumber++;
+            if (group.size() < 2) {
+                continue;
+            }
+            StatementSequence first = group.get(0).wholeBody();
+            List<NormalizedNode> firstNormalized = normalizer.normalize(first.statements());
+            for (int i = 1; i < group.size(); i++) {
+                StatementSequence copy = group.get(i).wholeBody();
+                SimilarityResult result = calculator.calculate(
+                        firstNormalized,
+                        normalizer.normalize(copy.statements()),
+                        weights);
+                scored++;
+                if (result.overallScore() >= threshold) {
+                    copyGroup[group.get(0).id] = groupNumber;
+                    copyGroup[group.get(i).id] = groupNumber;
+                    directPairs.add(StatementSequenceComparator.INSTANCE.compare(first, copy) <= 0
+                            ? new SimilarityPair(first, copy, result)
+                            : new SimilarityPair(copy, first, result));
+                }
+            }
+        }
+        return scored;
+    }
+
+    /**
+     * Cheap test for clones inside a single method: at least {@code minLines} of the
+     * statements covered by its windows have a fuzzy twin in the same method.
+     */
+    private boolean repeatsInternally(Method method, FuzzyTokenizer tokenizer) {
+        Set<Statement> statements = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (StatementSequence seq : method.windows) {
+            statements.addAll(seq.statements());
+        }
+        Map<List<String>, Integer> counts = new HashMap<>();
+        for (Statement stmt : statements) {
+            counts.merge(tokenizer.tokenizeStatement(stmt), 1, Integer::sum);
+        }
+        int repeated = 0;
+        for (int count : counts.values()) {
+            if (count > 1) {
+                repeated += count;
+            }
+        }
+        return repeated >= minLines;
+    }
+
+    private static BlockStmt bodyOf(CallableDeclaration<?> callable) {
+        if (callable instanceof MethodDeclaration method) {
+            return method.getBody().orElse(null);
+        }
+        if (callable instanceof ConstructorDeclaration constructor) {
+            return constructor.getBody();
+        }
+        return null;
+    }
+
+    /**
+     * A callable body together with a window it was found through.
+     */
+    private static final class Method {
+        private final int id;
+        private final BlockStmt body;
+        private final StatementSequence origin;
+        private final List<StatementSequence> windows = new ArrayList<>();
+        private StatementSequence wholeBody;
+
+        Method(int id, BlockStmt body, StatementSequence origin) {
+            this.id = id;
+            this.body = body;
+            this.origin = origin;
+        }
+
+        StatementSequence wholeBody() {
+            if (wholeBody == null) {
+                wholeBody = StatementExtractor.createSequence(body.getStatements(),
+                        origin.containingCallable(), origin.compilationUnit(), origin.sourceFilePath());
+            }
+            return wholeBody;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.raditha.dedup.analyzer;
+
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.raditha.dedup.model.StatementSequence;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Integer-keyed index for physical overlap checks between statement sequences.
+ *
+ * <p>Files and callables are mapped to dense integer ids so that the hot overlap check
+ * compares ints instead of {@link Path} objects. Two sequences physically overlap when
+ * they are in the same file, in the same callable (or either has no callable, e.g. a
+ * static block) and their line ranges intersect - the same rule as
+ * {@link DuplicationAnalyzer#isPhysicallyOverlapping}.</p>
+ *
+ * <p>{@link IntervalSet} keeps a set of mutually non-overlapping sequences per
+ * (file, callable) in a sorted map, so "does this sequence overlap anything kept so far"
+ * is answered with a floor lookup in O(log k) instead of a scan over every kept
+ * sequence.</p>
+ */
+final class OverlapIndex {
+
+    /** Id used for a missing file or callable. */
+    static final int NONE = -1;
+
+    private final Map<Path, Integer> fileIds = new HashMap<>();
+    private final Map<CallableDeclaration<?>, Integer> callableIds = new IdentityHashMap<>();
+
+    int fileId(Path path) {
+        if (path == null) {
+            return NONE;
+        }
+        return fileIds.computeIfAbsent(path, p -> fileIds.size());
+    }
+
+    int callableId(CallableDeclaration<?> callable) {
+        if (callable == null) {
+            return NONE;
+        }
+        return callableIds.computeIfAbsent(callable, c -> callableIds.size());
+    }
+
+    /**
+     * Resolve the integer coordinates of every sequence in a list.
+     *
+     * @param sequences sequences, addressed afterwards by their index in this list
+     * @return locations for id-based overlap checks
+     */
+    Locations locate(List<StatementSequence> sequences) {
+        int n = sequences.size();
+        int[] files = new int[n];
+        int[] callables = new int[n];
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            StatementSequence seq = sequences.get(i);
+            files[i] = fileId(seq.sourceFilePath());
+            callables[i] = callableId(seq.containingCallable());
+            starts[i] = seq.range().startLine();
+            ends[i] = seq.range().endLine();
+        }
+        return new Locations(files, callables, starts, ends);
+    }
+
+    /**
+     * @return an empty interval set that shares this index's file and callable ids
+     */
+    IntervalSet newIntervalSet() {
+        return new IntervalSet();
+    }
+
+    private static boolean sameCallableOrUnknown(int callable1, int callable2) {
+        return callable1 == NONE || callable2 == NONE || callable1 == callable2;
+    }
+
+    private static long bucketKey(int fileId, int callableId) {
+        return ((long) fileId << 32) | (callableId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Integer coordinates of a list of sequences, addressed by index.
+     */
+    static final class Locations {
+        private final int[] files;
+        private final int[] callables;
+        private final int[] startLines;
+        private final int[] endLines;
+
+        private Locations(int[] files, int[] callables, int[] startLines, int[] endLines) {
+            this.files = files;
+            this.callables = callables;
+            this.startLines = startLines;
+            this.endLines = endLines;
+        }
+
+        /**
+         * @return true if the sequences with the given ids physically overlap
+         */
+        boolean overlapping(int a, int b) {
+            return files[a] != NONE
+                    && files[a] == files[b]
+                    && sameCallableOrUnknown(callables[a], callables[b])
+                    && startLines[a] <= endLines[b]
+                    && startLines[b] <= endLines[a];
+        }
+    }
+
+    /**
+     * A growing set of mutually non-overlapping sequences.
+     *
+     * <p>Within one (file, callable) bucket the kept line ranges are disjoint, so they
+     * are stored as start line to end line in a sorted map and the only candidate for
+     * an overlap with {@code [start, end]} is the entry with the greatest start that is
+     * not after {@code end}.</p>
+     */
+    final class IntervalSet {
+        private final Map<Long, TreeMap<Integer, Integer>> buckets = new HashMap<>();
+        private final Map<Integer, List<TreeMap<Integer, Integer>>> bucketsByFile = new HashMap<>();
+
+        private IntervalSet() {
+        }
+
+        /**
+         * @return true if the sequence physically overlaps any sequence in this set
+         */
+        boolean overlaps(StatementSequence seq) {
+            int file = fileId(seq.sourceFilePath());
+            if (file == NONE) {
+                return false;
+            }
+            int start = seq.range().startLine();
+            int end = seq.range().endLine();
+            int callable = callableId(seq.containingCallable());
+
+            if (callable == NONE) {
+                // No callable: overlaps anything in the same file
+                for (TreeMap<Integer, Integer> bucket : bucketsByFile.getOrDefault(file, List.of())) {
+                    if (intersects(bucket, start, end)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return intersects(buckets.get(bucketKey(file, callable)), start, end)
+                    || intersects(buckets.get(bucketKey(file, NONE)), start, end);
+        }
+
+        /**
+         * Add a sequence. Callers must only add sequences for which
+         * {@link #overlaps(StatementSequence)} returned false.
+         */
+        void add(StatementSequence seq) {
+            int file = fileId(seq.sourceFilePath());
+            if (file == NONE) {
+                return;
+            }
+            int callable = callableId(seq.containingCallable());
+            TreeMap<Integer, Integer> bucket = buckets.computeIfAbsent(bucketKey(file, callable), k -> {
+                TreeMap<Integer, Integer> created = new TreeMap<>();
+                bucketsByFile.computeIfAbsent(file, f -> new ArrayList<>()).add(created);
+                return created;
+            });
+            bucket.put(seq.range().startLine(), seq.range().endLine());
+        }
+
+        private static boolean intersects(TreeMap<Integer, Integer> bucket, int start, int end) {
+            if (bucket == null) {
+                return false;
+            }
+            Map.Entry<Integer, Integer> floor = bucket.floorEntry(end);
+            return floor != null && floor.getValue() >= start;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.raditha.dedup.analyzer;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+import com.raditha.dedup.config.SimilarityWeights;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.filter.PreFilterChain;
+import com.raditha.dedup.model.SimilarityResult;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.model.StatementSequenceComparator;
+import com.raditha.dedup.normalization.ASTNormalizer;
+import com.raditha.dedup.normalization.NormalizedNode;
+import com.raditha.dedup.similarity.ASTSimilarityCalculator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Seed-and-extend clone discovery.
+ *
+ * <p>Instead of materializing a window at every start position and every size, only
+ * seed windows of exactly {@code seedSize} statements are indexed. Every seed hit is
+ * verified and then extended one statement at a time, first forwards and then
+ * backwards, within the two enclosing statement lists for as long as the similarity
+ * of the aligned windows stays at or above the threshold. The result is one maximal
+ * pair per hit.</p>
+ *
+ * <p>Hits that fall inside a region already covered by an extension on the same
+ * diagonal (same pair of blocks, same alignment shift) are skipped, so a long clone is
+ * extended once rather than once per seed.</p>
+ */
+final class SeedExtendEngine {
+
+    private final int seedSize;
+    private final double threshold;
+    private final SimilarityWeights weights;
+    private final ASTNormalizer normalizer;
+    private final ASTSimilarityCalculator calculator;
+    private final PreFilterChain preFilter;
+
+    SeedExtendEngine(int seedSize, double threshold, SimilarityWeights weights,
+            ASTNormalizer normalizer, ASTSimilarityCalculator calculator, PreFilterChain preFilter) {
+        this.seedSize = seedSize;
+        this.threshold = threshold;
+        this.weights = weights;
+        this.normalizer = normalizer;
+        this.calculator = calculator;
+        this.preFilter = preFilter;
+    }
+
+    /**
+     * Verify and extend seed hits.
+     *
+     * @param seeds     seed windows of {@code seedSize} statements
+     * @param seedPairs sorted packed pairs of seed ids (indices into {@code seeds})
+     * @return scored pairs; every verified seed hit is counted, and hits that reach the
+     *         threshold are reported as their maximal extension
+     */
+    CandidatePairStore extend(List<StatementSequence> seeds, long[] seedPairs) {
+        List<StatementSequence> sequences = new ArrayList<>(seeds);
+        CandidatePairStore store = new CandidatePairStore(sequences, threshold, seedPairs.length);
+        Extension extension = new Extension(sequences);
+
+        Anchor[] anchors = new Anchor[seeds.size()];
+        for (int i = 0; i < seeds.size(); i++) {
+            anchors[i] = extension.anchor(seeds.get(i), i);
+        }
+
+        for (long pair : seedPairs) {
+            Anchor a = anchors[CandidatePairStore.firstId(pair)];
+            Anchor b = anchors[CandidatePairStore.secondId(pair)];
+            if (a == null || b == null) {
+                continue;
+            }
+            // Canonical orientation so that every hit on a diagonal uses the same key
+            if (a.block.id > b.block.id || (a.block == b.block && a.index > b.index)) {
+                Anchor tmp = a;
+                a = b;
+                b = tmp;
+            }
+            if (!extension.isValid(a.block, a.index, b.block, b.index, seedSize)) {
+                continue;
+            }
+            Diagonal diagonal = new Diagonal(a.block.id, b.block.id, a.index - b.index);
+            if (extension.isCovered(diagonal, a.index)) {
+                continue;
+            }
+            StatementSequence earlier = seeds.get(CandidatePairStore.firstId(pair));
+            StatementSequence later = seeds.get(CandidatePairStore.secondId(pair));
+            if (!preFilter.shouldCompare(later, earlier)) {
+                continue;
+            }
+
+            SimilarityResult seedResult = extension.score(a.block, a.index, b.block, b.index, seedSize);
+            if (seedResult.overallScore() < threshold) {
+                store.add(pair, seedResult);
+                continue;
+            }
+            extension.extendAndRecord(a, b, diagonal, seedResult, store);
+        }
+        return store;
+    }
+
+    /**
+     * Mutable state of one extension run.
+     */
+    private final class Extension {
+        private final List<StatementSequence> sequences;
+        private final Map<Node, Block> blocks = new IdentityHashMap<>();
+        private final Map<Window, Integer> windowIds = new HashMap<>();
+        private final Map<Diagonal, TreeMap<Integer, Integer>> covered = new HashMap<>();
+
+        Extension(List<StatementSequence> sequences) {
+            this.sequences = sequences;
+        }
+
+        /**
+         * Locate a seed within its enclosing statement list.
+         *
+         * @return the anchor, or null if the seed is not a contiguous run of a block
+         */
+        Anchor anchor(StatementSequence seed, int seedId) {
+            if (seed.statements().size() != seedSize) {
+                return null;
+            }
+            Statement first = seed.statements().getFirst();
+            Node parent = first.getParentNode().orElse(null);
+            List<Statement> statements;
+            if (parent instanceof BlockStmt blockStmt) {
+                statements = blockStmt.getStatements();
+            } else if (parent instanceof SwitchEntry entry) {
+                statements = entry.getStatements();
+            } else {
+                return null;
+            }
+
+            Block block = blocks.computeIfAbsent(parent, p -> new Block(blocks.size(), statements, seed));
+            int index = indexOf(statements, first);
+            if (index < 0 || index + seedSize > statements.size()) {
+                return null;
+            }
+            for (int i = 1; i < seedSize; i++) {
+                if (statements.get(index + i) != seed.statements().get(i)) {
+                    return null;
+                }
+            }
+            windowIds.putIfAbsent(new Window(block.id, index, seedSize), seedId);
+            return new Anchor(block, index);
+        }
+
+        boolean isCovered(Diagonal diagonal, int startA) {
+            TreeMap<Integer, Integer> intervals = covered.get(diagonal);
+            if (intervals == null) {
+                return false;
+            }
+            Map.Entry<Integer, Integer> floor = intervals.floorEntry(startA);
+            return floor != null && startA + seedSize <= floor.getValue();
+        }
+
+        /**
+         * Grow the aligned windows forwards, then backwards, while the similarity
+         * stays above the threshold, and record the maximal pair.
+         */
+        void extendAndRecord(Anchor a, Anchor b, Diagonal diagonal, SimilarityResult seedResult,
+                CandidatePairStore store) {
+            int startA = a.index;
+            int startB = b.index;
+            int length = seedSize;
+            SimilarityResult best = seedResult;
+
+            while (isValid(a.block, startA, b.block, startB, length + 1)) {
+                SimilarityResult grown = score(a.block, startA, b.block, startB, length + 1);
+                if (grown.overallScore() < threshold) {
+                    break;
+                }
+                length++;
+                best = grown;
+            }
+            while (startA > 0 && startB > 0 && isValid(a.block, startA - 1, b.block, startB - 1, length + 1)) {
+                SimilarityResult grown = score(a.block, startA - 1, b.block, startB - 1, length + 1);
+                if (grown.overallScore() < threshold) {
+                    break;
+                }
+                startA--;
+                startB--;
+                length++;
+                best = grown;
+            }
+
+            covered.computeIfAbsent(diagonal, d -> new TreeMap<>()).merge(startA, startA + length, Math::max);
+
+            int idA = windowId(a.block, startA, length);
+            int idB = windowId(b.block, startB, length);
+            if (StatementSequenceComparator.INSTANCE.compare(sequences.get(idA), sequences.get(idB)) <= 0) {
+                store.add(idA, idB, best);
+            } else {
+                store.add(idB, idA, best);
+            }
+        }
+
+        /**
+         * @return true if both windows fit in their blocks and do not physically overlap
+         */
+        boolean isValid(Block a, int startA, Block b, int startB, int length) {
+            if (startA + length > a.statements.size() || startB + length > b.statements.size()) {
+                return false;
+            }
+            if (a == b) {
+                return startA + length <= startB || startB + length <= startA;
+            }
+            if (a.origin.sourceFilePath() == null || !a.origin.sourceFilePath().equals(b.origin.sourceFilePath())) {
+                return true;
+            }
+            var m1 = a.origin.containingCallable();
+            var m2 = b.origin.containingCallable();
+            if (m1 != null && m2 != null && m1 != m2) {
+                return true;
+            }
+            // Nested blocks of the same callable: compare line spans
+            return lastLine(a, startA + length - 1) < firstLine(b, startB)
+                    || lastLine(b, startB + length - 1) < firstLine(a, startA);
+        }
+
+        SimilarityResult score(Block a, int startA, Block b, int startB, int length) {
+            return calculator.calculate(
+                    a.normalized().subList(startA, startA + length),
+                    b.normalized().subList(startB, startB + length),
+                    weights);
+        }
+
+        private int windowId(Block block, int start, int length) {
+            return windowIds.computeIfAbsent(new Window(block.id, start, length), w -> {
+                sequences.add(StatementExtractor.createSequence(
+                        block.statements.subList(start, start + length),
+                        block.origin.containingCallable(),
+                        block.origin.compilationUnit(),
+                        block.origin.sourceFilePath()));
+                return sequences.size() - 1;
+            });
+        }
+
+        private static int firstLine(Block block, int index) {
+            return block.statements.get(index).getRange().map(r -> r.begin.line).orElse(Integer.MAX_VALUE);
+        }
+
+        private static int lastLine(Block block, int index) {
+            return block.statements.get(index).getRange().map(r -> r.end.line).orElse(Integer.MIN_VALUE);
+        }
+
+        private static int indexOf(List<Statement> statements, Statement target) {
+            for (int i = 0; i < statements.size(); i++) {
+                if (statements.get(i) == target) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * An enclosing statement list, normalized once on first use.
+     */
+    private final class Block {
+        private final int id;
+        private final List<Statement> statements;
+        private final StatementSequence origin;
+        private List<NormalizedNode> normalized;
+
+        Block(int id, List<Statement> statements, StatementSequence origin) {
+            this.id = id;
+            this.statements = statements;
+            this.origin = origin;
+        }
+
+        List<NormalizedNode> normalized() {
+            if (normalized == null) {
+                normalized = normalizer.normalize(statements);
+            }
+            return normalized;
+        }
+    }
+
+    private record Anchor(Block block, int index) {
+    }
+
+    private record Window(int block, int start, int length) {
+    }
+
+    private record Diagonal(int blockA, int blockB, int shift) {
+    }
+}
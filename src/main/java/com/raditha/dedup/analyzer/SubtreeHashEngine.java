@@ -0,0 +1,297 @@
+package com.raditha.dedup.analyzer;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.ast.expr.BooleanLiteralExpr;
+import com.github.javaparser.ast.expr.CharLiteralExpr;
+import com.github.javaparser.ast.expr.DoubleLiteralExpr;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.LongLiteralExpr;
+import com.github.javaparser.ast.expr.NullLiteralExpr;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.metamodel.PropertyMetaModel;
+import com.raditha.dedup.config.SimilarityWeights;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.model.SimilarityResult;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.model.StatementSequenceComparator;
+import com.raditha.dedup.normalization.ASTNormalizer;
+import com.raditha.dedup.normalization.NormalizedNode;
+import com.raditha.dedup.similarity.ASTSimilarityCalculator;
+import com.raditha.dedup.util.ParallelTasks;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+
+/**
+ * Subtree-hash clone discovery (after Baxter et al.).
+ *
+ * <p>Every statement of every method and constructor body is hashed bottom-up in a
+ * single post-order pass per compilation unit. The hash covers the node types, names,
+ * operators and other attributes of the subtree, with literals abstracted the same
+ * way {@link ASTNormalizer} abstracts them. Subtrees are bucketed by hash and size
+ * (the number of statements they contain), and every bucket with two or more subtrees
+ * of at least {@code minLines} statements is a clone class.</p>
+ *
+ * <p>A block is reported as its statement list and any other statement as a one
+ * statement sequence, so a duplicated {@code if} or {@code try} body is found
+ * wherever it is nested. Clone members whose enclosing statement is itself cloned
+ * are suppressed, so only the largest clones are reported.</p>
+ */
+final class SubtreeHashEngine {
+
+    private static final Map<Class<?>, List<PropertyMetaModel>> ATTRIBUTES = new java.util.concurrent.ConcurrentHashMap<>();
+
+    private final int minLines;
+    private final double threshold;
+    private final SimilarityWeights weights;
+    private final ASTNormalizer normalizer;
+    private final ASTSimilarityCalculator calculator;
+    private final int parallelism;
+
+    SubtreeHashEngine(int minLines, double threshold, SimilarityWeights weights,
+            ASTNormalizer normalizer, ASTSimilarityCalculator calculator, int parallelism) {
+        this.minLines = minLines;
+        this.threshold = threshold;
+        this.weights = weights;
+        this.normalizer = normalizer;
+        this.calculator = calculator;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Hash, bucket and score clone classes.
+     *
+     * @param sequences extracted windows; only used to find the compilation units and
+     *                  their paths
+     * @return scored pairs over the clone class members
+     */
+    CandidatePairStore findClones(List<StatementSequence> sequences) {
+        Map<Key, List<Subtree>> buckets = new LinkedHashMap<>();
+        for (Unit unit : collectUnits(sequences)) {
+            for (Subtree subtree : hashUnit(unit.cu(), unit.path())) {
+                if (subtree.size >= minLines) {
+                    buckets.computeIfAbsent(new Key(subtree.hash, subtree.size), k -> new ArrayList<>()).add(subtree);
+                }
+            }
+        }
+
+        Set<Subtree> cloned = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<Subtree> bucket : buckets.values()) {
+            if (bucket.size() > 1) {
+                cloned.addAll(bucket);
+            }
+        }
+
+        List<StatementSequence> windows = new ArrayList<>();
+        List<Long> pairs = new ArrayList<>();
+        for (List<Subtree> bucket : buckets.values()) {
+            if (bucket.size() < 2) {
+                continue;
+            }
+            List<StatementSequence> members = new ArrayList<>();
+            for (Subtree subtree : bucket) {
+                // Suppress sub-clones whose enclosing statement is cloned as a whole
+                if (subtree.parent == null || !cloned.contains(subtree.parent)) {
+                    members.add(subtree.toSequence());
+                }
+            }
+            if (members.size() < 2) {
+                continue;
+            }
+            members.sort(StatementSequenceComparator.INSTANCE);
+            int first = windows.size();
+            windows.addAll(members);
+            for (int i = 1; i < members.size(); i++) {
+                pairs.add(CandidatePairStore.packPair(first, first + i));
+            }
+        }
+
+        return score(windows, pairs.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    /**
+     * @return the distinct compilation units of the given windows with their paths, in
+     *         order of first appearance
+     */
+    private static List<Unit> collectUnits(List<StatementSequence> sequences) {
+        // Identity based: Node.equals() compares structure
+        Set<CompilationUnit> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Unit> units = new ArrayList<>();
+        for (StatementSequence seq : sequences) {
+            CompilationUnit cu = seq.compilationUnit();
+            if (cu != null && seen.add(cu)) {
+                units.add(new Unit(cu, seq.sourceFilePath()));
+            }
+        }
+        return units;
+    }
+
+    private List<Subtree> hashUnit(CompilationUnit cu, Path path) {
+        List<Subtree> subtrees = new ArrayList<>();
+        for (CallableDeclaration<?> callable : cu.findAll(CallableDeclaration.class)) {
+            BlockStmt body = null;
+            if (callable instanceof MethodDeclaration method) {
+                body = method.getBody().orElse(null);
+            } else if (callable instanceof ConstructorDeclaration constructor) {
+                body = constructor.getBody();
+            }
+            if (body != null) {
+                new Hasher(callable, cu, path, subtrees).visit(body, null, true);
+            }
+        }
+        return subtrees;
+    }
+
+    private CandidatePairStore score(List<StatementSequence> windows, long[] pairs) {
+        List<List<NormalizedNode>> normalized = ParallelTasks.map(windows, parallelism,
+                window -> normalizer.normalize(window.statements()));
+
+        // Only results that reach the threshold are kept past their worker
+        double[] scores = new double[pairs.length];
+        Map<Integer, SimilarityResult> survivors = new ConcurrentHashMap<>();
+        ParallelTasks.forEachIndexed(pairs.length, parallelism, i -> {
+            SimilarityResult result = calculator.calculate(
+                    normalized.get(CandidatePairStore.firstId(pairs[i])),
+                    normalized.get(CandidatePairStore.secondId(pairs[i])),
+                    weights);
+            scores[i] = CandidatePairStore.scoreOf(result);
+            if (result != null && scores[i] >= threshold) {
+                survivors.put(i, result);
+            }
+        });
+
+        CandidatePairStore store = new CandidatePairStore(windows, threshold, pairs.length);
+        for (int i = 0; i < pairs.length; i++) {
+            store.add(pairs[i], scores[i], survivors.get(i));
+        }
+        return store;
+    }
+
+    /**
+     * Post-order hashing of one callable body.
+     */
+    private static final class Hasher {
+        private final CallableDeclaration<?> callable;
+        private final CompilationUnit cu;
+        private final Path path;
+        private final List<Subtree> subtrees;
+        private int statementCount;
+
+        Hasher(CallableDeclaration<?> callable, CompilationUnit cu, Path path, List<Subtree> subtrees) {
+            this.callable = callable;
+            this.cu = cu;
+            this.path = path;
+            this.subtrees = subtrees;
+        }
+
+        /**
+         * @param record whether statements below this node belong to the callable being
+         *               hashed (false inside lambdas and nested type declarations)
+         * @return hash of the subtree rooted at {@code node}
+         */
+        long visit(Node node, Subtree parent, boolean record) {
+            Subtree self = record && node instanceof Statement stmt
+                    ? new Subtree(stmt, parent, callable, cu, path)
+                    : null;
+            boolean childRecord = record && !(node instanceof LambdaExpr) && !(node instanceof BodyDeclaration<?>);
+            int before = statementCount;
+
+            long hash = node.getClass().getName().hashCode();
+            if (!isNormalizedLiteral(node)) {
+                for (PropertyMetaModel attribute : attributes(node)) {
+                    hash = mix(hash, String.valueOf(attribute.getValue(node)).hashCode());
+                }
+            }
+            for (Node child : node.getChildNodes()) {
+                if (!(child instanceof Comment)) {
+                    hash = mix(hash, visit(child, self != null ? self : parent, childRecord));
+                }
+            }
+
+            if (node instanceof Statement && !(node instanceof BlockStmt)) {
+                statementCount++;
+            }
+            if (self != null) {
+                self.hash = hash;
+                self.size = statementCount - before;
+                subtrees.add(self);
+            }
+            return hash;
+        }
+
+        private static long mix(long hash, long value) {
+            return (hash ^ value) * 0x100000001b3L + (hash >>> 29);
+        }
+
+        /**
+         * Literal kinds that ASTNormalizer replaces with placeholders; their values are
+         * left out of the hash.
+         */
+        private static boolean isNormalizedLiteral(Node node) {
+            return node instanceof StringLiteralExpr || node instanceof IntegerLiteralExpr
+                    || node instanceof LongLiteralExpr || node instanceof DoubleLiteralExpr
+                    || node instanceof BooleanLiteralExpr || node instanceof NullLiteralExpr
+                    || node instanceof CharLiteralExpr;
+        }
+
+        private static List<PropertyMetaModel> attributes(Node node) {
+            return ATTRIBUTES.computeIfAbsent(node.getClass(), type -> node.getMetaModel()
+                    .getAllPropertyMetaModels().stream()
+                    .filter(PropertyMetaModel::isAttribute)
+                    .toList());
+        }
+    }
+
+    /**
+     * A hashed statement subtree.
+     */
+    private static final class Subtree {
+        private final Statement statement;
+        private final Subtree parent;
+        private final CallableDeclaration<?> callable;
+        private final CompilationUnit cu;
+        private final Path path;
+        private long hash;
+        private int size;
+
+        Subtree(Statement statement, Subtree parent, CallableDeclaration<?> callable, CompilationUnit cu, Path path) {
+            this.statement = statement;
+            this.parent = parent;
+            this.callable = callable;
+            this.cu = cu;
+            this.path = path;
+        }
+
+        /**
+         * A block becomes its statement list; any other statement a one statement sequence.
+         */
+        StatementSequence toSequence() {
+            List<Statement> statements = statement instanceof BlockStmt block
+                    ? block.getStatements()
+                    : List.of(statement);
+            return StatementExtractor.createSequence(statements, callable, cu, path);
+        }
+    }
+
+    private record Key(long hash, int size) {
+    }
+
+    private record Unit(CompilationUnit cu, Path path) {
+    }
+}
@@ -0,0 +1,190 @@
+package com.raditha.dedup.analyzer;
+
+import java.util.Arrays;
+
+/**
+ * Suffix array and LCP array construction over integer alphabets.
+ *
+ * <p>The suffix array is built with SA-IS (induced sorting), which runs in linear
+ * time in the length of the text and the size of the alphabet. The LCP array is
+ * derived from it with Kasai's algorithm, also in linear time.</p>
+ */
+final class SuffixArray {
+
+    private SuffixArray() {
+    }
+
+    /**
+     * Build the suffix array of {@code text}.
+     *
+     * @param text  symbols, each in {@code [0, upper]}
+     * @param upper largest symbol value
+     * @return start positions of the suffixes of {@code text} in lexicographic order
+     */
+    static int[] build(int[] text, int upper) {
+        int n = text.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        if (n == 1) {
+            return new int[] { 0 };
+        }
+        if (n == 2) {
+            return text[0] < text[1] ? new int[] { 0, 1 } : new int[] { 1, 0 };
+        }
+
+        int[] sa = new int[n];
+        boolean[] sType = new boolean[n];
+        for (int i = n - 2; i >= 0; i--) {
+            sType[i] = text[i] == text[i + 1] ? sType[i + 1] : text[i] < text[i + 1];
+        }
+
+        // Bucket boundaries: sumL[c] is the start of bucket c, sumS[c] the start of its S part
+        int[] sumL = new int[upper + 1];
+        int[] sumS = new int[upper + 1];
+        for (int i = 0; i < n; i++) {
+            if (!sType[i]) {
+                sumS[text[i]]++;
+            } else {
+                sumL[text[i] + 1]++;
+            }
+        }
+        for (int i = 0; i <= upper; i++) {
+            sumS[i] += sumL[i];
+            if (i < upper) {
+                sumL[i + 1] += sumS[i];
+            }
+        }
+
+        int[] lmsMap = new int[n + 1];
+        Arrays.fill(lmsMap, -1);
+        int m = 0;
+        for (int i = 1; i < n; i++) {
+            if (!sType[i - 1] && sType[i]) {
+                lmsMap[i] = m++;
+            }
+        }
+        int[] lms = new int[m];
+        for (int i = 1, k = 0; i < n; i++) {
+            if (!sType[i - 1] && sType[i]) {
+                lms[k++] = i;
+            }
+        }
+
+        induce(text, upper, sa, sType, sumL, sumS, lms);
+
+        if (m > 0) {
+            int[] sortedLms = new int[m];
+            int k = 0;
+            for (int v : sa) {
+                if (lmsMap[v] != -1) {
+                    sortedLms[k++] = v;
+                }
+            }
+
+            // Name the LMS substrings and sort them recursively
+            int[] reduced = new int[m];
+            int reducedUpper = 0;
+            reduced[lmsMap[sortedLms[0]]] = 0;
+            for (int i = 1; i < m; i++) {
+                int l = sortedLms[i - 1];
+                int r = sortedLms[i];
+                int endL = lmsMap[l] + 1 < m ? lms[lmsMap[l] + 1] : n;
+                int endR = lmsMap[r] + 1 < m ? lms[lmsMap[r] + 1] : n;
+                boolean same = true;
+                if (endL - l != endR - r) {
+                    same = false;
+                } else {
+                    while (l < endL && text[l] == text[r]) {
+                        l++;
+                        r++;
+                    }
+                    if (l == n || text[l] != text[r]) {
+                        same = false;
+                    }
+                }
+                if (!same) {
+                    reducedUpper++;
+                }
+                reduced[lmsMap[sortedLms[i]]] = reducedUpper;
+            }
+
+            int[] reducedSa = build(reduced, reducedUpper);
+            for (int i = 0; i < m; i++) {
+                sortedLms[i] = lms[reducedSa[i]];
+            }
+            induce(text, upper, sa, sType, sumL, sumS, sortedLms);
+        }
+        return sa;
+    }
+
+    /**
+     * Induced sorting: place the LMS suffixes, then the L-type suffixes left to right,
+     * then the S-type suffixes right to left.
+     */
+    private static void induce(int[] text, int upper, int[] sa, boolean[] sType,
+            int[] sumL, int[] sumS, int[] lms) {
+        int n = text.length;
+        Arrays.fill(sa, -1);
+        int[] buf = new int[upper + 1];
+
+        System.arraycopy(sumS, 0, buf, 0, upper + 1);
+        for (int d : lms) {
+            if (d != n) {
+                sa[buf[text[d]]++] = d;
+            }
+        }
+
+        System.arraycopy(sumL, 0, buf, 0, upper + 1);
+        sa[buf[text[n - 1]]++] = n - 1;
+        for (int i = 0; i < n; i++) {
+            int v = sa[i];
+            if (v >= 1 && !sType[v - 1]) {
+                sa[buf[text[v - 1]]++] = v - 1;
+            }
+        }
+
+        System.arraycopy(sumL, 0, buf, 0, upper + 1);
+        for (int i = n - 1; i >= 0; i--) {
+            int v = sa[i];
+            if (v >= 1 && sType[v - 1]) {
+                sa[--buf[text[v - 1] + 1]] = v - 1;
+            }
+        }
+    }
+
+    /**
+     * Build the LCP array with Kasai's algorithm.
+     *
+     * @param text symbols
+     * @param sa   suffix array of {@code text}
+     * @return array of length {@code n - 1}; entry {@code i} is the length of the longest
+     *         common prefix of the suffixes at {@code sa[i]} and {@code sa[i + 1]}
+     */
+    static int[] lcp(int[] text, int[] sa) {
+        int n = text.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[sa[i]] = i;
+        }
+        int[] lcp = new int[n - 1];
+        int h = 0;
+        for (int i = 0; i < n; i++) {
+            if (h > 0) {
+                h--;
+            }
+            if (rank[i] == 0) {
+                continue;
+            }
+            int j = sa[rank[i] - 1];
+            while (j + h < n && i + h < n && text[j + h] == text[i + h]) {
+                h++;
+            }
+            lcp[rank[i] - 1] = h;
+        }
+        return lcp;
+    }
+}
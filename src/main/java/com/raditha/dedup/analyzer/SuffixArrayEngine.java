@@ -0,0 +1,330 @@
+package com.raditha.dedup.analyzer;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+import com.raditha.dedup.config.SimilarityWeights;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.model.SimilarityResult;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.model.StatementSequenceComparator;
+import com.raditha.dedup.normalization.ASTNormalizer;
+import com.raditha.dedup.normalization.FuzzyTokenizer;
+import com.raditha.dedup.normalization.NormalizedNode;
+import com.raditha.dedup.similarity.ASTSimilarityCalculator;
+import com.raditha.dedup.util.ParallelTasks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Suffix-array clone discovery for exact and renamed (Type-1/Type-2) clones.
+ *
+ * <p>Every enclosing statement list is turned into a string of statement symbols,
+ * where two statements share a symbol exactly when their fuzzy token streams are
+ * equal. The strings are concatenated with a unique separator after each block, so
+ * no repeat can cross a block boundary, and a suffix array plus LCP array is built
+ * over the result. Maximal repeats of at least {@code minLines} statements are read
+ * off the LCP intervals in a single pass and mapped back to statement windows.</p>
+ *
+ * <p>No pairwise search is done: only the occurrences of each maximal repeat are
+ * scored, each against the earliest occurrence it does not overlap, which is enough
+ * to connect them in the clusterer. Occurrences are scored on the same fuzzy
+ * normalization their symbols were derived from, so renamed clones reach the
+ * threshold just like exact ones.</p>
+ */
+final class SuffixArrayEngine {
+
+    private final int minLines;
+    private final double threshold;
+    private final SimilarityWeights weights;
+    private final ASTNormalizer normalizer;
+    private final ASTSimilarityCalculator calculator;
+    private final int parallelism;
+
+    SuffixArrayEngine(int minLines, double threshold, SimilarityWeights weights,
+            ASTNormalizer normalizer, ASTSimilarityCalculator calculator, int parallelism) {
+        this.minLines = minLines;
+        this.threshold = threshold;
+        this.weights = weights;
+        this.normalizer = normalizer;
+        this.calculator = calculator;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Find and score maximal repeats.
+     *
+     * @param sequences extracted windows; only used to locate the enclosing statement lists
+     * @return scored pairs over the repeat occurrences
+     */
+    CandidatePairStore findRepeats(List<StatementSequence> sequences) {
+        List<Block> blocks = collectBlocks(sequences);
+        Text text = encode(blocks);
+
+        int[] sa = SuffixArray.build(text.symbols(), text.upper());
+        int[] lcp = SuffixArray.lcp(text.symbols(), sa);
+
+        List<StatementSequence> windows = new ArrayList<>();
+        Map<Window, Integer> windowIds = new HashMap<>();
+        List<int[]> groups = new ArrayList<>();
+        forEachMaximalRepeat(text, sa, lcp, (length, positions) -> {
+            int[] ids = new int[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                int blockIndex = text.blockAt(positions[i]);
+                Window window = new Window(blockIndex, positions[i] - text.starts()[blockIndex], length);
+                ids[i] = windowIds.computeIfAbsent(window, w -> {
+                    windows.add(blocks.get(w.block).window(w.start, w.length));
+                    return windows.size() - 1;
+                });
+            }
+            groups.add(ids);
+        });
+
+        long[] pairs = pairOccurrences(windows, groups);
+        return score(blocks, windows, windowIds, pairs);
+    }
+
+    /**
+     * Collect the distinct enclosing statement lists of the given windows, in order
+     * of first appearance.
+     */
+    private static List<Block> collectBlocks(List<StatementSequence> sequences) {
+        Map<Node, Block> byParent = new IdentityHashMap<>();
+        List<Block> blocks = new ArrayList<>();
+        for (StatementSequence seq : sequences) {
+            if (seq.statements().isEmpty()) {
+                continue;
+            }
+            Node parent = seq.statements().getFirst().getParentNode().orElse(null);
+            List<Statement> statements;
+            if (parent instanceof BlockStmt blockStmt) {
+                statements = blockStmt.getStatements();
+            } else if (parent instanceof SwitchEntry entry) {
+                statements = entry.getStatements();
+            } else {
+                continue;
+            }
+            if (!byParent.containsKey(parent)) {
+                Block block = new Block(blocks.size(), statements, seq);
+                byParent.put(parent, block);
+                blocks.add(block);
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Map statements to symbols and concatenate the blocks, each followed by its own
+     * separator symbol.
+     */
+    private static Text encode(List<Block> blocks) {
+        FuzzyTokenizer tokenizer = new FuzzyTokenizer();
+        Map<List<String>, Integer> symbolIds = new HashMap<>();
+        int length = 0;
+        for (Block block : blocks) {
+            length += block.statements().size() + 1;
+        }
+
+        int[] symbols = new int[length];
+        int[] starts = new int[blocks.size()];
+        int pos = 0;
+        for (Block block : blocks) {
+            starts[block.id()] = pos;
+            for (Statement stmt : block.statements()) {
+                List<String> tokens = tokenizer.tokenizeStatement(stmt);
+                symbols[pos++] = symbolIds.computeIfAbsent(tokens, t -> symbolIds.size());
+            }
+            // Separator, assigned after all statement symbols are known
+            symbols[pos++] = -1 - block.id();
+        }
+
+        int statementSymbols = symbolIds.size();
+        for (int i = 0; i < length; i++) {
+            if (symbols[i] < 0) {
+                symbols[i] = statementSymbols - 1 - symbols[i];
+            }
+        }
+        return new Text(symbols, starts, statementSymbols + blocks.size() - 1);
+    }
+
+    /**
+     * Enumerate the LCP intervals bottom-up and report those that are at least
+     * {@code minLines} long and left-maximal. Every LCP interval is right-maximal by
+     * construction, so each reported interval is a maximal repeat.
+     */
+    private void forEachMaximalRepeat(Text text, int[] sa, int[] lcp, RepeatConsumer consumer) {
+        int n = sa.length;
+        if (n < 2) {
+            return;
+        }
+        int[] heights = new int[n + 1];
+        int[] bounds = new int[n + 1];
+        int top = 0;
+        heights[0] = 0;
+        bounds[0] = 0;
+
+        for (int i = 0; i < n; i++) {
+            int h = i < n - 1 ? lcp[i] : 0;
+            int lb = i;
+            while (h < heights[top]) {
+                int height = heights[top];
+                lb = bounds[top];
+                top--;
+                if (height >= minLines && isLeftMaximal(text.symbols(), sa, lb, i)) {
+                    int[] positions = Arrays.copyOfRange(sa, lb, i + 1);
+                    Arrays.sort(positions);
+                    consumer.accept(height, positions);
+                }
+            }
+            if (h > heights[top]) {
+                top++;
+                heights[top] = h;
+                bounds[top] = lb;
+            }
+        }
+    }
+
+    /**
+     * A repeat is left-maximal unless every occurrence is preceded by the same symbol.
+     */
+    private static boolean isLeftMaximal(int[] symbols, int[] sa, int lb, int rb) {
+        if (sa[lb] == 0) {
+            return true;
+        }
+        int first = symbols[sa[lb] - 1];
+        for (int i = lb + 1; i <= rb; i++) {
+            if (sa[i] == 0 || symbols[sa[i] - 1] != first) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pair every occurrence of a repeat with the earliest occurrence it does not
+     * physically overlap.
+     *
+     * @return sorted, de-duplicated packed pairs of window ids
+     */
+    private static long[] pairOccurrences(List<StatementSequence> windows, List<int[]> groups) {
+        OverlapIndex.Locations locations = new OverlapIndex().locate(windows);
+        long[] pairs = new long[16];
+        int count = 0;
+        for (int[] group : groups) {
+            Integer[] order = new Integer[group.length];
+            for (int i = 0; i < group.length; i++) {
+                order[i] = group[i];
+            }
+            Arrays.sort(order, (a, b) -> StatementSequenceComparator.INSTANCE.compare(windows.get(a), windows.get(b)));
+            for (int j = 1; j < order.length; j++) {
+                for (int k = 0; k < j; k++) {
+                    if (!locations.overlapping(order[k], order[j])) {
+                        if (count == pairs.length) {
+                            pairs = Arrays.copyOf(pairs, count * 2);
+                        }
+                        pairs[count++] = CandidatePairStore.packPair(order[k], order[j]);
+                        break;
+                    }
+                }
+            }
+        }
+        Arrays.sort(pairs, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || pairs[i] != pairs[unique - 1]) {
+                pairs[unique++] = pairs[i];
+            }
+        }
+        return Arrays.copyOf(pairs, unique);
+    }
+
+    private CandidatePairStore score(List<Block> blocks, List<StatementSequence> windows,
+            Map<Window, Integer> windowIds, long[] pairs) {
+        Window[] windowById = new Window[windows.size()];
+        windowIds.forEach((window, id) -> windowById[id] = window);
+
+        // Normalize each involved block once, with identifiers anonymized as in the
+        // symbols; windows are scored on slices of it
+        boolean[] involved = new boolean[blocks.size()];
+        for (Window window : windowById) {
+            involved[window.block] = true;
+        }
+        List<NormalizedNode>[] normalized = normalizeBlocks(blocks, involved);
+
+        // Only results that reach the threshold are kept past their worker
+        double[] scores = new double[pairs.length];
+        Map<Integer, SimilarityResult> survivors = new ConcurrentHashMap<>();
+        ParallelTasks.forEachIndexed(pairs.length, parallelism, i -> {
+            Window a = windowById[CandidatePairStore.firstId(pairs[i])];
+            Window b = windowById[CandidatePairStore.secondId(pairs[i])];
+            SimilarityResult result = calculator.calculate(
+                    normalized[a.block].subList(a.start, a.start + a.length),
+                    normalized[b.block].subList(b.start, b.start + b.length),
+                    weights);
+            scores[i] = CandidatePairStore.scoreOf(result);
+            if (result != null && scores[i] >= threshold) {
+                survivors.put(i, result);
+            }
+        });
+
+        CandidatePairStore store = new CandidatePairStore(windows, threshold, pairs.length);
+        for (int i = 0; i < pairs.length; i++) {
+            store.add(pairs[i], scores[i], survivors.get(i));
+        }
+        return store;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<NormalizedNode>[] normalizeBlocks(List<Block> blocks, boolean[] involved) {
+        List<NormalizedNode>[] normalized = new List[blocks.size()];
+        ParallelTasks.forEachIndexed(blocks.size(), parallelism, i -> {
+            if (involved[i]) {
+                normalized[i] = normalizer.normalizeFuzzy(blocks.get(i).statements());
+            }
+        });
+        return normalized;
+    }
+
+    @FunctionalInterface
+    private interface RepeatConsumer {
+        void accept(int length, int[] positions);
+    }
+
+    /**
+     * An enclosing statement list together with a window it was found through, which
+     * supplies the callable, compilation unit and path for new windows.
+     */
+    private record Block(int id, List<Statement> statements, StatementSequence origin) {
+        StatementSequence window(int start, int length) {
+            return StatementExtractor.createSequence(
+                    statements.subList(start, start + length),
+                    origin.containingCallable(),
+                    origin.compilationUnit(),
+                    origin.sourceFilePath());
+        }
+    }
+
+    /**
+     * Concatenated symbol string.
+     *
+     * @param symbols statement and separator symbols
+     * @param starts  start offset of each block in {@code symbols}
+     * @param upper   largest symbol value
+     */
+    private record Text(int[] symbols, int[] starts, int upper) {
+        int blockAt(int position) {
+            int index = Arrays.binarySearch(starts, position);
+            return index >= 0 ? index : -index - 2;
+        }
+    }
+
+    private record Window(int block, int start, int length) {
+    }
+}
@@ -9,6 +9,7 @@ import picocli.CommandLine.ITypeConverter;
 import com.raditha.dedup.analyzer.DuplicationAnalyzer;
 import com.raditha.dedup.analyzer.DuplicationReport;
 import com.raditha.dedup.config.DuplicationDetectorSettings;
+import com.raditha.dedup.config.RecommendationMode;
 import com.raditha.dedup.metrics.MetricsExporter;
 import com.raditha.dedup.model.DuplicateCluster;
 import com.raditha.dedup.model.StatementSequence;
@@ -258,15 +259,20 @@ public class BertieCLI implements Callable<Integer> {
     }
 
     private List<DuplicationReport> performAnalysis() {
+        return performAnalysis(RecommendationMode.EAGER);
+    }
+
+    private List<DuplicationReport> performAnalysis(RecommendationMode recommendationMode) {
         // Get compilation units and filter criteria
         // Note: AntikytheraRunTime.getResolvedCompilationUnits() is now called internally by DuplicationAnalyzer
 
-        DuplicationAnalyzer analyzer = new DuplicationAnalyzer();
+        DuplicationAnalyzer analyzer = new DuplicationAnalyzer(recommendationMode);
         return analyzer.analyzeProject();
     }
 
     private void runAnalysis() throws IOException {
-        List<DuplicationReport> reports = performAnalysis();
+        // Lazy recommendations are only built for the clusters that get printed or exported
+        List<DuplicationReport> reports = performAnalysis(DuplicationDetectorSettings.getRecommendationMode());
 
         // Print the detailed report
         if (jsonOutput) {
@@ -336,7 +342,14 @@ public class BertieCLI implements Callable<Integer> {
         RefactoringEngine engine = new RefactoringEngine(
                 projectRoot, // Fixed variable name
                 mode,
-                verifyMode);
+                verifyMode,
+                RefactoringEngine.Options.builder()
+                        .verifyBatchSize(DuplicationDetectorSettings.getVerifyBatchSize())
+                        .refactorThreads(com.raditha.dedup.util.ParallelTasks.effectiveParallelism(
+                                DuplicationDetectorSettings.getRefactorThreads()))
+                        .previewPrefetch(DuplicationDetectorSettings.getPreviewPrefetch())
+                        .singlePass(DuplicationDetectorSettings.getSinglePass())
+                        .build());
 
         // Initialize Orchestrator (requires analyzer with full project context)
         // We re-initialize analyzer here to ensure we have access to all CUs for re-analysis
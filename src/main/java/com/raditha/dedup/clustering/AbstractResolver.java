@@ -14,6 +14,7 @@ import com.github.javaparser.ast.type.Type;
 import com.github.javaparser.resolution.types.ResolvedType;
 import com.raditha.dedup.analysis.DataFlowAnalyzer;
 import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.util.SymbolResolution;
 import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
 import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
 
@@ -39,7 +40,7 @@ public abstract class AbstractResolver {
     protected Type resolveTypeToAST(Type type, Node contextNode, StatementSequence sequence) {
         var classDecl = contextNode.findAncestor(ClassOrInterfaceDeclaration.class);
         if (classDecl.isPresent()) {
-            String fqn = AbstractCompiler.resolveTypeFqn(type, classDecl.get(), null);
+            String fqn = SymbolResolution.guarded(() -> AbstractCompiler.resolveTypeFqn(type, classDecl.get(), null));
             if (fqn != null && !fqn.equals("java.lang.Object") && !fqn.equals(OBJECT)) {
                 return StaticJavaParser.parseType(simplifyType(fqn));
             }
@@ -61,7 +62,7 @@ public abstract class AbstractResolver {
      */
     protected Type resolveExpressionTypeToAST(Expression expr, StatementSequence sequence) {
         try {
-            ResolvedType resolved = expr.calculateResolvedType();
+            ResolvedType resolved = SymbolResolution.guarded(expr::calculateResolvedType);
             return convertResolvedTypeToJavaParserType(resolved);
         } catch (Exception e) {
             if (expr.isMethodCallExpr()) {
@@ -143,7 +144,7 @@ public abstract class AbstractResolver {
 
     protected Type inferTypeFromMethodCall(com.github.javaparser.ast.expr.MethodCallExpr methodCall, StatementSequence sequence) {
         try {
-            ResolvedType resolved = methodCall.calculateResolvedType();
+            ResolvedType resolved = SymbolResolution.guarded(methodCall::calculateResolvedType);
             return convertResolvedTypeToJavaParserType(resolved);
         } catch (Exception e) {
             // Manual lookup via allCUs
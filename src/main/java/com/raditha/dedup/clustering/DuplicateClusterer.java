@@ -8,10 +8,16 @@ import java.util.*;
  * Clusters duplicate detection results by grouping related duplicates together.
  * Groups similarity pairs by their primary sequence (the earliest occurrence) and
  * calculates potential LOC reduction for each cluster.
+ *
+ * <p>When a maximum cluster size is set, connected components larger than that are
+ * split around medoids: the member with the highest total similarity to the rest of
+ * the component is taken together with its most similar neighbours, and this repeats
+ * until the remainder fits.</p>
  */
 public class DuplicateClusterer {
 
     private final double similarityThreshold;
+    private final int maxClusterSize;
 
     /**
      * Create clusterer with default 75% similarity threshold.
@@ -28,7 +34,20 @@ public class DuplicateClusterer {
      *                            clusters
      */
     public DuplicateClusterer(double similarityThreshold) {
+        this(similarityThreshold, 0);
+    }
+
+    /**
+     * Create clusterer with custom similarity threshold and cluster size limit.
+     *
+     * @param similarityThreshold Minimum similarity (0.0-1.0) to include in
+     *                            clusters
+     * @param maxClusterSize      Maximum number of sequences per cluster; 0 or less
+     *                            means unbounded
+     */
+    public DuplicateClusterer(double similarityThreshold, int maxClusterSize) {
         this.similarityThreshold = similarityThreshold;
+        this.maxClusterSize = maxClusterSize < 2 ? 0 : maxClusterSize;
     }
 
     /**
@@ -38,153 +57,305 @@ public class DuplicateClusterer {
      * in the same cluster if they share a common sequence or are connected through 
      * a chain of similar sequences.
      * 
-     * Implementation Note: We use an Adjacency Graph + BFS approach rather than 
-     * Disjoint Set Union (DSU) for better debuggability and easier tracking of 
-     * connectivity relations, as the number of duplicates typically remains 
-     * manageable for BFS.
+     * Implementation Note: Sequences are mapped to dense integer ids and merged with
+     * a union-find (path compression, union by rank), so memory stays proportional to
+     * the number of distinct sequences and pairs. Components are ordered by their
+     * earliest sequence, which also becomes the cluster's primary.
      * 
      * @param pairs List of duplicate pairs to cluster
      * @return List of clusters sorted by LOC reduction potential (highest first)
      */
     public List<DuplicateCluster> cluster(List<SimilarityPair> pairs) {
-        // Step 1: Filter pairs and build adjacency graph
-        GraphData graphData = buildAdjacencyGraph(pairs);
-        if (graphData.adj().isEmpty()) {
+        // Step 1: Filter pairs and assign dense ids to their sequences
+        GraphData graphData = buildGraph(pairs);
+        if (graphData.filteredPairs().isEmpty()) {
             return Collections.emptyList();
         }
 
         // Step 2: Find connected components (clusters of sequences)
-        List<Set<StatementSequence>> components = findConnectedComponents(graphData.adj());
-
-        // Step 3: Efficiently group original pairs by their component
-        Map<Set<StatementSequence>, List<SimilarityPair>> componentToPairs = groupPairsByComponent(graphData.filteredPairs(), components);
+        UnionFind components = new UnionFind(graphData.sequences().size());
+        for (int i = 0; i < graphData.filteredPairs().size(); i++) {
+            components.union(graphData.firstIds()[i], graphData.secondIds()[i]);
+        }
 
-        // Step 4: Create cluster objects with calculated metrics
-        List<DuplicateCluster> clusters = buildClusters(components, componentToPairs);
+        // Step 3-4: Group pairs by component and create cluster objects with calculated metrics
+        List<DuplicateCluster> clusters = buildClusters(graphData, components);
 
         // Step 5: Sort by LOC reduction potential (highest first)
         return sortClustersByReduction(clusters);
     }
 
     /**
-     * Filters pairs by similarity threshold and builds an undirected adjacency graph.
+     * Filters pairs by similarity threshold and maps their sequences to dense ids.
+     * Sequences are identified by equality, as in the rest of the pipeline.
      */
-    private GraphData buildAdjacencyGraph(List<SimilarityPair> pairs) {
+    private GraphData buildGraph(List<SimilarityPair> pairs) {
         List<SimilarityPair> filtered = new ArrayList<>();
-        Map<StatementSequence, Set<StatementSequence>> adj = new HashMap<>();
+        Map<StatementSequence, Integer> ids = new HashMap<>();
+        List<StatementSequence> sequences = new ArrayList<>();
+        int[] firstIds = new int[pairs.size()];
+        int[] secondIds = new int[pairs.size()];
 
         for (SimilarityPair p : pairs) {
             if (p.similarity().overallScore() >= similarityThreshold) {
+                firstIds[filtered.size()] = idOf(p.seq1(), ids, sequences);
+                secondIds[filtered.size()] = idOf(p.seq2(), ids, sequences);
                 filtered.add(p);
-                adj.computeIfAbsent(p.seq1(), k -> new HashSet<>()).add(p.seq2());
-                adj.computeIfAbsent(p.seq2(), k -> new HashSet<>()).add(p.seq1());
             }
         }
-        return new GraphData(filtered, adj);
+        return new GraphData(filtered, sequences, firstIds, secondIds);
+    }
+
+    private static int idOf(StatementSequence seq, Map<StatementSequence, Integer> ids, List<StatementSequence> sequences) {
+        Integer id = ids.get(seq);
+        if (id == null) {
+            id = sequences.size();
+            ids.put(seq, id);
+            sequences.add(seq);
+        }
+        return id;
     }
 
     /**
-     * Identifies sets of related sequences using Breadth-First Search.
+     * Transforms components into DuplicateCluster objects with metrics.
+     * Components are numbered in the order of their earliest sequence, which is
+     * the cluster's primary; pairs keep their input order within a cluster.
      */
-    private List<Set<StatementSequence>> findConnectedComponents(Map<StatementSequence, Set<StatementSequence>> adj) {
-        Set<StatementSequence> visited = new HashSet<>();
-        List<Set<StatementSequence>> components = new ArrayList<>();
+    private List<DuplicateCluster> buildClusters(GraphData graphData, UnionFind components) {
+        List<StatementSequence> sequences = graphData.sequences();
+        int n = sequences.size();
 
-        // Sort nodes to ensure deterministic cluster primary selection
-        List<StatementSequence> orderedNodes = new ArrayList<>(adj.keySet());
-        orderedNodes.sort(StatementSequenceComparator.INSTANCE);
+        // Sort ids to ensure deterministic component order and primary selection
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> StatementSequenceComparator.INSTANCE.compare(sequences.get(a), sequences.get(b)));
 
-        for (StatementSequence node : orderedNodes) {
-            if (!visited.contains(node)) {
-                components.add(bfs(node, adj, visited));
+        int[] componentOfRoot = new int[n];
+        Arrays.fill(componentOfRoot, -1);
+        List<StatementSequence> primaries = new ArrayList<>();
+        int[] memberCounts = new int[n];
+        int[] duplicateLines = new int[n];
+        for (int id : order) {
+            int root = components.find(id);
+            int component = componentOfRoot[root];
+            if (component == -1) {
+                component = primaries.size();
+                componentOfRoot[root] = component;
+                primaries.add(sequences.get(id));
+            } else {
+                duplicateLines[component] += sequences.get(id).statements().size();
             }
+            memberCounts[component]++;
         }
-        return components;
-    }
 
-    private Set<StatementSequence> bfs(StatementSequence startNode, 
-                                      Map<StatementSequence, Set<StatementSequence>> adj, 
-                                      Set<StatementSequence> visited) {
-        Set<StatementSequence> component = new HashSet<>();
-        Queue<StatementSequence> queue = new LinkedList<>();
-        
-        queue.add(startNode);
-        visited.add(startNode);
-        component.add(startNode);
-
-        while (!queue.isEmpty()) {
-            StatementSequence current = queue.poll();
-            for (StatementSequence neighbor : adj.getOrDefault(current, Collections.emptySet())) {
-                if (visited.add(neighbor)) {
-                    component.add(neighbor);
-                    queue.add(neighbor);
-                }
+        List<List<Integer>> componentPairs = new ArrayList<>(primaries.size());
+        for (int i = 0; i < primaries.size(); i++) {
+            componentPairs.add(new ArrayList<>());
+        }
+        for (int i = 0; i < graphData.filteredPairs().size(); i++) {
+            componentPairs.get(componentOfRoot[components.find(graphData.firstIds()[i])]).add(i);
+        }
+
+        List<DuplicateCluster> clusters = new ArrayList<>();
+        List<List<Integer>> oversized = new ArrayList<>();
+        for (int component = 0; component < primaries.size(); component++) {
+            if (memberCounts[component] < 2) continue;
+
+            if (maxClusterSize > 0 && memberCounts[component] > maxClusterSize) {
+                oversized.add(componentPairs.get(component));
+                continue;
             }
+            int locReduction = calculateLocReduction(memberCounts[component], duplicateLines[component]);
+            clusters.add(new DuplicateCluster(primaries.get(component), pairsAt(graphData, componentPairs.get(component)),
+                    null, locReduction));
         }
-        return component;
+
+        if (!oversized.isEmpty()) {
+            int[] rank = new int[n];
+            for (int i = 0; i < n; i++) {
+                rank[order[i]] = i;
+            }
+            for (List<Integer> pairIndexes : oversized) {
+                clusters.addAll(splitComponent(graphData, pairIndexes, rank));
+            }
+        }
+        return clusters;
     }
 
     /**
-     * Groups similarity pairs into their respective components.
-     * Uses a mapping of sequence -> component for O(N) performance.
+     * Splits an oversized component into clusters of at most {@code maxClusterSize}
+     * sequences using the similarity scores of its pairs. Repeatedly, the medoid of the
+     * remaining members (highest summed similarity to the other remaining members) is
+     * grouped with up to {@code maxClusterSize - 1} of its most similar remaining
+     * neighbours. Once the remainder fits, it is split into its connected components.
+     * Pairs that end up between two clusters are dropped.
+     *
+     * @param pairIndexes indexes of the component's pairs in {@code filteredPairs}
+     * @param rank        position of every sequence id in report order
      */
-    private Map<Set<StatementSequence>, List<SimilarityPair>> groupPairsByComponent(
-            List<SimilarityPair> pairs, 
-            List<Set<StatementSequence>> components) {
-        
-        // Build a lookup map to find the component for any given sequence
-        Map<StatementSequence, Set<StatementSequence>> sequenceToComponent = new HashMap<>();
-        for (Set<StatementSequence> component : components) {
-            for (StatementSequence seq : component) {
-                sequenceToComponent.put(seq, component);
+    private List<DuplicateCluster> splitComponent(GraphData graphData, List<Integer> pairIndexes, int[] rank) {
+        // Local indexes follow report order, so ties resolve to the earliest sequence
+        int[] globalIds = pairIndexes.stream()
+                .flatMapToInt(i -> java.util.stream.IntStream.of(graphData.firstIds()[i], graphData.secondIds()[i]))
+                .distinct()
+                .boxed()
+                .sorted(Comparator.comparingInt(id -> rank[id]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int m = globalIds.length;
+        Map<Integer, Integer> local = new HashMap<>();
+        for (int i = 0; i < m; i++) {
+            local.put(globalIds[i], i);
+        }
+
+        // Strongest score per neighbour; duplicate pairs keep the best one
+        List<Map<Integer, Double>> neighbours = new ArrayList<>(m);
+        for (int i = 0; i < m; i++) {
+            neighbours.add(new HashMap<>());
+        }
+        for (int index : pairIndexes) {
+            int a = local.get(graphData.firstIds()[index]);
+            int b = local.get(graphData.secondIds()[index]);
+            double score = graphData.filteredPairs().get(index).similarity().overallScore();
+            neighbours.get(a).merge(b, score, Math::max);
+            neighbours.get(b).merge(a, score, Math::max);
+        }
+
+        double[] sums = new double[m];
+        for (int i = 0; i < m; i++) {
+            for (double score : neighbours.get(i).values()) {
+                sums[i] += score;
             }
         }
 
-        Map<Set<StatementSequence>, List<SimilarityPair>> groups = new HashMap<>();
-        for (SimilarityPair pair : pairs) {
-            Set<StatementSequence> component = sequenceToComponent.get(pair.seq1());
-            if (component != null) {
-                groups.computeIfAbsent(component, k -> new ArrayList<>()).add(pair);
+        int[] groupOf = new int[m];
+        Arrays.fill(groupOf, -1);
+        int groups = 0;
+        int remaining = m;
+        while (remaining > maxClusterSize) {
+            int medoid = -1;
+            for (int i = 0; i < m; i++) {
+                if (groupOf[i] == -1 && (medoid == -1 || sums[i] > sums[medoid])) {
+                    medoid = i;
+                }
+            }
+            Map<Integer, Double> medoidNeighbours = neighbours.get(medoid);
+            List<Integer> nearest = medoidNeighbours.keySet().stream()
+                    .filter(i -> groupOf[i] == -1)
+                    .sorted(Comparator.<Integer>comparingDouble(medoidNeighbours::get).reversed()
+                            .thenComparingInt(i -> i))
+                    .limit(maxClusterSize - 1L)
+                    .toList();
+            if (nearest.isEmpty()) {
+                // No edges left among the remaining members
+                break;
+            }
+
+            int group = groups++;
+            List<Integer> members = new ArrayList<>(nearest);
+            members.add(medoid);
+            for (int member : members) {
+                groupOf[member] = group;
+                remaining--;
+            }
+            for (int member : members) {
+                neighbours.get(member).forEach((other, score) -> {
+                    if (groupOf[other] == -1) {
+                        sums[other] -= score;
+                    }
+                });
+            }
+        }
+
+        // The remainder fits; keep its connected components
+        UnionFind rest = new UnionFind(m);
+        for (int i = 0; i < m; i++) {
+            if (groupOf[i] == -1) {
+                for (int other : neighbours.get(i).keySet()) {
+                    if (groupOf[other] == -1) {
+                        rest.union(i, other);
+                    }
+                }
+            }
+        }
+        int[] groupOfRoot = new int[m];
+        Arrays.fill(groupOfRoot, -1);
+        for (int i = 0; i < m; i++) {
+            if (groupOf[i] == -1 && !neighbours.get(i).isEmpty()) {
+                int root = rest.find(i);
+                if (groupOfRoot[root] == -1) {
+                    groupOfRoot[root] = groups++;
+                }
+                groupOf[i] = groupOfRoot[root];
             }
         }
-        return groups;
+
+        return buildSubClusters(graphData, pairIndexes, globalIds, local, groupOf, groups);
     }
 
     /**
-     * Transforms component sets into DuplicateCluster objects with metrics.
+     * Creates one cluster per group from the pairs whose two sequences are in that group.
      */
-    private List<DuplicateCluster> buildClusters(
-            List<Set<StatementSequence>> components,
-            Map<Set<StatementSequence>, List<SimilarityPair>> componentToPairs) {
-        
-        List<DuplicateCluster> clusters = new ArrayList<>();
-        for (Set<StatementSequence> component : components) {
-            if (component.size() < 2) continue;
+    private List<DuplicateCluster> buildSubClusters(GraphData graphData, List<Integer> pairIndexes, int[] globalIds,
+            Map<Integer, Integer> local, int[] groupOf, int groups) {
+        List<List<Integer>> groupPairs = new ArrayList<>(groups);
+        for (int g = 0; g < groups; g++) {
+            groupPairs.add(new ArrayList<>());
+        }
+        for (int index : pairIndexes) {
+            int a = groupOf[local.get(graphData.firstIds()[index])];
+            int b = groupOf[local.get(graphData.secondIds()[index])];
+            if (a != -1 && a == b) {
+                groupPairs.get(a).add(index);
+            }
+        }
 
-            StatementSequence primary = component.stream()
-                    .min(StatementSequenceComparator.INSTANCE)
-                    .orElseThrow();
+        // Members are visited in report order, so the first one seen is the primary
+        StatementSequence[] primaries = new StatementSequence[groups];
+        int[] memberCounts = new int[groups];
+        int[] duplicateLines = new int[groups];
+        for (int i = 0; i < globalIds.length; i++) {
+            int g = groupOf[i];
+            if (g == -1) continue;
+            StatementSequence seq = graphData.sequences().get(globalIds[i]);
+            if (primaries[g] == null) {
+                primaries[g] = seq;
+            } else {
+                duplicateLines[g] += seq.statements().size();
+            }
+            memberCounts[g]++;
+        }
 
-            List<SimilarityPair> pairs = componentToPairs.getOrDefault(component, Collections.emptyList());
-            int locReduction = calculateLocReduction(component, primary);
+        List<DuplicateCluster> clusters = new ArrayList<>();
+        for (int g = 0; g < groups; g++) {
+            if (memberCounts[g] < 2) continue;
 
-            clusters.add(new DuplicateCluster(primary, pairs, null, locReduction));
+            int locReduction = calculateLocReduction(memberCounts[g], duplicateLines[g]);
+            clusters.add(new DuplicateCluster(primaries[g], pairsAt(graphData, groupPairs.get(g)), null, locReduction));
         }
         return clusters;
     }
 
+    private static List<SimilarityPair> pairsAt(GraphData graphData, List<Integer> pairIndexes) {
+        List<SimilarityPair> pairs = new ArrayList<>(pairIndexes.size());
+        for (int index : pairIndexes) {
+            pairs.add(graphData.filteredPairs().get(index));
+        }
+        return pairs;
+    }
+
     /**
      * Estimates potential line reduction if this cluster is refactored into a single method.
+     *
+     * @param members        number of sequences in the cluster
+     * @param duplicateLines statements in all sequences except the primary
      */
-    private int calculateLocReduction(Set<StatementSequence> component, StatementSequence primary) {
-        int totalDuplicateLines = component.stream()
-                .filter(s -> !s.equals(primary))
-                .mapToInt(s -> s.statements().size())
-                .sum();
-
-        int callSiteLines = component.size() - 1;
+    private int calculateLocReduction(int members, int duplicateLines) {
+        int callSiteLines = members - 1;
         int methodOverhead = 1;
-        return Math.max(0, totalDuplicateLines - callSiteLines - methodOverhead);
+        return Math.max(0, duplicateLines - callSiteLines - methodOverhead);
     }
 
     private List<DuplicateCluster> sortClustersByReduction(List<DuplicateCluster> clusters) {
@@ -195,8 +366,11 @@ public class DuplicateClusterer {
 
     /**
      * Internal DTO to hold graph construction results.
+     * {@code firstIds[i]} and {@code secondIds[i]} are the ids of {@code filteredPairs.get(i)}.
      */
     private record GraphData(
-        List<SimilarityPair> filteredPairs, 
-        Map<StatementSequence, Set<StatementSequence>> adj) {}
+        List<SimilarityPair> filteredPairs,
+        List<StatementSequence> sequences,
+        int[] firstIds,
+        int[] secondIds) {}
 }
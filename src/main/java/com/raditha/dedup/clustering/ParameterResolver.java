@@ -15,6 +15,7 @@ import com.raditha.dedup.model.ParameterSpec;
 import com.raditha.dedup.model.StatementSequence;
 import com.raditha.dedup.model.VariableReference;
 import com.raditha.dedup.model.VariationAnalysis;
+import com.raditha.dedup.util.SymbolResolution;
 import com.github.javaparser.resolution.types.ResolvedType;
 import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
 
@@ -165,7 +166,7 @@ public class ParameterResolver extends AbstractResolver {
             if (Set.of("System", "Math", "Integer", "String", "Double", "Long", "Boolean", OBJECT).contains(varName)) {
                 return true;
             }
-            return  (cu != null && AbstractCompiler.findType(cu, varName) != null);
+            return  (cu != null && SymbolResolution.guarded(() -> AbstractCompiler.findType(cu, varName)) != null);
         }
 
         return false;
@@ -264,7 +265,7 @@ public class ParameterResolver extends AbstractResolver {
     private boolean isStaticClassReference(String val, CompilationUnit cu) {
         if (cu != null && val.matches("[A-Z]\\w*")) {
             try {
-                if (AbstractCompiler.findType(cu, val) != null) {
+                if (SymbolResolution.guarded(() -> AbstractCompiler.findType(cu, val)) != null) {
                     return true;
                 }
             } catch (Exception e) {
@@ -296,7 +297,7 @@ public class ParameterResolver extends AbstractResolver {
 
     private boolean isExpressionVoid(Expression e, DuplicateCluster cluster) {
         try {
-            ResolvedType type = e.calculateResolvedType();
+            ResolvedType type = SymbolResolution.guarded(e::calculateResolvedType);
             if (type.isVoid()) {
                 return true;
             }
@@ -21,8 +21,18 @@ public class RefactoringConfidenceCalculator {
      * Creates a new confidence calculator with default analyzers.
      */
     public RefactoringConfidenceCalculator() {
-        this.dataFlowAnalyzer = new DataFlowAnalyzer();
-        this.truncator = new SequenceTruncator();
+        this(new DataFlowAnalyzer(), new SequenceTruncator());
+    }
+
+    /**
+     * Creates a new confidence calculator with specific components.
+     *
+     * @param dataFlowAnalyzer The data flow analyzer
+     * @param truncator        The sequence truncator
+     */
+    public RefactoringConfidenceCalculator(DataFlowAnalyzer dataFlowAnalyzer, SequenceTruncator truncator) {
+        this.dataFlowAnalyzer = dataFlowAnalyzer;
+        this.truncator = truncator;
     }
 
     /**
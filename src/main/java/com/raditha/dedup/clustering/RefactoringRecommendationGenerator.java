@@ -1,5 +1,6 @@
 package com.raditha.dedup.clustering;
 
+import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.CallableDeclaration;
@@ -7,6 +8,9 @@ import com.github.javaparser.ast.body.ConstructorDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.stmt.Statement;
 import com.github.javaparser.ast.type.Type;
+import com.raditha.dedup.analysis.ASTParameterExtractor;
+import com.raditha.dedup.analysis.ASTVariationAnalyzer;
+import com.raditha.dedup.analysis.DataFlowAnalyzer;
 import com.raditha.dedup.model.DuplicateCluster;
 import com.raditha.dedup.model.ParameterSpec;
 import com.raditha.dedup.model.RefactoringRecommendation;
@@ -15,7 +19,10 @@ import com.raditha.dedup.model.ReturnTypeResult;
 import com.raditha.dedup.model.StatementSequence;
 import com.raditha.dedup.model.VariationAnalysis;
 import com.raditha.dedup.refactoring.MethodNameGenerator;
+import com.raditha.dedup.util.ParallelTasks;
+import com.raditha.dedup.util.SymbolResolution;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -31,9 +38,23 @@ import java.util.Set;
  * - ParameterResolver: Extracts and filters parameters
  * - ReturnTypeResolver: Determines return types
  * - RefactoringConfidenceCalculator: Calculates confidence scores
+ *
+ * Instances are safe for concurrent use. Everything up to the method name is computed
+ * without shared mutable state; naming is synchronized because names are made unique
+ * against the names handed out before. {@link #generateRecommendations(List, int)}
+ * prepares clusters in parallel and names them in cluster order, so the result does
+ * not depend on scheduling.
+ *
+ * Symbol resolution goes through the single process-wide {@link SymbolResolution}
+ * lock, because the solver's caches are global. When a symbol solver is configured,
+ * resolution dominates preparation and the workers mostly take turns; extra threads
+ * only speed up the resolution-free steps. Workers parse types with the caller's
+ * {@link ParserConfiguration}, since StaticJavaParser keeps its configuration per thread.
  */
 public class RefactoringRecommendationGenerator {
 
+    private final ASTVariationAnalyzer variationAnalyzer;
+    private final DataFlowAnalyzer dataFlowAnalyzer;
     private final VariationAggregator variationAggregator;
     private final SequenceTruncator truncator;
     private final ParameterResolver parameterResolver;
@@ -45,18 +66,82 @@ public class RefactoringRecommendationGenerator {
      * Creates a new generator with default configuration.
      */
     public RefactoringRecommendationGenerator() {
-        this.variationAggregator = new VariationAggregator();
-        this.truncator = new SequenceTruncator();
-        this.parameterResolver = new ParameterResolver();
-        this.returnTypeResolver = new ReturnTypeResolver();
-        this.confidenceCalculator = new RefactoringConfidenceCalculator();
+        this(new ASTVariationAnalyzer());
+    }
+
+    /**
+     * Creates a new generator whose variation analysis uses the given analyzer.
+     *
+     * @param variationAnalyzer analyzer for differences between duplicates
+     */
+    public RefactoringRecommendationGenerator(ASTVariationAnalyzer variationAnalyzer) {
+        // One data flow analyzer, so every step shares the def-use index of a callable
+        DataFlowAnalyzer dataFlowAnalyzer = new DataFlowAnalyzer();
+        this.dataFlowAnalyzer = dataFlowAnalyzer;
+        this.variationAnalyzer = variationAnalyzer;
+        this.variationAggregator = new VariationAggregator(variationAnalyzer);
+        this.truncator = new SequenceTruncator(dataFlowAnalyzer);
+        this.parameterResolver = new ParameterResolver(new ASTParameterExtractor(), dataFlowAnalyzer);
+        this.returnTypeResolver = new ReturnTypeResolver(dataFlowAnalyzer, truncator);
+        this.confidenceCalculator = new RefactoringConfidenceCalculator(dataFlowAnalyzer, truncator);
         this.nameGenerator = new MethodNameGenerator(true);
     }
 
+    /**
+     * Forget everything cached about the ASTs. Call before a generation pass over
+     * ASTs that may have been edited or re-parsed since the previous one.
+     */
+    public void clearCaches() {
+        variationAnalyzer.clearCaches();
+        dataFlowAnalyzer.clearCaches();
+    }
+
     /**
      * Generate refactoring recommendation for a cluster.
      */
     public RefactoringRecommendation generateRecommendation(DuplicateCluster cluster) {
+        return complete(cluster, prepare(cluster));
+    }
+
+    /**
+     * Generate recommendations for several clusters.
+     *
+     * @param clusters    clusters in report order
+     * @param parallelism maximum number of worker threads for the preparation phase
+     * @return one recommendation per cluster, in the order of {@code clusters}
+     */
+    public List<RefactoringRecommendation> generateRecommendations(List<DuplicateCluster> clusters, int parallelism) {
+        // StaticJavaParser's configuration is thread-local; workers must use the caller's
+        ParserConfiguration configuration = StaticJavaParser.getParserConfiguration();
+        List<Prepared> prepared = ParallelTasks.map(clusters, parallelism,
+                cluster -> prepareWith(configuration, cluster));
+
+        // Names depend on the names handed out before, so assign them in cluster order
+        List<RefactoringRecommendation> recommendations = new ArrayList<>(clusters.size());
+        for (int i = 0; i < clusters.size(); i++) {
+            recommendations.add(complete(clusters.get(i), prepared.get(i)));
+        }
+        return recommendations;
+    }
+
+    /**
+     * Prepare a cluster with StaticJavaParser set to {@code configuration} on the
+     * current thread, restoring the thread's own configuration afterwards.
+     */
+    private Prepared prepareWith(ParserConfiguration configuration, DuplicateCluster cluster) {
+        ParserConfiguration own = StaticJavaParser.getParserConfiguration();
+        StaticJavaParser.setConfiguration(configuration);
+        try {
+            return prepare(cluster);
+        } finally {
+            StaticJavaParser.setConfiguration(own);
+        }
+    }
+
+    /**
+     * Everything except the method name. Safe to run concurrently.
+     */
+    private Prepared prepare(DuplicateCluster cluster) {
         // Step 1: Aggregate variations
         AggregatedVariations aggregated = variationAggregator.aggregate(cluster);
         VariationAnalysis analysis = variationAggregator.buildAnalysis(aggregated);
@@ -67,7 +152,7 @@ public class RefactoringRecommendationGenerator {
 
         // Abort if no valid statements
         if (validStatementCount == 0) {
-            return createAbortedRecommendation(analysis);
+            return Prepared.aborted(analysis);
         }
 
         // Step 3: Resolve parameters
@@ -95,21 +180,34 @@ public class RefactoringRecommendationGenerator {
         // Step 6: Calculate confidence
         double confidence = confidenceCalculator.calculate(cluster, parameters, validStatementCount);
 
+        return new Prepared(false, strategy, parameters, returnType, confidence, primaryReturnVariable,
+                validStatementCount, analysis);
+    }
+
+    /**
+     * Name the prepared recommendation and build it. Synchronized because the name
+     * generator tracks the names it has handed out.
+     */
+    private synchronized RefactoringRecommendation complete(DuplicateCluster cluster, Prepared prepared) {
+        if (prepared.aborted()) {
+            return createAbortedRecommendation(prepared.analysis());
+        }
+
         // Step 7: Generate method name
-        String methodName = suggestMethodName(cluster, strategy, primaryReturnVariable);
+        String methodName = suggestMethodName(cluster, prepared.strategy(), prepared.returnVariable());
 
         // Step 8: Build and return recommendation
         return new RefactoringRecommendation(
-                strategy,
+                prepared.strategy(),
                 methodName,
-                parameters,
-                returnType != null ? returnType : StaticJavaParser.parseType("void"),
+                prepared.parameters(),
+                prepared.returnType() != null ? prepared.returnType() : StaticJavaParser.parseType("void"),
                 "",
-                confidence,
+                prepared.confidence(),
                 cluster.estimatedLOCReduction(),
-                primaryReturnVariable,
-                validStatementCount,
-                analysis);
+                prepared.returnVariable(),
+                prepared.validStatementCount(),
+                prepared.analysis());
     }
 
     private RefactoringRecommendation createAbortedRecommendation(VariationAnalysis analysis) {
@@ -358,4 +456,22 @@ public class RefactoringRecommendationGenerator {
         );
         return fieldNames;
     }
+
+    /**
+     * Result of the preparation phase, before a method name is chosen.
+     */
+    private record Prepared(
+            boolean aborted,
+            RefactoringStrategy strategy,
+            List<ParameterSpec> parameters,
+            Type returnType,
+            double confidence,
+            String returnVariable,
+            int validStatementCount,
+            VariationAnalysis analysis) {
+
+        static Prepared aborted(VariationAnalysis analysis) {
+            return new Prepared(true, null, Collections.emptyList(), null, 0.0, null, 0, analysis);
+        }
+    }
 }
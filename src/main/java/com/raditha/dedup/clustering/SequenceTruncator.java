@@ -26,7 +26,24 @@ import java.util.Set;
 public class SequenceTruncator {
 
     private static final String OBJECT = "Object";
-    private final DataFlowAnalyzer dataFlowAnalyzer = new DataFlowAnalyzer();
+    private final DataFlowAnalyzer dataFlowAnalyzer;
+
+    /**
+     * Creates a new truncator with its own data flow analyzer.
+     */
+    public SequenceTruncator() {
+        this(new DataFlowAnalyzer());
+    }
+
+    /**
+     * Creates a new truncator that shares a data flow analyzer, and with it the
+     * analyzer's def-use indexes.
+     *
+     * @param dataFlowAnalyzer The data flow analyzer
+     */
+    public SequenceTruncator(DataFlowAnalyzer dataFlowAnalyzer) {
+        this.dataFlowAnalyzer = dataFlowAnalyzer;
+    }
 
     /**
      * Calculate the valid statement count for extraction.
@@ -120,18 +137,8 @@ public class SequenceTruncator {
     }
 
     private int firstNestedReturnIndex(StatementSequence sequence) {
-        List<Statement> stmts = sequence.statements();
-        for (int i = 0; i < stmts.size(); i++) {
-            Statement stmt = stmts.get(i);
-            if (stmt.isReturnStmt()) {
-                // Only treat returns nested in control flow as unsafe.
-                continue;
-            }
-            if (stmt.findFirst(com.github.javaparser.ast.stmt.ReturnStmt.class).isPresent()) {
-                return i;
-            }
-        }
-        return -1;
+        // Only returns nested in control flow are unsafe
+        return dataFlowAnalyzer.facts(sequence).firstNestedReturnIndex();
     }
 
     private int reduceToSingleLiveOut(DuplicateCluster cluster, int limit) {
@@ -0,0 +1,62 @@
+package com.raditha.dedup.clustering;
+
+/**
+ * Disjoint-set forest over dense integer ids {@code 0..n-1}, with path compression
+ * and union by rank.
+ */
+final class UnionFind {
+
+    private final int[] parent;
+    private final byte[] rank;
+
+    /**
+     * Create {@code size} singleton sets.
+     */
+    UnionFind(int size) {
+        this.parent = new int[size];
+        this.rank = new byte[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+    }
+
+    /**
+     * @return the representative of the set containing {@code id}
+     */
+    int find(int id) {
+        int root = id;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        // Path compression
+        while (parent[id] != root) {
+            int next = parent[id];
+            parent[id] = root;
+            id = next;
+        }
+        return root;
+    }
+
+    /**
+     * Merge the sets containing {@code a} and {@code b}.
+     */
+    void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        if (rank[rootA] < rank[rootB]) {
+            parent[rootA] = rootB;
+        } else if (rank[rootA] > rank[rootB]) {
+            parent[rootB] = rootA;
+        } else {
+            parent[rootB] = rootA;
+            rank[rootA]++;
+        }
+    }
+
+    int size() {
+        return parent.length;
+    }
+}
@@ -13,6 +13,7 @@ import com.raditha.dedup.model.VaryingExpression;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -50,28 +51,15 @@ public class VariationAggregator {
      */
     public AggregatedVariations aggregate(DuplicateCluster cluster) {
         StatementSequence primary = cluster.primary();
-        CompilationUnit cu = primary.compilationUnit();
+        Map<StatementSequence, VariationAnalysis> analyses = analyzeOnce(cluster);
 
         List<VaryingExpression> allVariations = new ArrayList<>();
         Set<VariableReference> allVarRefs = new HashSet<>();
         Set<String> allInternalVars = new HashSet<>();
-
-        if (cluster.duplicates().isEmpty()) {
-            // Edge case: compare primary against itself
-            VariationAnalysis analysis = astAnalyzer.analyzeVariations(primary, primary, cu);
+        for (VariationAnalysis analysis : analyses.values()) {
             allVariations.addAll(analysis.varyingExpressions());
             allVarRefs.addAll(analysis.variableReferences());
             allInternalVars.addAll(analysis.getDeclaredInternalVariables());
-        } else {
-            // Compare primary against each duplicate
-            for (SimilarityPair pair : cluster.duplicates()) {
-                StatementSequence duplicate = pair.seq2();
-                VariationAnalysis analysis = astAnalyzer.analyzeVariations(primary, duplicate, cu);
-
-                allVariations.addAll(analysis.varyingExpressions());
-                allVarRefs.addAll(analysis.variableReferences());
-                allInternalVars.addAll(analysis.getDeclaredInternalVariables());
-            }
         }
 
         // Deduplicate variations based on position
@@ -89,13 +77,11 @@ public class VariationAggregator {
                     .put(primary, ExprInfo.fromExpression(v.expr1()));
         }
 
-        // Populate bindings for duplicates by re-analyzing
+        // Populate bindings for duplicates from the same analyses
         if (!cluster.duplicates().isEmpty()) {
-            for (SimilarityPair pair : cluster.duplicates()) {
-                StatementSequence duplicate = pair.seq2();
-                VariationAnalysis pairAnalysis = astAnalyzer.analyzeVariations(primary, duplicate, cu);
-
-                for (VaryingExpression v : pairAnalysis.varyingExpressions()) {
+            for (Map.Entry<StatementSequence, VariationAnalysis> entry : analyses.entrySet()) {
+                StatementSequence duplicate = entry.getKey();
+                for (VaryingExpression v : entry.getValue().varyingExpressions()) {
                     int pos = v.position();
                     if (uniqueVariations.containsKey(pos)) {
                         exprBindings.computeIfAbsent(pos, k -> new HashMap<>())
@@ -113,6 +99,28 @@ public class VariationAggregator {
         );
     }
 
+    /**
+     * Compare the primary against every distinct duplicate of the cluster exactly once.
+     * A sequence that appears in several pairs is analyzed a single time.
+     *
+     * @return analyses keyed by duplicate sequence, in pair order
+     */
+    private Map<StatementSequence, VariationAnalysis> analyzeOnce(DuplicateCluster cluster) {
+        StatementSequence primary = cluster.primary();
+        CompilationUnit cu = primary.compilationUnit();
+        Map<StatementSequence, VariationAnalysis> analyses = new LinkedHashMap<>();
+
+        if (cluster.duplicates().isEmpty()) {
+            // Edge case: compare primary against itself
+            analyses.put(primary, astAnalyzer.analyzeVariations(primary, primary, cu));
+            return analyses;
+        }
+        for (SimilarityPair pair : cluster.duplicates()) {
+            analyses.computeIfAbsent(pair.seq2(), duplicate -> astAnalyzer.analyzeVariations(primary, duplicate, cu));
+        }
+        return analyses;
+    }
+
     /**
      * Build a VariationAnalysis from aggregated results.
      * This provides backward compatibility with existing code.
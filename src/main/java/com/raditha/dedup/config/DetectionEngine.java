@@ -0,0 +1,59 @@
+package com.raditha.dedup.config;
+
+/**
+ * Enumeration of candidate detection engines.
+ * Selects how candidate duplicate pairs are discovered before threshold filtering,
+ * boundary refinement and clustering.
+ */
+public enum DetectionEngine {
+    /**
+     * MinHash/LSH over fuzzy tokens of every extracted window (default).
+     */
+    LSH,
+
+    /**
+     * Compare every pair of extracted windows. Exhaustive but O(N^2).
+     */
+    BRUTE_FORCE,
+
+    /**
+     * Index only seed windows of min_lines statements and extend each seed hit
+     * forwards and backwards while the similarity stays above the threshold.
+     */
+    SEED_EXTEND,
+
+    /**
+     * Build a suffix array over the fuzzy token streams of all statement lists and
+     * report maximal exact/renamed repeats of at least min_lines statements.
+     */
+    SUFFIX_ARRAY,
+
+    /**
+     * Hash every statement subtree bottom-up and report clone classes of whole
+     * statements and blocks of at least min_lines statements.
+     */
+    SUBTREE_HASH;
+
+    /**
+     * Convert a string value to DetectionEngine enum.
+     *
+     * @param value the string value to convert (case-insensitive)
+     * @return the corresponding DetectionEngine
+     * @throws IllegalArgumentException if the value is not a valid engine
+     */
+    public static DetectionEngine fromString(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("DetectionEngine value cannot be null");
+        }
+
+        return switch (value.toLowerCase()) {
+            case "lsh" -> LSH;
+            case "brute_force", "brute-force" -> BRUTE_FORCE;
+            case "seed_extend", "seed-extend" -> SEED_EXTEND;
+            case "suffix_array", "suffix-array" -> SUFFIX_ARRAY;
+            case "subtree_hash", "subtree-hash" -> SUBTREE_HASH;
+            default -> throw new IllegalArgumentException(
+                "Invalid detection engine: " + value + ". Must be: lsh, brute_force, seed_extend, suffix_array, or subtree_hash");
+        };
+    }
+}
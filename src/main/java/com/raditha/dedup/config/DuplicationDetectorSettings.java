@@ -337,6 +337,30 @@ public class DuplicationDetectorSettings {
         return getOverriddenBoolean("enable_lsh", true);
     }
 
+    /**
+     * Get the candidate detection engine.
+     * Defaults to LSH, or brute force when enable_lsh is false.
+     * @return configured detection engine
+     */
+    public static DetectionEngine getDetectionEngine() {
+        String engine = getOverriddenString("detection_engine", null);
+        if (engine == null || engine.isBlank()) {
+            return getEnableLSH() ? DetectionEngine.LSH : DetectionEngine.BRUTE_FORCE;
+        }
+        return DetectionEngine.fromString(engine.trim());
+    }
+
+    /**
+     * Get the coarse method-level pre-pass flag.
+     * When enabled, window-level detection only runs inside methods that have a
+     * similar method elsewhere (or repeat statements internally), and whole-method
+     * copies are reported directly.
+     * @return true if the coarse pre-pass is enabled
+     */
+    public static boolean getCoarsePrefilter() {
+        return getOverriddenBoolean("coarse_prefilter", false);
+    }
+
     /**
      * Get number of bands for LSH.
      * Default: 25
@@ -355,6 +379,144 @@ public class DuplicationDetectorSettings {
         return getOverriddenInt("rows_per_band", 4);
     }
 
+    /**
+     * Get the number of worker threads used to verify LSH candidate pairs.
+     * Default: 0, meaning one thread per available processor. Use 1 for a
+     * strictly single-threaded run.
+     * @return configured verification thread count
+     */
+    public static int getVerificationThreads() {
+        return getOverriddenInt("verification_threads", 0);
+    }
+
+    /**
+     * Get maximum number of sequences per duplicate cluster.
+     * Larger connected components are split around their most central members.
+     * Default: 0 (unbounded)
+     * @return maximum cluster size, or 0 for no limit
+     */
+    public static int getMaxClusterSize() {
+        return getOverriddenInt("max_cluster_size", 0);
+    }
+
+    /**
+     * Get number of worker threads used to generate refactoring recommendations.
+     * Method names are still assigned in cluster order, so output does not depend on it.
+     * Default: 0 (all available processors); 1 runs on the calling thread.
+     * @return configured recommendation thread count
+     */
+    public static int getRecommendationThreads() {
+        return getOverriddenInt("recommendation_threads", 0);
+    }
+
+    /**
+     * Get the total time the symbol solver may spend resolving expression types during
+     * variation analysis. Once spent, types fall back to declared field types.
+     * Default: 0 (unbounded)
+     * @return time budget in milliseconds, or 0 for no limit
+     */
+    public static int getTypeResolutionBudgetMs() {
+        return getOverriddenInt("type_resolution_budget_ms", 0);
+    }
+
+    /**
+     * Get when refactoring recommendations are generated by the analyze command.
+     * The refactor command always generates them up front.
+     * Default: EAGER (the text report prints every cluster's recommendation, so
+     * they are generated in parallel up front)
+     * @return configured recommendation mode
+     */
+    public static RecommendationMode getRecommendationMode() {
+        String mode = getOverriddenString("recommendations", null);
+        if (mode == null || mode.isBlank()) {
+            return RecommendationMode.EAGER;
+        }
+        return RecommendationMode.fromString(mode.trim());
+    }
+
+    /**
+     * Get the largest number of refactorings applied before compilation is verified.
+     * Batches shrink and grow with the observed failure rate; a failing batch is
+     * bisected to find the refactorings that broke it.
+     * Default: 1 (verify after every refactoring)
+     * @return maximum verification batch size
+     */
+    public static int getVerifyBatchSize() {
+        return getOverriddenInt("verify_batch_size", 1);
+    }
+
+    /**
+     * Get the number of threads that transform independent clusters concurrently in
+     * batch mode. Clusters conflict when they touch the same file or class hierarchy;
+     * conflicting clusters are still processed in order.
+     * Default: 1 (process clusters one by one)
+     * @return refactoring thread count, values below 1 meaning all available processors
+     */
+    public static int getRefactorThreads() {
+        return getOverriddenInt("refactor_threads", 1);
+    }
+
+    /**
+     * Get the number of upcoming refactorings computed in the background while the
+     * user reviews a preview in interactive mode.
+     * Default: 2
+     * @return number of previews prefetched, 0 to disable
+     */
+    public static int getPreviewPrefetch() {
+        return getOverriddenInt("preview_prefetch", 2);
+    }
+
+    /**
+     * Get whether the accepted clusters of a file are applied together, with the file
+     * printed, written and verified once.
+     * Default: false (apply and verify each cluster on its own)
+     * @return true if clusters are applied in a single pass per file
+     */
+    public static boolean getSinglePass() {
+        return getOverriddenBoolean("single_pass", false);
+    }
+
+    /**
+     * Get how many reference hops separate a modified class from the tests that are
+     * run for it in test verification. A depth of 1 selects the tests that reference
+     * the class directly.
+     * Default: 2
+     * @return test impact depth, 0 to always run the full test suite
+     */
+    public static int getTestImpactDepth() {
+        return getOverriddenInt("test_impact_depth", 2);
+    }
+
+    /**
+     * Get the backend that runs tests in test verification: "maven" runs
+     * {@code mvn test}, "launcher" runs the tests in-process with the JUnit Platform
+     * launcher on the output of the in-memory compiler.
+     * Default: maven
+     * @return test runner name
+     */
+    public static String getTestRunner() {
+        return getOverriddenString("test_runner", "maven");
+    }
+
+    /**
+     * Get the time allowed for one in-process test run.
+     * Default: 120
+     * @return timeout in seconds
+     */
+    public static int getTestTimeout() {
+        return getOverriddenInt("test_timeout", 120);
+    }
+
+    /**
+     * Get how in-process test runs are isolated: "run" loads the project classes once
+     * per verification, "class" once per test class for tests that leak static state.
+     * Default: run
+     * @return isolation level name
+     */
+    public static String getTestIsolation() {
+        return getOverriddenString("test_isolation", "run");
+    }
+
     /**
      * Get target Java version for compilation.
      * Priority: CLI -> YAML "java_version" -> System property "java.version"
@@ -0,0 +1,43 @@
+package com.raditha.dedup.config;
+
+/**
+ * Enumeration of when refactoring recommendations are generated for clusters.
+ */
+public enum RecommendationMode {
+    /**
+     * Generate recommendations for every cluster during analysis, in parallel.
+     */
+    EAGER,
+
+    /**
+     * Generate a cluster's recommendation the first time it is needed (displayed,
+     * exported or refactored) and keep it.
+     */
+    LAZY,
+
+    /**
+     * Do not generate recommendations. For metrics-only runs.
+     */
+    NONE;
+
+    /**
+     * Convert a string value to RecommendationMode enum.
+     *
+     * @param value the string value to convert (case-insensitive)
+     * @return the corresponding RecommendationMode
+     * @throws IllegalArgumentException if the value is not a valid mode
+     */
+    public static RecommendationMode fromString(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("RecommendationMode value cannot be null");
+        }
+
+        return switch (value.toLowerCase()) {
+            case "eager" -> EAGER;
+            case "lazy" -> LAZY;
+            case "none" -> NONE;
+            default -> throw new IllegalArgumentException(
+                "Invalid recommendation mode: " + value + ". Must be: eager, lazy, or none");
+        };
+    }
+}
@@ -280,75 +280,91 @@ public class StatementExtractor {
          * Create a StatementSequence from a list of statements.
          */
         private StatementSequence createSequence(List<Statement> statements, CallableDeclaration<?> callable) {
-            // Get range from first to last statement
-            Statement first = statements.getFirst();
-            Statement last = statements.getLast();
+            return StatementExtractor.createSequence(statements, callable, cu, sourceFile);
+        }
+    }
 
-            Range range = BoundaryRefiner.createRange(first, last);
+    /**
+     * Create a StatementSequence from a contiguous list of statements.
+     * Used by the extractor itself and by detection engines that derive new
+     * windows (e.g. by extending a seed) from the same statement lists.
+     *
+     * @param statements contiguous statements from a single block
+     * @param callable   containing method or constructor
+     * @param cu         compilation unit the statements belong to
+     * @param sourceFile normalized source path
+     * @return the new sequence
+     */
+    public static StatementSequence createSequence(List<Statement> statements, CallableDeclaration<?> callable,
+            CompilationUnit cu, Path sourceFile) {
+        // Get range from first to last statement
+        Statement first = statements.getFirst();
+        Statement last = statements.getLast();
 
-            // Calculate actual statement index within the method (0-based)
-            int startOffset = calculateStatementIndex(first, callable);
-            
-            return new StatementSequence(
-                new ArrayList<>(statements),  // Defensive copy
-                range,
-                startOffset,
-                callable,
-                cu,
-                sourceFile
-            );
-        }
-        
-        /**
-         * Calculate the actual 0-based index of a statement within its containing method.
-         */
-        private int calculateStatementIndex(Statement targetStmt, CallableDeclaration<?> callable) {
-            Optional<BlockStmt> body = getCallableBody(callable);
-            if (body.isEmpty() || body.get().getStatements().isEmpty()) {
-                return 0;
-            }
+        Range range = BoundaryRefiner.createRange(first, last);
 
-            List<Statement> methodStmts = body.get().getStatements();
-            int index = findExactStatementIndex(methodStmts, targetStmt);
-            if (index != -1) {
-                return index;
-            }
+        // Calculate actual statement index within the method (0-based)
+        int startOffset = calculateStatementIndex(first, callable);
+        
+        return new StatementSequence(
+            new ArrayList<>(statements),  // Defensive copy
+            range,
+            startOffset,
+            callable,
+            cu,
+            sourceFile
+        );
+    }
+    
+    /**
+     * Calculate the actual 0-based index of a statement within its containing method.
+     */
+    private static int calculateStatementIndex(Statement targetStmt, CallableDeclaration<?> callable) {
+        Optional<BlockStmt> body = getCallableBody(callable);
+        if (body.isEmpty() || body.get().getStatements().isEmpty()) {
+            return 0;
+        }
 
-            return findRangeStatementIndex(methodStmts, targetStmt);
+        List<Statement> methodStmts = body.get().getStatements();
+        int index = findExactStatementIndex(methodStmts, targetStmt);
+        if (index != -1) {
+            return index;
         }
 
-        private Optional<BlockStmt> getCallableBody(CallableDeclaration<?> callable) {
-            if (callable instanceof MethodDeclaration m) {
-                return m.getBody();
-            } else if (callable instanceof ConstructorDeclaration c) {
-                return Optional.of(c.getBody());
-            }
-            return Optional.empty();
+        return findRangeStatementIndex(methodStmts, targetStmt);
+    }
+
+    private static Optional<BlockStmt> getCallableBody(CallableDeclaration<?> callable) {
+        if (callable instanceof MethodDeclaration m) {
+            return m.getBody();
+        } else if (callable instanceof ConstructorDeclaration c) {
+            return Optional.of(c.getBody());
         }
+        return Optional.empty();
+    }
 
-        private int findExactStatementIndex(List<Statement> stmts, Statement target) {
-            for (int i = 0; i < stmts.size(); i++) {
-                if (stmts.get(i) == target) {
-                    return i;
-                }
+    private static int findExactStatementIndex(List<Statement> stmts, Statement target) {
+        for (int i = 0; i < stmts.size(); i++) {
+            if (stmts.get(i) == target) {
+                return i;
             }
-            return -1;
         }
+        return -1;
+    }
 
-        private int findRangeStatementIndex(List<Statement> stmts, Statement target) {
-            if (target.getRange().isEmpty()) {
-                return 0;
-            }
-            com.github.javaparser.Range targetRange = target.getRange().get();
-            for (int i = 0; i < stmts.size(); i++) {
-                if (stmts.get(i).getRange().isPresent()) {
-                    com.github.javaparser.Range stmtRange = stmts.get(i).getRange().get();
-                    if (stmtRange.begin.equals(targetRange.begin)) {
-                        return i;
-                    }
+    private static int findRangeStatementIndex(List<Statement> stmts, Statement target) {
+        if (target.getRange().isEmpty()) {
+            return 0;
+        }
+        com.github.javaparser.Range targetRange = target.getRange().get();
+        for (int i = 0; i < stmts.size(); i++) {
+            if (stmts.get(i).getRange().isPresent()) {
+                com.github.javaparser.Range stmtRange = stmts.get(i).getRange().get();
+                if (stmtRange.begin.equals(targetRange.begin)) {
+                    return i;
                 }
             }
-            return 0;
         }
+        return 0;
     }
 }
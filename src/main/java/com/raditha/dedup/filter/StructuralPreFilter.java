@@ -69,23 +69,40 @@ public class StructuralPreFilter {
 
     /**
      * Get fuzzy normalization for a sequence, using cache to avoid repeated computation.
+     * Safe to call from several verification threads: normalization runs outside the
+     * lock and the first published result wins.
      */
     private List<NormalizedNode> getCachedFuzzyNorm(StatementSequence seq) {
-        return fuzzyNormCache.computeIfAbsent(seq, s -> normalizer.normalizeFuzzy(s.statements()));
+        List<NormalizedNode> cached;
+        synchronized (fuzzyNormCache) {
+            cached = fuzzyNormCache.get(seq);
+        }
+        if (cached != null) {
+            return cached;
+        }
+        List<NormalizedNode> computed = normalizer.normalizeFuzzy(seq.statements());
+        synchronized (fuzzyNormCache) {
+            List<NormalizedNode> existing = fuzzyNormCache.putIfAbsent(seq, computed);
+            return existing != null ? existing : computed;
+        }
     }
 
     /**
      * Clear the normalization cache. Call between analysis runs to free memory.
      */
     public void clearCache() {
-        fuzzyNormCache.clear();
+        synchronized (fuzzyNormCache) {
+            fuzzyNormCache.clear();
+        }
     }
 
     /**
      * Get current cache size (for diagnostics).
      */
     public int getCacheSize() {
-        return fuzzyNormCache.size();
+        synchronized (fuzzyNormCache) {
+            return fuzzyNormCache.size();
+        }
     }
 
     /**
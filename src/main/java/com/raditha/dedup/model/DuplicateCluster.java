@@ -2,23 +2,104 @@ package com.raditha.dedup.model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * A cluster of duplicate code blocks.
  * Groups similar sequences together with a refactoring recommendation.
- * 
- * @param primary               Primary (representative) sequence for this
- *                              cluster
- * @param duplicates            All similar sequences in this cluster
- * @param recommendation        Refactoring recommendation for this cluster
- * @param estimatedLOCReduction Estimated lines of code reduction if refactored
+ *
+ * <p>The recommendation is either supplied up front or generated on first access
+ * by a recommender (see {@link #lazy}). A lazily generated recommendation is
+ * kept once computed, so clusters that are never displayed, exported or
+ * refactored never pay for it. The recommender runs without holding the cluster's
+ * monitor, since it takes the symbol resolution lock, which other threads may hold
+ * while asking for the recommendation. Threads that ask at the same time may
+ * therefore both run it; the first result is kept.</p>
  */
-public record DuplicateCluster(
-        StatementSequence primary,
-        List<SimilarityPair> duplicates,
-        RefactoringRecommendation recommendation,
-        int estimatedLOCReduction) {
+public final class DuplicateCluster {
+
+    private final StatementSequence primary;
+    private final List<SimilarityPair> duplicates;
+    private final int estimatedLOCReduction;
+    private volatile Function<DuplicateCluster, RefactoringRecommendation> recommender;
+    private volatile RefactoringRecommendation recommendation;
+
+    /**
+     * Creates a cluster with a precomputed recommendation.
+     *
+     * @param primary               Primary (representative) sequence for this
+     *                              cluster
+     * @param duplicates            All similar sequences in this cluster
+     * @param recommendation        Refactoring recommendation for this cluster
+     * @param estimatedLOCReduction Estimated lines of code reduction if refactored
+     */
+    public DuplicateCluster(
+            StatementSequence primary,
+            List<SimilarityPair> duplicates,
+            RefactoringRecommendation recommendation,
+            int estimatedLOCReduction) {
+        this.primary = primary;
+        this.duplicates = duplicates;
+        this.recommendation = recommendation;
+        this.estimatedLOCReduction = estimatedLOCReduction;
+    }
+
+    /**
+     * Creates a cluster whose recommendation is generated on first access.
+     *
+     * @param primary               Primary (representative) sequence for this
+     *                              cluster
+     * @param duplicates            All similar sequences in this cluster
+     * @param estimatedLOCReduction Estimated lines of code reduction if refactored
+     * @param recommender           Generates the recommendation for this cluster;
+     *                              called once unless threads race for it
+     * @return the cluster
+     */
+    public static DuplicateCluster lazy(
+            StatementSequence primary,
+            List<SimilarityPair> duplicates,
+            int estimatedLOCReduction,
+            Function<DuplicateCluster, RefactoringRecommendation> recommender) {
+        DuplicateCluster cluster = new DuplicateCluster(primary, duplicates, null, estimatedLOCReduction);
+        cluster.recommender = Objects.requireNonNull(recommender);
+        return cluster;
+    }
+
+    public StatementSequence primary() {
+        return primary;
+    }
+
+    public List<SimilarityPair> duplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Refactoring recommendation for this cluster, generating it on first access if
+     * the cluster was created with a recommender.
+     *
+     * @return the recommendation, or null if none was supplied
+     */
+    public RefactoringRecommendation recommendation() {
+        Function<DuplicateCluster, RefactoringRecommendation> pending = recommender;
+        if (pending == null) {
+            return recommendation;
+        }
+        RefactoringRecommendation generated = pending.apply(this);
+        synchronized (this) {
+            if (recommender != null) {
+                recommendation = generated;
+                recommender = null;
+            }
+            return recommendation;
+        }
+    }
+
+    public int estimatedLOCReduction() {
+        return estimatedLOCReduction;
+    }
+
     /**
      * Get total number of duplicate instances (including primary).
      */
@@ -63,4 +144,29 @@ public record DuplicateCluster(
                 .map(c -> (com.github.javaparser.ast.body.MethodDeclaration) c)
                 .collect(java.util.stream.Collectors.toSet());
     }
+
+    /**
+     * Clusters are equal when they group the same pairs around the same primary;
+     * the recommendation is derived from those and is not compared (comparing it
+     * would force lazy generation).
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DuplicateCluster other)) return false;
+        return estimatedLOCReduction == other.estimatedLOCReduction
+                && Objects.equals(primary, other.primary)
+                && Objects.equals(duplicates, other.duplicates);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(primary, duplicates, estimatedLOCReduction);
+    }
+
+    @Override
+    public String toString() {
+        return "DuplicateCluster[primary=" + primary + ", duplicates=" + duplicates.size()
+                + ", estimatedLOCReduction=" + estimatedLOCReduction + "]";
+    }
 }
@@ -11,6 +11,8 @@ import java.util.Set;
  */
 public class VariationAnalysis {
 
+    private static final VariationAnalysis EMPTY = new Builder().build();
+
     // AST-based fields (New)
     private final List<VaryingExpression> varyingExpressions;
     private final Set<VariableReference> variableReferences;
@@ -41,6 +43,16 @@ public class VariationAnalysis {
         return new Builder();
     }
 
+    /**
+     * Shared analysis with no variations. Safe to share because every collection
+     * it exposes is immutable.
+     *
+     * @return the empty variation analysis
+     */
+    public static VariationAnalysis empty() {
+        return EMPTY;
+    }
+
     // Accessors
 
     /**
@@ -0,0 +1,205 @@
+package com.raditha.dedup.refactoring;
+
+import com.raditha.dedup.model.DuplicateCluster;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Verifies refactorings in batches instead of one at a time.
+ *
+ * <p>Refactorings that touch disjoint files are written to disk together and the
+ * project is verified once. When a batch fails, it is bisected (group testing): one
+ * half is rolled back and the rest re-verified, recursively, until the failing
+ * refactorings are isolated. Only those are rolled back; the others are kept.</p>
+ *
+ * <p>The batch size adapts to the observed failure rate {@code p} using Dorfman's
+ * optimal group size {@code 1 + 1/sqrt(p)}, capped at the configured maximum.</p>
+ */
+@SuppressWarnings("java:S106")
+final class BatchVerifier {
+
+    private final RefactoringVerifier verifier;
+    private final int maxBatchSize;
+    private final SourceOverlay overlay;
+    private final List<Entry> pending = new ArrayList<>();
+    private final Set<Path> pendingFiles = new HashSet<>();
+    private int verifiedCount;
+    private int failedCount;
+    private int verifications;
+
+    /**
+     * A refactoring waiting for verification.
+     *
+     * @param cluster   the refactored cluster
+     * @param result    the refactored file contents
+     * @param diffStats diff stats per file, computed before the files were written
+     */
+    record Entry(DuplicateCluster cluster, MethodExtractor.RefactoringResult result,
+            Map<Path, DiffGenerator.DiffStats> diffStats) {
+    }
+
+    BatchVerifier(RefactoringVerifier verifier, int maxBatchSize) {
+        this(verifier, maxBatchSize, null);
+    }
+
+    /**
+     * @param overlay overlay the verifier works on, or null to write refactorings to disk
+     */
+    BatchVerifier(RefactoringVerifier verifier, int maxBatchSize, SourceOverlay overlay) {
+        this.verifier = verifier;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.overlay = overlay;
+    }
+
+    /**
+     * @return number of refactorings the current batch should hold
+     */
+    int batchSize() {
+        double failureRate = (failedCount + 1.0) / (verifiedCount + 2.0);
+        long size = Math.round(1 + 1 / Math.sqrt(failureRate));
+        return (int) Math.max(1, Math.min(maxBatchSize, size));
+    }
+
+    /**
+     * @return whether any of the files is already modified by the pending batch
+     */
+    boolean conflicts(Collection<Path> files) {
+        for (Path file : files) {
+            if (pendingFiles.contains(file)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the pending batch has reached the current batch size
+     */
+    boolean isFull() {
+        return pending.size() >= batchSize();
+    }
+
+    /**
+     * Back up and write the files of a refactoring and add it to the pending batch.
+     */
+    void add(Entry entry) throws IOException {
+        for (Path file : entry.result().modifiedFiles().keySet()) {
+            verifier.createBackup(file);
+        }
+        pendingFiles.addAll(entry.result().modifiedFiles().keySet());
+        try {
+            write(entry);
+        } catch (IOException e) {
+            unapply(entry);
+            throw e;
+        }
+        pending.add(entry);
+    }
+
+    /**
+     * Verify the pending batch, isolate and roll back failing refactorings, and record
+     * every refactoring of the batch in the session.
+     */
+    void flush(RefactoringEngine.RefactoringSession session) throws IOException, InterruptedException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Entry, List<String>> failures = new IdentityHashMap<>();
+        try {
+            RefactoringVerifier.VerificationResult result = verify();
+            if (!result.isSuccess()) {
+                isolate(new ArrayList<>(pending), result.errors(), failures);
+            }
+        } catch (IOException | RuntimeException e) {
+            // State of the batch is unknown: roll all of it back
+            for (Entry entry : pending) {
+                failures.putIfAbsent(entry, List.of("Exception: " + e.getClass().getSimpleName() + ": " + e.getMessage()));
+            }
+            verifier.rollback();
+        }
+
+        System.out.printf("  Verified batch of %d refactoring(s) with %d compilation(s), %d failed%n",
+                pending.size(), verifications, failures.size());
+        for (Entry entry : pending) {
+            List<String> errors = failures.get(entry);
+            if (errors == null) {
+                session.addSuccess(entry.cluster(), entry.result().description(), entry.diffStats());
+            } else {
+                session.addFailed(entry.cluster(), String.join("; ", errors));
+            }
+        }
+        verifiedCount += pending.size();
+        failedCount += failures.size();
+        verifier.clearBackups();
+        pending.clear();
+        pendingFiles.clear();
+        verifications = 0;
+    }
+
+    /**
+     * Find the failing refactorings among {@code suspects}. On entry all suspects are
+     * written and the project fails to verify with {@code errors}; on exit every
+     * failing suspect is rolled back and recorded in {@code failures}.
+     */
+    private void isolate(List<Entry> suspects, List<String> errors, Map<Entry, List<String>> failures)
+            throws IOException, InterruptedException {
+        if (suspects.size() == 1) {
+            Entry entry = suspects.getFirst();
+            unapply(entry);
+            failures.put(entry, errors);
+            System.out.println("  ❌ Verification failed: " + entry.result().description());
+            errors.forEach(e -> System.out.println("     - " + e));
+            return;
+        }
+
+        List<Entry> left = suspects.subList(0, suspects.size() / 2);
+        List<Entry> right = suspects.subList(suspects.size() / 2, suspects.size());
+        for (Entry entry : right) {
+            unapply(entry);
+        }
+        RefactoringVerifier.VerificationResult leftResult = verify();
+        if (!leftResult.isSuccess()) {
+            isolate(left, leftResult.errors(), failures);
+        }
+
+        for (Entry entry : right) {
+            write(entry);
+        }
+        if (leftResult.isSuccess()) {
+            // The left half is clean, so the failure is in the right half
+            isolate(right, errors, failures);
+            return;
+        }
+        RefactoringVerifier.VerificationResult rightResult = verify();
+        if (!rightResult.isSuccess()) {
+            isolate(right, rightResult.errors(), failures);
+        }
+    }
+
+    private RefactoringVerifier.VerificationResult verify() throws IOException, InterruptedException {
+        verifications++;
+        return verifier.verify();
+    }
+
+    private void write(Entry entry) throws IOException {
+        if (overlay != null) {
+            entry.result().apply(overlay);
+        } else {
+            entry.result().apply();
+        }
+    }
+
+    private void unapply(Entry entry) throws IOException {
+        for (Path file : entry.result().modifiedFiles().keySet()) {
+            verifier.restore(file);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.raditha.dedup.refactoring;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.nodeTypes.NodeWithExtends;
+import com.github.javaparser.ast.nodeTypes.NodeWithImplements;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.raditha.dedup.model.DuplicateCluster;
+import com.raditha.dedup.model.RefactoringRecommendation;
+import com.raditha.dedup.model.RefactoringStrategy;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.util.SymbolResolution;
+import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
+import sa.com.cloudsolutions.antikythera.generator.TypeWrapper;
+import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits clusters into waves of independent clusters that can be refactored
+ * concurrently.
+ *
+ * <p>Two clusters conflict when they touch the same file, the same class or the same
+ * class hierarchy (a class and any of its superclasses and interfaces), or when both
+ * create new types. Types are identified by their fully qualified names.
+ * Each cluster goes into the first wave after every earlier cluster it conflicts with.
+ * Clusters in a wave are therefore independent, and conflicting clusters keep their
+ * relative order. Processing the waves in order gives the same outcome as processing
+ * the clusters one by one.</p>
+ */
+final class ClusterScheduler {
+
+    /** Shared by strategies that create new types and register them with the runtime. */
+    private static final String NEW_TYPES = "new-types";
+
+    private ClusterScheduler() {
+    }
+
+    /**
+     * @return cluster indexes grouped into waves, each wave in ascending order
+     */
+    static List<List<Integer>> waves(List<DuplicateCluster> clusters) {
+        Map<String, Integer> lastWave = new HashMap<>();
+        List<List<Integer>> waves = new ArrayList<>();
+        for (int i = 0; i < clusters.size(); i++) {
+            Set<String> keys = conflictKeys(clusters.get(i));
+            int wave = 0;
+            for (String key : keys) {
+                Integer previous = lastWave.get(key);
+                if (previous != null) {
+                    wave = Math.max(wave, previous + 1);
+                }
+            }
+            for (String key : keys) {
+                lastWave.put(key, wave);
+            }
+            while (waves.size() <= wave) {
+                waves.add(new ArrayList<>());
+            }
+            waves.get(wave).add(i);
+        }
+        return waves;
+    }
+
+    /**
+     * @return what the cluster touches; clusters sharing a key conflict
+     */
+    static Set<String> conflictKeys(DuplicateCluster cluster) {
+        Set<String> keys = new LinkedHashSet<>();
+        RefactoringRecommendation recommendation = cluster.recommendation();
+        if (recommendation != null && createsTypes(recommendation.getStrategy())) {
+            keys.add(NEW_TYPES);
+        }
+        for (StatementSequence sequence : cluster.allSequences()) {
+            Path file = sequence.sourceFilePath();
+            if (file != null) {
+                keys.add("file:" + file.toAbsolutePath().normalize());
+            }
+            CallableDeclaration<?> callable = sequence.containingCallable();
+            if (callable == null) {
+                continue;
+            }
+            callable.findAncestor(TypeDeclaration.class).ifPresent(type -> {
+                keys.add("type:" + type.getFullyQualifiedName().orElse(type.getNameAsString()));
+                addSupertypes(type, keys);
+            });
+        }
+        return keys;
+    }
+
+    /**
+     * Add the superclasses and interfaces of a type and all of their ancestors.
+     * Library types are left out since refactorings never change them.
+     */
+    private static void addSupertypes(TypeDeclaration<?> type, Set<String> keys) {
+        CompilationUnit cu = type.findCompilationUnit().orElse(null);
+        List<ClassOrInterfaceType> supertypes = new ArrayList<>();
+        if (type instanceof NodeWithExtends<?> extending) {
+            supertypes.addAll(extending.getExtendedTypes());
+        }
+        if (type instanceof NodeWithImplements<?> implementing) {
+            supertypes.addAll(implementing.getImplementedTypes());
+        }
+        for (ClassOrInterfaceType supertype : supertypes) {
+            TypeWrapper wrapper = findType(cu, supertype);
+            if (wrapper != null && wrapper.getType() == null) {
+                continue;
+            }
+            TypeDeclaration<?> declaration = wrapper != null ? wrapper.getType() : findDeclaration(cu, supertype);
+            String fqn = declaration != null
+                    ? declaration.getFullyQualifiedName().orElse(declaration.getNameAsString())
+                    : fallbackName(cu, supertype);
+            if (keys.add("type:" + fqn) && declaration != null) {
+                addSupertypes(declaration, keys);
+            }
+        }
+    }
+
+    private static TypeWrapper findType(CompilationUnit cu, ClassOrInterfaceType type) {
+        if (cu == null) {
+            return null;
+        }
+        try {
+            return SymbolResolution.guarded(() -> AbstractCompiler.findType(cu, type));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Find the declaration of a type that could not be resolved in the parsed sources.
+     */
+    private static TypeDeclaration<?> findDeclaration(CompilationUnit cu, ClassOrInterfaceType type) {
+        CompilationUnit declaring = AntikytheraRunTime.getCompilationUnit(fallbackName(cu, type));
+        if (declaring == null) {
+            return null;
+        }
+        return declaring.findFirst(TypeDeclaration.class, t -> t.getNameAsString().equals(type.getNameAsString()))
+                .orElse(null);
+    }
+
+    /**
+     * @return the fully qualified name of a type, from an explicit name, a single type
+     *         import or else the package of the compilation unit
+     */
+    private static String fallbackName(CompilationUnit cu, ClassOrInterfaceType type) {
+        String name = type.getNameWithScope();
+        if (type.getScope().isPresent() || cu == null) {
+            return name;
+        }
+        for (ImportDeclaration imported : cu.getImports()) {
+            if (!imported.isAsterisk() && !imported.isStatic()
+                    && imported.getName().getIdentifier().equals(name)) {
+                return imported.getNameAsString();
+            }
+        }
+        return cu.getPackageDeclaration()
+                .map(pkg -> pkg.getNameAsString() + "." + name)
+                .orElse(name);
+    }
+
+    /**
+     * @return whether the strategy creates types whose files are only known after the
+     *         refactoring
+     */
+    static boolean createsTypes(RefactoringStrategy strategy) {
+        return strategy == RefactoringStrategy.EXTRACT_TO_UTILITY_CLASS
+                || strategy == RefactoringStrategy.EXTRACT_PARENT_CLASS;
+    }
+}
@@ -16,6 +16,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.nio.file.Path;
@@ -77,8 +78,7 @@ public class ConstructorExtractor extends AbstractExtractor {
         // Return the refactored code
         Path sourceFile = cluster.primary().sourceFilePath();
         return new MethodExtractor.RefactoringResult(
-                sourceFile,
-                cu.toString(),
+                new PrintedSources(Map.of(sourceFile, cu)),
                 recommendation.getStrategy(),
                 "Applied constructor delegation using this() calls");
     }
@@ -17,6 +17,24 @@ import java.util.List;
  */
 public class DiffGenerator {
 
+    private final SourceOverlay overlay;
+
+    /**
+     * Creates a diff generator that reads original files from disk.
+     */
+    public DiffGenerator() {
+        this(null);
+    }
+
+    /**
+     * Creates a diff generator that reads original files through an overlay.
+     *
+     * @param overlay overlay holding refactored but unflushed files, or null to read from disk
+     */
+    public DiffGenerator(SourceOverlay overlay) {
+        this.overlay = overlay;
+    }
+
     /**
      * Generate a unified diff between original and refactored code.
      *
@@ -25,7 +43,7 @@ public class DiffGenerator {
      * @return Unified diff as string
      */
     public String generateUnifiedDiff(Path originalFile, String refactoredCode) throws IOException {
-        List<String> original = Files.readAllLines(originalFile);
+        List<String> original = readLines(originalFile);
         List<String> revised = Arrays.asList(refactoredCode.split("\n"));
 
         Patch<String> patch = DiffUtils.diff(original, revised);
@@ -46,7 +64,7 @@ public class DiffGenerator {
      */
     public String generateUnifiedDiff(Path originalFile, String refactoredCode, int contextLines)
             throws IOException {
-        List<String> original = Files.readAllLines(originalFile);
+        List<String> original = readLines(originalFile);
         List<String> revised = Arrays.asList(refactoredCode.split("\n"));
 
         Patch<String> patch = DiffUtils.diff(original, revised);
@@ -65,7 +83,7 @@ public class DiffGenerator {
      * Generate a side-by-side comparison view (simplified text version).
      */
     public String generateSideBySideDiff(Path originalFile, String refactoredCode) throws IOException {
-        List<String> original = Files.readAllLines(originalFile);
+        List<String> original = readLines(originalFile);
         List<String> revised = Arrays.asList(refactoredCode.split("\n"));
 
         DiffUtils.diff(original, revised);
@@ -92,6 +110,13 @@ public class DiffGenerator {
         return result.toString();
     }
 
+    private List<String> readLines(Path file) throws IOException {
+        if (overlay == null) {
+            return Files.readAllLines(file);
+        }
+        return overlay.read(file).lines().toList();
+    }
+
     /**
      * Calculate added/removed line counts between original and revised content.
      *
@@ -0,0 +1,336 @@
+package com.raditha.dedup.refactoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Runs tests in-process through the JUnit Platform launcher.
+ *
+ * <p>The project's dependencies are loaded once into a class loader that is reused for
+ * the whole session, together with the launcher and its test engines. Each run loads
+ * the project classes into a fresh child loader, taking the classes compiled in memory
+ * by the {@link IncrementalCompiler} ahead of the build output on disk. Static state of
+ * project classes therefore does not survive from one verification to the next, while
+ * the dependencies stay loaded and JIT compiled.</p>
+ *
+ * <p>The launcher comes from the project's test class path and is driven through
+ * reflection, so the engines and the launcher always have matching versions. When the
+ * project does not have {@code junit-platform-launcher} on its test class path the
+ * runner is not {@link #isAvailable() available}.</p>
+ */
+final class InProcessTestRunner implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(InProcessTestRunner.class);
+
+    private static final String PLATFORM = "org.junit.platform.";
+    private static final String LAUNCHER_FACTORY = PLATFORM + "launcher.core.LauncherFactory";
+
+    /**
+     * How test runs are isolated from each other.
+     */
+    enum Isolation {
+        /** One class loader for the project classes per run. */
+        RUN,
+        /** One class loader for the project classes per test class. */
+        CLASS;
+
+        static Isolation fromString(String value) {
+            return "class".equalsIgnoreCase(value) ? CLASS : RUN;
+        }
+    }
+
+    private final List<Path> dependencies;
+    private final Path classesDir;
+    private final Path testClassesDir;
+    private final Duration timeout;
+    private final Isolation isolation;
+
+    private URLClassLoader dependencyLoader;
+    private Object launcher;
+    private ExecutorService executor;
+
+    /**
+     * @param dependencies   jars and directories of the project's test class path
+     * @param classesDir     build output of the main sources
+     * @param testClassesDir build output of the test sources
+     * @param timeout        time allowed for one run
+     * @param isolation      how runs are isolated
+     */
+    InProcessTestRunner(List<Path> dependencies, Path classesDir, Path testClassesDir,
+                        Duration timeout, Isolation isolation) {
+        this.dependencies = List.copyOf(dependencies);
+        this.classesDir = classesDir;
+        this.testClassesDir = testClassesDir;
+        this.timeout = timeout;
+        this.isolation = isolation;
+    }
+
+    /**
+     * @return whether the JUnit Platform launcher is on the project's test class path
+     */
+    boolean isAvailable() {
+        try {
+            Class.forName(LAUNCHER_FACTORY, false, dependencyLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Run tests against the given compiled classes.
+     *
+     * @param compiled  bytecode by binary name, taking precedence over the build output
+     * @param selection test classes to run, or empty to run every test class in the
+     *                  test build output
+     * @return the test result
+     */
+    RefactoringVerifier.TestResult run(Map<String, byte[]> compiled, Optional<Set<String>> selection) {
+        Collection<String> testClasses = selection.isPresent() ? selection.get() : testClassesOnDisk();
+        List<List<String>> partitions = new ArrayList<>();
+        if (isolation == Isolation.CLASS) {
+            testClasses.forEach(name -> partitions.add(List.of(name)));
+        } else if (!testClasses.isEmpty()) {
+            partitions.add(List.copyOf(testClasses));
+        }
+
+        List<String> errors = new ArrayList<>();
+        long tests = 0;
+        for (List<String> partition : partitions) {
+            Future<Summary> future = executor().submit(() -> execute(compiled, partition));
+            try {
+                Summary summary = future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                tests += summary.tests();
+                errors.addAll(summary.failures());
+            } catch (TimeoutException e) {
+                // A test that ignores interruption keeps its thread; the next run gets a new one
+                future.cancel(true);
+                executor.shutdownNow();
+                executor = null;
+                errors.add("FAILED: tests timed out after " + timeout.toSeconds() + "s: " + partition);
+                break;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() instanceof InvocationTargetException ite ? ite.getCause() : e.getCause();
+                logger.warn("In-process test run failed: {}", cause.toString());
+                errors.add("FAILED: could not run tests " + partition + ": " + cause);
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                errors.add("FAILED: interrupted while running tests");
+                break;
+            }
+        }
+        String output = String.format("%d test(s) run, %d failure(s)", tests, errors.size());
+        return new RefactoringVerifier.TestResult(errors.isEmpty(), errors, output);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        launcher = null;
+        if (dependencyLoader != null) {
+            dependencyLoader.close();
+            dependencyLoader = null;
+        }
+    }
+
+    /**
+     * @return a fresh class loader for the project classes, on top of the shared
+     *         dependency loader
+     */
+    ClassLoader projectLoader(Map<String, byte[]> compiled) {
+        return new ProjectClassLoader(urls(List.of(classesDir, testClassesDir)), dependencyLoader(), compiled);
+    }
+
+    /**
+     * @return binary names of the top-level classes in the test build output
+     */
+    Set<String> testClassesOnDisk() {
+        Set<String> names = new TreeSet<>();
+        if (!Files.isDirectory(testClassesDir)) {
+            return names;
+        }
+        try (Stream<Path> walk = Files.walk(testClassesDir)) {
+            walk.map(testClassesDir::relativize)
+                    .map(Path::toString)
+                    .filter(name -> name.endsWith(".class") && !name.contains("$"))
+                    .map(name -> name.substring(0, name.length() - ".class".length())
+                            .replace(java.io.File.separatorChar, '.'))
+                    .forEach(names::add);
+        } catch (IOException e) {
+            logger.warn("Could not list test classes in {}: {}", testClassesDir, e.getMessage());
+        }
+        return names;
+    }
+
+    private Summary execute(Map<String, byte[]> compiled, List<String> testClasses) throws ReflectiveOperationException, IOException {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        try (URLClassLoader loader = (URLClassLoader) projectLoader(compiled)) {
+            // The launcher loads test classes and engines through the context class loader
+            thread.setContextClassLoader(loader);
+            return launch(loader, testClasses);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    private Summary launch(ClassLoader loader, List<String> testClasses) throws ReflectiveOperationException {
+        Method selectClass = loader.loadClass(PLATFORM + "engine.discovery.DiscoverySelectors")
+                .getMethod("selectClass", String.class);
+        List<Object> selectors = new ArrayList<>();
+        for (String testClass : testClasses) {
+            selectors.add(selectClass.invoke(null, testClass));
+        }
+
+        Class<?> builderType = loader.loadClass(PLATFORM + "launcher.core.LauncherDiscoveryRequestBuilder");
+        Object builder = builderType.getMethod("request").invoke(null);
+        builderType.getMethod("selectors", List.class).invoke(builder, selectors);
+        Object request = builderType.getMethod("build").invoke(builder);
+
+        Class<?> listenerType = loader.loadClass(PLATFORM + "launcher.listeners.SummaryGeneratingListener");
+        Object listener = listenerType.getConstructor().newInstance();
+        Class<?> listenerInterface = loader.loadClass(PLATFORM + "launcher.TestExecutionListener");
+        Object listeners = Array.newInstance(listenerInterface, 1);
+        Array.set(listeners, 0, listener);
+
+        Class<?> launcherType = loader.loadClass(PLATFORM + "launcher.Launcher");
+        launcherType.getMethod("execute", loader.loadClass(PLATFORM + "launcher.LauncherDiscoveryRequest"),
+                listeners.getClass()).invoke(launcher(loader), request, listeners);
+
+        Class<?> summaryType = loader.loadClass(PLATFORM + "launcher.listeners.TestExecutionSummary");
+        Object summary = listenerType.getMethod("getSummary").invoke(listener);
+        long tests = (long) summaryType.getMethod("getTestsFoundCount").invoke(summary);
+
+        Class<?> failureType = loader.loadClass(PLATFORM + "launcher.listeners.TestExecutionSummary$Failure");
+        Class<?> identifierType = loader.loadClass(PLATFORM + "launcher.TestIdentifier");
+        List<String> failures = new ArrayList<>();
+        for (Object failure : (List<?>) summaryType.getMethod("getFailures").invoke(summary)) {
+            Object identifier = failureType.getMethod("getTestIdentifier").invoke(failure);
+            Throwable exception = (Throwable) failureType.getMethod("getException").invoke(failure);
+            failures.add(String.format("FAILED %s: %s",
+                    identifierType.getMethod("getUniqueId").invoke(identifier), exception));
+        }
+        return new Summary(tests, failures);
+    }
+
+    /**
+     * The launcher and its engines live in the dependency loader and are reused.
+     */
+    private Object launcher(ClassLoader loader) throws ReflectiveOperationException {
+        if (launcher == null) {
+            launcher = loader.loadClass(LAUNCHER_FACTORY).getMethod("create").invoke(null);
+        }
+        return launcher;
+    }
+
+    private synchronized URLClassLoader dependencyLoader() {
+        if (dependencyLoader == null) {
+            dependencyLoader = new URLClassLoader("bertie-test-dependencies", urls(dependencies),
+                    ClassLoader.getPlatformClassLoader());
+        }
+        return dependencyLoader;
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "bertie-tests");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private static URL[] urls(List<Path> paths) {
+        List<URL> urls = new ArrayList<>();
+        for (Path path : paths) {
+            try {
+                urls.add(path.toUri().toURL());
+            } catch (MalformedURLException e) {
+                logger.warn("Ignoring class path entry {}: {}", path, e.getMessage());
+            }
+        }
+        return urls.toArray(URL[]::new);
+    }
+
+    private record Summary(long tests, List<String> failures) {
+    }
+
+    /**
+     * Loads project classes itself, compiled classes first, and delegates everything
+     * else to the dependency loader.
+     */
+    private static final class ProjectClassLoader extends URLClassLoader {
+        static {
+            registerAsParallelCapable();
+        }
+
+        private final Map<String, byte[]> compiled;
+
+        ProjectClassLoader(URL[] urls, ClassLoader parent, Map<String, byte[]> compiled) {
+            super("bertie-test-project", urls, parent);
+            this.compiled = compiled;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    byte[] bytes = compiled.get(name);
+                    if (bytes != null) {
+                        type = defineClass(name, bytes, 0, bytes.length);
+                    } else if (!name.startsWith("java.")) {
+                        type = findProjectClass(name);
+                    }
+                }
+                if (type == null) {
+                    return super.loadClass(name, resolve);
+                }
+                if (resolve) {
+                    resolveClass(type);
+                }
+                return type;
+            }
+        }
+
+        private Class<?> findProjectClass(String name) {
+            try {
+                return findClass(name);
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package com.raditha.dedup.refactoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Long-lived in-memory compiler used for fast verification.
+ *
+ * <p>One compiler and file manager are kept warm across verifications. Sources are
+ * read into memory, through a {@link SourceOverlay} when one is given, and class
+ * files are written to memory, never to disk. Class
+ * outputs of files that have not changed since they were compiled are put on the
+ * class path of later compilations, so each verification only compiles the changed
+ * files and their direct dependents.</p>
+ *
+ * <p>Dependents come from a reverse dependency map built by scanning the source roots
+ * for type names. The scan is textual, so it over-approximates: a file that merely
+ * mentions a type with the same simple name is treated as a dependent.</p>
+ */
+final class IncrementalCompiler implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalCompiler.class);
+
+    private static final Pattern TYPE_DECLARATION = Pattern.compile(
+            "\\b(?:class|interface|enum|record)\\s+([A-Z]\\w*)");
+    private static final Pattern TYPE_REFERENCE = Pattern.compile("\\b[A-Z]\\w*\\b");
+
+    private final JavaCompiler compiler;
+    private final List<Path> sourceRoots;
+    private final SourceOverlay overlay;
+    private final MemoryFileManager fileManager;
+
+    /** Compiled classes by binary name. */
+    private final Map<String, MemoryClass> classes = new HashMap<>();
+    /** Binary names of the classes compiled from each source file. */
+    private final Map<Path, Set<String>> classesBySource = new HashMap<>();
+    /** Source file state the cached classes were compiled from. */
+    private final Map<Path, Fingerprint> fingerprints = new HashMap<>();
+
+    /** Type names declared by each source file. */
+    private final Map<Path, Set<String>> declaredTypes = new HashMap<>();
+    /** Type names referenced by each source file. */
+    private final Map<Path, Set<String>> referencedTypes = new HashMap<>();
+    /** Reverse dependency map: type name to the files referencing it. */
+    private final Map<String, Set<Path>> referencedBy = new HashMap<>();
+    private boolean indexed;
+
+    private Set<Path> lastCompiled = Set.of();
+
+    IncrementalCompiler(JavaCompiler compiler, List<Path> sourceRoots) {
+        this(compiler, sourceRoots, null);
+    }
+
+    /**
+     * @param overlay overlay to read sources through, or null to read them from disk
+     */
+    IncrementalCompiler(JavaCompiler compiler, List<Path> sourceRoots, SourceOverlay overlay) {
+        this.compiler = compiler;
+        this.sourceRoots = List.copyOf(sourceRoots);
+        this.overlay = overlay;
+        this.fileManager = new MemoryFileManager(compiler.getStandardFileManager(null, null, null));
+    }
+
+    /**
+     * Compile the changed files and their direct dependents.
+     *
+     * @param changed files modified since the last verification; files that no longer
+     *                exist are dropped from the cache
+     * @param options compiler options; output location options are not needed
+     * @return the compilation result
+     */
+    RefactoringVerifier.CompilationResult compile(Collection<Path> changed, List<String> options) {
+        Set<Path> dirty = new LinkedHashSet<>();
+        for (Path file : changed) {
+            dirty.add(file.toAbsolutePath().normalize());
+        }
+        for (Map.Entry<Path, Fingerprint> entry : fingerprints.entrySet()) {
+            if (!entry.getValue().equals(fingerprint(entry.getKey()))) {
+                dirty.add(entry.getKey());
+            }
+        }
+        if (overlay != null) {
+            // javac reads unlisted sources from disk, so overlaid files must come from the cache or be compiled
+            for (Path file : overlay.paths()) {
+                if (!classesBySource.containsKey(file)) {
+                    dirty.add(file);
+                }
+            }
+        }
+
+        ensureIndexed();
+        Set<Path> toCompile = new LinkedHashSet<>();
+        for (Path file : dirty) {
+            Set<String> types = new HashSet<>(declaredTypes.getOrDefault(file, Set.of()));
+            reindex(file);
+            types.addAll(declaredTypes.getOrDefault(file, Set.of()));
+            if (exists(file)) {
+                toCompile.add(file);
+            } else {
+                invalidate(file);
+            }
+            for (String type : types) {
+                for (Path dependent : referencedBy.getOrDefault(type, Set.of())) {
+                    if (exists(dependent)) {
+                        toCompile.add(dependent);
+                    }
+                }
+            }
+        }
+        lastCompiled = Set.copyOf(toCompile);
+        if (toCompile.isEmpty()) {
+            return new RefactoringVerifier.CompilationResult(true, List.of(), "No files modified");
+        }
+
+        List<JavaFileObject> sources = new ArrayList<>();
+        Map<Path, Fingerprint> compiledFrom = new HashMap<>();
+        for (Path file : toCompile) {
+            try {
+                compiledFrom.put(file, fingerprint(file));
+                sources.add(new MemorySource(file, read(file)));
+            } catch (IOException e) {
+                return new RefactoringVerifier.CompilationResult(false,
+                        List.of("Could not read " + file + ": " + e.getMessage()), "");
+            }
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        fileManager.output.clear();
+        boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, sources).call();
+        List<String> errors = extractErrors(diagnostics);
+        if (success) {
+            // Classes of a failed compilation are dropped; the cache keeps those of the previous state
+            keep(fileManager.output, compiledFrom);
+        }
+        fileManager.output.clear();
+        logger.debug("Compiled {} file(s) of {} changed, {} classes cached", toCompile.size(), dirty.size(),
+                classes.size());
+        return new RefactoringVerifier.CompilationResult(success, errors,
+                success ? "Fast compilation succeeded" : "Fast compilation failed");
+    }
+
+    /**
+     * Drop the cached classes of a file, for example after it was rolled back.
+     */
+    void invalidate(Path file) {
+        Path key = file.toAbsolutePath().normalize();
+        Set<String> names = classesBySource.remove(key);
+        if (names != null) {
+            names.forEach(classes::remove);
+        }
+        fingerprints.remove(key);
+    }
+
+    /**
+     * @return files compiled by the last call to {@link #compile}
+     */
+    Set<Path> lastCompiled() {
+        return lastCompiled;
+    }
+
+    /**
+     * @return number of class outputs kept in memory
+     */
+    int cachedClassCount() {
+        return classes.size();
+    }
+
+    /**
+     * @return a snapshot of the class outputs kept in memory, bytecode by binary name
+     */
+    Map<String, byte[]> compiledClasses() {
+        Map<String, byte[]> snapshot = new HashMap<>();
+        for (MemoryClass compiled : classes.values()) {
+            snapshot.put(compiled.binaryName, compiled.bytes);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileManager.close();
+    }
+
+    private void keep(List<MemoryClass> output, Map<Path, Fingerprint> compiledFrom) {
+        Set<Path> replaced = new HashSet<>();
+        for (MemoryClass compiled : output) {
+            if (compiled.source == null) {
+                continue;
+            }
+            if (replaced.add(compiled.source)) {
+                invalidate(compiled.source);
+                fingerprints.put(compiled.source,
+                        compiledFrom.computeIfAbsent(compiled.source, this::fingerprint));
+            }
+            classes.put(compiled.binaryName, compiled);
+            classesBySource.computeIfAbsent(compiled.source, k -> new HashSet<>()).add(compiled.binaryName);
+        }
+    }
+
+    private Fingerprint fingerprint(Path file) {
+        long version = overlay != null ? overlay.version(file) : 0;
+        try {
+            return new Fingerprint(Files.getLastModifiedTime(file).toMillis(), Files.size(file), version);
+        } catch (IOException e) {
+            return new Fingerprint(-1, -1, version);
+        }
+    }
+
+    private boolean exists(Path file) {
+        return overlay != null ? overlay.exists(file) : Files.exists(file);
+    }
+
+    private String read(Path file) throws IOException {
+        return overlay != null ? overlay.read(file) : Files.readString(file);
+    }
+
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        indexed = true;
+        for (Path root : sourceRoots) {
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> walk = Files.walk(root)) {
+                walk.filter(p -> p.toString().endsWith(".java"))
+                        .forEach(p -> reindex(p.toAbsolutePath().normalize()));
+            } catch (IOException e) {
+                logger.warn("Could not index sources under {}: {}", root, e.getMessage());
+            }
+        }
+    }
+
+    private void reindex(Path file) {
+        for (String type : referencedTypes.getOrDefault(file, Set.of())) {
+            Set<Path> files = referencedBy.get(type);
+            if (files != null) {
+                files.remove(file);
+            }
+        }
+        declaredTypes.remove(file);
+        referencedTypes.remove(file);
+        if (!exists(file)) {
+            return;
+        }
+
+        String content;
+        try {
+            content = read(file);
+        } catch (IOException e) {
+            logger.warn("Could not index {}: {}", file, e.getMessage());
+            return;
+        }
+        Set<String> declared = new HashSet<>();
+        Matcher declarations = TYPE_DECLARATION.matcher(content);
+        while (declarations.find()) {
+            declared.add(declarations.group(1));
+        }
+        Set<String> referenced = new HashSet<>();
+        Matcher references = TYPE_REFERENCE.matcher(content);
+        while (references.find()) {
+            referenced.add(references.group());
+        }
+        referenced.removeAll(declared);
+        declaredTypes.put(file, declared);
+        referencedTypes.put(file, referenced);
+        for (String type : referenced) {
+            referencedBy.computeIfAbsent(type, k -> new HashSet<>()).add(file);
+        }
+    }
+
+    private static List<String> extractErrors(DiagnosticCollector<JavaFileObject> diagnostics) {
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                JavaFileObject source = diagnostic.getSource();
+                String sourcePath = (source != null) ? source.toUri().getPath() : "<unknown>";
+                errors.add(String.format("%s:%d: %s",
+                        sourcePath,
+                        diagnostic.getLineNumber(),
+                        diagnostic.getMessage(null)));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * State of a source file when it was compiled: its last-modified time and size on
+     * disk and its overlay version.
+     */
+    private record Fingerprint(long lastModified, long size, long overlayVersion) {
+    }
+
+    /**
+     * A source file held in memory.
+     */
+    private static final class MemorySource extends SimpleJavaFileObject {
+        private final String content;
+
+        MemorySource(Path file, String content) {
+            super(file.toUri(), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
+    /**
+     * A compiled class held in memory.
+     */
+    private static final class MemoryClass extends SimpleJavaFileObject {
+        private final String binaryName;
+        private final Path source;
+        private final long lastModified = System.currentTimeMillis();
+        private byte[] bytes = new byte[0];
+
+        MemoryClass(String binaryName, Path source) {
+            super(URI.create("mem:///" + binaryName.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.binaryName = binaryName;
+            this.source = source;
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    bytes = toByteArray();
+                }
+            };
+        }
+
+        @Override
+        public long getLastModified() {
+            // Newer than the unchanged source, so javac prefers the class over recompiling it
+            return lastModified;
+        }
+
+        String packageName() {
+            int dot = binaryName.lastIndexOf('.');
+            return dot < 0 ? "" : binaryName.substring(0, dot);
+        }
+    }
+
+    /**
+     * Writes class output to memory and lists cached classes ahead of the class path.
+     */
+    private final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final List<MemoryClass> output = new ArrayList<>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                FileObject sibling) throws IOException {
+            if (kind != JavaFileObject.Kind.CLASS) {
+                return super.getJavaFileForOutput(location, className, kind, sibling);
+            }
+            Path source = null;
+            if (sibling != null && "file".equals(sibling.toUri().getScheme())) {
+                source = Path.of(sibling.toUri()).toAbsolutePath().normalize();
+            }
+            MemoryClass compiled = new MemoryClass(className, source);
+            output.add(compiled);
+            return compiled;
+        }
+
+        @Override
+        public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+                boolean recurse) throws IOException {
+            Iterable<JavaFileObject> listed = super.list(location, packageName, kinds, recurse);
+            if (location != StandardLocation.CLASS_PATH || !kinds.contains(JavaFileObject.Kind.CLASS)) {
+                return listed;
+            }
+            List<JavaFileObject> result = new ArrayList<>();
+            for (MemoryClass cached : classes.values()) {
+                String pkg = cached.packageName();
+                if (pkg.equals(packageName) || (recurse && pkg.startsWith(packageName + "."))) {
+                    result.add(cached);
+                }
+            }
+            if (result.isEmpty()) {
+                return listed;
+            }
+            // Cached classes first: the first class found for a name wins
+            listed.forEach(result::add);
+            return result;
+        }
+
+        @Override
+        public String inferBinaryName(Location location, JavaFileObject file) {
+            if (file instanceof MemoryClass compiled) {
+                return compiled.binaryName;
+            }
+            return super.inferBinaryName(location, file);
+        }
+
+        @Override
+        public boolean isSameFile(FileObject a, FileObject b) {
+            if (a instanceof MemoryClass || b instanceof MemoryClass) {
+                return a == b;
+            }
+            return super.isSameFile(a, b);
+        }
+    }
+}
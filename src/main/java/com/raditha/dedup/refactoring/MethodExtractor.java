@@ -18,6 +18,7 @@ import com.github.javaparser.ast.type.ReferenceType;
 import com.raditha.dedup.analysis.DataFlowAnalyzer;
 
 import com.raditha.dedup.model.*;
+import com.raditha.dedup.util.SymbolResolution;
 import sa.com.cloudsolutions.antikythera.parser.AbstractCompiler;
 import sa.com.cloudsolutions.antikythera.generator.TypeWrapper;
 import org.slf4j.Logger;
@@ -376,12 +377,10 @@ public class MethodExtractor extends AbstractExtractor {
     }
 
     private RefactoringResult buildRefactoringResult(Map<CompilationUnit, Path> modifiedCUs) {
-        Map<Path, String> modifiedFiles = modifiedCUs.entrySet().stream()
-                .collect(LinkedHashMap::new,
-                        (map, entry) -> map.put(entry.getValue(), entry.getKey().toString()),
-                        Map::putAll);
+        Map<Path, CompilationUnit> units = new LinkedHashMap<>();
+        modifiedCUs.forEach((cu, path) -> units.put(path, cu));
 
-        return new RefactoringResult(modifiedFiles, recommendation.getStrategy(),
+        return new RefactoringResult(new PrintedSources(units), recommendation.getStrategy(),
                 "Extracted method: " + methodNameToUse);
     }
 
@@ -469,7 +468,7 @@ public class MethodExtractor extends AbstractExtractor {
 
         // Apply return type: Use forced type if available, otherwise recommendation
         if (forcedReturnType != null) {
-            method.setType(forcedReturnType);
+            method.setType(forcedReturnType.clone());
         } else {
             setReturnType(method);
         }
@@ -628,8 +627,9 @@ public class MethodExtractor extends AbstractExtractor {
     }
 
     private void setReturnType(MethodDeclaration method) {
+        // The suggested type may be a node of the analyzed sequence; setType would move it
         com.github.javaparser.ast.type.Type returnType = recommendation.getSuggestedReturnType();
-        method.setType(returnType != null ? returnType : new com.github.javaparser.ast.type.VoidType());
+        method.setType(returnType != null ? returnType.clone() : new com.github.javaparser.ast.type.VoidType());
     }
 
     private Set<String> collectDeclaredVariableNames(StatementSequence sequence) {
@@ -1173,6 +1173,11 @@ public class MethodExtractor extends AbstractExtractor {
         }
 
         private boolean isTypeCompatible(ParameterSpec param, Expression expr, StatementSequence sequence) {
+            // Type lookups go through antikythera's caches, which clusters refactored concurrently share
+            return SymbolResolution.guarded(() -> typeCompatible(param, expr, sequence));
+        }
+
+        private boolean typeCompatible(ParameterSpec param, Expression expr, StatementSequence sequence) {
             TypeWrapper paramTypeWrapper = AbstractCompiler.findType(sequence.compilationUnit(), param.getType());
 
             if (paramTypeWrapper != null) {
@@ -1742,6 +1747,14 @@ public class MethodExtractor extends AbstractExtractor {
             this(Map.of(sourceFile, refactoredCode), strategy, description);
         }
 
+        /**
+         * @return this result with every file printed, so that later changes to the
+         *         compilation units do not show in it
+         */
+        public RefactoringResult printed() {
+            return new RefactoringResult(new LinkedHashMap<>(modifiedFiles), strategy, description);
+        }
+
         /**
          * Write all refactored files.
          */
@@ -1754,6 +1767,13 @@ public class MethodExtractor extends AbstractExtractor {
                 Files.writeString(file, entry.getValue());
             }
         }
+
+        /**
+         * Write all refactored files to an overlay instead of to disk.
+         */
+        public void apply(SourceOverlay overlay) {
+            modifiedFiles.forEach(overlay::write);
+        }
     }
 
     private boolean hasExplicitConstructorCall(ConstructorDeclaration caller) {
@@ -0,0 +1,58 @@
+package com.raditha.dedup.refactoring;
+
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Refactored sources keyed by file, printed from their compilation units the first
+ * time a source is read.
+ *
+ * <p>Printing a large compilation unit costs about as much as transforming it. When
+ * several clusters of a file are applied in one pass, only the file names of the
+ * intermediate results are needed and the file is printed once at the end. The
+ * sources are printed together and kept, so a result must be read before its
+ * compilation units change again; see {@link MethodExtractor.RefactoringResult#printed()}.</p>
+ */
+final class PrintedSources extends AbstractMap<Path, String> {
+
+    private final Map<Path, CompilationUnit> units;
+    private Set<Entry<Path, String>> printed;
+
+    /**
+     * @param units compilation units by file, in the order their sources are listed
+     */
+    PrintedSources(Map<Path, CompilationUnit> units) {
+        this.units = new LinkedHashMap<>(units);
+    }
+
+    @Override
+    public Set<Path> keySet() {
+        return Collections.unmodifiableSet(units.keySet());
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return units.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return units.size();
+    }
+
+    @Override
+    public synchronized Set<Entry<Path, String>> entrySet() {
+        if (printed == null) {
+            Map<Path, String> sources = new LinkedHashMap<>();
+            units.forEach((file, cu) -> sources.put(file, cu.toString()));
+            printed = Collections.unmodifiableMap(sources).entrySet();
+        }
+        return printed;
+    }
+}
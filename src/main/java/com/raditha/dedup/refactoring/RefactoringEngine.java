@@ -13,9 +13,11 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.LinkedHashMap;
+import java.util.TreeMap;
 
 /**
  * Main orchestrator for automated refactoring.
@@ -28,7 +30,13 @@ public class RefactoringEngine {
     private final RefactoringVerifier verifier;
     private final DiffGenerator diffGenerator;
     private final RefactoringMode mode;
+    private final int verifyBatchSize;
+    private final int refactorThreads;
+    private final int previewPrefetch;
+    private final boolean singlePass;
+    private final SourceOverlay overlay;
     private final List<String> dryRunDiffs = new ArrayList<>();
+    private RefactoringPlanner planner;
 
     /**
      * Creates a new refactoring engine with default verification level (COMPILE).
@@ -49,17 +57,61 @@ public class RefactoringEngine {
      */
     public RefactoringEngine(Path projectRoot, RefactoringMode mode,
             com.raditha.dedup.cli.VerifyMode verificationLevel) {
-        this(mode, new SafetyValidator(), new RefactoringVerifier(projectRoot, verificationLevel), new DiffGenerator());
+        this(projectRoot, mode, verificationLevel, Options.DEFAULTS);
+    }
+
+    /**
+     * Creates a new refactoring engine with specified verification level and options.
+     * Compiling verification levels read sources through an in-memory overlay.
+     *
+     * @param projectRoot       The root directory of the project
+     * @param mode              The refactoring mode
+     * @param verificationLevel The level of verification to perform
+     * @param options           Batching, concurrency and single-pass options
+     */
+    public RefactoringEngine(Path projectRoot, RefactoringMode mode,
+            com.raditha.dedup.cli.VerifyMode verificationLevel, Options options) {
+        this(mode, projectRoot, verificationLevel, options,
+                RefactoringVerifier.supportsOverlay(verificationLevel) ? new SourceOverlay() : null);
+    }
+
+    private RefactoringEngine(RefactoringMode mode, Path projectRoot,
+            com.raditha.dedup.cli.VerifyMode verificationLevel, Options options, SourceOverlay overlay) {
+        this(mode, new SafetyValidator(), new RefactoringVerifier(projectRoot, verificationLevel, overlay),
+                new DiffGenerator(overlay), options, overlay);
     }
 
     /**
      * Package-private constructor for unit testing.
      */
     RefactoringEngine(RefactoringMode mode, SafetyValidator validator, RefactoringVerifier verifier, DiffGenerator diffGenerator) {
+        this(mode, validator, verifier, diffGenerator, Options.DEFAULTS, null);
+    }
+
+    /**
+     * Package-private constructor for unit testing with options and a source overlay.
+     * The verifier and diff generator must read through the same overlay.
+     *
+     * @param overlay overlay that written sources go through, or null to write to disk
+     */
+    RefactoringEngine(RefactoringMode mode, SafetyValidator validator, RefactoringVerifier verifier,
+            DiffGenerator diffGenerator, Options options, SourceOverlay overlay) {
         this.mode = mode;
         this.validator = validator;
         this.verifier = verifier;
         this.diffGenerator = diffGenerator;
+        this.verifyBatchSize = options.verifyBatchSize();
+        this.overlay = overlay;
+        this.refactorThreads = options.refactorThreads();
+        this.previewPrefetch = options.previewPrefetch();
+        this.singlePass = options.singlePass();
+    }
+
+    /**
+     * @return whether the accepted clusters of a file are applied in a single pass
+     */
+    public boolean isSinglePass() {
+        return singlePass;
     }
 
     /**
@@ -87,8 +139,35 @@ public class RefactoringEngine {
     public RefactoringSession processClusters(List<DuplicateCluster> clusters) throws IOException, InterruptedException {
         RefactoringSession session = new RefactoringSession();
 
-        for (int i = 0; i < clusters.size(); i++) {
-            processCluster(clusters.get(i), session, i);
+        try {
+            // Previews are computed on copies so that rejected refactorings leave the AST alone
+            planner = new RefactoringPlanner(clusters, this::applyRefactoring,
+                    mode == RefactoringMode.INTERACTIVE || refactorThreads > 1);
+            if (refactorThreads > 1 && mode == RefactoringMode.BATCH) {
+                processClustersInWaves(session);
+                return session;
+            }
+            if (refactorThreads > 1) {
+                planner.planAll(refactorThreads);
+            }
+            if (singlePass && mode != RefactoringMode.DRY_RUN) {
+                processClustersInSinglePass(session);
+                return session;
+            }
+            if (verifyBatchSize > 1 && mode != RefactoringMode.DRY_RUN) {
+                processClustersInBatches(session);
+                return session;
+            }
+
+            for (int i = 0; i < planner.size(); i++) {
+                processCluster(planner.cluster(i), session, i);
+            }
+        } finally {
+            if (planner != null) {
+                planner.close();
+                planner = null;
+            }
+            flushOverlay();
         }
 
         // Show dry-run diff report if in dry-run mode
@@ -105,12 +184,18 @@ public class RefactoringEngine {
      * Process a single cluster.
      */
     private void processCluster(DuplicateCluster cluster, RefactoringSession session, int index) throws IOException, InterruptedException {
-        RefactoringRecommendation recommendation = cluster.recommendation();
-        if (!canRefactor(session, recommendation, cluster)) {
-            return;
+        if (canRefactor(session, cluster.recommendation(), cluster)) {
+            applyCluster(cluster, session, index);
         }
+    }
+
+    /**
+     * Apply, write and verify a cluster that has been accepted.
+     */
+    private void applyCluster(DuplicateCluster cluster, RefactoringSession session, int index) throws IOException, InterruptedException {
+        RefactoringRecommendation recommendation = cluster.recommendation();
         try {
-            MethodExtractor.RefactoringResult result = applyRefactoring(cluster, recommendation);
+            MethodExtractor.RefactoringResult result = refactor(cluster, recommendation);
 
             if (mode == RefactoringMode.DRY_RUN) {
                 // Collect diff for summary report
@@ -133,21 +218,10 @@ public class RefactoringEngine {
             }
 
             // Calculate diff stats before applying changes (per file)
-            Map<Path, DiffGenerator.DiffStats> diffStatsByFile = new LinkedHashMap<>();
-            for (Map.Entry<Path, String> fileEntry : result.modifiedFiles().entrySet()) {
-                try {
-                    String originalContent = Files.exists(fileEntry.getKey())
-                            ? Files.readString(fileEntry.getKey())
-                            : "";
-                    DiffGenerator.DiffStats stats = diffGenerator.calculateDiffStats(originalContent, fileEntry.getValue());
-                    diffStatsByFile.put(fileEntry.getKey(), stats);
-                } catch (IOException e) {
-                    logger.warn("Could not compute diff stats for {}: {}", fileEntry.getKey(), e.getMessage());
-                }
-            }
+            Map<Path, DiffGenerator.DiffStats> diffStatsByFile = calculateDiffStats(result);
 
             // Write refactored code to all files
-            result.apply();
+            write(result);
             System.out.printf("  ✓ Refactoring applied to %d file(s)%n", result.modifiedFiles().size());
 
             // Verify compilation
@@ -174,6 +248,441 @@ public class RefactoringEngine {
         }
     }
 
+    /**
+     * Process clusters applying all accepted clusters of a file in a single pass.
+     *
+     * <p>Every cluster is reviewed first. The accepted clusters that change only their
+     * own file are then transformed together on the live AST, and the file is printed,
+     * written and verified once. Other accepted clusters are applied one by one. A file
+     * is applied where its first accepted cluster stands in the given order, and
+     * results are recorded in that order as well.</p>
+     */
+    private void processClustersInSinglePass(RefactoringSession session) throws IOException, InterruptedException {
+        List<DuplicateCluster> clusters = new ArrayList<>();
+        List<RefactoringSession> sessions = new ArrayList<>();
+        Map<Path, List<Integer>> byFile = new LinkedHashMap<>();
+        List<ApplyGroup> groups = new ArrayList<>();
+        for (int i = 0; i < planner.size(); i++) {
+            DuplicateCluster cluster = planner.cluster(i);
+            RefactoringSession clusterSession = new RefactoringSession();
+            clusters.add(cluster);
+            sessions.add(clusterSession);
+            if (!canRefactor(clusterSession, cluster.recommendation(), cluster)) {
+                continue;
+            }
+            Path file = singleFile(cluster);
+            if (file == null) {
+                groups.add(new ApplyGroup(null, List.of(i)));
+            } else if (byFile.containsKey(file)) {
+                byFile.get(file).add(i);
+            } else {
+                List<Integer> indexes = new ArrayList<>();
+                indexes.add(i);
+                byFile.put(file, indexes);
+                groups.add(new ApplyGroup(file, indexes));
+            }
+        }
+
+        // Previews are done; from here on the clusters are transformed on the live AST
+        planner.close();
+        planner = null;
+        for (ApplyGroup group : groups) {
+            if (group.file() == null) {
+                int i = group.indexes().get(0);
+                applyCluster(clusters.get(i), sessions.get(i), i);
+            } else {
+                applyFile(group.indexes(), clusters, sessions);
+            }
+        }
+
+        for (RefactoringSession clusterSession : sessions) {
+            session.merge(clusterSession);
+        }
+    }
+
+    /**
+     * Transform the accepted clusters of one file, then write and verify the file once.
+     * Clusters are transformed from the bottom of the file up, so that the statement
+     * offsets of the clusters above them stay valid. They are transformed on a copy of
+     * the file's compilation unit, which replaces the live one once all of them are
+     * done. When verification fails the file is rolled back and every cluster applied
+     * to it fails. When a transformation throws, the copy is dropped, so the live AST
+     * is unchanged, nothing is written and every accepted cluster of the file fails.
+     */
+    private void applyFile(List<Integer> indexes, List<DuplicateCluster> clusters, List<RefactoringSession> sessions)
+            throws IOException, InterruptedException {
+        List<Integer> ordered = new ArrayList<>(indexes);
+        ordered.sort((a, b) -> comparePrimaryLocation(clusters.get(b), clusters.get(a)));
+
+        StatementSequence primary = clusters.get(indexes.get(0)).primary();
+        Path file = primary.sourceFilePath();
+        RefactoringPlanner.Workspace workspace = new RefactoringPlanner.Workspace();
+        Map<Integer, String> applied = new TreeMap<>();
+        for (int n = 0; n < ordered.size(); n++) {
+            int i = ordered.get(n);
+            DuplicateCluster cluster = clusters.get(i);
+            DuplicateCluster copy = workspace.copy(cluster);
+            if (copy == null) {
+                System.out.println("  ⊘ " + RefactoringPlanner.REPLACED);
+                sessions.get(i).addSkipped(cluster, RefactoringPlanner.REPLACED);
+                continue;
+            }
+            try {
+                // Only the file names are read, the file is printed once below
+                MethodExtractor.RefactoringResult result = applyRefactoring(copy, copy.recommendation());
+                if (result.description() != null && result.description().startsWith("Skipped")) {
+                    System.out.println("  ⊘ " + result.description());
+                    sessions.get(i).addSkipped(cluster, result.description());
+                } else {
+                    applied.put(i, result.description());
+                }
+            } catch (Exception t) {
+                String error = "Exception: " + t.getClass().getSimpleName() + ": " + t.getMessage();
+                logger.error("  ❌ Refactoring failed: {}; {} is not written", t.getMessage(), file.getFileName());
+                sessions.get(i).addFailed(cluster, error);
+                String aborted = "Aborted: another refactoring of " + file.getFileName() + " failed (" + error + ")";
+                applied.keySet().forEach(j -> sessions.get(j).addFailed(clusters.get(j), aborted));
+                ordered.subList(n + 1, ordered.size())
+                        .forEach(j -> sessions.get(j).addFailed(clusters.get(j), aborted));
+                return;
+            }
+        }
+        if (applied.isEmpty()) {
+            return;
+        }
+        if (!workspace.adopt()) {
+            String aborted = "Aborted: the refactored " + file.getFileName() + " no longer fits the parsed code";
+            applied.keySet().forEach(i -> sessions.get(i).addFailed(clusters.get(i), aborted));
+            return;
+        }
+
+        MethodExtractor.RefactoringResult result = new MethodExtractor.RefactoringResult(file,
+                primary.compilationUnit().toString(), clusters.get(indexes.get(0)).recommendation().getStrategy(),
+                "Applied " + applied.size() + " refactoring(s)");
+        try {
+            verifier.createBackup(file);
+            Map<Path, DiffGenerator.DiffStats> diffStatsByFile = calculateDiffStats(result);
+            write(result);
+            System.out.printf("  ✓ %d refactoring(s) applied to %s%n", applied.size(), file.getFileName());
+
+            RefactoringVerifier.VerificationResult verify = verifier.verify();
+            if (verify.isSuccess()) {
+                System.out.println("  ✓ Verification passed");
+                // The file's diff is counted once, with the first cluster
+                for (Map.Entry<Integer, String> entry : applied.entrySet()) {
+                    sessions.get(entry.getKey()).addSuccess(clusters.get(entry.getKey()), entry.getValue(),
+                            diffStatsByFile);
+                    diffStatsByFile = Map.of();
+                }
+                verifier.clearBackups();
+            } else {
+                System.out.println("  ❌ Verification failed:");
+                verify.errors().forEach(e -> System.out.println("     - " + e));
+                verifier.rollback();
+                applied.keySet().forEach(i -> sessions.get(i).addFailed(clusters.get(i),
+                        String.join("; ", verify.errors())));
+            }
+        } catch (InterruptedException ie) {
+            throw ie;
+        } catch (Exception t) {
+            logger.error("  ❌ Refactoring failed: {}", t.getMessage());
+            verifier.rollback();
+            applied.keySet().forEach(i -> sessions.get(i).addFailed(clusters.get(i),
+                    "Exception: " + t.getClass().getSimpleName() + ": " + t.getMessage()));
+        }
+    }
+
+    /**
+     * @return the file of a cluster that changes no other file, or null
+     */
+    private static Path singleFile(DuplicateCluster cluster) {
+        if (cluster.primary() == null || ClusterScheduler.createsTypes(cluster.recommendation().getStrategy())) {
+            return null;
+        }
+        Path file = null;
+        for (StatementSequence sequence : cluster.allSequences()) {
+            if (sequence.sourceFilePath() == null) {
+                return null;
+            }
+            Path path = sequence.sourceFilePath().toAbsolutePath().normalize();
+            if (file != null && !file.equals(path)) {
+                return null;
+            }
+            file = path;
+        }
+        return file;
+    }
+
+    /**
+     * Process clusters writing several refactorings before each verification.
+     * Refactorings in a batch modify disjoint files, so a failing one can be rolled
+     * back without touching the others.
+     */
+    private void processClustersInBatches(RefactoringSession session) throws IOException, InterruptedException {
+        BatchVerifier batch = new BatchVerifier(verifier, verifyBatchSize, overlay);
+        for (int i = 0; i < planner.size(); i++) {
+            DuplicateCluster cluster = planner.cluster(i);
+            RefactoringRecommendation recommendation = cluster.recommendation();
+            if (!canRefactor(session, recommendation, cluster)) {
+                continue;
+            }
+            try {
+                MethodExtractor.RefactoringResult result = refactor(cluster, recommendation);
+                if (result.description() != null && result.description().startsWith("Skipped")) {
+                    System.out.println("  ⊘ " + result.description());
+                    session.addSkipped(cluster, result.description());
+                    continue;
+                }
+                if (batch.conflicts(result.modifiedFiles().keySet())) {
+                    batch.flush(session);
+                }
+                Map<Path, DiffGenerator.DiffStats> diffStatsByFile = calculateDiffStats(result);
+                batch.add(new BatchVerifier.Entry(cluster, result, diffStatsByFile));
+                System.out.printf("  ✓ Refactoring applied to %d file(s), verification pending%n",
+                        result.modifiedFiles().size());
+            } catch (InterruptedException ie) {
+                throw ie;
+            } catch (Exception t) {
+                logger.error("  ❌ Refactoring failed: {}", t.getMessage());
+                session.addFailed(cluster, "Exception: " + t.getClass().getSimpleName() + ": " + t.getMessage());
+            }
+            if (batch.isFull()) {
+                batch.flush(session);
+            }
+        }
+        batch.flush(session);
+    }
+
+    /**
+     * Process clusters in waves of independent clusters (see {@link ClusterScheduler}).
+     * The clusters of a wave are planned concurrently on copies of their compilation
+     * units, then applied to the live AST and verified one by one in the order they
+     * were given. Clusters that cannot be planned are transformed on the live AST on
+     * this thread. Results are recorded in that order too, so the session reads as if
+     * the clusters had been processed one by one.
+     */
+    private void processClustersInWaves(RefactoringSession session) throws IOException, InterruptedException {
+        List<DuplicateCluster> clusters = new ArrayList<>();
+        List<RefactoringSession> sessions = new ArrayList<>(planner.size());
+        for (int i = 0; i < planner.size(); i++) {
+            clusters.add(planner.cluster(i));
+            sessions.add(new RefactoringSession());
+        }
+        Map<DuplicateCluster, RefactoringSession> sessionByCluster = new IdentityHashMap<>();
+
+        List<List<Integer>> waves = ClusterScheduler.waves(clusters);
+        System.out.printf("Scheduled %d cluster(s) in %d wave(s)%n", clusters.size(), waves.size());
+        BatchVerifier batch = new BatchVerifier(verifier, verifyBatchSize, overlay);
+        for (List<Integer> wave : waves) {
+            List<Integer> ready = new ArrayList<>();
+            for (int i : wave) {
+                DuplicateCluster cluster = planner.cluster(i);
+                if (canRefactor(sessions.get(i), cluster.recommendation(), cluster)) {
+                    ready.add(i);
+                }
+            }
+            planner.plan(ready, refactorThreads);
+
+            RefactoringSession verified = new RefactoringSession();
+            for (int i : ready) {
+                // Earlier clusters of the wave may have been mapped onto adopted nodes
+                DuplicateCluster cluster = planner.cluster(i);
+                sessionByCluster.put(cluster, sessions.get(i));
+                stage(cluster, transform(cluster), sessions.get(i), batch, verified);
+            }
+            batch.flush(verified);
+            for (RefactoringResult result : verified.results) {
+                sessionByCluster.get(result.cluster()).add(result);
+            }
+        }
+
+        for (RefactoringSession clusterSession : sessions) {
+            session.merge(clusterSession);
+        }
+    }
+
+    /**
+     * Tuning options of a refactoring engine.
+     *
+     * @param verifyBatchSize Maximum number of refactorings verified together; 1 verifies each on its own
+     * @param refactorThreads Threads transforming independent clusters in batch mode; 1 processes clusters one by one
+     * @param previewPrefetch Number of upcoming previews prepared in the background in interactive mode; 0 disables
+     * @param singlePass      Whether the accepted clusters of a file are applied, written and verified together
+     */
+    public record Options(int verifyBatchSize, int refactorThreads, int previewPrefetch, boolean singlePass) {
+
+        /**
+         * One refactoring at a time: verified alone, no concurrency, no prefetching.
+         */
+        public static final Options DEFAULTS = new Options(1, 1, 0, false);
+
+        /**
+         * @return a builder starting from {@link #DEFAULTS}
+         */
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        /**
+         * Builder for Options.
+         */
+        public static class Builder {
+            private int verifyBatchSize = DEFAULTS.verifyBatchSize();
+            private int refactorThreads = DEFAULTS.refactorThreads();
+            private int previewPrefetch = DEFAULTS.previewPrefetch();
+            private boolean singlePass = DEFAULTS.singlePass();
+
+            /**
+             * @param verifyBatchSize maximum number of refactorings verified together
+             * @return this builder
+             */
+            public Builder verifyBatchSize(int verifyBatchSize) {
+                this.verifyBatchSize = verifyBatchSize;
+                return this;
+            }
+
+            /**
+             * @param refactorThreads threads transforming independent clusters in batch mode
+             * @return this builder
+             */
+            public Builder refactorThreads(int refactorThreads) {
+                this.refactorThreads = refactorThreads;
+                return this;
+            }
+
+            /**
+             * @param previewPrefetch number of upcoming previews prepared in the background
+             * @return this builder
+             */
+            public Builder previewPrefetch(int previewPrefetch) {
+                this.previewPrefetch = previewPrefetch;
+                return this;
+            }
+
+            /**
+             * @param singlePass whether the accepted clusters of a file are applied together
+             * @return this builder
+             */
+            public Builder singlePass(boolean singlePass) {
+                this.singlePass = singlePass;
+                return this;
+            }
+
+            /**
+             * @return the options
+             */
+            public Options build() {
+                return new Options(verifyBatchSize, refactorThreads, previewPrefetch, singlePass);
+            }
+        }
+    }
+
+    /**
+     * Accepted clusters applied together: all clusters of a file, or a single cluster
+     * that changes other files when file is null.
+     */
+    private record ApplyGroup(Path file, List<Integer> indexes) {
+    }
+
+    /**
+     * Outcome of transforming a cluster: a refactoring or the exception it threw.
+     */
+    private record Transformation(MethodExtractor.RefactoringResult result, Exception error) {
+    }
+
+    private Transformation transform(DuplicateCluster cluster) {
+        try {
+            // Print now, later clusters of the wave change the compilation units
+            return new Transformation(refactor(cluster, cluster.recommendation()).printed(), null);
+        } catch (Exception e) {
+            return new Transformation(null, e);
+        }
+    }
+
+    /**
+     * Record a transformed cluster or hand it to the batch verifier.
+     */
+    private void stage(DuplicateCluster cluster, Transformation transformation, RefactoringSession clusterSession,
+            BatchVerifier batch, RefactoringSession verified) throws IOException, InterruptedException {
+        Exception error = transformation.error();
+        MethodExtractor.RefactoringResult result = transformation.result();
+        if (error == null && result.description() != null && result.description().startsWith("Skipped")) {
+            System.out.println("  ⊘ " + result.description());
+            clusterSession.addSkipped(cluster, result.description());
+            return;
+        }
+        if (error == null) {
+            try {
+                if (batch.conflicts(result.modifiedFiles().keySet())) {
+                    batch.flush(verified);
+                }
+                batch.add(new BatchVerifier.Entry(cluster, result, calculateDiffStats(result)));
+                System.out.printf("  ✓ Refactoring applied to %d file(s), verification pending%n",
+                        result.modifiedFiles().size());
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            logger.error("  ❌ Refactoring failed: {}", error.getMessage());
+            clusterSession.addFailed(cluster, "Exception: " + error.getClass().getSimpleName() + ": " + error.getMessage());
+            return;
+        }
+        if (batch.isFull()) {
+            batch.flush(verified);
+        }
+    }
+
+    /**
+     * Diff stats per file of a refactoring, computed against the files on disk.
+     */
+    private Map<Path, DiffGenerator.DiffStats> calculateDiffStats(MethodExtractor.RefactoringResult result) {
+        Map<Path, DiffGenerator.DiffStats> diffStatsByFile = new LinkedHashMap<>();
+        for (Map.Entry<Path, String> fileEntry : result.modifiedFiles().entrySet()) {
+            try {
+                String originalContent = readOriginal(fileEntry.getKey());
+                DiffGenerator.DiffStats stats = diffGenerator.calculateDiffStats(originalContent, fileEntry.getValue());
+                diffStatsByFile.put(fileEntry.getKey(), stats);
+            } catch (IOException e) {
+                logger.warn("Could not compute diff stats for {}: {}", fileEntry.getKey(), e.getMessage());
+            }
+        }
+        return diffStatsByFile;
+    }
+
+    private String readOriginal(Path file) throws IOException {
+        if (overlay != null) {
+            return overlay.exists(file) ? overlay.read(file) : "";
+        }
+        return Files.exists(file) ? Files.readString(file) : "";
+    }
+
+    /**
+     * Write a refactoring to the overlay, or to disk when there is none.
+     */
+    private void write(MethodExtractor.RefactoringResult result) throws IOException {
+        if (overlay != null) {
+            result.apply(overlay);
+        } else {
+            result.apply();
+        }
+    }
+
+    /**
+     * Write verified refactorings held in the overlay to disk. A refactoring that was
+     * interrupted before it was verified is discarded first.
+     */
+    private void flushOverlay() throws IOException {
+        if (overlay == null) {
+            return;
+        }
+        verifier.rollback();
+        if (!overlay.isEmpty()) {
+            logger.info("Writing {} refactored file(s) to disk", overlay.paths().size());
+            overlay.flush();
+        }
+    }
+
     static int comparePrimaryLocation(DuplicateCluster c1, DuplicateCluster c2) {
         if (c1 == null && c2 == null) {
             return 0;
@@ -275,6 +784,23 @@ public class RefactoringEngine {
         };
     }
 
+    /**
+     * Apply the refactoring for a cluster to the live AST, reusing its plan if it has one.
+     */
+    private MethodExtractor.RefactoringResult refactor(DuplicateCluster cluster,
+                                                       RefactoringRecommendation recommendation) {
+        return planner != null ? planner.refactor(cluster, recommendation) : applyLive(cluster, recommendation);
+    }
+
+    /**
+     * Apply the refactoring for a cluster to the live AST. A cluster whose code was
+     * replaced by an earlier refactoring is skipped.
+     */
+    private MethodExtractor.RefactoringResult applyLive(DuplicateCluster cluster,
+                                                        RefactoringRecommendation recommendation) {
+        return RefactoringPlanner.transformAttached(cluster, recommendation, this::applyRefactoring);
+    }
+
     /**
      * Show diff and ask user for confirmation (interactive mode).
      */
@@ -288,7 +814,9 @@ public class RefactoringEngine {
 
         // Generate and show actual diff
         try {
-            MethodExtractor.RefactoringResult result = applyRefactoring(cluster, recommendation);
+            MethodExtractor.RefactoringResult result = planner != null
+                    ? planner.preview(cluster, recommendation)
+                    : applyLive(cluster, recommendation);
             // For diff preview, show the primary file (first in map)
             Map.Entry<Path, String> primaryFile = result.modifiedFiles().entrySet().iterator().next();
             String diff = diffGenerator.generateUnifiedDiff(primaryFile.getKey(), primaryFile.getValue());
@@ -304,6 +832,11 @@ public class RefactoringEngine {
         }
         System.out.println();
 
+        // Prepare the next previews while this one is being read
+        if (planner != null && previewPrefetch > 0) {
+            planner.prefetch(cluster, previewPrefetch);
+        }
+
         System.out.print("  Apply this refactoring? (y/n): ");
         try {
             int response = System.in.read();
@@ -399,6 +932,20 @@ public class RefactoringEngine {
             addDiffStats(diffStats);
         }
 
+        /**
+         * Append the results of another session, keeping their order.
+         */
+        void merge(RefactoringSession other) {
+            other.results.forEach(this::add);
+        }
+
+        private void add(RefactoringResult result) {
+            results.add(result);
+            if (result.status() == RefactoringStatus.SUCCESS) {
+                addDiffStats(result.diffStats());
+            }
+        }
+
         /**
          * Record a skipped refactoring.
          */
@@ -0,0 +1,729 @@
+package com.raditha.dedup.refactoring;
+
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.metamodel.PropertyMetaModel;
+import com.raditha.dedup.model.DuplicateCluster;
+import com.raditha.dedup.model.ParameterSpec;
+import com.raditha.dedup.model.RefactoringRecommendation;
+import com.raditha.dedup.model.RefactoringStrategy;
+import com.raditha.dedup.model.SimilarityPair;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.util.ParallelTasks;
+import com.raditha.dedup.util.SymbolResolution;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+
+/**
+ * Computes refactorings ahead of time on copies of the affected compilation units.
+ *
+ * <p>A plan is the outcome of a cluster's transformation run on a snapshot: clones of
+ * the compilation units holding its sequences, with the sequences mapped onto the
+ * clones. The recommendation's types may be nodes of the live AST, so the snapshot
+ * gets a recommendation with copies of them. Planning never touches the live ASTs, so
+ * plans can be computed in parallel, and a previewed refactoring that is rejected
+ * leaves no trace.</p>
+ *
+ * <p>Applying a plan moves the imports and changed members of the planned compilation
+ * units into the live ones, which is what transforming the live AST would have
+ * produced. Members the refactoring left alone keep their live nodes, so clusters
+ * elsewhere in the file, including those handed to a later planner, stay attached.
+ * Clusters still to be processed in those files are then mapped onto the new nodes by
+ * source range. A plan is dropped as soon as any of its files changes, and the cluster
+ * is planned again or transformed on the live AST. Strategies that create new types
+ * register them with the runtime and are always transformed on the live AST. A cluster
+ * is only transformed on the live AST once all its statements are part of it; one
+ * whose code was replaced by an earlier refactoring is skipped.</p>
+ *
+ * <p>Plans can also be computed speculatively on a background thread, see
+ * {@link #prefetch}. Cloning and changes to the live ASTs are serialized; a plan
+ * records the version of each of its files when it was snapshotted and is discarded
+ * when any of them moved on in the meantime.</p>
+ */
+final class RefactoringPlanner implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RefactoringPlanner.class);
+
+    /**
+     * Runs a cluster's transformation.
+     */
+    @FunctionalInterface
+    interface Transformer {
+        MethodExtractor.RefactoringResult apply(DuplicateCluster cluster, RefactoringRecommendation recommendation);
+    }
+
+    /**
+     * Clusters mapped onto copies of their compilation units, keyed by file.
+     */
+    private record Snapshot(DuplicateCluster cluster, Map<Path, CompilationUnit> live,
+                            Map<Path, CompilationUnit> copies, Map<Path, Long> versions) {
+    }
+
+    private record Plan(MethodExtractor.RefactoringResult result, Snapshot snapshot, Set<Path> files) {
+    }
+
+    /**
+     * Copies of compilation units on which several clusters are transformed together,
+     * such as all the refactorings of one file. The live ASTs only change when the
+     * copies are adopted, so a transformation that fails leaves them as they were.
+     */
+    static final class Workspace {
+        private final Map<CompilationUnit, CompilationUnit> clones = new IdentityHashMap<>();
+
+        /**
+         * @return the cluster mapped onto the copies, with a detached recommendation,
+         *         or null if one of its sequences cannot be located
+         */
+        DuplicateCluster copy(DuplicateCluster cluster) {
+            return RefactoringPlanner.copy(cluster, cu -> clones.computeIfAbsent(cu, CompilationUnit::clone));
+        }
+
+        /**
+         * Move the imports and changed members of the copies into the live
+         * compilation units.
+         *
+         * @return false if a copy no longer fits its live unit; nothing is changed then
+         */
+        boolean adopt() {
+            for (Map.Entry<CompilationUnit, CompilationUnit> entry : clones.entrySet()) {
+                if (!sameOutline(entry.getKey(), entry.getValue())) {
+                    return false;
+                }
+            }
+            clones.forEach(RefactoringPlanner::transplant);
+            return true;
+        }
+    }
+
+    /**
+     * Description of the result of a cluster whose code an earlier refactoring replaced.
+     */
+    static final String REPLACED = "Skipped: the duplicated code was replaced by an earlier refactoring";
+
+    private final List<DuplicateCluster> clusters;
+    private final Map<DuplicateCluster, Integer> indexes = new IdentityHashMap<>();
+    private final Map<Integer, Plan> plans = new ConcurrentHashMap<>();
+    private final Map<Integer, Future<Plan>> prefetched = new ConcurrentHashMap<>();
+    /** Incremented whenever the live AST of a file changes. */
+    private final Map<Path, Long> versions = new ConcurrentHashMap<>();
+    private final Transformer transformer;
+    private final boolean enabled;
+    private ExecutorService executor;
+
+    /**
+     * @param clusters    clusters in processing order
+     * @param transformer transformation to plan and to fall back to
+     * @param enabled     whether to plan at all; when false every refactoring is
+     *                    transformed on the live AST
+     */
+    RefactoringPlanner(List<DuplicateCluster> clusters, Transformer transformer, boolean enabled) {
+        this.clusters = new ArrayList<>(clusters);
+        this.transformer = transformer;
+        this.enabled = enabled;
+        for (int i = 0; i < this.clusters.size(); i++) {
+            indexes.put(this.clusters.get(i), i);
+        }
+    }
+
+    /**
+     * @return the cluster at the index, mapped onto the nodes of earlier planned
+     *         refactorings in its files
+     */
+    DuplicateCluster cluster(int index) {
+        return clusters.get(index);
+    }
+
+    /**
+     * @return number of clusters
+     */
+    int size() {
+        return clusters.size();
+    }
+
+    /**
+     * Plan every plannable cluster up front.
+     *
+     * @param threads number of clusters planned concurrently
+     */
+    void planAll(int threads) {
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < clusters.size(); i++) {
+            all.add(i);
+        }
+        plan(all, threads);
+    }
+
+    /**
+     * Plan the plannable clusters at the indexes that have no current plan.
+     *
+     * @param threads number of clusters planned concurrently
+     */
+    void plan(List<Integer> indexes, int threads) {
+        if (!enabled) {
+            return;
+        }
+        List<Integer> candidates = new ArrayList<>();
+        for (int i : indexes) {
+            // Generates lazy recommendations on this thread
+            if (planFor(i) == null && canPlan(clusters.get(i))) {
+                candidates.add(i);
+            }
+        }
+        List<Plan> computed = ParallelTasks.map(candidates, threads, i -> plan(clusters.get(i)));
+        int planned = 0;
+        for (int k = 0; k < candidates.size(); k++) {
+            if (computed.get(k) != null) {
+                plans.put(candidates.get(k), computed.get(k));
+                planned++;
+            }
+        }
+        logger.info("Planned {} of {} refactoring(s) ahead", planned, indexes.size());
+    }
+
+    /**
+     * Compute a refactoring to show it. The cluster is planned if possible, so that
+     * the live AST is left untouched and the plan can be reused when the refactoring
+     * is accepted.
+     */
+    MethodExtractor.RefactoringResult preview(DuplicateCluster cluster, RefactoringRecommendation recommendation) {
+        Integer index = indexes.get(cluster);
+        if (enabled && index != null) {
+            Plan plan = planFor(index);
+            if (plan == null && canPlan(cluster)) {
+                plan = plan(cluster);
+                if (plan != null) {
+                    plans.put(index, plan);
+                }
+            }
+            if (plan != null) {
+                return plan.result();
+            }
+        }
+        return transformLive(cluster, recommendation);
+    }
+
+    /**
+     * Apply a refactoring to the live AST, reusing its plan when none of its files
+     * changed since it was planned.
+     */
+    MethodExtractor.RefactoringResult refactor(DuplicateCluster cluster, RefactoringRecommendation recommendation) {
+        Integer index = indexes.get(cluster);
+        Plan plan = index != null ? planFor(index) : null;
+        if (plan != null) {
+            plans.remove(index);
+        }
+        if (plan != null && adopt(index, plan)) {
+            return plan.result();
+        }
+        return transformLive(cluster, recommendation);
+    }
+
+    /**
+     * Start planning the clusters after the given one on a background thread, so
+     * that their previews are ready when they come up.
+     *
+     * @param depth number of clusters to plan ahead
+     */
+    void prefetch(DuplicateCluster cluster, int depth) {
+        Integer index = indexes.get(cluster);
+        if (!enabled || index == null) {
+            return;
+        }
+        for (int j = index + 1; j <= index + depth && j < clusters.size(); j++) {
+            if (plans.containsKey(j) || prefetched.containsKey(j)) {
+                continue;
+            }
+            DuplicateCluster next = clusters.get(j);
+            Map<Path, Long> expected = new HashMap<>();
+            filesOf(next, null).forEach(file -> expected.put(file, versions.getOrDefault(file, 0L)));
+            prefetched.put(j, executor().submit(() -> prefetchPlan(next, expected)));
+        }
+    }
+
+    /**
+     * @param expected versions of the cluster's files when the cluster was queued; its
+     *                 nodes are stale if any of them changed before planning started
+     */
+    private Plan prefetchPlan(DuplicateCluster cluster, Map<Path, Long> expected) {
+        // Lazy recommendations are generated with the symbol solver
+        if (!SymbolResolution.guarded(() -> canPlan(cluster))) {
+            return null;
+        }
+        Plan plan = plan(cluster);
+        return plan != null && plan.snapshot().versions().equals(expected) ? plan : null;
+    }
+
+    /**
+     * Stop planning in the background.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        prefetched.clear();
+    }
+
+    /**
+     * @return the current plan for the cluster at the index, waiting for it if it is
+     *         being planned in the background, or null
+     */
+    private Plan planFor(int index) {
+        Future<Plan> future = prefetched.remove(index);
+        if (future != null) {
+            try {
+                Plan plan = future.get();
+                if (plan != null) {
+                    plans.put(index, plan);
+                }
+            } catch (ExecutionException e) {
+                logger.debug("Could not plan refactoring: {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Plan plan = plans.get(index);
+        if (plan != null && !isCurrent(plan)) {
+            plans.remove(index);
+            return null;
+        }
+        return plan;
+    }
+
+    private boolean isCurrent(Plan plan) {
+        for (Map.Entry<Path, Long> entry : plan.snapshot().versions().entrySet()) {
+            if (versions.getOrDefault(entry.getKey(), 0L).longValue() != entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "bertie-preview");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * @return whether the cluster can be transformed on a snapshot
+     */
+    static boolean canPlan(DuplicateCluster cluster) {
+        RefactoringRecommendation recommendation = cluster.recommendation();
+        return recommendation != null
+                && recommendation.getStrategy() != RefactoringStrategy.MANUAL_REVIEW_REQUIRED
+                && !ClusterScheduler.createsTypes(recommendation.getStrategy());
+    }
+
+    private synchronized MethodExtractor.RefactoringResult transformLive(DuplicateCluster cluster,
+                                                                          RefactoringRecommendation recommendation) {
+        MethodExtractor.RefactoringResult result = null;
+        try {
+            result = transformAttached(cluster, recommendation, transformer);
+            return result;
+        } finally {
+            changed(filesOf(cluster, result));
+        }
+    }
+
+    /**
+     * Transform a cluster on the live AST after making sure that it points at it.
+     * Detached sequences are mapped onto the live nodes with the same source range
+     * and structure; when one of them is gone the cluster is skipped.
+     *
+     * @return the transformation's result, or a skipped result that changes no file
+     */
+    static MethodExtractor.RefactoringResult transformAttached(DuplicateCluster cluster,
+            RefactoringRecommendation recommendation, Transformer transformer) {
+        DuplicateCluster attached = isAttached(cluster) ? cluster : map(cluster, UnaryOperator.identity(), true);
+        if (attached == null) {
+            logger.debug("Skipping cluster whose code was replaced by an earlier refactoring");
+            return new MethodExtractor.RefactoringResult(Map.of(), recommendation.getStrategy(), REPLACED);
+        }
+        return transformer.apply(attached, recommendation);
+    }
+
+    /**
+     * @return whether every statement of the cluster is part of its compilation unit
+     */
+    static boolean isAttached(DuplicateCluster cluster) {
+        if (cluster.primary() == null) {
+            return true;
+        }
+        for (StatementSequence sequence : sequences(cluster)) {
+            if (sequence == null || sequence.compilationUnit() == null || sequence.statements() == null) {
+                continue;
+            }
+            for (Statement statement : sequence.statements()) {
+                if (statement.findCompilationUnit().orElse(null) != sequence.compilationUnit()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private Plan plan(DuplicateCluster cluster) {
+        Snapshot snapshot = snapshot(cluster);
+        if (snapshot == null) {
+            return null;
+        }
+        try {
+            // Print now, adopting the plan moves the members out of the copies
+            MethodExtractor.RefactoringResult result = transformer.apply(snapshot.cluster(),
+                    snapshot.cluster().recommendation()).printed();
+            return new Plan(result, snapshot, filesOf(cluster, result));
+        } catch (Exception e) {
+            logger.debug("Could not plan refactoring: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Move the planned compilation units into the live ones.
+     *
+     * @return false if the plan does not fit the live AST, which is then unchanged
+     */
+    private synchronized boolean adopt(int index, Plan plan) {
+        Map<Path, String> modified = plan.result().modifiedFiles();
+        List<CompilationUnit[]> units = new ArrayList<>();
+        for (Path file : modified.keySet()) {
+            Path key = file.toAbsolutePath().normalize();
+            CompilationUnit live = plan.snapshot().live().get(key);
+            CompilationUnit copy = plan.snapshot().copies().get(key);
+            if (live == null || !sameOutline(live, copy)) {
+                return false;
+            }
+            units.add(new CompilationUnit[] {live, copy});
+        }
+        if (units.isEmpty()) {
+            // Skipped or aborted: the live AST stays as it is
+            return true;
+        }
+        for (CompilationUnit[] pair : units) {
+            transplant(pair[0], pair[1]);
+        }
+        changed(plan.files());
+        remapPending(index, plan.files());
+        return true;
+    }
+
+    /**
+     * Map the clusters after the index that touch the files onto the current nodes.
+     * A cluster with a sequence that can no longer be found keeps its nodes and is
+     * skipped when it comes up, see {@link #transformAttached}.
+     */
+    private void remapPending(int index, Set<Path> files) {
+        for (int j = index + 1; j < clusters.size(); j++) {
+            DuplicateCluster pending = clusters.get(j);
+            if (disjoint(filesOf(pending, null), files)) {
+                continue;
+            }
+            DuplicateCluster remapped = map(pending, UnaryOperator.identity(), true);
+            if (remapped != null) {
+                indexes.remove(pending);
+                indexes.put(remapped, j);
+                clusters.set(j, remapped);
+            } else {
+                logger.debug("Could not map pending cluster {} onto the refactored code", j);
+            }
+        }
+    }
+
+    /**
+     * Record that the live ASTs of the files changed and drop the plans that depend
+     * on any of them.
+     */
+    private void changed(Set<Path> files) {
+        files.forEach(file -> versions.merge(file, 1L, Long::sum));
+        plans.values().removeIf(plan -> !disjoint(plan.files(), files));
+    }
+
+    /**
+     * @return the cluster mapped onto clones of its compilation units, or null if a
+     *         sequence cannot be located
+     */
+    private synchronized Snapshot snapshot(DuplicateCluster cluster) {
+        Map<CompilationUnit, CompilationUnit> clones = new IdentityHashMap<>();
+        DuplicateCluster copy = copy(cluster, cu -> clones.computeIfAbsent(cu, CompilationUnit::clone));
+        if (copy == null) {
+            return null;
+        }
+        Map<Path, CompilationUnit> live = new HashMap<>();
+        Map<Path, CompilationUnit> copies = new HashMap<>();
+        Map<Path, Long> seen = new HashMap<>();
+        for (StatementSequence sequence : cluster.allSequences()) {
+            Path key = sequence.sourceFilePath().toAbsolutePath().normalize();
+            live.put(key, sequence.compilationUnit());
+            copies.put(key, clones.get(sequence.compilationUnit()));
+            seen.put(key, versions.getOrDefault(key, 0L));
+        }
+        return new Snapshot(copy, live, copies, seen);
+    }
+
+    /**
+     * @return the cluster mapped onto the target compilation units with a detached
+     *         recommendation, or null if a sequence cannot be located
+     */
+    private static DuplicateCluster copy(DuplicateCluster cluster, UnaryOperator<CompilationUnit> target) {
+        DuplicateCluster mapped = map(cluster, target, true);
+        if (mapped == null) {
+            return null;
+        }
+        return new DuplicateCluster(mapped.primary(), mapped.duplicates(), detach(cluster.recommendation()),
+                mapped.estimatedLOCReduction());
+    }
+
+    /**
+     * @return the recommendation with copies of its types, which the transformation
+     *         may insert into the snapshot
+     */
+    static RefactoringRecommendation detach(RefactoringRecommendation recommendation) {
+        if (recommendation == null) {
+            return null;
+        }
+        List<ParameterSpec> parameters = new ArrayList<>();
+        for (ParameterSpec parameter : Objects.requireNonNullElse(recommendation.getSuggestedParameters(),
+                List.<ParameterSpec>of())) {
+            parameters.add(new ParameterSpec(parameter.getName(),
+                    parameter.getType() != null ? parameter.getType().clone() : null,
+                    parameter.getExampleValues(), parameter.getVariationIndex(),
+                    parameter.getStartLine(), parameter.getStartColumn()));
+        }
+        Type returnType = recommendation.getSuggestedReturnType();
+        return new RefactoringRecommendation(recommendation.getStrategy(), recommendation.getSuggestedMethodName(),
+                parameters, returnType != null ? returnType.clone() : null, recommendation.getTargetLocation(),
+                recommendation.getConfidenceScore(), recommendation.getEstimatedLOCReduction(),
+                recommendation.getPrimaryReturnVariable(), recommendation.getValidStatementCount(),
+                recommendation.getVariationAnalysis());
+    }
+
+    /**
+     * Map the sequences of a cluster onto the nodes with the same source range and
+     * structure in the target compilation units.
+     *
+     * @param strict whether a sequence that cannot be located fails the mapping; when
+     *               false such a sequence keeps its nodes
+     * @return the mapped cluster, or null
+     */
+    private static DuplicateCluster map(DuplicateCluster cluster, UnaryOperator<CompilationUnit> target,
+                                        boolean strict) {
+        if (cluster.primary() == null) {
+            return null;
+        }
+        Map<StatementSequence, StatementSequence> mapped = new IdentityHashMap<>();
+        for (StatementSequence sequence : sequences(cluster)) {
+            StatementSequence copy = sequence == null ? null : map(sequence, target);
+            if (copy == null && strict) {
+                return null;
+            }
+            mapped.put(sequence, copy != null ? copy : sequence);
+        }
+        List<SimilarityPair> duplicates = new ArrayList<>();
+        for (SimilarityPair pair : cluster.duplicates()) {
+            duplicates.add(new SimilarityPair(mapped.get(pair.seq1()), mapped.get(pair.seq2()), pair.similarity()));
+        }
+        return new DuplicateCluster(mapped.get(cluster.primary()), duplicates, cluster.recommendation(),
+                cluster.estimatedLOCReduction());
+    }
+
+    private static StatementSequence map(StatementSequence sequence, UnaryOperator<CompilationUnit> target) {
+        if (sequence.compilationUnit() == null || sequence.sourceFilePath() == null
+                || sequence.containingCallable() == null || sequence.statements() == null) {
+            return null;
+        }
+        CompilationUnit cu = target.apply(sequence.compilationUnit());
+        CallableDeclaration<?> callable = locate(cu, sequence.containingCallable(), false);
+        if (callable == null) {
+            return null;
+        }
+        List<Statement> statements = new ArrayList<>();
+        for (Statement statement : sequence.statements()) {
+            Statement located = locate(callable, statement, true);
+            if (located == null) {
+                return null;
+            }
+            statements.add(located);
+        }
+        return new StatementSequence(statements, sequence.range(), sequence.startOffset(), callable, cu,
+                sequence.sourceFilePath());
+    }
+
+    /**
+     * Find the node of the same class and source range under the root. Clones keep
+     * source ranges; nodes created by a refactoring have none and are never found.
+     *
+     * @param structural whether the found node must also be structurally equal
+     */
+    @SuppressWarnings("unchecked")
+    private static <N extends Node> N locate(Node root, N node, boolean structural) {
+        Optional<Range> range = node.getRange();
+        if (range.isEmpty()) {
+            return null;
+        }
+        for (Node candidate : root.findAll(node.getClass(), n -> range.equals(n.getRange()))) {
+            if (structural ? candidate.equals(node) : sameName(candidate, node)) {
+                return (N) candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean sameName(Node a, Node b) {
+        return !(a instanceof CallableDeclaration<?> ca && b instanceof CallableDeclaration<?> cb)
+                || ca.getNameAsString().equals(cb.getNameAsString());
+    }
+
+    /**
+     * Members and imports are all that the plannable strategies change.
+     *
+     * @return whether the compilation units only differ in imports and type members
+     */
+    static boolean sameOutline(CompilationUnit live, CompilationUnit copy) {
+        if (!Objects.equals(live.getPackageDeclaration(), copy.getPackageDeclaration())
+                || live.getTypes().size() != copy.getTypes().size()) {
+            return false;
+        }
+        for (int i = 0; i < live.getTypes().size(); i++) {
+            if (!sameOutline(live.getType(i), copy.getType(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the types only differ in their members
+     */
+    private static boolean sameOutline(TypeDeclaration<?> live, TypeDeclaration<?> copy) {
+        if (live.getClass() != copy.getClass()) {
+            return false;
+        }
+        for (PropertyMetaModel property : live.getMetaModel().getAllPropertyMetaModels()) {
+            if (!"members".equals(property.getName())
+                    && !Objects.equals(property.getValue(live), property.getValue(copy))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void transplant(CompilationUnit live, CompilationUnit copy) {
+        live.setImports(copy.getImports());
+        for (int i = 0; i < live.getTypes().size(); i++) {
+            merge(live.getType(i), copy.getType(i));
+        }
+    }
+
+    /**
+     * Give the live type the members of the planned one. A planned member that is
+     * unchanged is replaced by its live node, and a nested type with the same outline
+     * keeps its live node and is merged in turn.
+     */
+    private static void merge(TypeDeclaration<?> live, TypeDeclaration<?> copy) {
+        List<BodyDeclaration<?>> unused = new ArrayList<>(live.getMembers());
+        NodeList<BodyDeclaration<?>> members = new NodeList<>();
+        for (BodyDeclaration<?> member : new ArrayList<>(copy.getMembers())) {
+            BodyDeclaration<?> kept = reusable(unused, member);
+            members.add(kept != null ? kept : member);
+        }
+        live.setMembers(members);
+    }
+
+    /**
+     * @return the unused live member that can stand in for the planned one, or null
+     */
+    private static BodyDeclaration<?> reusable(List<BodyDeclaration<?>> unused, BodyDeclaration<?> member) {
+        Optional<Range> range = member.getRange();
+        if (range.isEmpty()) {
+            // Created by the refactoring
+            return null;
+        }
+        for (Iterator<BodyDeclaration<?>> it = unused.iterator(); it.hasNext(); ) {
+            BodyDeclaration<?> candidate = it.next();
+            if (candidate.getClass() != member.getClass() || !range.equals(candidate.getRange())) {
+                continue;
+            }
+            if (candidate.equals(member)) {
+                it.remove();
+                return candidate;
+            }
+            if (candidate instanceof TypeDeclaration<?> type && member instanceof TypeDeclaration<?> planned
+                    && sameOutline(type, planned)) {
+                it.remove();
+                merge(type, planned);
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static List<StatementSequence> sequences(DuplicateCluster cluster) {
+        List<StatementSequence> sequences = new ArrayList<>();
+        Set<StatementSequence> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        sequences.add(cluster.primary());
+        seen.add(cluster.primary());
+        for (SimilarityPair pair : cluster.duplicates()) {
+            if (seen.add(pair.seq1())) {
+                sequences.add(pair.seq1());
+            }
+            if (seen.add(pair.seq2())) {
+                sequences.add(pair.seq2());
+            }
+        }
+        return sequences;
+    }
+
+    private static Set<Path> filesOf(DuplicateCluster cluster, MethodExtractor.RefactoringResult result) {
+        Set<Path> files = new HashSet<>();
+        if (cluster.primary() != null) {
+            for (StatementSequence sequence : cluster.allSequences()) {
+                if (sequence != null && sequence.sourceFilePath() != null) {
+                    files.add(sequence.sourceFilePath().toAbsolutePath().normalize());
+                }
+            }
+        }
+        if (result != null && result.modifiedFiles() != null) {
+            for (Path file : result.modifiedFiles().keySet()) {
+                files.add(file.toAbsolutePath().normalize());
+            }
+        }
+        return files;
+    }
+
+    private static boolean disjoint(Collection<Path> a, Collection<Path> b) {
+        return Collections.disjoint(a, b);
+    }
+}
@@ -5,10 +5,14 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import com.raditha.dedup.cli.VerifyMode;
 import com.raditha.dedup.config.DuplicationDetectorSettings;
@@ -28,9 +32,15 @@ public class RefactoringVerifier {
     private final Path projectRoot;
     private final Map<Path, String> backups = new HashMap<>();
     private final List<Path> createdFiles = new ArrayList<>();
+    /** Overlay entries replaced by the pending refactoring; null values mean "not overlaid". */
+    private final Map<Path, String> overlayBackups = new HashMap<>();
     private final VerifyMode verificationLevel;
+    private final SourceOverlay overlay;
     private String cachedClasspath;
     private String cachedSourcepath;
+    private IncrementalCompiler incrementalCompiler;
+    private TestImpactAnalyzer testImpactAnalyzer;
+    private InProcessTestRunner testRunner;
 
     /**
      * Creates a new verifier with default compile-only mode.
@@ -48,14 +58,47 @@ public class RefactoringVerifier {
      * @param level       The level of verification
      */
     public RefactoringVerifier(Path projectRoot, VerifyMode level) {
+        this(projectRoot, level, null);
+    }
+
+    /**
+     * Creates a new verifier that verifies the contents of a source overlay.
+     * Backups and rollback then only touch the overlay, never the disk.
+     *
+     * @param projectRoot The root directory of the project
+     * @param level       The level of verification, one that {@link #supportsOverlay supports overlays}
+     * @param overlay     The overlay holding refactored files, or null to work on disk
+     */
+    public RefactoringVerifier(Path projectRoot, VerifyMode level, SourceOverlay overlay) {
+        if (overlay != null && !supportsOverlay(level)) {
+            throw new IllegalArgumentException("Verification level " + level + " reads files from disk");
+        }
         this.projectRoot = projectRoot;
         this.verificationLevel = level;
+        this.overlay = overlay;
+    }
+
+    /**
+     * Maven based verification reads the files on disk, so only in-process
+     * compilation and no verification can work from an overlay.
+     *
+     * @return whether the level can verify files held in a {@link SourceOverlay}
+     */
+    public static boolean supportsOverlay(VerifyMode level) {
+        return level == VerifyMode.FAST_COMPILE || level == VerifyMode.NONE;
     }
 
     /**
      * Create a backup of a file before modification.
      */
     public void createBackup(Path file) throws IOException {
+        if (overlay != null) {
+            if (!overlay.exists(file)) {
+                invalidateCache();
+            }
+            overlayBackups.put(file, overlay.get(file));
+            return;
+        }
         if (!Files.exists(file)) {
             createdFiles.add(file);
             invalidateCache();
@@ -75,8 +118,9 @@ public class RefactoringVerifier {
             return new VerificationResult(true, List.of(), "Verification skipped");
         }
 
+        boolean inProcessTests = verificationLevel == VerifyMode.TEST && usesInProcessTests();
         CompilationResult compileResult;
-        if (verificationLevel == VerifyMode.FAST_COMPILE) {
+        if (verificationLevel == VerifyMode.FAST_COMPILE || inProcessTests) {
              compileResult = runFastCompile();
         } else {
              compileResult = runMavenCompile();
@@ -90,7 +134,7 @@ public class RefactoringVerifier {
 
         // Step 2: Run tests if level is TEST
         if (verificationLevel == VerifyMode.TEST) {
-            TestResult testResult = runMavenTest();
+            TestResult testResult = inProcessTests ? runInProcessTest() : runMavenTest();
             if (!testResult.success()) {
                 errors.add("Tests failed:");
                 errors.addAll(testResult.errors());
@@ -103,6 +147,8 @@ public class RefactoringVerifier {
 
     /**
      * Run fast in-process compilation using JavaCompiler API.
+     * The compiler is kept warm between calls and only recompiles the modified files
+     * and the files that depend on them.
      */
     CompilationResult runFastCompile() {
         JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
@@ -110,77 +156,26 @@ public class RefactoringVerifier {
              return new CompilationResult(false, List.of("No Java compiler provided. Please ensure you are running with a JDK, not a JRE."), "");
         }
 
-        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
-
-        // Files to compile: Only modified files + newly created files
+        // Files to compile: Only modified files + newly created files (and their dependents)
         List<Path> filesToCompile = new ArrayList<>(backups.keySet());
         filesToCompile.addAll(createdFiles);
+        filesToCompile.addAll(overlayBackups.keySet());
         
         if (filesToCompile.isEmpty()) {
-            closeFileManager(fileManager);
             return new CompilationResult(true, List.of(), "No files modified");
         }
 
-        // Create temporary directory for compilation output
-        Path tempOutput = createTempDirectory(fileManager);
-        if (tempOutput == null) {
-            return new CompilationResult(false, List.of("Failed to create temp directory"), "");
-        }
-
-        try {
-            Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromPaths(filesToCompile);
-            List<String> options = buildCompilerOptions(tempOutput);
-
-            JavaCompiler.CompilationTask task = compiler.getTask(
-                null, // default writer (system.err) if not null, but we capture diagnostics
-                fileManager,
-                diagnostics,
-                options,
-                null, // no classes to process annotation
-                compilationUnits
-            );
-
-            boolean success = task.call();
-            List<String> errors = extractCompilationErrors(diagnostics);
-            
-            return new CompilationResult(success, errors, success ? "Fast compilation succeeded" : "Fast compilation failed");
-            
-        } finally {
-            closeFileManager(fileManager);
-            deleteDirectoryRecursively(tempOutput);
-        }
-    }
-
-    /**
-     * Close the file manager, ignoring any exceptions.
-     */
-    private void closeFileManager(StandardJavaFileManager fileManager) {
-        try {
-            fileManager.close();
-        } catch (IOException e) {
-            // ignore
-        }
-    }
-
-    /**
-     * Create a temporary directory for compilation output.
-     * Returns null if creation fails (fileManager will be closed).
-     */
-    @SuppressWarnings("java:S5443") // Files.createTempDirectory() is secure: creates with unique names and restrictive permissions
-    private Path createTempDirectory(StandardJavaFileManager fileManager) {
-        try {
-            return Files.createTempDirectory("bertie-compile-" + System.nanoTime());
-        } catch (IOException e) {
-            closeFileManager(fileManager);
-            return null;
+        if (incrementalCompiler == null) {
+            incrementalCompiler = new IncrementalCompiler(compiler,
+                    List.of(projectRoot.resolve("src/main/java"), projectRoot.resolve("src/test/java")), overlay);
         }
+        return incrementalCompiler.compile(filesToCompile, buildCompilerOptions());
     }
 
     /**
      * Build compiler options including classpath and Java version.
      */
-    private List<String> buildCompilerOptions(Path tempOutput) {
+    private List<String> buildCompilerOptions() {
         List<String> options = new ArrayList<>();
         options.add("-classpath");
         options.add(getClasspath());
@@ -189,9 +184,6 @@ public class RefactoringVerifier {
         options.add("-sourcepath");
         options.add(getSourcepath());
 
-        options.add("-d");
-        options.add(tempOutput.toString());
-        
         // Java version
         String javaVersion = DuplicationDetectorSettings.getJavaVersion();
         if (javaVersion != null) {
@@ -243,34 +235,6 @@ public class RefactoringVerifier {
         cachedSourcepath = null;
     }
 
-    /**
-     * Extract compilation errors from diagnostics.
-     */
-    private List<String> extractCompilationErrors(DiagnosticCollector<JavaFileObject> diagnostics) {
-        List<String> errors = new ArrayList<>();
-        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
-            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
-                JavaFileObject source = diagnostic.getSource();
-                String sourcePath = (source != null) ? source.toUri().getPath() : "<unknown>";
-                errors.add(String.format("%s:%d: %s",
-                    sourcePath,
-                    diagnostic.getLineNumber(),
-                    diagnostic.getMessage(null)));
-            }
-        }
-        return errors;
-    }
-
-    void deleteDirectoryRecursively(Path path) {
-        try (java.util.stream.Stream<Path> walk = Files.walk(path)) {
-            walk.sorted(java.util.Comparator.reverseOrder())
-                .map(Path::toFile)
-                .forEach(java.io.File::delete);
-        } catch (IOException e) {
-            logger.warn("Failed to cleanup temp directory: {} {}" , path, e.getMessage());
-        }
-    }
-
     /**
      * Run maven compile.
      */
@@ -301,10 +265,15 @@ public class RefactoringVerifier {
     }
 
     /**
-     * Run maven test.
+     * Run maven test, limited to the tests affected by the modified files when they
+     * can be determined.
      */
     TestResult runMavenTest() throws IOException, InterruptedException {
-        ProcessBuilder pb = new ProcessBuilder("mvn", "test", "-q");
+        Optional<Set<String>> selection = selectTests();
+        if (selection.isPresent() && selection.get().isEmpty()) {
+            return new TestResult(true, List.of(), "No affected tests");
+        }
+        ProcessBuilder pb = new ProcessBuilder(buildTestCommand(selection));
         pb.directory(projectRoot.toFile());
         pb.redirectErrorStream(true);
 
@@ -318,6 +287,75 @@ public class RefactoringVerifier {
         return new TestResult(success, errors, output);
     }
 
+    /**
+     * Run the affected tests in-process against the output of the in-memory compiler.
+     */
+    TestResult runInProcessTest() {
+        Optional<Set<String>> selection = selectTests();
+        if (selection.isPresent() && selection.get().isEmpty()) {
+            return new TestResult(true, List.of(), "No affected tests");
+        }
+        Map<String, byte[]> compiled = incrementalCompiler != null ? incrementalCompiler.compiledClasses() : Map.of();
+        return testRunner.run(compiled, selection);
+    }
+
+    /**
+     * The in-process runner needs the JUnit Platform launcher on the project's test
+     * class path; without it tests fall back to Maven.
+     *
+     * @return whether tests run in-process
+     */
+    private boolean usesInProcessTests() {
+        if (!"launcher".equalsIgnoreCase(DuplicationDetectorSettings.getTestRunner())) {
+            return false;
+        }
+        if (testRunner == null) {
+            List<Path> dependencies = new ArrayList<>();
+            for (String jar : MavenHelper.getJarPaths()) {
+                dependencies.add(Paths.get(jar));
+            }
+            testRunner = new InProcessTestRunner(dependencies,
+                    projectRoot.resolve("target/classes"), projectRoot.resolve("target/test-classes"),
+                    Duration.ofSeconds(DuplicationDetectorSettings.getTestTimeout()),
+                    InProcessTestRunner.Isolation.fromString(DuplicationDetectorSettings.getTestIsolation()));
+            if (!testRunner.isAvailable()) {
+                logger.warn("junit-platform-launcher is not on the project's test class path, running tests with Maven");
+            }
+        }
+        return testRunner.isAvailable();
+    }
+
+    /**
+     * Select the tests that reference the modified files, directly or within
+     * {@code test_impact_depth} hops. Created files are left out: only the
+     * modified files can reference them.
+     *
+     * @return the affected test classes, or empty to run the full suite
+     */
+    Optional<Set<String>> selectTests() {
+        int depth = DuplicationDetectorSettings.getTestImpactDepth();
+        if (depth <= 0 || backups.isEmpty()) {
+            return Optional.empty();
+        }
+        if (testImpactAnalyzer == null) {
+            testImpactAnalyzer = TestImpactAnalyzer.fromRuntime(depth);
+        }
+        return testImpactAnalyzer.affectedTests(backups.keySet());
+    }
+
+    /**
+     * @param selection test classes to run, or empty for the full suite
+     */
+    static List<String> buildTestCommand(Optional<Set<String>> selection) {
+        List<String> command = new ArrayList<>(List.of("mvn", "test", "-q"));
+        selection.ifPresent(tests -> {
+            command.add("-Dtest=" + String.join(",", tests));
+            command.add("-Dsurefire.failIfNoSpecifiedTests=false");
+            command.add("-DfailIfNoTests=false");
+        });
+        return command;
+    }
+
     /**
      * Read process output.
      */
@@ -353,29 +391,73 @@ public class RefactoringVerifier {
      * Rollback all changes.
      */
     public void rollback() throws IOException {
+        for (Map.Entry<Path, String> entry : overlayBackups.entrySet()) {
+            restoreOverlay(entry.getKey(), entry.getValue());
+        }
+        overlayBackups.clear();
+
         // Restore modified files
         for (Map.Entry<Path, String> entry : backups.entrySet()) {
             Path file = entry.getKey();
             String originalContent = entry.getValue();
 
             Files.writeString(file, originalContent);
+            invalidateCompiled(file);
         }
 
         // Delete newly created files
         for (Path file : createdFiles) {
             Files.deleteIfExists(file);
+            invalidateCompiled(file);
         }
 
         backups.clear();
         createdFiles.clear();
     }
 
+    /**
+     * Restore one backed-up file to its original content, or delete it if it was
+     * created, while keeping the backup so that the file can be written again.
+     */
+    public void restore(Path file) throws IOException {
+        if (overlayBackups.containsKey(file)) {
+            restoreOverlay(file, overlayBackups.get(file));
+            return;
+        }
+        String originalContent = backups.get(file);
+        if (originalContent != null) {
+            Files.writeString(file, originalContent);
+        } else if (createdFiles.contains(file)) {
+            Files.deleteIfExists(file);
+        }
+        invalidateCompiled(file);
+    }
+
+    private void restoreOverlay(Path file, String previousContent) {
+        if (previousContent == null) {
+            overlay.discard(file);
+        } else {
+            overlay.write(file, previousContent);
+        }
+        invalidateCompiled(file);
+    }
+
+    /**
+     * Drop classes compiled from a file that was put back to an earlier state.
+     */
+    private void invalidateCompiled(Path file) {
+        if (incrementalCompiler != null) {
+            incrementalCompiler.invalidate(file);
+        }
+    }
+
     /**
      * Clear backups (call after successful verification).
      */
     public void clearBackups() {
         backups.clear();
         createdFiles.clear();
+        overlayBackups.clear();
     }
 
     /**
@@ -0,0 +1,110 @@
+package com.raditha.dedup.refactoring;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory overlay of source files for the refactoring phase.
+ *
+ * <p>Refactored content is written to the overlay instead of to disk. Reads see the
+ * overlay first and fall back to the file on disk, so verification and diffs work on
+ * the refactored code. Discarding a change drops its entry; nothing is written until
+ * {@link #flush()}.</p>
+ */
+public final class SourceOverlay {
+
+    private final Map<Path, String> contents = new LinkedHashMap<>();
+    private final Map<Path, Long> versions = new HashMap<>();
+    private long clock;
+
+    /**
+     * Read a file through the overlay.
+     *
+     * @param file the file to read
+     * @return the overlay content, or the content on disk
+     * @throws IOException if the file is not in the overlay and cannot be read
+     */
+    public String read(Path file) throws IOException {
+        String content = contents.get(key(file));
+        return content != null ? content : Files.readString(file);
+    }
+
+    /**
+     * @return whether the file is in the overlay or on disk
+     */
+    public boolean exists(Path file) {
+        return contents.containsKey(key(file)) || Files.exists(file);
+    }
+
+    /**
+     * @return the overlay content of a file, or null if the file is not in the overlay
+     */
+    public String get(Path file) {
+        return contents.get(key(file));
+    }
+
+    /**
+     * Write content to the overlay.
+     */
+    public void write(Path file, String content) {
+        Path key = key(file);
+        contents.put(key, content);
+        versions.put(key, ++clock);
+    }
+
+    /**
+     * Drop the overlay entry of a file so that reads see the disk again.
+     */
+    public void discard(Path file) {
+        Path key = key(file);
+        if (contents.remove(key) != null) {
+            versions.put(key, ++clock);
+        }
+    }
+
+    /**
+     * @return a number that changes whenever the overlay entry of the file changes
+     */
+    public long version(Path file) {
+        return versions.getOrDefault(key(file), 0L);
+    }
+
+    /**
+     * @return files held in the overlay, as absolute normalized paths
+     */
+    public Set<Path> paths() {
+        return Collections.unmodifiableSet(contents.keySet());
+    }
+
+    /**
+     * @return whether the overlay holds no changes
+     */
+    public boolean isEmpty() {
+        return contents.isEmpty();
+    }
+
+    /**
+     * Write every overlay entry to disk and clear the overlay.
+     */
+    public void flush() throws IOException {
+        for (Map.Entry<Path, String> entry : contents.entrySet()) {
+            Path file = entry.getKey();
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, entry.getValue());
+        }
+        contents.clear();
+        versions.clear();
+    }
+
+    private static Path key(Path file) {
+        return file.toAbsolutePath().normalize();
+    }
+}
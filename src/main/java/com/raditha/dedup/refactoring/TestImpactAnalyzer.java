@@ -0,0 +1,175 @@
+package com.raditha.dedup.refactoring;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Selects the test classes affected by a set of modified files.
+ *
+ * <p>A reverse reference index maps each top-level type of the parsed project to the
+ * types that reference it. Test classes reachable from the types declared in the
+ * modified files, within a configurable number of reference hops, are affected.</p>
+ *
+ * <p>References are resolved from type names, imports and the referencing type's
+ * package, without the symbol solver. Indexing is cheap enough to do once per session,
+ * and the index errs towards selecting too many tests rather than too few.</p>
+ */
+final class TestImpactAnalyzer {
+
+    private static final Set<String> TEST_ANNOTATIONS = Set.of(
+            "Test", "ParameterizedTest", "RepeatedTest", "TestFactory", "TestTemplate");
+
+    private final int depth;
+    private final Map<Path, Set<String>> typesByFile = new HashMap<>();
+    private final Map<String, Set<String>> referencedBy = new HashMap<>();
+    private final Set<String> testTypes = new HashSet<>();
+
+    /**
+     * @param units parsed compilation units by fully qualified type name
+     * @param depth maximum number of reference hops from a modified type to a test
+     */
+    TestImpactAnalyzer(Map<String, CompilationUnit> units, int depth) {
+        this.depth = depth;
+        Set<CompilationUnit> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        distinct.addAll(units.values());
+        for (CompilationUnit cu : distinct) {
+            index(cu, units.keySet());
+        }
+    }
+
+    /**
+     * Index the compilation units of the current project.
+     */
+    static TestImpactAnalyzer fromRuntime(int depth) {
+        return new TestImpactAnalyzer(AntikytheraRunTime.getResolvedCompilationUnits(), depth);
+    }
+
+    /**
+     * @param files modified files
+     * @return fully qualified names of the affected test classes, sorted; empty if the
+     *         index holds no tests or a file is not part of the index, in which case the
+     *         impact cannot be determined
+     */
+    Optional<Set<String>> affectedTests(Collection<Path> files) {
+        if (testTypes.isEmpty()) {
+            return Optional.empty();
+        }
+        Set<String> frontier = new HashSet<>();
+        for (Path file : files) {
+            Set<String> types = typesByFile.get(file.toAbsolutePath().normalize());
+            if (types == null) {
+                return Optional.empty();
+            }
+            frontier.addAll(types);
+        }
+
+        Set<String> reached = new HashSet<>(frontier);
+        for (int hop = 0; hop < depth && !frontier.isEmpty(); hop++) {
+            Set<String> next = new HashSet<>();
+            for (String type : frontier) {
+                for (String referrer : referencedBy.getOrDefault(type, Set.of())) {
+                    if (reached.add(referrer)) {
+                        next.add(referrer);
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        Set<String> tests = new TreeSet<>(reached);
+        tests.retainAll(testTypes);
+        return Optional.of(tests);
+    }
+
+    private void index(CompilationUnit cu, Set<String> known) {
+        String pkg = cu.getPackageDeclaration().map(p -> p.getNameAsString() + ".").orElse("");
+        List<String> declared = new ArrayList<>();
+        for (TypeDeclaration<?> type : cu.getTypes()) {
+            String fqn = pkg + type.getNameAsString();
+            declared.add(fqn);
+            if (isTest(cu, type)) {
+                testTypes.add(fqn);
+            }
+        }
+        cu.getStorage().ifPresent(storage -> typesByFile
+                .computeIfAbsent(storage.getPath().toAbsolutePath().normalize(), k -> new HashSet<>())
+                .addAll(declared));
+
+        Map<String, String> imported = new HashMap<>();
+        List<String> wildcards = new ArrayList<>();
+        Set<String> referenced = new HashSet<>();
+        for (ImportDeclaration imp : cu.getImports()) {
+            String name = imp.getNameAsString();
+            if (imp.isAsterisk()) {
+                wildcards.add(name + ".");
+            } else if (imp.isStatic()) {
+                // import static a.b.Type.member
+                int dot = name.lastIndexOf('.');
+                if (dot > 0) {
+                    referenced.add(name.substring(0, dot));
+                }
+            } else {
+                imported.put(name.substring(name.lastIndexOf('.') + 1), name);
+            }
+        }
+
+        Set<String> names = new HashSet<>();
+        cu.findAll(ClassOrInterfaceType.class).forEach(t -> names.add(t.getNameAsString()));
+        cu.findAll(NameExpr.class).stream()
+                .map(NameExpr::getNameAsString)
+                .filter(n -> Character.isUpperCase(n.charAt(0)))
+                .forEach(names::add);
+        for (String name : names) {
+            String fqn = imported.get(name);
+            if (fqn == null && known.contains(pkg + name)) {
+                fqn = pkg + name;
+            }
+            for (int i = 0; fqn == null && i < wildcards.size(); i++) {
+                if (known.contains(wildcards.get(i) + name)) {
+                    fqn = wildcards.get(i) + name;
+                }
+            }
+            if (fqn != null) {
+                referenced.add(fqn);
+            }
+        }
+
+        referenced.removeAll(declared);
+        for (String target : referenced) {
+            referencedBy.computeIfAbsent(target, k -> new HashSet<>()).addAll(declared);
+        }
+    }
+
+    private static boolean isTest(CompilationUnit cu, TypeDeclaration<?> type) {
+        for (MethodDeclaration method : type.findAll(MethodDeclaration.class)) {
+            if (method.getAnnotations().stream().anyMatch(a -> TEST_ANNOTATIONS.contains(a.getNameAsString()))) {
+                return true;
+            }
+        }
+        // Surefire's default includes, for tests whose test methods are inherited
+        String name = type.getNameAsString();
+        boolean testName = name.startsWith("Test") || name.endsWith("Test") || name.endsWith("Tests")
+                || name.endsWith("TestCase");
+        return testName && cu.getStorage()
+                .map(s -> s.getPath().toString().replace('\\', '/').contains("/src/test/"))
+                .orElse(false);
+    }
+}
@@ -55,7 +55,7 @@ public class ASTSimilarityCalculator {
                 structuralScore,
                 nodes1.size(),
                 nodes2.size(),
-                com.raditha.dedup.model.VariationAnalysis.builder().build(), // variations - initialized empty
+                com.raditha.dedup.model.VariationAnalysis.empty(), // variations - initialized empty (shared instance)
                 null, // typeCompatibility - will be added later
                 overallScore >= 0.70 // canRefactor threshold
         );
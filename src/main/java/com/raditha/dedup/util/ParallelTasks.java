@@ -0,0 +1,97 @@
+package com.raditha.dedup.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Small helper for running independent, CPU-bound tasks on a bounded fork/join pool.
+ *
+ * <p>Results are always returned in input order, so callers get the same output as a
+ * sequential loop regardless of how the work was scheduled. A parallelism of 1 (or a
+ * single task) runs inline on the calling thread without creating a pool.</p>
+ */
+public final class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Resolve a configured thread count, where values below 1 mean "use all processors".
+     *
+     * @param configured the configured thread count
+     * @return the effective parallelism (always at least 1)
+     */
+    public static int effectiveParallelism(int configured) {
+        return configured >= 1 ? configured : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Run a task for every index in {@code [0, count)}.
+     * Tasks must only write to state owned by their own index (e.g. a slot in a
+     * pre-sized array); such writes are visible to the caller once this returns.
+     *
+     * @param count       number of tasks
+     * @param parallelism maximum number of worker threads
+     * @param task        task to run for each index
+     */
+    public static void forEachIndexed(int count, int parallelism, IntConsumer task) {
+        if (parallelism <= 1 || count < 2) {
+            for (int i = 0; i < count; i++) {
+                task.accept(i);
+            }
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, count));
+        try {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(task)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parallel tasks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Apply a task to every index in {@code [0, count)} and collect the results in index order.
+     *
+     * @param count       number of tasks
+     * @param parallelism maximum number of worker threads
+     * @param task        task to run for each index; may return null
+     * @return results in index order (null results are preserved)
+     */
+    public static <R> List<R> mapIndexed(int count, int parallelism, IntFunction<? extends R> task) {
+        Object[] results = new Object[count];
+        forEachIndexed(count, parallelism, i -> results[i] = task.apply(i));
+        @SuppressWarnings("unchecked")
+        List<R> list = (List<R>) new ArrayList<>(Arrays.asList(results));
+        return list;
+    }
+
+    /**
+     * Apply a task to every item and collect the results in input order.
+     *
+     * @param items       inputs
+     * @param parallelism maximum number of worker threads
+     * @param task        task to run for each item; may return null
+     * @return results in input order
+     */
+    public static <T, R> List<R> map(List<T> items, int parallelism,
+            java.util.function.Function<? super T, ? extends R> task) {
+        return mapIndexed(items.size(), parallelism, i -> task.apply(items.get(i)));
+    }
+}
@@ -0,0 +1,31 @@
+package com.raditha.dedup.util;
+
+import java.util.function.Supplier;
+
+/**
+ * Serializes symbol resolution so that analysis code can run on several threads.
+ *
+ * <p>JavaParser's symbol solver and antikythera's type lookups keep caches that are
+ * not safe for concurrent use. Every call into them from code that may run in
+ * parallel goes through {@link #guarded(Supplier)}; the rest of the analysis still
+ * runs concurrently. The lock is reentrant, so guarded calls may nest.</p>
+ */
+public final class SymbolResolution {
+
+    private static final Object LOCK = new Object();
+
+    private SymbolResolution() {
+    }
+
+    /**
+     * Run a resolution step while holding the resolution lock.
+     *
+     * @param action the resolution step; exceptions propagate unchanged
+     * @return the result of {@code action}
+     */
+    public static <T> T guarded(Supplier<T> action) {
+        synchronized (LOCK) {
+            return action.get();
+        }
+    }
+}
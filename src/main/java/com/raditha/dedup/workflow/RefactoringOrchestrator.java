@@ -22,9 +22,13 @@ import java.util.Optional;
 /**
  * Orchestrator for handling refactoring at the class level.
  * Groups clusters by class and delegates to the appropriate workflow.
+ * When the engine applies clusters in a single pass, the clusters of all classes that
+ * use the standard workflow are handed to the engine together, so that the file is
+ * written once.
  */
 public class RefactoringOrchestrator {
 
+    private final RefactoringEngine engine;
     private final WorkflowFactory workflowFactory;
     private final com.raditha.dedup.clustering.RefactoringRecommendationGenerator recommendationGenerator;
 
@@ -37,6 +41,7 @@ public class RefactoringOrchestrator {
      * @param engine   the refactoring engine for workflows
      */
     public RefactoringOrchestrator(DuplicationAnalyzer analyzer, RefactoringEngine engine) {
+        this.engine = engine;
         this.workflowFactory = new WorkflowFactory(analyzer, engine);
         this.recommendationGenerator = new com.raditha.dedup.clustering.RefactoringRecommendationGenerator();
     }
@@ -68,15 +73,23 @@ public class RefactoringOrchestrator {
                         e.getKey().getNameAsString())
                 .thenComparingInt(e -> e.getKey().getRange().map(r -> r.begin.line).orElse(0)));
 
+        List<DuplicateCluster> singlePassClusters = new ArrayList<>();
         for (Map.Entry<ClassOrInterfaceDeclaration, List<DuplicateCluster>> entry : orderedEntries) {
             ClassOrInterfaceDeclaration clazz = entry.getKey();
             List<DuplicateCluster> clusters = entry.getValue();
             
             RefactoringWorkflow workflow = workflowFactory.getWorkflow(clazz);
+            if (engine.isSinglePass() && workflow instanceof StandardRefactoringWorkflow) {
+                singlePassClusters.addAll(clusters);
+                continue;
+            }
             RefactoringSession session = workflow.execute(clazz, clusters, cu);
             
             mergeSessions(totalSession, session);
         }
+        if (!singlePassClusters.isEmpty()) {
+            mergeSessions(totalSession, engine.processClusters(singlePassClusters));
+        }
 
         // New Step 3: Cleanup unreferenced private methods (zombies)
         // CRITICAL FIX: Re-parse the CU from disk to ensure we have the fresh state (after rollback if any)
@@ -215,7 +228,9 @@ public class RefactoringOrchestrator {
                             locReduction
                     );
                     
-                    // Regenerate the recommendation for this file-specific cluster
+                    // Regenerate the recommendation for this file-specific cluster. Earlier
+                    // refactorings may have edited the ASTs, so nothing cached is reused.
+                    recommendationGenerator.clearCaches();
                     com.raditha.dedup.model.RefactoringRecommendation newRecommendation = 
                             recommendationGenerator.generateRecommendation(tempCluster);
                     
@@ -0,0 +1,142 @@
+package com.raditha.dedup.analysis;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.Statement;
+import com.raditha.dedup.config.SimilarityWeights;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.model.SimilarityPair;
+import com.raditha.dedup.model.SimilarityResult;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.normalization.ASTNormalizer;
+import com.raditha.dedup.normalization.NormalizedNode;
+import com.raditha.dedup.similarity.ASTSimilarityCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for BoundaryRefiner.
+ */
+class BoundaryRefinerTest {
+
+    private static final String CODE = """
+            class Test {
+                void first() {
+                    User user = new User();
+                    user.setName("John");
+                    user.setAge(30);
+                    log(user);
+                }
+
+                void second() {
+                    User user = new User();
+                    user.setName("Jane");
+                    user.setAge(31);
+                    log(user);
+                }
+
+                void third() {
+                    User user = new User();
+                    user.setName("Jim");
+                    user.setAge(32);
+                    log(user);
+                }
+            }
+            """;
+
+    @Test
+    void testTrailingUsageIsTrimmedAndRescored() {
+        List<SimilarityPair> pairs = pairs(StaticJavaParser.parse(CODE));
+
+        List<SimilarityPair> refined = new BoundaryRefiner(new DataFlowAnalyzer(), 3, 0.7).refineBoundaries(pairs);
+
+        assertEquals(pairs.size(), refined.size());
+        for (SimilarityPair pair : refined) {
+            assertEquals(3, pair.seq1().statements().size());
+            assertEquals(3, pair.seq2().statements().size());
+            assertEquals(expectedScore(pair), pair.similarity().overallScore(), 1e-9);
+        }
+    }
+
+    @Test
+    void testParallelRefinementMatchesSequential() {
+        CompilationUnit cu = StaticJavaParser.parse(CODE);
+        List<SimilarityPair> pairs = pairs(cu);
+
+        List<SimilarityPair> sequential = new BoundaryRefiner(new DataFlowAnalyzer(), 3, 0.7, 1)
+                .refineBoundaries(pairs);
+        List<SimilarityPair> parallel = new BoundaryRefiner(new DataFlowAnalyzer(), 3, 0.7, 4)
+                .refineBoundaries(pairs);
+
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).seq1(), parallel.get(i).seq1());
+            assertEquals(sequential.get(i).seq2(), parallel.get(i).seq2());
+            assertEquals(sequential.get(i).similarity().overallScore(),
+                    parallel.get(i).similarity().overallScore(), 1e-9);
+        }
+    }
+
+    @Test
+    void testRefinedWindowsAreSlicedFromVerificationNormalization() {
+        List<SimilarityPair> pairs = pairs(StaticJavaParser.parse(CODE));
+        ASTNormalizer normalizer = new ASTNormalizer();
+        Map<StatementSequence, List<NormalizedNode>> verified = new IdentityHashMap<>();
+        for (SimilarityPair pair : pairs) {
+            verified.computeIfAbsent(pair.seq1(), seq -> normalizer.normalize(seq.statements()));
+            verified.computeIfAbsent(pair.seq2(), seq -> normalizer.normalize(seq.statements()));
+        }
+        Set<StatementSequence> requested = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        List<SimilarityPair> refined = new BoundaryRefiner(new DataFlowAnalyzer(), 3, 0.7)
+                .refineBoundaries(pairs, seq -> {
+                    requested.add(seq);
+                    return verified.get(seq);
+                });
+
+        assertEquals(verified.keySet(), requested, "Each parent window is looked up once");
+        for (SimilarityPair pair : refined) {
+            assertEquals(3, pair.seq1().statements().size());
+            assertEquals(expectedScore(pair), pair.similarity().overallScore(), 1e-9);
+        }
+    }
+
+    private static double expectedScore(SimilarityPair pair) {
+        ASTNormalizer normalizer = new ASTNormalizer();
+        return new ASTSimilarityCalculator().calculate(
+                normalizer.normalize(pair.seq1().statements()),
+                normalizer.normalize(pair.seq2().statements()),
+                SimilarityWeights.balanced()).overallScore();
+    }
+
+    private static List<SimilarityPair> pairs(CompilationUnit cu) {
+        List<StatementSequence> bodies = new ArrayList<>();
+        for (MethodDeclaration method : cu.findAll(MethodDeclaration.class)) {
+            List<Statement> stmts = method.getBody().orElseThrow().getStatements();
+            bodies.add(StatementExtractor.createSequence(stmts, method, cu, Paths.get("Test.java")));
+        }
+        ASTNormalizer normalizer = new ASTNormalizer();
+        ASTSimilarityCalculator calculator = new ASTSimilarityCalculator();
+        List<SimilarityPair> pairs = new ArrayList<>();
+        for (int i = 0; i < bodies.size(); i++) {
+            for (int j = i + 1; j < bodies.size(); j++) {
+                SimilarityResult result = calculator.calculate(
+                        normalizer.normalize(bodies.get(i).statements()),
+                        normalizer.normalize(bodies.get(j).statements()),
+                        SimilarityWeights.balanced());
+                pairs.add(new SimilarityPair(bodies.get(i), bodies.get(j), result));
+            }
+        }
+        return pairs;
+    }
+}
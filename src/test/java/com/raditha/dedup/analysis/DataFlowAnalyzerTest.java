@@ -371,4 +371,38 @@ class DataFlowAnalyzerTest {
                 assertTrue(liveOuts.isEmpty(),
                                 "Literal-initialized variables should NOT be live-outs, found: " + liveOuts);
         }
+
+        @Test
+        void testClearCachesSeesNestedEditBetweenRuns() {
+                String code = """
+                                class Test { void m() {
+                                    int a = 1;
+                                    int b = 2;
+                                    if (a > 0) {
+                                        System.out.println(a);
+                                    }
+                                } }
+                                """;
+                CompilationUnit cu = new com.github.javaparser.JavaParser().parse(code).getResult().orElseThrow();
+                MethodDeclaration method = cu.findFirst(MethodDeclaration.class).orElseThrow();
+                List<Statement> seqStmts = method.getBody().orElseThrow().getStatements().subList(0, 2);
+                StatementSequence sequence = new StatementSequence(
+                                seqStmts,
+                                new com.raditha.dedup.model.Range(2, 3, 1, 100),
+                                0,
+                                method,
+                                cu,
+                                sourceFilePath);
+                DataFlowAnalyzer local = new DataFlowAnalyzer();
+                assertEquals(Set.of("a", "System"), local.findVariablesUsedAfter(sequence));
+
+                // An edit inside a statement leaves the top-level statements untouched
+                cu.findAll(com.github.javaparser.ast.expr.NameExpr.class, n -> n.getNameAsString().equals("a"))
+                                .forEach(n -> n.setName("b"));
+                assertEquals(Set.of("a", "System"), local.findVariablesUsedAfter(sequence),
+                                "Stale until cleared");
+                local.clearCaches();
+
+                assertEquals(Set.of("b", "System"), local.findVariablesUsedAfter(sequence));
+        }
 }
@@ -0,0 +1,120 @@
+package com.raditha.dedup.analysis;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.model.StatementSequence;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for DefUseIndex and the DataFlowAnalyzer queries answered from it.
+ */
+class DefUseIndexTest {
+
+    private static final String CODE = """
+            class Test {
+                void run(java.util.List<String> items) {
+                    int count = 0;
+                    String label = "x";
+                    for (String item : items) {
+                        count = count + item.length();
+                    }
+                    try {
+                        label = label.trim();
+                    } catch (RuntimeException e) {
+                        log(e);
+                    }
+                    items.forEach(item -> log(item));
+                    log(count);
+                    log(label);
+                }
+            }
+            """;
+
+    @Test
+    void testDefinitionsAndUsesWithinRanges() {
+        BlockStmt body = body();
+        DefUseIndex index = DefUseIndex.build(body);
+        List<Statement> stmts = body.getStatements();
+
+        assertEquals(Set.of("count", "label"), index.definedWithin(begin(stmts.get(0)), end(stmts.get(1))));
+        assertEquals(Set.of("count", "item", "items"), index.usedWithin(begin(stmts.get(2)), end(stmts.get(2))));
+        assertEquals(Set.of("label", "e"), index.definedWithin(begin(stmts.get(3)), end(stmts.get(3))));
+    }
+
+    @Test
+    void testUsesBoundToLaterParametersAreNotUsedAfter() {
+        BlockStmt body = body();
+        DefUseIndex index = DefUseIndex.build(body);
+        List<Statement> stmts = body.getStatements();
+
+        // The lambda's "item" is a different variable from the loop's "item"
+        Set<String> afterLoop = index.usedAfter(end(stmts.get(2)));
+        assertFalse(afterLoop.contains("item"));
+        assertFalse(afterLoop.contains("e"));
+        assertTrue(afterLoop.containsAll(Set.of("items", "count", "label")));
+
+        // Inside the lambda its own parameter is still live
+        Statement lambdaBody = stmts.get(4).findFirst(LambdaExpr.class).orElseThrow().getBody();
+        assertTrue(index.usedAfter(begin(lambdaBody)).contains("item"));
+    }
+
+    @Test
+    void testAnalyzerMatchesTraversal() {
+        CompilationUnit cu = StaticJavaParser.parse(CODE);
+        DataFlowAnalyzer analyzer = new DataFlowAnalyzer();
+        List<StatementSequence> sequences = new StatementExtractor(1, 0, true)
+                .extractSequences(cu, Paths.get("Test.java"));
+        assertFalse(sequences.isEmpty());
+
+        for (StatementSequence sequence : sequences) {
+            Set<String> used = new HashSet<>();
+            sequence.statements().forEach(s -> s.findAll(NameExpr.class).forEach(n -> used.add(n.getNameAsString())));
+            assertEquals(used, analyzer.findVariablesUsedInSequence(sequence));
+            assertEquals(analyzer.analyzeSequenceVariables(sequence).definedVars(),
+                    analyzer.findDefinedVariables(sequence));
+            for (Statement stmt : sequence.statements()) {
+                Set<String> usedInStmt = new HashSet<>();
+                stmt.findAll(NameExpr.class).forEach(n -> usedInStmt.add(n.getNameAsString()));
+                assertEquals(usedInStmt, analyzer.findVariablesUsedIn(sequence, stmt));
+            }
+        }
+    }
+
+    @Test
+    void testIndexRebuiltWhenBodyChanges() {
+        CompilationUnit cu = StaticJavaParser.parse(CODE);
+        BlockStmt body = cu.findFirst(MethodDeclaration.class).orElseThrow().getBody().orElseThrow();
+        DefUseIndex index = DefUseIndex.build(body);
+        assertTrue(index.isCurrent(body));
+        assertTrue(index.covers(body.getStatement(0)));
+
+        body.getStatements().remove(body.getStatements().size() - 1);
+        assertFalse(index.isCurrent(body));
+    }
+
+    private static BlockStmt body() {
+        return StaticJavaParser.parse(CODE).findFirst(MethodDeclaration.class).orElseThrow()
+                .getBody().orElseThrow();
+    }
+
+    private static long begin(Statement stmt) {
+        return DefUseIndex.key(stmt.getBegin().orElseThrow());
+    }
+
+    private static long end(Statement stmt) {
+        return DefUseIndex.key(stmt.getEnd().orElseThrow());
+    }
+}
@@ -0,0 +1,117 @@
+package com.raditha.dedup.analysis;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.Statement;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.model.StatementSequence;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SequenceFacts and the analyzers that read it.
+ */
+class SequenceFactsTest {
+
+    private static final String CODE = """
+            class Test {
+                int run(java.util.List<String> items, int total) {
+                    int count = 0;
+                    String prefix = compute();
+                    total++;
+                    items.forEach(item -> {
+                        String local = prefix + item;
+                        log(local, count);
+                    });
+                    try {
+                        count = parse(prefix);
+                    } catch (RuntimeException e) {
+                        log(e);
+                    }
+                    if (count > 1) {
+                        return count;
+                    }
+                    return total + count;
+                }
+            }
+            """;
+
+    @Test
+    void testSequenceAnalysisFromFacts() {
+        StatementSequence sequence = wholeBody();
+
+        DataFlowAnalyzer.SequenceAnalysis analysis = new DataFlowAnalyzer().analyzeSequenceVariables(sequence);
+
+        assertEquals(Set.of("count", "prefix", "item", "local", "e"), analysis.definedVars());
+        assertEquals(Set.of("count"), analysis.literalVars());
+        assertEquals(Set.of("item", "local", "e"), analysis.internalVars());
+        assertEquals(Set.of("count", "total"), analysis.returnedVars());
+        assertEquals("RuntimeException", analysis.typeMap().get("e").asString());
+        assertFalse(analysis.typeMap().containsKey("item"));
+        assertTrue(analysis.usedVars().containsAll(Set.of("items", "prefix", "local", "count", "total", "e")));
+    }
+
+    @Test
+    void testEscapeAndCaptureFromFacts() {
+        StatementSequence sequence = wholeBody();
+
+        assertEquals(Set.of("total"), new EscapeAnalyzer().analyze(sequence));
+        assertEquals(Set.of("prefix", "count"), LambdaClosureAnalyzer.findAllCapturedVariables(sequence));
+    }
+
+    @Test
+    void testFirstNestedReturnIndex() {
+        SequenceFacts facts = SequenceFacts.of(wholeBody());
+
+        assertEquals(5, facts.firstNestedReturnIndex());
+    }
+
+    @Test
+    void testCacheReusesStatementFactsForPrefixes() {
+        CompilationUnit cu = StaticJavaParser.parse(CODE);
+        List<Statement> stmts = body(cu);
+        SequenceFacts.Cache cache = new SequenceFacts.Cache();
+
+        SequenceFacts whole = cache.of(sequence(cu, stmts));
+        SequenceFacts prefix = cache.of(sequence(cu, stmts.subList(0, 3)));
+
+        assertEquals(Set.of("total"), prefix.unaryTargets());
+        assertEquals(-1, prefix.firstNestedReturnIndex());
+        assertEquals(whole.declarations().subList(0, 2), prefix.declarations());
+    }
+
+    @Test
+    void testClearedCacheSeesEditBetweenRuns() {
+        CompilationUnit cu = StaticJavaParser.parse(CODE);
+        List<Statement> stmts = body(cu);
+        SequenceFacts.Cache cache = new SequenceFacts.Cache();
+        assertEquals(Set.of("total"), cache.of(sequence(cu, stmts.subList(0, 3))).unaryTargets());
+
+        // Statements are cached by identity, so an edit inside one goes unnoticed
+        stmts.get(2).findFirst(com.github.javaparser.ast.expr.NameExpr.class).orElseThrow().setName("count");
+        assertEquals(Set.of("total"), cache.of(sequence(cu, stmts.subList(0, 3))).unaryTargets(),
+                "Stale until cleared");
+        cache.clear();
+
+        assertEquals(Set.of("count"), cache.of(sequence(cu, stmts.subList(0, 3))).unaryTargets());
+    }
+
+    private static StatementSequence wholeBody() {
+        CompilationUnit cu = StaticJavaParser.parse(CODE);
+        return sequence(cu, body(cu));
+    }
+
+    private static List<Statement> body(CompilationUnit cu) {
+        return cu.findFirst(MethodDeclaration.class).orElseThrow().getBody().orElseThrow().getStatements();
+    }
+
+    private static StatementSequence sequence(CompilationUnit cu, List<Statement> stmts) {
+        return StatementExtractor.createSequence(stmts, cu.findFirst(MethodDeclaration.class).orElseThrow(), cu,
+                java.nio.file.Paths.get("Test.java"));
+    }
+}
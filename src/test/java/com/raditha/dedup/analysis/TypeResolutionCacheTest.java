@@ -0,0 +1,130 @@
+package com.raditha.dedup.analysis;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import com.raditha.dedup.util.SymbolResolution;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for TypeResolutionCache.
+ */
+class TypeResolutionCacheTest {
+
+    private static final String CODE = """
+            class Test {
+                private String name, alias;
+                private int count;
+                void a() {
+                    System.out.println(name + "x");
+                }
+                void b() {
+                    System.out.println(name + "x");
+                }
+            }
+            """;
+
+    @Test
+    void testResolvedTypesAreCachedPerNode() {
+        ParserConfiguration configuration = new ParserConfiguration()
+                .setSymbolResolver(new JavaSymbolSolver(new ReflectionTypeSolver()));
+        CompilationUnit cu = new JavaParser(configuration).parse(CODE).getResult().orElseThrow();
+        List<StringLiteralExpr> literals = cu.findAll(StringLiteralExpr.class);
+        TypeResolutionCache cache = new TypeResolutionCache();
+
+        ResolvedType first = cache.resolve(literals.get(0));
+        ResolvedType again = cache.resolve(literals.get(0));
+        cache.resolve(literals.get(1));
+
+        assertNotNull(first);
+        assertEquals("java.lang.String", first.describe());
+        assertSame(first, again);
+        assertEquals(1, cache.stats().hits());
+        // Structurally equal literals in another method are separate entries
+        assertEquals(2, cache.stats().misses());
+    }
+
+    @Test
+    void testFailedResolutionCachedAsNegativeEntry() {
+        CompilationUnit cu = new JavaParser().parse(CODE).getResult().orElseThrow();
+        NameExpr name = cu.findFirst(NameExpr.class, n -> n.getNameAsString().equals("name")).orElseThrow();
+        TypeResolutionCache cache = new TypeResolutionCache();
+
+        assertNull(cache.resolve(name));
+        assertNull(cache.resolve(name));
+
+        TypeResolutionCache.Stats stats = cache.stats();
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.failures());
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.negativeHits());
+        assertEquals(0.5, stats.hitRate(), 0.0001);
+    }
+
+    @Test
+    void testWaitingForTheLockDoesNotUseTheBudget() throws Exception {
+        CompilationUnit cu = new JavaParser().parse(CODE).getResult().orElseThrow();
+        List<NameExpr> names = cu.findAll(NameExpr.class, n -> n.getNameAsString().equals("name"));
+        TypeResolutionCache cache = new TypeResolutionCache(100);
+
+        CountDownLatch locked = new CountDownLatch(1);
+        Thread holder = new Thread(() -> SymbolResolution.guarded(() -> {
+            locked.countDown();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        locked.await();
+        cache.resolve(names.get(0));
+        holder.join();
+        cache.resolve(names.get(1));
+
+        TypeResolutionCache.Stats stats = cache.stats();
+        assertEquals(2, stats.misses());
+        assertEquals(0, stats.skipped());
+        assertTrue(stats.resolveMillis() < 100);
+    }
+
+    @Test
+    void testClearForgetsEntriesFromBeforeAnEdit() {
+        CompilationUnit cu = new JavaParser().parse(CODE).getResult().orElseThrow();
+        NameExpr name = cu.findFirst(NameExpr.class, n -> n.getNameAsString().equals("name")).orElseThrow();
+        TypeResolutionCache cache = new TypeResolutionCache();
+        assertEquals("int", cache.fieldType(name, "count"));
+        assertNull(cache.resolve(name));
+
+        cu.getType(0).getFieldByName("count").orElseThrow().getVariable(0).setType("long");
+        assertEquals("int", cache.fieldType(name, "count"), "Stale until cleared");
+        cache.clear();
+
+        assertEquals("long", cache.fieldType(name, "count"));
+        assertNull(cache.resolve(name));
+        assertEquals(2, cache.stats().misses(), "Resolved again after clear");
+    }
+
+    @Test
+    void testFieldTypesFromClassTable() {
+        CompilationUnit cu = new JavaParser().parse(CODE).getResult().orElseThrow();
+        NameExpr name = cu.findFirst(NameExpr.class, n -> n.getNameAsString().equals("name")).orElseThrow();
+        TypeResolutionCache cache = new TypeResolutionCache();
+
+        assertEquals("String", cache.fieldType(name, "name"));
+        assertEquals("String", cache.fieldType(name, "alias"));
+        assertEquals("int", cache.fieldType(name, "count"));
+        assertNull(cache.fieldType(name, "missing"));
+    }
+}
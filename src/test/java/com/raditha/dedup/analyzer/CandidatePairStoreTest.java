@@ -0,0 +1,145 @@
+package com.raditha.dedup.analyzer;
+
+import com.raditha.dedup.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for CandidatePairStore.
+ */
+class CandidatePairStoreTest {
+
+    private final List<StatementSequence> sequences = List.of(
+            createSequence(10, 5),
+            createSequence(20, 5),
+            createSequence(30, 5),
+            createSequence(40, 4));
+
+    @Test
+    void testPackPairRoundTrip() {
+        long packed = CandidatePairStore.packPair(7, Integer.MAX_VALUE);
+        assertEquals(7, CandidatePairStore.firstId(packed));
+        assertEquals(Integer.MAX_VALUE, CandidatePairStore.secondId(packed));
+    }
+
+    @Test
+    void testSurvivorsFilteredByThreshold() {
+        CandidatePairStore store = new CandidatePairStore(sequences, 0.75, 2);
+        store.add(0, 1, result(0.90));
+        store.add(0, 2, result(0.50));
+        store.add(1, 2, result(0.75));
+
+        List<SimilarityPair> survivors = store.survivors();
+
+        assertEquals(3, store.size(), "All scored candidates are counted");
+        assertEquals(2, survivors.size());
+        assertEquals(0.90, survivors.get(0).getScore());
+        assertEquals(0.75, survivors.get(1).getScore());
+    }
+
+    @Test
+    void testSurvivorsSortedByScoreThenPosition() {
+        CandidatePairStore store = new CandidatePairStore(sequences, 0.5, 16);
+        store.add(1, 2, result(0.80));
+        store.add(0, 2, result(0.80));
+        store.add(0, 1, result(0.95));
+        store.add(0, 1, result(0.80));
+
+        List<SimilarityPair> survivors = store.survivors();
+
+        assertEquals(4, survivors.size());
+        assertEquals(0.95, survivors.get(0).getScore());
+        assertSame(sequences.get(0), survivors.get(1).seq1());
+        assertSame(sequences.get(1), survivors.get(1).seq2());
+        assertSame(sequences.get(0), survivors.get(2).seq1());
+        assertSame(sequences.get(2), survivors.get(2).seq2());
+        assertSame(sequences.get(1), survivors.get(3).seq1());
+    }
+
+    @Test
+    void testManySurvivorsSortedLikeReportOrder() {
+        CandidatePairStore store = new CandidatePairStore(sequences, 0.5, 16);
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < 257; i++) {
+            int first = random.nextInt(3);
+            int second = first + 1 + random.nextInt(3 - first);
+            store.add(first, second, result(0.5 + random.nextInt(5) / 10.0));
+        }
+
+        List<SimilarityPair> survivors = store.survivors();
+        List<SimilarityPair> expected = new java.util.ArrayList<>(survivors);
+        expected.sort(java.util.Comparator.comparingDouble(SimilarityPair::getScore).reversed()
+                .thenComparing(SimilarityPair::seq1, StatementSequenceComparator.INSTANCE)
+                .thenComparing(SimilarityPair::seq2, StatementSequenceComparator.INSTANCE));
+
+        assertEquals(257, survivors.size());
+        for (int i = 0; i < survivors.size(); i++) {
+            assertSame(expected.get(i), survivors.get(i));
+        }
+    }
+
+    @Test
+    void testRetainsOriginalResultForSurvivors() {
+        SimilarityResult kept = result(0.90);
+        CandidatePairStore store = new CandidatePairStore(sequences, 0.75, 16);
+        store.add(0, 1, kept);
+
+        assertSame(kept, store.survivors().get(0).similarity());
+    }
+
+    @Test
+    void testPreScoredCandidatesGrowTheStore() {
+        SimilarityResult kept = result(0.90);
+        CandidatePairStore store = new CandidatePairStore(sequences, 0.75, 1);
+        for (int i = 0; i < 20; i++) {
+            store.add(CandidatePairStore.packPair(1, 2), 0.40, null);
+        }
+        store.add(CandidatePairStore.packPair(0, 1), 0.90, kept);
+
+        List<SimilarityPair> survivors = store.survivors();
+
+        assertEquals(21, store.size());
+        assertEquals(1, survivors.size());
+        assertSame(kept, survivors.get(0).similarity());
+    }
+
+    @Test
+    void testMisalignedPairScoresZero() {
+        CandidatePairStore strict = new CandidatePairStore(sequences, 0.75, 16);
+        strict.add(0, 3, null);
+        assertEquals(1, strict.size());
+        assertTrue(strict.survivors().isEmpty());
+
+        CandidatePairStore permissive = new CandidatePairStore(sequences, 0.0, 16);
+        permissive.add(0, 3, null);
+        SimilarityPair pair = permissive.survivors().get(0);
+        assertEquals(0.0, pair.getScore());
+        assertEquals(5, pair.similarity().tokens1Count());
+        assertEquals(4, pair.similarity().tokens2Count());
+        assertFalse(pair.similarity().canRefactor());
+    }
+
+    private SimilarityResult result(double score) {
+        return new SimilarityResult(score, score, score, score, 0, 0,
+                VariationAnalysis.empty(), null, score >= 0.70);
+    }
+
+    private StatementSequence createSequence(int startLine, int size) {
+        List<com.github.javaparser.ast.stmt.Statement> statements = new java.util.ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            statements.add(new com.github.javaparser.ast.stmt.EmptyStmt());
+        }
+
+        return new StatementSequence(
+                statements,
+                new Range(startLine, startLine + size - 1, 1, 10),
+                0,
+                null,
+                null,
+                Paths.get("Test.java"));
+    }
+}
@@ -126,4 +126,32 @@ class DuplicationAnalyzerTest {
         // due to pre-filtering
         assertTrue(report.candidatesAnalyzed() < report.totalSequences() * report.totalSequences());
     }
+
+    @Test
+    void testParallelVerificationMatchesSerial() {
+        CompilationUnit cu = AntikytheraRunTime.getCompilationUnit("com.raditha.bertie.testbed.report.ReportGenerator");
+        assertNotNull(cu, "ReportGenerator class not found in test-bed");
+        Path path = Paths.get("ReportGenerator.java");
+        cu.setStorage(path);
+
+        try {
+            Settings.setProperty("verification_threads", 1);
+            DuplicationReport serial = new DuplicationAnalyzer().analyzeFile(cu, path);
+
+            Settings.setProperty("verification_threads", 4);
+            DuplicationReport parallel = new DuplicationAnalyzer().analyzeFile(cu, path);
+
+            assertEquals(serial.candidatesAnalyzed(), parallel.candidatesAnalyzed());
+            assertEquals(serial.getDuplicateCount(), parallel.getDuplicateCount());
+            for (int i = 0; i < serial.getDuplicateCount(); i++) {
+                var expected = serial.duplicates().get(i);
+                var actual = parallel.duplicates().get(i);
+                assertEquals(expected.seq1(), actual.seq1());
+                assertEquals(expected.seq2(), actual.seq2());
+                assertEquals(expected.similarity().overallScore(), actual.similarity().overallScore(), 1e-9);
+            }
+        } finally {
+            Settings.setProperty("verification_threads", 0);
+        }
+    }
 }
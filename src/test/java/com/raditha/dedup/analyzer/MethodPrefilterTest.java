@@ -0,0 +1,137 @@
+package com.raditha.dedup.analyzer;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.raditha.dedup.config.SimilarityWeights;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.model.SimilarityPair;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.normalization.ASTNormalizer;
+import com.raditha.dedup.similarity.ASTSimilarityCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for MethodPrefilter.
+ */
+class MethodPrefilterTest {
+
+    private static final String CODE = """
+            class Test {
+                void original() {
+                    int total = 0;
+                    total += compute(1);
+                    total += compute(2);
+                    System.out.println(total);
+                    save(total);
+                }
+
+                void pasted() {
+                    int total = 0;
+                    total += compute(1);
+                    total += compute(2);
+                    System.out.println(total);
+                    save(total);
+                }
+
+                void similarOne(String name) {
+                    String trimmed = name.trim();
+                    String upper = trimmed.toUpperCase();
+                    validate(upper);
+                    register(upper);
+                    notifyListeners(upper);
+                    audit("registered", upper);
+                }
+
+                void similarTwo(String name) {
+                    String trimmed = name.trim();
+                    String upper = trimmed.toUpperCase();
+                    validate(upper);
+                    register(upper);
+                    notifyListeners(upper);
+                    audit("updated", upper);
+                    flush();
+                }
+
+                void unrelated(java.util.Map<String, Integer> counts) {
+                    for (String key : counts.keySet()) {
+                        if (key.isEmpty()) {
+                            continue;
+                        }
+                        counts.merge(key, 1, Integer::sum);
+                    }
+                    counts.clear();
+                    reset();
+                }
+
+                void repeatsItself() {
+                    open();
+                    write(1);
+                    write(2);
+                    close();
+                    open();
+                    write(1);
+                    write(2);
+                    close();
+                }
+            }
+            """;
+
+    @Test
+    void testWholeMethodCopiesReportedDirectly() {
+        MethodPrefilter.Result result = prefilter().apply(extract());
+
+        assertEquals(1, result.directPairs().size());
+        SimilarityPair pair = result.directPairs().get(0);
+        assertEquals("original", pair.seq1().containingCallable().getNameAsString());
+        assertEquals("pasted", pair.seq2().containingCallable().getNameAsString());
+        assertEquals(5, pair.seq1().statements().size());
+        assertFalse(retainedMethods(result).contains("original"), "Copies need no window-level work");
+        assertFalse(retainedMethods(result).contains("pasted"));
+    }
+
+    @Test
+    void testOnlyMatchedMethodsRetained() {
+        MethodPrefilter.Result result = prefilter().apply(extract());
+
+        Set<String> retained = retainedMethods(result);
+        assertTrue(retained.contains("similarOne"));
+        assertTrue(retained.contains("similarTwo"));
+        assertFalse(retained.contains("unrelated"));
+        assertTrue(retained.contains("repeatsItself"), "Clones within one method must still be found");
+    }
+
+    @Test
+    void testPruningRatio() {
+        List<StatementSequence> sequences = extract();
+        MethodPrefilter.Result result = prefilter().apply(sequences);
+
+        assertEquals(sequences.size(), result.totalWindows());
+        assertEquals(6, result.totalMethods());
+        assertEquals(3, result.activeMethods());
+        assertTrue(result.retained().size() < sequences.size());
+        assertEquals(1.0 - (double) result.retained().size() / sequences.size(), result.pruningRatio(), 1e-9);
+    }
+
+    private MethodPrefilter prefilter() {
+        return new MethodPrefilter(25, 4, 3, 0.75, SimilarityWeights.balanced(),
+                new ASTNormalizer(), new ASTSimilarityCalculator());
+    }
+
+    private List<StatementSequence> extract() {
+        CompilationUnit cu = StaticJavaParser.parse(CODE);
+        return new StatementExtractor(3, 2, true).extractSequences(cu, Paths.get("Test.java"));
+    }
+
+    private Set<String> retainedMethods(MethodPrefilter.Result result) {
+        return result.retained().stream()
+                .map(seq -> seq.containingCallable().getNameAsString())
+                .collect(Collectors.toSet());
+    }
+}
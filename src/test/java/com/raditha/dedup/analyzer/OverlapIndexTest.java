@@ -0,0 +1,125 @@
+package com.raditha.dedup.analyzer;
+
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.raditha.dedup.model.Range;
+import com.raditha.dedup.model.StatementSequence;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for OverlapIndex, checked against the reference overlap rule.
+ */
+class OverlapIndexTest {
+
+    private static final Path FILE_A = Paths.get("A.java");
+    private static final Path FILE_B = Paths.get("B.java");
+
+    @Test
+    void testLocationsSameCallable() {
+        MethodDeclaration method = new MethodDeclaration();
+        List<StatementSequence> sequences = List.of(
+                createSequence(FILE_A, 1, 10, method),
+                createSequence(FILE_A, 5, 15, method),
+                createSequence(FILE_A, 11, 20, method));
+
+        OverlapIndex.Locations locations = new OverlapIndex().locate(sequences);
+
+        assertTrue(locations.overlapping(0, 1));
+        assertFalse(locations.overlapping(0, 2));
+        assertTrue(locations.overlapping(1, 2));
+    }
+
+    @Test
+    void testLocationsDifferentFilesAndCallables() {
+        MethodDeclaration m1 = new MethodDeclaration();
+        MethodDeclaration m2 = new MethodDeclaration();
+        List<StatementSequence> sequences = List.of(
+                createSequence(FILE_A, 1, 10, m1),
+                createSequence(FILE_B, 1, 10, m1),
+                createSequence(FILE_A, 5, 15, m2),
+                createSequence(FILE_A, 5, 15, null),
+                createSequence(null, 1, 10, null));
+
+        OverlapIndex.Locations locations = new OverlapIndex().locate(sequences);
+
+        assertFalse(locations.overlapping(0, 1), "Different files never overlap");
+        assertFalse(locations.overlapping(0, 2), "Different callables never overlap");
+        assertTrue(locations.overlapping(0, 3), "Missing callable falls back to line ranges");
+        assertTrue(locations.overlapping(2, 3));
+        assertFalse(locations.overlapping(4, 4), "Sequences without a file never overlap");
+    }
+
+    @Test
+    void testIntervalSetMatchesReferenceRule() {
+        Random random = new Random(42);
+        List<CallableDeclaration<?>> callables = new ArrayList<>();
+        callables.add(new MethodDeclaration());
+        callables.add(new MethodDeclaration());
+        callables.add(null);
+
+        for (int round = 0; round < 200; round++) {
+            List<StatementSequence> sequences = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                int start = 1 + random.nextInt(60);
+                sequences.add(createSequence(
+                        random.nextBoolean() ? FILE_A : FILE_B,
+                        start,
+                        start + random.nextInt(8),
+                        callables.get(random.nextInt(callables.size()))));
+            }
+            Collections.shuffle(sequences, random);
+
+            OverlapIndex index = new OverlapIndex();
+            OverlapIndex.IntervalSet set = index.newIntervalSet();
+            OverlapIndex.Locations locations = index.locate(sequences);
+            List<Integer> kept = new ArrayList<>();
+            for (int i = 0; i < sequences.size(); i++) {
+                boolean expected = false;
+                for (int k : kept) {
+                    expected |= referenceOverlap(sequences.get(i), sequences.get(k));
+                    assertEquals(referenceOverlap(sequences.get(i), sequences.get(k)), locations.overlapping(i, k));
+                }
+                assertEquals(expected, set.overlaps(sequences.get(i)), "round " + round + ", sequence " + i);
+                if (!expected) {
+                    kept.add(i);
+                    set.add(sequences.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Same rule as DuplicationAnalyzer.isPhysicallyOverlapping.
+     */
+    private boolean referenceOverlap(StatementSequence s1, StatementSequence s2) {
+        if (s1.sourceFilePath() == null || !s1.sourceFilePath().equals(s2.sourceFilePath())) {
+            return false;
+        }
+        var m1 = s1.containingCallable();
+        var m2 = s2.containingCallable();
+        if (m1 != null && m2 != null && m1 != m2) {
+            return false;
+        }
+        return s1.range().startLine() <= s2.range().endLine()
+                && s2.range().startLine() <= s1.range().endLine();
+    }
+
+    private StatementSequence createSequence(Path path, int start, int end, CallableDeclaration<?> callable) {
+        return new StatementSequence(
+                Collections.emptyList(),
+                new Range(start, end, 1, 1),
+                0,
+                callable,
+                null,
+                path);
+    }
+}
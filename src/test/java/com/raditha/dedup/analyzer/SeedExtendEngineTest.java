@@ -0,0 +1,121 @@
+package com.raditha.dedup.analyzer;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.raditha.dedup.config.SimilarityWeights;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.filter.PreFilterChain;
+import com.raditha.dedup.model.SimilarityPair;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.normalization.ASTNormalizer;
+import com.raditha.dedup.similarity.ASTSimilarityCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SeedExtendEngine.
+ */
+class SeedExtendEngineTest {
+
+    private static final String CODE = """
+            class Test {
+                void first() {
+                    int a = 1;
+                    int b = a + 2;
+                    System.out.println(a);
+                    System.out.println(b);
+                    int c = a * b;
+                    System.out.println(c);
+                    String s = "x" + c;
+                    System.out.println(s);
+                    log(s);
+                    log(s.trim());
+                }
+
+                void second() {
+                    int other = 42;
+                    int a = 1;
+                    int b = a + 2;
+                    System.out.println(a);
+                    System.out.println(b);
+                    int c = a * b;
+                    System.out.println(c);
+                    String s = "x" + c;
+                    System.out.println(s);
+                    log(s);
+                    log(s.trim());
+                    throw new IllegalStateException();
+                }
+            }
+            """;
+
+    @Test
+    void testSeedHitsExtendToMaximalPair() {
+        List<StatementSequence> seeds = extractSeeds(3);
+
+        CandidatePairStore store = engine(3).extend(seeds, allPairs(seeds));
+        List<SimilarityPair> pairs = store.survivors();
+
+        SimilarityPair longest = pairs.stream()
+                .max(java.util.Comparator.comparingInt(p -> p.seq1().statements().size()))
+                .orElseThrow();
+        assertEquals(10, longest.seq1().statements().size(), "Whole shared run should be reported");
+        assertEquals(10, longest.seq2().statements().size());
+        assertEquals(1.0, longest.getScore(), 0.0001);
+        assertNotEquals(longest.seq1().containingCallable(), longest.seq2().containingCallable());
+    }
+
+    @Test
+    void testSeedsOnSameDiagonalExtendedOnce() {
+        List<StatementSequence> seeds = extractSeeds(3);
+
+        List<SimilarityPair> pairs = engine(3).extend(seeds, allPairs(seeds)).survivors();
+
+        long crossMethodPairs = pairs.stream()
+                .filter(p -> p.seq1().containingCallable() != p.seq2().containingCallable())
+                .filter(p -> p.seq1().statements().size() == 10)
+                .count();
+        assertEquals(1, crossMethodPairs);
+    }
+
+    @Test
+    void testBelowThresholdSeedsAreCountedButNotReported() {
+        List<StatementSequence> seeds = extractSeeds(3);
+
+        CandidatePairStore store = new SeedExtendEngine(3, 1.01, SimilarityWeights.balanced(),
+                new ASTNormalizer(), new ASTSimilarityCalculator(), new PreFilterChain()).extend(seeds, allPairs(seeds));
+
+        assertTrue(store.size() > 0);
+        assertTrue(store.survivors().isEmpty());
+    }
+
+    private SeedExtendEngine engine(int seedSize) {
+        return new SeedExtendEngine(seedSize, 0.95, SimilarityWeights.balanced(),
+                new ASTNormalizer(), new ASTSimilarityCalculator(), new PreFilterChain());
+    }
+
+    private List<StatementSequence> extractSeeds(int seedSize) {
+        CompilationUnit cu = StaticJavaParser.parse(CODE);
+        return new StatementExtractor(seedSize, 0, true)
+                .extractSequences(cu, Paths.get("Test.java")).stream()
+                .filter(seq -> seq.statements().size() == seedSize)
+                .toList();
+    }
+
+    private long[] allPairs(List<StatementSequence> seeds) {
+        OverlapIndex.Locations locations = new OverlapIndex().locate(seeds);
+        java.util.List<Long> pairs = new java.util.ArrayList<>();
+        for (int i = 0; i < seeds.size(); i++) {
+            for (int j = i + 1; j < seeds.size(); j++) {
+                if (!locations.overlapping(i, j)) {
+                    pairs.add(CandidatePairStore.packPair(i, j));
+                }
+            }
+        }
+        return pairs.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,135 @@
+package com.raditha.dedup.analyzer;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.raditha.dedup.config.SimilarityWeights;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.model.SimilarityPair;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.normalization.ASTNormalizer;
+import com.raditha.dedup.similarity.ASTSimilarityCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SubtreeHashEngine.
+ */
+class SubtreeHashEngineTest {
+
+    private static final String CODE = """
+            class Test {
+                void shallow(boolean flag) {
+                    int before = 0;
+                    if (flag) {
+                        int a = 1;
+                        int b = a + 2;
+                        System.out.println(a);
+                        System.out.println(b);
+                    }
+                }
+
+                void deep(boolean flag, boolean other) {
+                    for (int i = 0; i < 3; i++) {
+                        try {
+                            if (other) {
+                                int a = 5;
+                                int b = a + 2;
+                                System.out.println(a);
+                                System.out.println(b);
+                            }
+                        } finally {
+                            close();
+                        }
+                    }
+                }
+
+                void copyOne() {
+                    int x = 1;
+                    if (x > 0) {
+                        log(x);
+                        log(x + 1);
+                        log(x + 2);
+                    }
+                }
+
+                void copyTwo() {
+                    int x = 1;
+                    if (x > 0) {
+                        log(x);
+                        log(x + 1);
+                        log(x + 2);
+                    }
+                }
+
+                void operatorsDiffer() {
+                    int x = 1;
+                    if (x < 0) {
+                        log(x);
+                        log(x - 1);
+                        log(x + 2);
+                    }
+                }
+            }
+            """;
+
+    @Test
+    void testBlockNestedAtDifferentDepthsFound() {
+        List<SimilarityPair> pairs = engine(4).findClones(extract()).survivors();
+
+        SimilarityPair pair = pairs.stream()
+                .filter(p -> "shallow".equals(callableName(p.seq1())))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("deep", callableName(pair.seq2()));
+        assertEquals(4, pair.seq1().statements().size(), "The if body is reported as its statement list");
+        assertEquals(1.0, pair.getScore(), 0.0001);
+    }
+
+    @Test
+    void testSubsumedSubClonesSuppressed() {
+        List<SimilarityPair> pairs = engine(4).findClones(extract()).survivors();
+
+        List<SimilarityPair> copies = pairs.stream()
+                .filter(p -> "copyOne".equals(callableName(p.seq1())))
+                .toList();
+        assertEquals(1, copies.size(), "Only the whole method bodies are reported");
+        assertEquals("copyTwo", callableName(copies.get(0).seq2()));
+        assertEquals(2, copies.get(0).seq1().statements().size());
+        assertFalse(pairs.stream().anyMatch(p -> p.seq1().statements().getFirst() instanceof IfStmt
+                && "copyOne".equals(callableName(p.seq1()))));
+    }
+
+    @Test
+    void testOperatorsAreHashed() {
+        List<SimilarityPair> pairs = engine(4).findClones(extract()).survivors();
+
+        assertTrue(pairs.stream().noneMatch(p -> "operatorsDiffer".equals(callableName(p.seq1()))
+                || "operatorsDiffer".equals(callableName(p.seq2()))));
+    }
+
+    @Test
+    void testSubtreesBelowMinLinesIgnored() {
+        CandidatePairStore store = engine(6).findClones(extract());
+
+        assertEquals(0, store.size());
+    }
+
+    private SubtreeHashEngine engine(int minLines) {
+        return new SubtreeHashEngine(minLines, 0.75, SimilarityWeights.balanced(),
+                new ASTNormalizer(), new ASTSimilarityCalculator(), 1);
+    }
+
+    private List<StatementSequence> extract() {
+        CompilationUnit cu = StaticJavaParser.parse(CODE);
+        return new StatementExtractor(1, 0, true).extractSequences(cu, Paths.get("Test.java"));
+    }
+
+    private String callableName(StatementSequence seq) {
+        return seq.containingCallable().getNameAsString();
+    }
+}
@@ -0,0 +1,155 @@
+package com.raditha.dedup.analyzer;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.raditha.dedup.config.SimilarityWeights;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.model.SimilarityPair;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.normalization.ASTNormalizer;
+import com.raditha.dedup.similarity.ASTSimilarityCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SuffixArrayEngine.
+ */
+class SuffixArrayEngineTest {
+
+    private static final String CODE = """
+            class Test {
+                void first() {
+                    int a = 1;
+                    int b = a + 2;
+                    System.out.println(a);
+                    System.out.println(b);
+                    String s = "x" + b;
+                    log(s);
+                    log(s.trim());
+                }
+
+                void second() {
+                    int other = 42;
+                    int a = 7;
+                    int b = a + 3;
+                    System.out.println(a);
+                    System.out.println(b);
+                    String s = "y" + b;
+                    log(s);
+                    log(s.trim());
+                    throw new IllegalStateException();
+                }
+
+                void third() {
+                    int a = 5;
+                    int b = a + 2;
+                    System.out.println(a);
+                    System.out.println(b);
+                    return;
+                }
+
+                void unrelated() {
+                    if (flag) {
+                        run();
+                    }
+                    while (running) {
+                        step();
+                    }
+                    close();
+                }
+            }
+            """;
+
+    @Test
+    void testLiteralVariantReportedAsMaximalRepeat() {
+        List<SimilarityPair> pairs = engine(3).findRepeats(extract(3)).survivors();
+
+        SimilarityPair longest = pairs.stream()
+                .max(java.util.Comparator.comparingInt(p -> p.seq1().statements().size()))
+                .orElseThrow();
+        assertEquals(7, longest.seq1().statements().size(), "Whole shared run should be one repeat");
+        assertEquals(7, longest.seq2().statements().size());
+        assertEquals("first", callableName(longest.seq1()));
+        assertEquals("second", callableName(longest.seq2()));
+        assertEquals("int a = 7;", longest.seq2().statements().getFirst().toString(),
+                "Repeat starts after the extra statement");
+    }
+
+    @Test
+    void testShorterRepeatWithMoreOccurrencesIsReported() {
+        List<SimilarityPair> pairs = engine(3).findRepeats(extract(3)).survivors();
+
+        List<SimilarityPair> withThird = pairs.stream()
+                .filter(p -> "third".equals(callableName(p.seq2())))
+                .toList();
+        assertEquals(1, withThird.size(), "Third method is paired with the earliest occurrence only");
+        assertEquals(4, withThird.get(0).seq1().statements().size());
+        assertEquals("first", callableName(withThird.get(0).seq1()));
+    }
+
+    @Test
+    void testRenamedCloneReported() {
+        CompilationUnit cu = StaticJavaParser.parse("""
+                class Renamed {
+                    void load() {
+                        int count = size();
+                        int total = count * 2;
+                        report(count, total);
+                        store(total);
+                    }
+
+                    void save() {
+                        int items = size();
+                        int sum = items * 2;
+                        report(items, sum);
+                        store(sum);
+                    }
+                }
+                """);
+        List<StatementSequence> sequences = new StatementExtractor(3, 0, true)
+                .extractSequences(cu, Paths.get("Renamed.java"));
+
+        List<SimilarityPair> pairs = engine(3).findRepeats(sequences).survivors();
+
+        assertEquals(1, pairs.size());
+        SimilarityPair pair = pairs.get(0);
+        assertEquals("load", callableName(pair.seq1()));
+        assertEquals("save", callableName(pair.seq2()));
+        assertEquals(4, pair.seq1().statements().size());
+        assertTrue(pair.similarity().overallScore() >= 0.75);
+    }
+
+    @Test
+    void testRepeatsShorterThanMinLinesIgnored() {
+        CandidatePairStore store = engine(8).findRepeats(extract(8));
+
+        assertEquals(0, store.size());
+        assertTrue(store.survivors().isEmpty());
+    }
+
+    @Test
+    void testNoPairsOutsideRepeatedCode() {
+        List<SimilarityPair> pairs = engine(3).findRepeats(extract(3)).survivors();
+
+        assertTrue(pairs.stream().noneMatch(p -> "unrelated".equals(callableName(p.seq1()))
+                || "unrelated".equals(callableName(p.seq2()))));
+    }
+
+    private SuffixArrayEngine engine(int minLines) {
+        return new SuffixArrayEngine(minLines, 0.75, SimilarityWeights.balanced(),
+                new ASTNormalizer(), new ASTSimilarityCalculator(), 1);
+    }
+
+    private List<StatementSequence> extract(int minLines) {
+        CompilationUnit cu = StaticJavaParser.parse(CODE);
+        return new StatementExtractor(minLines, 0, true).extractSequences(cu, Paths.get("Test.java"));
+    }
+
+    private String callableName(StatementSequence seq) {
+        return seq.containingCallable().getNameAsString();
+    }
+}
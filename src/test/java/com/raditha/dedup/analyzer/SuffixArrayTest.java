@@ -0,0 +1,72 @@
+package com.raditha.dedup.analyzer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SuffixArray, checked against naive suffix sorting.
+ */
+class SuffixArrayTest {
+
+    @Test
+    void testSmallInputs() {
+        assertArrayEquals(new int[0], SuffixArray.build(new int[0], 0));
+        assertArrayEquals(new int[] { 0 }, SuffixArray.build(new int[] { 3 }, 3));
+        assertArrayEquals(new int[] { 1, 0 }, SuffixArray.build(new int[] { 2, 1 }, 2));
+        assertArrayEquals(new int[] { 1, 0 }, SuffixArray.build(new int[] { 1, 1 }, 1));
+    }
+
+    @Test
+    void testKnownString() {
+        // "banana" over a=0, b=1, n=2
+        int[] text = { 1, 0, 2, 0, 2, 0 };
+        int[] sa = SuffixArray.build(text, 2);
+
+        assertArrayEquals(new int[] { 5, 3, 1, 0, 4, 2 }, sa);
+        assertArrayEquals(new int[] { 1, 3, 0, 0, 2 }, SuffixArray.lcp(text, sa));
+    }
+
+    @Test
+    void testMatchesNaiveSort() {
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            int n = 1 + random.nextInt(60);
+            int upper = 1 + random.nextInt(round % 2 == 0 ? 3 : 40);
+            int[] text = new int[n];
+            for (int i = 0; i < n; i++) {
+                text[i] = random.nextInt(upper + 1);
+            }
+
+            int[] sa = SuffixArray.build(text, upper);
+
+            assertArrayEquals(naiveSuffixArray(text), sa, "round " + round);
+            int[] lcp = SuffixArray.lcp(text, sa);
+            for (int i = 0; i + 1 < n; i++) {
+                assertEquals(commonPrefix(text, sa[i], sa[i + 1]), lcp[i], "round " + round);
+            }
+        }
+    }
+
+    private int[] naiveSuffixArray(int[] text) {
+        Integer[] order = new Integer[text.length];
+        for (int i = 0; i < text.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compare(
+                Arrays.copyOfRange(text, a, text.length),
+                Arrays.copyOfRange(text, b, text.length)));
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    private int commonPrefix(int[] text, int a, int b) {
+        int h = 0;
+        while (a + h < text.length && b + h < text.length && text[a + h] == text[b + h]) {
+            h++;
+        }
+        return h;
+    }
+}
@@ -114,6 +114,130 @@ class DuplicateClustererTest {
         assertEquals(11, clusters.get(0).estimatedLOCReduction());
     }
 
+    @Test
+    void testComponentsMatchBreadthFirstSearch() {
+        java.util.Random random = new java.util.Random(3);
+        for (int round = 0; round < 50; round++) {
+            List<SimilarityPair> pairs = new java.util.ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                int a = 1 + random.nextInt(30) * 10;
+                int b = 1 + random.nextInt(30) * 10;
+                if (a != b) {
+                    pairs.add(createPair(Math.min(a, b), Math.max(a, b), random.nextBoolean() ? 0.9 : 0.5));
+                }
+            }
+
+            List<java.util.Set<StatementSequence>> expected = referenceComponents(pairs);
+            List<DuplicateCluster> clusters = clusterer.cluster(pairs);
+
+            assertEquals(expected.size(), clusters.size(), "round " + round);
+            java.util.Set<java.util.Set<StatementSequence>> actual = new java.util.HashSet<>();
+            for (DuplicateCluster cluster : clusters) {
+                java.util.Set<StatementSequence> members = new java.util.HashSet<>(cluster.allSequences());
+                actual.add(members);
+                StatementSequence expectedPrimary = members.stream()
+                        .min(StatementSequenceComparator.INSTANCE).orElseThrow();
+                assertEquals(expectedPrimary, cluster.primary(), "round " + round);
+            }
+            assertEquals(new java.util.HashSet<>(expected), actual, "round " + round);
+        }
+    }
+
+    @Test
+    void testOversizedComponentSplitAroundMedoid() {
+        // Hub at line 1 linked to lines 11..61, plus a chain 61 - 71 - 81
+        List<SimilarityPair> pairs = new java.util.ArrayList<>();
+        for (int line = 11; line <= 61; line += 10) {
+            pairs.add(createPair(1, line, 0.9));
+        }
+        pairs.add(createPair(61, 71, 0.8));
+        pairs.add(createPair(71, 81, 0.8));
+
+        List<DuplicateCluster> clusters = new DuplicateClusterer(0.75, 4).cluster(pairs);
+
+        assertEquals(2, clusters.size());
+        List<List<Integer>> starts = clusters.stream()
+                .map(c -> c.allSequences().stream().map(s -> s.range().startLine()).sorted().toList())
+                .toList();
+        assertTrue(starts.contains(List.of(1, 11, 21, 31)), starts.toString());
+        assertTrue(starts.contains(List.of(61, 71, 81)), starts.toString());
+        DuplicateCluster hub = clusters.stream().filter(c -> c.primary().range().startLine() == 1).findFirst().orElseThrow();
+        assertEquals(3, hub.duplicates().size());
+    }
+
+    @Test
+    void testSplitClustersRespectLimitAndKeepOnlyInternalPairs() {
+        List<SimilarityPair> pairs = new java.util.ArrayList<>();
+        for (int line = 1; line < 200; line += 10) {
+            pairs.add(createPair(line, line + 10, 0.8 + (line % 7) * 0.01));
+        }
+
+        List<DuplicateCluster> clusters = new DuplicateClusterer(0.75, 3).cluster(pairs);
+
+        assertFalse(clusters.isEmpty());
+        java.util.Set<StatementSequence> seen = new java.util.HashSet<>();
+        for (DuplicateCluster cluster : clusters) {
+            List<StatementSequence> members = cluster.allSequences();
+            assertTrue(members.size() >= 2 && members.size() <= 3, "size " + members.size());
+            for (SimilarityPair pair : cluster.duplicates()) {
+                assertTrue(members.contains(pair.seq1()) && members.contains(pair.seq2()));
+            }
+            for (StatementSequence member : members) {
+                assertTrue(seen.add(member), "sequence in two clusters");
+            }
+            StatementSequence earliest = members.stream().min(StatementSequenceComparator.INSTANCE).orElseThrow();
+            assertEquals(earliest, cluster.primary());
+        }
+    }
+
+    @Test
+    void testComponentWithinLimitIsNotSplit() {
+        List<SimilarityPair> pairs = List.of(
+                createPair(1, 11, 0.9),
+                createPair(11, 21, 0.9),
+                createPair(21, 31, 0.9));
+
+        List<DuplicateCluster> bounded = new DuplicateClusterer(0.75, 4).cluster(pairs);
+        List<DuplicateCluster> unbounded = clusterer.cluster(pairs);
+
+        assertEquals(1, bounded.size());
+        assertEquals(unbounded.getFirst().duplicates(), bounded.getFirst().duplicates());
+        assertEquals(unbounded.getFirst().estimatedLOCReduction(), bounded.getFirst().estimatedLOCReduction());
+    }
+
+    /**
+     * Connected components by breadth-first search over pairs above the threshold.
+     */
+    private List<java.util.Set<StatementSequence>> referenceComponents(List<SimilarityPair> pairs) {
+        java.util.Map<StatementSequence, java.util.Set<StatementSequence>> adj = new java.util.HashMap<>();
+        for (SimilarityPair p : pairs) {
+            if (p.similarity().overallScore() >= 0.75) {
+                adj.computeIfAbsent(p.seq1(), k -> new java.util.HashSet<>()).add(p.seq2());
+                adj.computeIfAbsent(p.seq2(), k -> new java.util.HashSet<>()).add(p.seq1());
+            }
+        }
+        java.util.Set<StatementSequence> visited = new java.util.HashSet<>();
+        List<java.util.Set<StatementSequence>> components = new java.util.ArrayList<>();
+        for (StatementSequence start : adj.keySet()) {
+            if (!visited.add(start)) {
+                continue;
+            }
+            java.util.Set<StatementSequence> component = new java.util.HashSet<>();
+            java.util.ArrayDeque<StatementSequence> queue = new java.util.ArrayDeque<>(List.of(start));
+            component.add(start);
+            while (!queue.isEmpty()) {
+                for (StatementSequence next : adj.get(queue.poll())) {
+                    if (visited.add(next)) {
+                        component.add(next);
+                        queue.add(next);
+                    }
+                }
+            }
+            components.add(component);
+        }
+        return components;
+    }
+
     // Helper methods
 
     private SimilarityPair createPair(int startLine1, int startLine2, double similarity) {
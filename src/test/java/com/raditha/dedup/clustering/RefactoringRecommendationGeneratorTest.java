@@ -173,4 +173,78 @@ class RefactoringRecommendationGeneratorTest {
         // Should be CONSTRUCTOR_DELEGATION because ctor1 is a perfect master
         assertEquals(RefactoringStrategy.CONSTRUCTOR_DELEGATION, recommendation.getStrategy());
     }
+
+    @Test
+    void testBatchGenerationMatchesSequentialInClusterOrder() {
+        String code = """
+                class A {
+                    A() {
+                        int x = 1;
+                    }
+                    A(int p1) {
+                        int x = 1;
+                        System.out.println(1);
+                    }
+                    void first() {
+                        String s = "a";
+                        System.out.println(s);
+                    }
+                    void second() {
+                        String s = "b";
+                        System.out.println(s);
+                    }
+                }
+                """;
+        List<DuplicateCluster> clusters = List.of(
+                clusterOf(StaticJavaParser.parse(code), 0, 1, true),
+                clusterOf(StaticJavaParser.parse(code), 0, 1, false),
+                clusterOf(StaticJavaParser.parse(code), 0, 1, true));
+
+        List<RefactoringRecommendation> sequential = new java.util.ArrayList<>();
+        RefactoringRecommendationGenerator single = new RefactoringRecommendationGenerator();
+        for (DuplicateCluster cluster : clusters) {
+            sequential.add(single.generateRecommendation(cluster));
+        }
+        List<RefactoringRecommendation> parallel = new RefactoringRecommendationGenerator()
+                .generateRecommendations(clusters, 4);
+
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < clusters.size(); i++) {
+            assertEquals(sequential.get(i).getStrategy(), parallel.get(i).getStrategy());
+            assertEquals(sequential.get(i).getSuggestedMethodName(), parallel.get(i).getSuggestedMethodName());
+            assertEquals(sequential.get(i).getValidStatementCount(), parallel.get(i).getValidStatementCount());
+        }
+        assertEquals(RefactoringStrategy.CONSTRUCTOR_DELEGATION, parallel.get(0).getStrategy());
+    }
+
+    private static DuplicateCluster clusterOf(CompilationUnit cu, int first, int second, boolean constructors) {
+        var type = cu.getClassByName("A").orElseThrow();
+        com.github.javaparser.ast.body.CallableDeclaration<?> c1;
+        com.github.javaparser.ast.body.CallableDeclaration<?> c2;
+        List<com.github.javaparser.ast.stmt.Statement> s1;
+        List<com.github.javaparser.ast.stmt.Statement> s2;
+        if (constructors) {
+            ConstructorDeclaration ctor1 = type.getConstructors().get(first);
+            ConstructorDeclaration ctor2 = type.getConstructors().get(second);
+            c1 = ctor1;
+            c2 = ctor2;
+            s1 = ctor1.getBody().getStatements();
+            s2 = List.of(ctor2.getBody().getStatements().get(0));
+        } else {
+            var m1 = type.getMethods().get(first);
+            var m2 = type.getMethods().get(second);
+            c1 = m1;
+            c2 = m2;
+            s1 = m1.getBody().orElseThrow().getStatements();
+            s2 = m2.getBody().orElseThrow().getStatements();
+        }
+        StatementSequence seq1 = new StatementSequence(s1, new Range(1, 1, 1, 1), 0, c1, cu, Paths.get("A.java"));
+        StatementSequence seq2 = new StatementSequence(s2, new Range(2, 2, 1, 1), 0, c2, cu, Paths.get("A.java"));
+        com.raditha.dedup.model.SimilarityResult result = new com.raditha.dedup.model.SimilarityResult(
+                1.0, 1.0, 1.0, 1.0, 0, 0,
+                com.raditha.dedup.model.VariationAnalysis.builder().build(),
+                new com.raditha.dedup.model.TypeCompatibility(true, java.util.Map.of(), null, List.of()),
+                true);
+        return new DuplicateCluster(seq1, List.of(new com.raditha.dedup.model.SimilarityPair(seq1, seq2, result)), null, 5);
+    }
 }
@@ -0,0 +1,63 @@
+package com.raditha.dedup.clustering;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for UnionFind.
+ */
+class UnionFindTest {
+
+    @Test
+    void testSingletonsInitially() {
+        UnionFind sets = new UnionFind(3);
+
+        assertEquals(3, sets.size());
+        assertNotEquals(sets.find(0), sets.find(1));
+        assertNotEquals(sets.find(1), sets.find(2));
+    }
+
+    @Test
+    void testUnionIsTransitive() {
+        UnionFind sets = new UnionFind(5);
+        sets.union(0, 1);
+        sets.union(3, 4);
+        sets.union(1, 4);
+
+        assertEquals(sets.find(0), sets.find(3));
+        assertNotEquals(sets.find(0), sets.find(2));
+    }
+
+    @Test
+    void testMatchesNaiveLabelling() {
+        Random random = new Random(11);
+        for (int round = 0; round < 100; round++) {
+            int n = 1 + random.nextInt(50);
+            UnionFind sets = new UnionFind(n);
+            int[] labels = new int[n];
+            for (int i = 0; i < n; i++) {
+                labels[i] = i;
+            }
+            for (int k = 0; k < n; k++) {
+                int a = random.nextInt(n);
+                int b = random.nextInt(n);
+                sets.union(a, b);
+                int from = labels[b];
+                int to = labels[a];
+                for (int i = 0; i < n; i++) {
+                    if (labels[i] == from) {
+                        labels[i] = to;
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    assertEquals(labels[i] == labels[j], sets.find(i) == sets.find(j));
+                }
+            }
+        }
+    }
+}
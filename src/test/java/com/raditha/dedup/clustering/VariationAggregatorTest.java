@@ -0,0 +1,98 @@
+package com.raditha.dedup.clustering;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.raditha.dedup.analysis.ASTVariationAnalyzer;
+import com.raditha.dedup.model.DuplicateCluster;
+import com.raditha.dedup.model.Range;
+import com.raditha.dedup.model.SimilarityPair;
+import com.raditha.dedup.model.SimilarityResult;
+import com.raditha.dedup.model.StatementSequence;
+import com.raditha.dedup.model.TypeCompatibility;
+import com.raditha.dedup.model.VariationAnalysis;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for VariationAggregator.
+ */
+class VariationAggregatorTest {
+
+    private static final String CODE = """
+            class Test {
+                void a() {
+                    String s = "a";
+                    System.out.println(s);
+                }
+                void b() {
+                    String s = "b";
+                    System.out.println(s);
+                }
+                void c() {
+                    String s = "c";
+                    System.out.println(s);
+                }
+            }
+            """;
+
+    @Test
+    void testEachDuplicateAnalyzedOnce() {
+        CompilationUnit cu = StaticJavaParser.parse(CODE);
+        StatementSequence a = sequence(cu, 0);
+        StatementSequence b = sequence(cu, 1);
+        StatementSequence c = sequence(cu, 2);
+        CountingAnalyzer analyzer = new CountingAnalyzer();
+
+        // c is the second sequence of two pairs
+        DuplicateCluster cluster = new DuplicateCluster(a, List.of(pair(a, b), pair(a, c), pair(b, c)), null, 2);
+        AggregatedVariations aggregated = new VariationAggregator(analyzer).aggregate(cluster);
+
+        assertEquals(2, analyzer.calls);
+        assertEquals(1, aggregated.uniqueVariations().size());
+        Map<StatementSequence, ?> bindings = aggregated.exprBindings().values().iterator().next();
+        assertEquals(3, bindings.size());
+        assertTrue(bindings.keySet().containsAll(List.of(a, b, c)));
+    }
+
+    @Test
+    void testClusterWithoutPairsComparesPrimaryWithItself() {
+        CompilationUnit cu = StaticJavaParser.parse(CODE);
+        StatementSequence a = sequence(cu, 0);
+        CountingAnalyzer analyzer = new CountingAnalyzer();
+
+        AggregatedVariations aggregated = new VariationAggregator(analyzer)
+                .aggregate(new DuplicateCluster(a, List.of(), null, 0));
+
+        assertEquals(1, analyzer.calls);
+        assertTrue(aggregated.uniqueVariations().isEmpty());
+    }
+
+    private static StatementSequence sequence(CompilationUnit cu, int index) {
+        MethodDeclaration method = cu.findAll(MethodDeclaration.class).get(index);
+        return new StatementSequence(method.getBody().orElseThrow().getStatements(),
+                new Range(3 + index * 4, 4 + index * 4, 1, 10), 0, method, cu, Paths.get("Test.java"));
+    }
+
+    private static SimilarityPair pair(StatementSequence first, StatementSequence second) {
+        return new SimilarityPair(first, second, new SimilarityResult(0.9, 0.9, 0.9, 0.9, 0, 0,
+                VariationAnalysis.builder().build(),
+                new TypeCompatibility(true, Map.of(), null, List.of()),
+                true));
+    }
+
+    private static final class CountingAnalyzer extends ASTVariationAnalyzer {
+        private int calls;
+
+        @Override
+        public VariationAnalysis analyzeVariations(StatementSequence seq1, StatementSequence seq2, CompilationUnit cu1) {
+            calls++;
+            return super.analyzeVariations(seq1, seq2, cu1);
+        }
+    }
+}
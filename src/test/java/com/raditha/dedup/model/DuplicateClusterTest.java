@@ -0,0 +1,107 @@
+package com.raditha.dedup.model;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.stmt.EmptyStmt;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for DuplicateCluster.
+ */
+class DuplicateClusterTest {
+
+    @Test
+    void testLazyRecommendationGeneratedOnceOnFirstAccess() {
+        AtomicInteger calls = new AtomicInteger();
+        RefactoringRecommendation expected = recommendation();
+
+        DuplicateCluster cluster = DuplicateCluster.lazy(sequence(1), List.of(), 3, c -> {
+            calls.incrementAndGet();
+            return expected;
+        });
+
+        assertEquals(0, calls.get(), "Nothing generated before first access");
+        assertSame(expected, cluster.recommendation());
+        assertSame(expected, cluster.recommendation());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testLazyRecommendationMayBeNull() {
+        AtomicInteger calls = new AtomicInteger();
+        DuplicateCluster cluster = DuplicateCluster.lazy(sequence(1), List.of(), 3, c -> {
+            calls.incrementAndGet();
+            return null;
+        });
+
+        assertNull(cluster.recommendation());
+        assertNull(cluster.recommendation());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testLazyRecommendationGeneratedOutsideTheMonitor() {
+        DuplicateCluster[] self = new DuplicateCluster[1];
+        DuplicateCluster cluster = DuplicateCluster.lazy(sequence(1), List.of(), 3, c -> {
+            // The recommender takes other locks; a thread that holds one of them and
+            // then locks the cluster must not be blocked by the generation
+            Thread other = new Thread(() -> {
+                synchronized (self[0]) {
+                    self[0].estimatedLOCReduction();
+                }
+            });
+            other.start();
+            try {
+                other.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertFalse(other.isAlive());
+            return recommendation();
+        });
+        self[0] = cluster;
+
+        assertNotNull(cluster.recommendation());
+    }
+
+    @Test
+    void testEqualityIgnoresRecommendation() {
+        StatementSequence primary = sequence(1);
+        DuplicateCluster eager = new DuplicateCluster(primary, List.of(), recommendation(), 3);
+        DuplicateCluster lazy = DuplicateCluster.lazy(primary, List.of(), 3, c -> {
+            throw new AssertionError("equals must not generate the recommendation");
+        });
+
+        assertEquals(eager, lazy);
+        assertEquals(eager.hashCode(), lazy.hashCode());
+    }
+
+    private static RefactoringRecommendation recommendation() {
+        return new RefactoringRecommendation(
+                RefactoringStrategy.EXTRACT_HELPER_METHOD,
+                "extracted",
+                List.of(),
+                StaticJavaParser.parseType("void"),
+                "",
+                0.9,
+                3,
+                null,
+                -1,
+                null);
+    }
+
+    private static StatementSequence sequence(int startLine) {
+        return new StatementSequence(
+                List.of(new EmptyStmt()),
+                new Range(startLine, startLine, 1, 10),
+                0,
+                null,
+                null,
+                Paths.get("Test.java"));
+    }
+}
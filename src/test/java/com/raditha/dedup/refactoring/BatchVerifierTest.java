@@ -0,0 +1,117 @@
+package com.raditha.dedup.refactoring;
+
+import com.raditha.dedup.cli.VerifyMode;
+import com.raditha.dedup.model.RefactoringStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for BatchVerifier.
+ */
+class BatchVerifierTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testFailingRefactoringsAreIsolatedAndRolledBack() throws Exception {
+        FakeVerifier verifier = new FakeVerifier(tempDir);
+        BatchVerifier batch = new BatchVerifier(verifier, 8);
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Path file = tempDir.resolve("F" + i + ".java");
+            Files.writeString(file, "original " + i);
+            files.add(file);
+            String content = (i == 1 || i == 4) ? "BROKEN " + i : "refactored " + i;
+            batch.add(entry(file, content, "r" + i));
+        }
+
+        RefactoringEngine.RefactoringSession session = new RefactoringEngine.RefactoringSession();
+        batch.flush(session);
+
+        assertEquals(List.of("r0", "r2", "r3", "r5"),
+                session.getSuccessful().stream().map(RefactoringEngine.RefactoringResult::details).toList());
+        assertEquals(2, session.getFailed().size());
+        for (int i = 0; i < 6; i++) {
+            String expected = (i == 1 || i == 4) ? "original " + i : "refactored " + i;
+            assertEquals(expected, Files.readString(files.get(i)));
+        }
+        assertTrue(verifier.calls < 6 * 2, "bisection should need fewer verifications than members");
+    }
+
+    @Test
+    void testPassingBatchIsVerifiedOnce() throws Exception {
+        FakeVerifier verifier = new FakeVerifier(tempDir);
+        BatchVerifier batch = new BatchVerifier(verifier, 4);
+        for (int i = 0; i < 3; i++) {
+            batch.add(entry(tempDir.resolve("N" + i + ".java"), "refactored " + i, "r" + i));
+        }
+
+        RefactoringEngine.RefactoringSession session = new RefactoringEngine.RefactoringSession();
+        batch.flush(session);
+
+        assertEquals(1, verifier.calls);
+        assertEquals(3, session.getSuccessful().size());
+        assertTrue(Files.exists(tempDir.resolve("N0.java")));
+    }
+
+    @Test
+    void testConflictsAndAdaptiveSize() throws Exception {
+        FakeVerifier verifier = new FakeVerifier(tempDir);
+        BatchVerifier batch = new BatchVerifier(verifier, 16);
+        int initial = batch.batchSize();
+        assertTrue(initial > 1);
+
+        Path file = tempDir.resolve("C.java");
+        batch.add(entry(file, "BROKEN", "broken"));
+        assertTrue(batch.conflicts(List.of(file)));
+        assertFalse(batch.conflicts(List.of(tempDir.resolve("Other.java"))));
+
+        batch.flush(new RefactoringEngine.RefactoringSession());
+        assertFalse(batch.conflicts(List.of(file)));
+        assertFalse(Files.exists(file));
+        assertTrue(batch.batchSize() <= initial);
+    }
+
+    private static BatchVerifier.Entry entry(Path file, String content, String description) {
+        return new BatchVerifier.Entry(null,
+                new MethodExtractor.RefactoringResult(file, content, RefactoringStrategy.EXTRACT_HELPER_METHOD,
+                        description),
+                Map.of());
+    }
+
+    /**
+     * Fails verification while any file in the directory contains "BROKEN".
+     */
+    private static class FakeVerifier extends RefactoringVerifier {
+        private final Path dir;
+        int calls;
+
+        FakeVerifier(Path dir) {
+            super(dir, VerifyMode.COMPILE);
+            this.dir = dir;
+        }
+
+        @Override
+        public VerificationResult verify() throws IOException {
+            calls++;
+            try (var stream = Files.list(dir)) {
+                for (Path p : stream.toList()) {
+                    if (Files.readString(p).contains("BROKEN")) {
+                        return new VerificationResult(false, List.of(p.getFileName() + " does not compile"), "failed");
+                    }
+                }
+            }
+            return new VerificationResult(true, List.of(), "ok");
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.raditha.dedup.refactoring;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.model.DuplicateCluster;
+import com.raditha.dedup.model.StatementSequence;
+import org.junit.jupiter.api.Test;
+import sa.com.cloudsolutions.antikythera.evaluator.AntikytheraRunTime;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ClusterScheduler.
+ */
+class ClusterSchedulerTest {
+
+    private static final CompilationUnit BASE = StaticJavaParser.parse("""
+            class Base {
+                void a() { int x = 1; }
+            }
+            """);
+    private static final CompilationUnit CHILD = StaticJavaParser.parse("""
+            class Child extends Base {
+                void b() { int y = 2; }
+            }
+            """);
+    private static final CompilationUnit OTHER = StaticJavaParser.parse("""
+            class Other {
+                void c() { int z = 3; }
+                void d() { int w = 4; }
+            }
+            """);
+
+    @Test
+    void testIndependentClustersShareAWave() {
+        List<DuplicateCluster> clusters = List.of(
+                cluster(BASE, "Base.java", "a"),
+                cluster(OTHER, "Other.java", "c"));
+
+        assertEquals(List.of(List.of(0, 1)), ClusterScheduler.waves(clusters));
+    }
+
+    @Test
+    void testConflictingClustersKeepTheirOrder() {
+        List<DuplicateCluster> clusters = List.of(
+                cluster(OTHER, "Other.java", "c"),
+                cluster(BASE, "Base.java", "a"),
+                cluster(OTHER, "Other.java", "d"),
+                cluster(CHILD, "Child.java", "b"));
+
+        // Same file for 0 and 2; superclass for 1 and 3
+        assertEquals(List.of(List.of(0, 1), List.of(2, 3)), ClusterScheduler.waves(clusters));
+    }
+
+    @Test
+    void testConflictKeysCoverFileClassAndSuperclass() {
+        var keys = ClusterScheduler.conflictKeys(cluster(CHILD, "Child.java", "b"));
+
+        assertTrue(keys.contains("type:Child"));
+        assertTrue(keys.contains("type:Base"));
+        assertTrue(keys.contains("file:" + Paths.get("Child.java").toAbsolutePath().normalize()));
+    }
+
+    @Test
+    void testConflictKeysCoverTransitiveSupertypes() {
+        CompilationUnit grand = StaticJavaParser.parse("""
+                package p;
+                class Grand {
+                    void g() { int v = 0; }
+                }
+                """);
+        CompilationUnit named = StaticJavaParser.parse("""
+                package p;
+                interface Named { }
+                """);
+        CompilationUnit shaped = StaticJavaParser.parse("""
+                package p;
+                interface Shaped extends Named { }
+                """);
+        CompilationUnit middle = StaticJavaParser.parse("""
+                package p;
+                class Middle extends Grand implements Shaped { }
+                """);
+        CompilationUnit leaf = StaticJavaParser.parse("""
+                package p;
+                class Leaf extends Middle {
+                    void l() { int u = 1; }
+                }
+                """);
+        AntikytheraRunTime.addCompilationUnit("p.Grand", grand);
+        AntikytheraRunTime.addCompilationUnit("p.Named", named);
+        AntikytheraRunTime.addCompilationUnit("p.Shaped", shaped);
+        AntikytheraRunTime.addCompilationUnit("p.Middle", middle);
+        AntikytheraRunTime.addCompilationUnit("p.Leaf", leaf);
+
+        var keys = ClusterScheduler.conflictKeys(cluster(leaf, "p/Leaf.java", "l"));
+
+        assertTrue(keys.containsAll(List.of("type:p.Leaf", "type:p.Middle", "type:p.Grand",
+                "type:p.Shaped", "type:p.Named")), keys.toString());
+        // A class conflicts with the grandparent it does not name
+        assertEquals(List.of(List.of(0), List.of(1)), ClusterScheduler.waves(List.of(
+                cluster(grand, "p/Grand.java", "g"),
+                cluster(leaf, "p/Leaf.java", "l"))));
+    }
+
+    private static DuplicateCluster cluster(CompilationUnit cu, String file, String method) {
+        MethodDeclaration declaration = cu.findAll(MethodDeclaration.class).stream()
+                .filter(m -> m.getNameAsString().equals(method))
+                .findFirst()
+                .orElseThrow();
+        StatementSequence sequence = StatementExtractor.createSequence(
+                declaration.getBody().orElseThrow().getStatements(), declaration, cu, Paths.get(file));
+        return new DuplicateCluster(sequence, List.of(), null, 0);
+    }
+}
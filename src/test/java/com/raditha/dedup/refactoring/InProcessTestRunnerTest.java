@@ -0,0 +1,93 @@
+package com.raditha.dedup.refactoring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for InProcessTestRunner.
+ */
+class InProcessTestRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testUnavailableWithoutLauncher() throws IOException {
+        try (InProcessTestRunner runner = newRunner()) {
+            assertFalse(runner.isAvailable());
+
+            RefactoringVerifier.TestResult result = runner.run(Map.of(), Optional.of(Set.of()));
+            assertTrue(result.success());
+        }
+    }
+
+    @Test
+    void testCompiledClassesTakePrecedenceOverBuildOutput() throws Exception {
+        Path src = Files.createDirectories(tempDir.resolve("src/main/java"));
+        Path classes = Files.createDirectories(tempDir.resolve("target/classes"));
+        Path greeting = write(src.resolve("Greeting.java"),
+                "public class Greeting { public String toString() { return \"disk\"; } }");
+        write(src.resolve("Other.java"), "public class Other { }");
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, javac.run(null, null, null, "-d", classes.toString(),
+                greeting.toString(), src.resolve("Other.java").toString()));
+
+        write(greeting, "public class Greeting { public String toString() { return \"memory\"; } }");
+        Map<String, byte[]> compiled;
+        try (IncrementalCompiler compiler = new IncrementalCompiler(javac, List.of(src))) {
+            assertTrue(compiler.compile(List.of(greeting), List.of("-sourcepath", src.toString())).success());
+            compiled = compiler.compiledClasses();
+        }
+
+        try (InProcessTestRunner runner = newRunner()) {
+            ClassLoader first = runner.projectLoader(compiled);
+            Class<?> type = first.loadClass("Greeting");
+            assertEquals("memory", type.getConstructor().newInstance().toString());
+            assertSame(first, first.loadClass("Other").getClassLoader());
+
+            // Every run gets its own copy of the project classes
+            assertNotSame(type, runner.projectLoader(compiled).loadClass("Greeting"));
+        }
+    }
+
+    @Test
+    void testListsTopLevelTestClasses() throws IOException {
+        Path pkg = Files.createDirectories(tempDir.resolve("target/test-classes/com/acme"));
+        Files.createFile(pkg.resolve("FooTest.class"));
+        Files.createFile(pkg.resolve("FooTest$Nested.class"));
+        Files.createFile(pkg.resolve("readme.txt"));
+
+        try (InProcessTestRunner runner = newRunner()) {
+            assertEquals(Set.of("com.acme.FooTest"), runner.testClassesOnDisk());
+        }
+    }
+
+    @Test
+    void testIsolationFromString() {
+        assertEquals(InProcessTestRunner.Isolation.CLASS, InProcessTestRunner.Isolation.fromString("Class"));
+        assertEquals(InProcessTestRunner.Isolation.RUN, InProcessTestRunner.Isolation.fromString("run"));
+        assertEquals(InProcessTestRunner.Isolation.RUN, InProcessTestRunner.Isolation.fromString(null));
+    }
+
+    private InProcessTestRunner newRunner() {
+        return new InProcessTestRunner(List.of(), tempDir.resolve("target/classes"),
+                tempDir.resolve("target/test-classes"), Duration.ofSeconds(5), InProcessTestRunner.Isolation.RUN);
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        return Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,115 @@
+package com.raditha.dedup.refactoring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for IncrementalCompiler.
+ */
+class IncrementalCompilerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRecompilesChangedFilesAndDirectDependentsOnly() throws IOException {
+        Path src = Files.createDirectories(tempDir.resolve("src/main/java"));
+        Path a = write(src.resolve("A.java"), "public class A { public int value() { return 1; } }");
+        Path b = write(src.resolve("B.java"), "public class B { int twice() { return new A().value() * 2; } }");
+        Path c = write(src.resolve("C.java"), "public class C { }");
+
+        try (IncrementalCompiler compiler = newCompiler(src)) {
+            RefactoringVerifier.CompilationResult first = compiler.compile(List.of(a), options(src));
+            assertTrue(first.success(), "Errors: " + first.errors());
+            assertEquals(Set.of(normalize(a), normalize(b)), compiler.lastCompiled());
+            assertTrue(compiler.cachedClassCount() >= 2);
+
+            assertTrue(compiler.compile(List.of(c), options(src)).success());
+            assertEquals(Set.of(normalize(c)), compiler.lastCompiled());
+
+            // Breaking A's API is reported in its dependent
+            write(a, "public class A { public long value(int x) { return x; } }");
+            RefactoringVerifier.CompilationResult broken = compiler.compile(List.of(a), options(src));
+            assertFalse(broken.success());
+            assertTrue(broken.errors().stream().anyMatch(e -> e.contains("B.java")), "Errors: " + broken.errors());
+        }
+
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            assertTrue(files.noneMatch(p -> p.toString().endsWith(".class")), "Class files must stay in memory");
+        }
+    }
+
+    @Test
+    void testFilesChangedBehindTheCacheAreRecompiled() throws IOException {
+        Path src = Files.createDirectories(tempDir.resolve("src/main/java"));
+        Path a = write(src.resolve("A.java"), "public class A { }");
+        Path b = write(src.resolve("B.java"), "public class B { }");
+
+        try (IncrementalCompiler compiler = newCompiler(src)) {
+            assertTrue(compiler.compile(List.of(a, b), options(src)).success());
+
+            compiler.invalidate(b);
+            write(b, "public class B { void broken() { return 1; } }");
+            RefactoringVerifier.CompilationResult result = compiler.compile(List.of(a), options(src));
+
+            assertEquals(Set.of(normalize(a)), compiler.lastCompiled());
+            assertTrue(result.success(), "B is not a dependent of A and is not recompiled");
+
+            write(a, "public class A { B b; }");
+            assertFalse(compiler.compile(List.of(a), options(src)).success());
+        }
+    }
+
+    @Test
+    void testCompilesOverlayContentWithoutTouchingDisk() throws IOException {
+        Path src = Files.createDirectories(tempDir.resolve("src/main/java"));
+        Path a = write(src.resolve("A.java"), "public class A { }");
+        Path b = write(src.resolve("B.java"), "public class B { }");
+        SourceOverlay overlay = new SourceOverlay();
+
+        try (IncrementalCompiler compiler = new IncrementalCompiler(ToolProvider.getSystemJavaCompiler(),
+                List.of(src), overlay)) {
+            overlay.write(a, "public class A { int value() { return 1; } }");
+            assertTrue(compiler.compile(List.of(a), options(src)).success());
+
+            // B only compiles against the overlaid A, which javac must not read from disk
+            overlay.write(b, "public class B { int twice() { return new A().value() * 2; } }");
+            RefactoringVerifier.CompilationResult result = compiler.compile(List.of(b), options(src));
+            assertTrue(result.success(), "Errors: " + result.errors());
+            assertEquals(Set.of(normalize(b)), compiler.lastCompiled());
+
+            // Dropping A's overlay entry makes B fail against the version on disk
+            overlay.discard(a);
+            compiler.invalidate(a);
+            assertFalse(compiler.compile(List.of(a), options(src)).success());
+        }
+        assertEquals("public class A { }", Files.readString(a));
+    }
+
+    private static IncrementalCompiler newCompiler(Path src) {
+        return new IncrementalCompiler(ToolProvider.getSystemJavaCompiler(), List.of(src));
+    }
+
+    private static List<String> options(Path src) {
+        return List.of("-sourcepath", src.toString(), "-proc:none");
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private static Path normalize(Path file) {
+        return file.toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,63 @@
+package com.raditha.dedup.refactoring;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.raditha.dedup.model.RefactoringStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PrintedSources.
+ */
+class PrintedSourcesTest {
+
+    private static final Path A = Paths.get("A.java");
+    private static final Path B = Paths.get("B.java");
+
+    @Test
+    void testFilesAreKnownBeforePrinting() {
+        CompilationUnit a = StaticJavaParser.parse("class A { }");
+        Map<Path, CompilationUnit> units = new LinkedHashMap<>();
+        units.put(B, StaticJavaParser.parse("class B { }"));
+        units.put(A, a);
+        PrintedSources sources = new PrintedSources(units);
+
+        assertEquals(List.of(B, A), List.copyOf(sources.keySet()));
+        assertTrue(sources.containsKey(A));
+        assertEquals(2, sources.size());
+
+        // Changes made before the first read show up
+        a.getType(0).addMethod("late");
+        assertTrue(sources.get(A).contains("late"));
+    }
+
+    @Test
+    void testSourcesArePrintedOnce() {
+        CompilationUnit a = StaticJavaParser.parse("class A { }");
+        PrintedSources sources = new PrintedSources(Map.of(A, a));
+        String first = sources.get(A);
+
+        a.getType(0).addMethod("later");
+        assertSame(first, sources.get(A));
+        assertFalse(sources.values().iterator().next().contains("later"));
+    }
+
+    @Test
+    void testPrintedResultIsDetachedFromTheUnits() {
+        CompilationUnit a = StaticJavaParser.parse("class A { }");
+        MethodExtractor.RefactoringResult result = new MethodExtractor.RefactoringResult(
+                new PrintedSources(Map.of(A, a)), RefactoringStrategy.EXTRACT_HELPER_METHOD, "Extracted method: m")
+                .printed();
+
+        a.getType(0).addMethod("later");
+        assertFalse(result.modifiedFiles().get(A).contains("later"));
+        assertEquals("Extracted method: m", result.description());
+    }
+}
@@ -4,11 +4,14 @@ import com.raditha.dedup.model.*;
 import com.raditha.dedup.analyzer.DuplicationReport;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.MockedConstruction;
 import org.mockito.Mockito;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
@@ -25,6 +28,9 @@ class RefactoringEngineUnitTest {
     private DiffGenerator diffGenerator;
     private RefactoringEngine engine;
 
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     void setUp() {
         validator = mock(SafetyValidator.class);
@@ -228,6 +234,149 @@ class RefactoringEngineUnitTest {
         assertEquals(3, session.getTotalProcessed());
     }
 
+    @Test
+    void testOverlayHoldsChangesUntilTheSessionEnds() throws Exception {
+        Path accepted = source("A.java", "class A {\n    void a() { int x = 1; int y = 2; }\n}\n");
+        Path rejected = source("B.java", "class B {\n    void b() { int z = 3; }\n}\n");
+        String original = Files.readString(rejected);
+        SourceOverlay overlay = new SourceOverlay();
+        FakeVerifier fake = new FakeVerifier(overlay, List.of(accepted, rejected));
+        RefactoringEngine overlaid = extractingEngine(fake, overlay, RefactoringEngine.Options.DEFAULTS);
+
+        RefactoringEngine.RefactoringSession session = overlaid.processClusters(List.of(
+                cluster(accepted, "a", "helperA"), cluster(rejected, "b", "brokenB")));
+
+        assertEquals(1, session.getSuccessful().size());
+        assertEquals(1, session.getFailed().size());
+        assertEquals(2, fake.calls);
+        assertTrue(fake.diskUntouched, "Nothing is written to disk before the session ends");
+        assertTrue(overlay.isEmpty());
+        assertTrue(Files.readString(accepted).contains("helperA();"));
+        assertEquals(original, Files.readString(rejected));
+    }
+
+    @Test
+    void testWavesAccountLikeSequentialProcessing() throws Exception {
+        List<String> sequential = processInBatch("sequential", 1);
+        List<String> waves = processInBatch("waves", 4);
+
+        assertEquals(sequential, waves);
+        assertTrue(sequential.contains("SUCCESS c: Extracted method: helperC"), sequential.toString());
+        assertTrue(sequential.contains("FAILED b: broken helper"), sequential.toString());
+    }
+
+    @Test
+    void testSinglePassAppliesAFileBottomUp() throws Exception {
+        Path file = source("A.java", "class A {\n    void a() { int x = 1; int y = 2; }\n"
+                + "    void c() { int w = 4; int v = 5; }\n}\n");
+        FakeVerifier fake = new FakeVerifier(null, List.of(file));
+        List<String> applied = new java.util.ArrayList<>();
+        RefactoringEngine singlePass = extractingEngine(fake, null,
+                RefactoringEngine.Options.builder().singlePass(true).build(), applied);
+        com.github.javaparser.ast.CompilationUnit cu = com.github.javaparser.StaticJavaParser.parse(file);
+
+        // The top cluster has the higher strategy priority, which must not reorder them
+        RefactoringEngine.RefactoringSession session = singlePass.processClusters(List.of(
+                cluster(cu, file, "a", "helperA", RefactoringStrategy.EXTRACT_TO_PARAMETERIZED_TEST),
+                cluster(cu, file, "c", "helperC", RefactoringStrategy.EXTRACT_HELPER_METHOD)));
+
+        assertEquals(List.of("helperC", "helperA"), applied);
+        assertEquals(2, session.getSuccessful().size());
+        assertEquals(1, fake.calls, "The file is verified once");
+        String written = Files.readString(file);
+        assertTrue(written.contains("helperA();") && written.contains("helperC();"), written);
+    }
+
+    @Test
+    void testSinglePassAbortsAFileWithoutTouchingTheAst() throws Exception {
+        String code = "class A {\n    void a() { int x = 1; int y = 2; }\n"
+                + "    void c() { int w = 4; int v = 5; }\n    void e() { int u = 6; int t = 7; }\n}\n";
+        Path file = source("A.java", code);
+        FakeVerifier fake = new FakeVerifier(null, List.of(file));
+        RefactoringEngine singlePass = extractingEngine(fake, null,
+                RefactoringEngine.Options.builder().singlePass(true).build());
+        com.github.javaparser.ast.CompilationUnit cu = com.github.javaparser.StaticJavaParser.parse(file);
+        String parsed = cu.toString();
+
+        RefactoringEngine.RefactoringSession session = singlePass.processClusters(List.of(
+                cluster(cu, file, "a", "helperA", RefactoringStrategy.EXTRACT_HELPER_METHOD),
+                cluster(cu, file, "c", "throwingC", RefactoringStrategy.EXTRACT_HELPER_METHOD),
+                cluster(cu, file, "e", "helperE", RefactoringStrategy.EXTRACT_HELPER_METHOD)));
+
+        assertTrue(session.getSuccessful().isEmpty());
+        List<String> errors = session.getFailed().stream().map(RefactoringEngine.RefactoringResult::error).toList();
+        assertEquals(3, errors.size());
+        assertEquals(2, errors.stream().filter(e -> e.startsWith("Aborted: another refactoring of A.java")).count(),
+                errors.toString());
+        assertEquals(0, fake.calls);
+        assertEquals(code, Files.readString(file));
+        assertEquals(parsed, cu.toString(), "Neither the applied nor the throwing cluster changed the AST");
+
+        // The next session starts from the unchanged AST
+        RefactoringEngine.RefactoringSession again = singlePass.processClusters(List.of(
+                cluster(cu, file, "a", "helperA", RefactoringStrategy.EXTRACT_HELPER_METHOD)));
+        assertEquals(1, again.getSuccessful().size());
+        assertFalse(Files.readString(file).contains("throwingC"));
+    }
+
+    @Test
+    void testSinglePassReplacesBatchesButNotWaves() throws Exception {
+        Path batched = source("batches/A.java", "class A {\n    void a() { int x = 1; int y = 2; }\n"
+                + "    void c() { int w = 4; int v = 5; }\n}\n");
+        FakeVerifier batchVerifier = new FakeVerifier(null, List.of(batched));
+        com.github.javaparser.ast.CompilationUnit cu = com.github.javaparser.StaticJavaParser.parse(batched);
+        RefactoringEngine.RefactoringSession session = extractingEngine(batchVerifier, null,
+                RefactoringEngine.Options.builder().singlePass(true).verifyBatchSize(4).build())
+                .processClusters(List.of(
+                        cluster(cu, batched, "a", "helperA", RefactoringStrategy.EXTRACT_HELPER_METHOD),
+                        cluster(cu, batched, "c", "helperC", RefactoringStrategy.EXTRACT_HELPER_METHOD)));
+        assertEquals(2, session.getSuccessful().size());
+        assertEquals(1, batchVerifier.calls, "The file is written and verified once");
+        assertTrue(session.getSuccessful().get(0).details().startsWith("Extracted method"));
+
+        // Waves plan each cluster on its own, single-pass or not
+        assertEquals(processInBatch("waves", 4), processInBatch("singlePassWaves", 4, true));
+    }
+
+    private List<String> processInBatch(String dir, int threads) throws Exception {
+        return processInBatch(dir, threads, false);
+    }
+
+    /**
+     * @return the results of the session in order, its line counts and the files
+     */
+    private List<String> processInBatch(String dir, int threads, boolean singlePass) throws Exception {
+        List<Path> files = List.of(
+                source(dir + "/A.java", "class A {\n    void a() { int x = 1; int y = 2; }\n"
+                        + "    void c() { int w = 4; }\n}\n"),
+                source(dir + "/B.java", "class B {\n    void b() { int z = 3; }\n}\n"),
+                source(dir + "/D.java", "class D {\n    void d() { int v = 5; int u = 6; }\n}\n"));
+        RefactoringEngine batch = extractingEngine(new FakeVerifier(null, files), null,
+                RefactoringEngine.Options.builder().refactorThreads(threads).singlePass(singlePass).build());
+        com.github.javaparser.ast.CompilationUnit a = com.github.javaparser.StaticJavaParser.parse(files.get(0));
+
+        RefactoringEngine.RefactoringSession session = batch.processClusters(List.of(
+                cluster(a, files.get(0), "a", "helperA", RefactoringStrategy.EXTRACT_HELPER_METHOD),
+                cluster(files.get(1), "b", "brokenB"),
+                cluster(a, files.get(0), "c", "helperC", RefactoringStrategy.EXTRACT_HELPER_METHOD),
+                cluster(files.get(2), "d", "helperD")));
+
+        List<String> outcome = new java.util.ArrayList<>();
+        for (RefactoringEngine.RefactoringResult result : session.getSuccessful()) {
+            outcome.add("SUCCESS " + result.cluster().primary().containingCallable().getNameAsString() + ": "
+                    + result.details());
+        }
+        for (RefactoringEngine.RefactoringResult result : session.getFailed()) {
+            outcome.add("FAILED " + result.cluster().primary().containingCallable().getNameAsString() + ": "
+                    + result.error());
+        }
+        outcome.add("lines +" + session.getAddedLines() + " -" + session.getRemovedLines());
+        for (Path file : files) {
+            outcome.add(Files.readString(file));
+        }
+        return outcome;
+    }
+
     private RefactoringRecommendation mockRec(RefactoringStrategy strategy) {
         RefactoringRecommendation rec = mock(RefactoringRecommendation.class);
         when(rec.getStrategy()).thenReturn(strategy);
@@ -236,4 +385,107 @@ class RefactoringEngineUnitTest {
         when(rec.formatConfidence()).thenReturn("100%");
         return rec;
     }
+
+    private Path source(String name, String code) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, code);
+        return file;
+    }
+
+    /**
+     * A cluster of the whole body of a method, recommending a helper of the given name.
+     */
+    private static DuplicateCluster cluster(Path file, String method, String helper) throws IOException {
+        com.github.javaparser.ast.CompilationUnit cu = com.github.javaparser.StaticJavaParser.parse(file);
+        return cluster(cu, file, method, helper, RefactoringStrategy.EXTRACT_HELPER_METHOD);
+    }
+
+    private static DuplicateCluster cluster(com.github.javaparser.ast.CompilationUnit cu, Path file, String method,
+            String helper, RefactoringStrategy strategy) {
+        com.github.javaparser.ast.body.MethodDeclaration declaration = cu.findFirst(
+                com.github.javaparser.ast.body.MethodDeclaration.class,
+                m -> m.getNameAsString().equals(method)).orElseThrow();
+        StatementSequence sequence = com.raditha.dedup.extraction.StatementExtractor.createSequence(
+                declaration.getBody().orElseThrow().getStatements(), declaration, cu, file);
+        RefactoringRecommendation recommendation = new RefactoringRecommendation(
+                strategy, helper, List.of(), null, null, 1.0, 1, null);
+        return new DuplicateCluster(sequence, List.of(), recommendation, 1);
+    }
+
+    private static RefactoringEngine extractingEngine(FakeVerifier verifier, SourceOverlay overlay,
+            RefactoringEngine.Options options) {
+        return extractingEngine(verifier, overlay, options, new java.util.ArrayList<>());
+    }
+
+    /**
+     * An engine that accepts every cluster and replaces its primary sequence with a
+     * call to a new helper method, without the symbol solver. Helpers named "throwing"
+     * fail after the first edit. The helper names are added to applied in order.
+     */
+    private static RefactoringEngine extractingEngine(FakeVerifier verifier, SourceOverlay overlay,
+            RefactoringEngine.Options options, List<String> applied) {
+        SafetyValidator accepting = new SafetyValidator() {
+            @Override
+            public ValidationResult validate(DuplicateCluster cluster, RefactoringRecommendation recommendation) {
+                return new ValidationResult(List.of());
+            }
+        };
+        return new RefactoringEngine(RefactoringEngine.RefactoringMode.BATCH, accepting, verifier,
+                new DiffGenerator(overlay), options, overlay) {
+            @Override
+            MethodExtractor.RefactoringResult applyRefactoring(DuplicateCluster cluster,
+                    RefactoringRecommendation recommendation) {
+                StatementSequence sequence = cluster.primary();
+                String helper = recommendation.getSuggestedMethodName();
+                List<com.github.javaparser.ast.stmt.Statement> statements = sequence.statements();
+                applied.add(helper);
+                statements.get(0).replace(com.github.javaparser.StaticJavaParser.parseStatement(helper + "();"));
+                if (helper.startsWith("throwing")) {
+                    throw new IllegalStateException("cannot extract " + helper);
+                }
+                statements.subList(1, statements.size()).forEach(com.github.javaparser.ast.stmt.Statement::remove);
+                sequence.containingCallable()
+                        .findAncestor(com.github.javaparser.ast.body.TypeDeclaration.class).orElseThrow()
+                        .addMethod(helper);
+                return new MethodExtractor.RefactoringResult(sequence.sourceFilePath(),
+                        sequence.compilationUnit().toString(), recommendation.getStrategy(),
+                        "Extracted method: " + helper);
+            }
+        };
+    }
+
+    /**
+     * Fails verification while any of the files reads "broken", through the overlay if
+     * there is one.
+     */
+    private static class FakeVerifier extends RefactoringVerifier {
+        private final SourceOverlay overlay;
+        private final Map<Path, String> onDisk = new java.util.HashMap<>();
+        boolean diskUntouched = true;
+        int calls;
+
+        FakeVerifier(SourceOverlay overlay, List<Path> files) throws IOException {
+            super(files.get(0).getParent(), com.raditha.dedup.cli.VerifyMode.NONE, overlay);
+            this.overlay = overlay;
+            for (Path file : files) {
+                onDisk.put(file, Files.readString(file));
+            }
+        }
+
+        @Override
+        public VerificationResult verify() throws IOException {
+            calls++;
+            StringBuilder all = new StringBuilder();
+            for (Map.Entry<Path, String> entry : onDisk.entrySet()) {
+                String content = overlay != null ? overlay.read(entry.getKey()) : Files.readString(entry.getKey());
+                diskUntouched &= overlay == null || entry.getValue().equals(Files.readString(entry.getKey()));
+                all.append(content);
+            }
+            if (all.toString().contains("broken")) {
+                return new VerificationResult(false, List.of("broken helper"), "failed");
+            }
+            return new VerificationResult(true, List.of(), "ok");
+        }
+    }
 }
@@ -0,0 +1,258 @@
+package com.raditha.dedup.refactoring;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.stmt.Statement;
+import com.raditha.dedup.extraction.StatementExtractor;
+import com.raditha.dedup.model.DuplicateCluster;
+import com.raditha.dedup.model.RefactoringRecommendation;
+import com.raditha.dedup.model.RefactoringStrategy;
+import com.raditha.dedup.model.StatementSequence;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for RefactoringPlanner.
+ */
+class RefactoringPlannerTest {
+
+    private static final Path FILE = Paths.get("A.java");
+
+    private final AtomicInteger transformations = new AtomicInteger();
+    private CompilationUnit cu;
+
+    @BeforeEach
+    void setUp() {
+        cu = StaticJavaParser.parse("""
+                class A {
+                    void a() { int x = 1; int y = 2; }
+                    void b() { int z = 3; }
+                }
+                """);
+    }
+
+    @Test
+    void testPreviewLeavesLiveAstAloneAndAcceptedPlanIsReused() {
+        DuplicateCluster first = cluster("a", RefactoringStrategy.EXTRACT_HELPER_METHOD);
+        DuplicateCluster second = cluster("b", RefactoringStrategy.EXTRACT_HELPER_METHOD);
+        RefactoringPlanner planner = new RefactoringPlanner(List.of(first, second), this::extract, true);
+
+        MethodExtractor.RefactoringResult preview = planner.preview(first, first.recommendation());
+        assertTrue(preview.modifiedFiles().get(FILE).contains("helperA"));
+        assertFalse(cu.toString().contains("helperA"), "Preview must not touch the live AST");
+
+        assertSame(preview, planner.refactor(first, first.recommendation()));
+        assertEquals(1, transformations.get());
+        assertTrue(cu.toString().contains("helperA"));
+
+        // The pending cluster in the same file now points at the adopted nodes
+        DuplicateCluster pending = planner.cluster(1);
+        assertNotSame(second, pending);
+        assertSame(cu, pending.primary().statements().get(0).findCompilationUnit().orElseThrow());
+
+        String code = planner.refactor(pending, pending.recommendation()).modifiedFiles().get(FILE);
+        assertTrue(code.contains("helperA") && code.contains("helperB"), code);
+        assertFalse(code.contains("int z"), code);
+    }
+
+    @Test
+    void testPlansAreDroppedWhenTheirFileChanges() {
+        DuplicateCluster first = cluster("a", RefactoringStrategy.EXTRACT_HELPER_METHOD);
+        DuplicateCluster second = cluster("b", RefactoringStrategy.EXTRACT_HELPER_METHOD);
+        RefactoringPlanner planner = new RefactoringPlanner(List.of(first, second), this::extract, true);
+
+        planner.planAll(2);
+        assertEquals(2, transformations.get());
+        assertFalse(cu.toString().contains("helper"));
+
+        planner.refactor(first, first.recommendation());
+        assertEquals(2, transformations.get(), "The first plan is adopted");
+
+        DuplicateCluster pending = planner.cluster(1);
+        String code = planner.refactor(pending, pending.recommendation()).modifiedFiles().get(FILE);
+        assertEquals(3, transformations.get(), "The second plan predates the first refactoring");
+        assertTrue(code.contains("helperA") && code.contains("helperB"), code);
+    }
+
+    @Test
+    void testPrefetchedPreviewIsReused() {
+        DuplicateCluster first = cluster("a", RefactoringStrategy.EXTRACT_HELPER_METHOD);
+        DuplicateCluster second = cluster("b", RefactoringStrategy.EXTRACT_HELPER_METHOD);
+        try (RefactoringPlanner planner = new RefactoringPlanner(List.of(first, second), this::extract, true)) {
+            planner.preview(first, first.recommendation());
+            planner.prefetch(first, 2);
+
+            MethodExtractor.RefactoringResult preview = planner.preview(second, second.recommendation());
+            assertEquals(2, transformations.get(), "The second preview was computed in the background");
+            assertTrue(preview.modifiedFiles().get(FILE).contains("helperB"));
+            assertFalse(cu.toString().contains("helper"));
+
+            assertSame(preview, planner.refactor(second, second.recommendation()));
+            assertEquals(2, transformations.get());
+        }
+    }
+
+    @Test
+    void testPrefetchedPreviewIsDiscardedWhenItsFileChanges() {
+        DuplicateCluster first = cluster("a", RefactoringStrategy.EXTRACT_HELPER_METHOD);
+        DuplicateCluster second = cluster("b", RefactoringStrategy.EXTRACT_HELPER_METHOD);
+        try (RefactoringPlanner planner = new RefactoringPlanner(List.of(first, second), this::extract, true)) {
+            planner.preview(first, first.recommendation());
+            planner.prefetch(first, 1);
+            planner.refactor(first, first.recommendation());
+
+            DuplicateCluster pending = planner.cluster(1);
+            String code = planner.preview(pending, pending.recommendation()).modifiedFiles().get(FILE);
+            assertEquals(3, transformations.get(), "The prefetched preview predates the first refactoring");
+            assertTrue(code.contains("helperA") && code.contains("helperB"), code);
+        }
+    }
+
+    @Test
+    void testPreviewDoesNotAdoptLiveRecommendationNodes() {
+        DuplicateCluster live = cluster("a", RefactoringStrategy.EXTRACT_HELPER_METHOD);
+        VariableDeclarator declarator = cu.findFirst(VariableDeclarator.class).orElseThrow();
+        RefactoringRecommendation recommendation = new RefactoringRecommendation(
+                RefactoringStrategy.EXTRACT_HELPER_METHOD, "helperA", List.of(), declarator.getType(), null, 1.0, 1, null);
+        DuplicateCluster cluster = new DuplicateCluster(live.primary(), List.of(), recommendation, 1);
+        RefactoringPlanner planner = new RefactoringPlanner(List.of(cluster), (c, r) -> {
+            MethodExtractor.RefactoringResult result = extract(c, r);
+            // Like the extractors, put the suggested return type on the new method
+            c.primary().compilationUnit().findAll(MethodDeclaration.class).stream()
+                    .filter(m -> m.getNameAsString().equals("helperA"))
+                    .forEach(m -> m.setType(r.getSuggestedReturnType()));
+            return result;
+        }, true);
+
+        planner.preview(cluster, recommendation);
+        assertSame(declarator, declarator.getType().getParentNode().orElseThrow());
+        assertEquals("int x = 1;", declarator.findAncestor(Statement.class).orElseThrow().toString());
+    }
+
+    @Test
+    void testTypeCreatingStrategiesAreTransformedLive() {
+        DuplicateCluster cluster = cluster("a", RefactoringStrategy.EXTRACT_TO_UTILITY_CLASS);
+        RefactoringPlanner planner = new RefactoringPlanner(List.of(cluster), this::extract, true);
+
+        assertFalse(RefactoringPlanner.canPlan(cluster));
+        planner.preview(cluster, cluster.recommendation());
+        assertTrue(cu.toString().contains("helperA"));
+    }
+
+    @Test
+    void testDisabledPlannerTransformsLive() {
+        DuplicateCluster cluster = cluster("a", RefactoringStrategy.EXTRACT_HELPER_METHOD);
+        RefactoringPlanner planner = new RefactoringPlanner(List.of(cluster), this::extract, false);
+
+        planner.planAll(2);
+        assertEquals(0, transformations.get());
+        planner.preview(cluster, cluster.recommendation());
+        assertTrue(cu.toString().contains("helperA"));
+    }
+
+    @Test
+    void testLaterPlannerSeesLiveNodesOfAnotherClassInTheFile() {
+        cu = StaticJavaParser.parse("""
+                class A {
+                    void a() { int x = 1; int y = 2; }
+                    class Inner {
+                        void i() { int w = 4; }
+                    }
+                }
+                class B {
+                    void b() { int z = 3; }
+                }
+                """);
+        DuplicateCluster first = cluster("a", RefactoringStrategy.EXTRACT_HELPER_METHOD);
+        DuplicateCluster inner = cluster("i", RefactoringStrategy.EXTRACT_TO_UTILITY_CLASS);
+        DuplicateCluster second = cluster("b", RefactoringStrategy.EXTRACT_TO_UTILITY_CLASS);
+        TypeDeclaration<?> innerType = inner.primary().containingCallable()
+                .findAncestor(TypeDeclaration.class).orElseThrow();
+
+        // One planner per class, like the orchestrator
+        RefactoringPlanner planner = new RefactoringPlanner(List.of(first), this::extract, true);
+        planner.preview(first, first.recommendation());
+        planner.refactor(first, first.recommendation());
+        assertEquals(1, transformations.get(), "The plan is adopted");
+        assertTrue(RefactoringPlanner.isAttached(second));
+        assertSame(cu, innerType.findCompilationUnit().orElseThrow(), "Unchanged members keep their live nodes");
+
+        // Not plannable, so transformed on the live AST
+        String code = new RefactoringPlanner(List.of(second), this::extract, true)
+                .refactor(second, second.recommendation()).modifiedFiles().get(FILE);
+        new RefactoringPlanner(List.of(inner), this::extract, true).refactor(inner, inner.recommendation());
+
+        assertTrue(code.contains("helperA") && code.contains("helperB"), code);
+        assertFalse(cu.toString().contains("int z") || cu.toString().contains("int w"), cu.toString());
+        assertTrue(cu.toString().contains("helperI"), cu.toString());
+    }
+
+    @Test
+    void testClusterWhoseCodeWasReplacedIsSkipped() {
+        DuplicateCluster first = cluster("a", RefactoringStrategy.EXTRACT_HELPER_METHOD);
+        DuplicateCluster stale = cluster("a", RefactoringStrategy.EXTRACT_TO_UTILITY_CLASS);
+        RefactoringPlanner planner = new RefactoringPlanner(List.of(first), this::extract, true);
+        planner.preview(first, first.recommendation());
+        planner.refactor(first, first.recommendation());
+        String before = cu.toString();
+
+        MethodExtractor.RefactoringResult result = new RefactoringPlanner(List.of(stale), this::extract, true)
+                .refactor(stale, stale.recommendation());
+
+        assertTrue(result.description().startsWith("Skipped"), result.description());
+        assertTrue(result.modifiedFiles().isEmpty());
+        assertEquals(1, transformations.get());
+        assertEquals(before, cu.toString());
+    }
+
+    @Test
+    void testOutlineIgnoresMembersAndImports() {
+        CompilationUnit copy = cu.clone();
+        copy.addImport("java.util.List");
+        copy.getType(0).addMethod("extra");
+        assertTrue(RefactoringPlanner.sameOutline(cu, copy));
+
+        copy.getType(0).setName("B");
+        assertFalse(RefactoringPlanner.sameOutline(cu, copy));
+    }
+
+    /**
+     * Replaces each sequence with a call to a new helper method, on whichever AST the
+     * cluster points at.
+     */
+    private MethodExtractor.RefactoringResult extract(DuplicateCluster cluster, RefactoringRecommendation recommendation) {
+        transformations.incrementAndGet();
+        StatementSequence sequence = cluster.primary();
+        String helper = recommendation.getSuggestedMethodName();
+        List<Statement> statements = sequence.statements();
+        statements.get(0).replace(StaticJavaParser.parseStatement(helper + "();"));
+        statements.subList(1, statements.size()).forEach(Statement::remove);
+        TypeDeclaration<?> type = sequence.containingCallable().findAncestor(TypeDeclaration.class).orElseThrow();
+        type.addMethod(helper);
+        return new MethodExtractor.RefactoringResult(FILE, sequence.compilationUnit().toString(),
+                recommendation.getStrategy(), "Extracted method: " + helper);
+    }
+
+    private DuplicateCluster cluster(String method, RefactoringStrategy strategy) {
+        MethodDeclaration declaration = cu.findAll(MethodDeclaration.class).stream()
+                .filter(m -> m.getNameAsString().equals(method))
+                .findFirst()
+                .orElseThrow();
+        StatementSequence sequence = StatementExtractor.createSequence(
+                declaration.getBody().orElseThrow().getStatements(), declaration, cu, FILE);
+        String helper = "helper" + Character.toUpperCase(method.charAt(0));
+        RefactoringRecommendation recommendation = new RefactoringRecommendation(
+                strategy, helper, List.of(), null, null, 1.0, 1, null);
+        return new DuplicateCluster(sequence, List.of(), recommendation, 1);
+    }
+}
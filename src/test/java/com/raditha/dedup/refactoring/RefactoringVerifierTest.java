@@ -142,6 +142,34 @@ class RefactoringVerifierTest {
         assertFalse(Files.exists(newFile), "NewFile should have been deleted on rollback");
     }
 
+    @Test
+    void testOverlayRollbackLeavesDiskUntouched() throws IOException {
+        Path existing = tempDir.resolve("Existing.java");
+        Files.writeString(existing, "original");
+        Path created = tempDir.resolve("Created.java");
+        SourceOverlay overlay = new SourceOverlay();
+        overlay.write(existing, "accepted");
+
+        RefactoringVerifier verifier = new RefactoringVerifier(tempDir, VerifyMode.NONE, overlay);
+        verifier.createBackup(existing);
+        verifier.createBackup(created);
+        overlay.write(existing, "pending");
+        overlay.write(created, "created");
+
+        verifier.rollback();
+
+        assertEquals("accepted", overlay.read(existing));
+        assertFalse(overlay.exists(created));
+        assertEquals("original", Files.readString(existing));
+    }
+
+    @Test
+    void testOverlayRequiresInProcessVerification() {
+        SourceOverlay overlay = new SourceOverlay();
+        assertThrows(IllegalArgumentException.class,
+                () -> new RefactoringVerifier(tempDir, VerifyMode.COMPILE, overlay));
+    }
+
     @Test
     void testClearBackups() throws IOException {
         Path file1 = tempDir.resolve("File1.java");
@@ -253,16 +281,4 @@ class RefactoringVerifierTest {
         boolean foundError = result.errors().stream().anyMatch(e -> e.contains("illegal") || e.contains("Invalid.java") || e.contains("error"));
         assertTrue(foundError, "Should have found an error message in: " + result.errors());
     }
-
-    @Test
-    void testDeleteDirectoryRecursively() throws IOException {
-        Path subdir = tempDir.resolve("subdir");
-        Files.createDirectories(subdir);
-        Files.writeString(subdir.resolve("file.txt"), "hello");
-        
-        RefactoringVerifier verifier = new RefactoringVerifier(tempDir);
-        verifier.deleteDirectoryRecursively(subdir);
-        
-        assertFalse(Files.exists(subdir));
-    }
 }
@@ -0,0 +1,54 @@
+package com.raditha.dedup.refactoring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SourceOverlay.
+ */
+class SourceOverlayTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadsPreferOverlayAndDiscardRevealsDisk() throws IOException {
+        Path file = tempDir.resolve("A.java");
+        Files.writeString(file, "disk");
+        SourceOverlay overlay = new SourceOverlay();
+
+        assertEquals("disk", overlay.read(file));
+        assertEquals(0, overlay.version(file));
+
+        overlay.write(file, "memory");
+        long written = overlay.version(file);
+        assertEquals("memory", overlay.read(file));
+        assertEquals("disk", Files.readString(file));
+
+        overlay.discard(file);
+        assertEquals("disk", overlay.read(file));
+        assertNotEquals(written, overlay.version(file));
+        assertTrue(overlay.isEmpty());
+    }
+
+    @Test
+    void testNewFilesExistOnlyInOverlayUntilFlushed() throws IOException {
+        Path file = tempDir.resolve("pkg/New.java");
+        SourceOverlay overlay = new SourceOverlay();
+
+        overlay.write(file, "class New {}");
+        assertTrue(overlay.exists(file));
+        assertFalse(Files.exists(file));
+        assertTrue(overlay.paths().contains(file.toAbsolutePath().normalize()));
+
+        overlay.flush();
+        assertEquals("class New {}", Files.readString(file));
+        assertTrue(overlay.isEmpty());
+    }
+}
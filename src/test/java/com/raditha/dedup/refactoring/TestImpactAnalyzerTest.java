@@ -0,0 +1,111 @@
+package com.raditha.dedup.refactoring;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for TestImpactAnalyzer.
+ */
+class TestImpactAnalyzerTest {
+
+    private static final Path ROOT = Paths.get("/project");
+    private static final Path REPO = ROOT.resolve("src/main/java/com/acme/Repo.java");
+    private static final Path SERVICE = ROOT.resolve("src/main/java/com/acme/service/Service.java");
+    private static final Path UTIL = ROOT.resolve("src/main/java/com/acme/Util.java");
+
+    private final Map<String, CompilationUnit> units = new HashMap<>();
+
+    TestImpactAnalyzerTest() {
+        add(REPO, "com.acme.Repo", """
+                package com.acme;
+                public class Repo { }
+                """);
+        add(SERVICE, "com.acme.service.Service", """
+                package com.acme.service;
+                import com.acme.Repo;
+                public class Service { private Repo repo; }
+                """);
+        add(UTIL, "com.acme.Util", """
+                package com.acme;
+                public class Util { static int one() { return 1; } }
+                """);
+        add(ROOT.resolve("src/test/java/com/acme/RepoTest.java"), "com.acme.RepoTest", """
+                package com.acme;
+                import org.junit.jupiter.api.Test;
+                class RepoTest { @Test void t() { new Repo(); } }
+                """);
+        add(ROOT.resolve("src/test/java/com/acme/service/ServiceTest.java"), "com.acme.service.ServiceTest", """
+                package com.acme.service;
+                import org.junit.jupiter.api.Test;
+                class ServiceTest { @Test void t() { new Service(); } }
+                """);
+        add(ROOT.resolve("src/test/java/com/acme/UtilTests.java"), "com.acme.UtilTests", """
+                package com.acme;
+                import static com.acme.Util.one;
+                class UtilTests extends AbstractTests { }
+                """);
+    }
+
+    @Test
+    void testSelectsDirectAndTransitiveTests() {
+        TestImpactAnalyzer analyzer = new TestImpactAnalyzer(units, 2);
+
+        assertEquals(Optional.of(Set.of("com.acme.RepoTest", "com.acme.service.ServiceTest")),
+                analyzer.affectedTests(List.of(REPO)));
+    }
+
+    @Test
+    void testDepthLimitsTransitiveTests() {
+        TestImpactAnalyzer analyzer = new TestImpactAnalyzer(units, 1);
+
+        assertEquals(Optional.of(Set.of("com.acme.RepoTest")), analyzer.affectedTests(List.of(REPO)));
+    }
+
+    @Test
+    void testStaticImportsAndSurefireNamesCount() {
+        TestImpactAnalyzer analyzer = new TestImpactAnalyzer(units, 1);
+
+        assertEquals(Optional.of(Set.of("com.acme.UtilTests")), analyzer.affectedTests(List.of(UTIL)));
+    }
+
+    @Test
+    void testUnknownFileSelectsFullSuite() {
+        TestImpactAnalyzer analyzer = new TestImpactAnalyzer(units, 2);
+
+        assertTrue(analyzer.affectedTests(List.of(REPO, ROOT.resolve("src/main/java/Other.java"))).isEmpty());
+    }
+
+    @Test
+    void testNoIndexedTestsSelectsFullSuite() {
+        units.keySet().removeIf(name -> name.endsWith("Test") || name.endsWith("Tests"));
+        TestImpactAnalyzer analyzer = new TestImpactAnalyzer(units, 2);
+
+        assertTrue(analyzer.affectedTests(List.of(REPO)).isEmpty());
+    }
+
+    @Test
+    void testBuildTestCommand() {
+        assertEquals(List.of("mvn", "test", "-q"), RefactoringVerifier.buildTestCommand(Optional.empty()));
+        assertEquals(List.of("mvn", "test", "-q", "-Dtest=a.ATest,b.BTest",
+                        "-Dsurefire.failIfNoSpecifiedTests=false", "-DfailIfNoTests=false"),
+                RefactoringVerifier.buildTestCommand(Optional.of(new TreeSet<>(Set.of("b.BTest", "a.ATest")))));
+    }
+
+    private void add(Path path, String name, String source) {
+        CompilationUnit cu = StaticJavaParser.parse(source);
+        cu.setStorage(path);
+        units.put(name, cu);
+    }
+}